@@ -0,0 +1,241 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.BinaryEventLogReader;
+import input.BinaryEventLogWriter;
+import input.StandardEventsReader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+import report.AsyncReportWriter;
+
+/**
+ * Benchmark for the binary event log. Logs a synthetic stream of
+ * {@value #DEFAULT_NROF_EVENTS} (or the amount given as the first
+ * argument) connection and message events between
+ * {@value #NROF_HOSTS} hosts both as text lines, the way
+ * <CODE>EventLogReport</CODE> does, and with {@link BinaryEventLogWriter},
+ * the way <CODE>BinaryEventLogReport</CODE> does. Reports the logging
+ * time per event and the file sizes, and checks that converting the binary
+ * log back to text gives the same lines.
+ * The <CODE>binary_raw</CODE> run doesn't deflate the blocks, so it
+ * shows the cost of encoding the events on the simulation thread; the
+ * <CODE>binary</CODE> run includes the deflating, which the writer does on
+ * a background thread (in parallel with the simulation if there are free
+ * cores).
+ */
+public class EventLogBenchmark {
+	/** Default number of events */
+	public static final int DEFAULT_NROF_EVENTS = 2000000;
+	/** Number of hosts */
+	public static final int NROF_HOSTS = 2000;
+	/** Number of hosts each host meets */
+	public static final int NEIGHBORHOOD = 20;
+	/** Number of the latest created messages that are relayed */
+	public static final int ACTIVE_MESSAGES = 500;
+	/** Number of measured rounds (the first round is warm up) */
+	public static final int ROUNDS = 3;
+	/** Seed for the events */
+	public static final long SEED = 42;
+
+	private static final String[] CAUSES = {null, "buffer full",
+		"connection lost"};
+
+	public static void main(String[] args) throws IOException {
+		int nrofEvents = DEFAULT_NROF_EVENTS;
+		if (args.length > 0) {
+			nrofEvents = Integer.parseInt(args[0]);
+		}
+		String[] names = new String[NROF_HOSTS];
+		for (int i=0; i<NROF_HOSTS; i++) {
+			names[i] = "p" + i;
+		}
+		String[] msgIds = new String[nrofEvents];
+		for (int i=0; i<nrofEvents; i++) {
+			msgIds[i] = "M" + i;
+		}
+
+		File text = File.createTempFile("eventlog", ".txt");
+		File binary = File.createTempFile("eventlog",
+				BinaryEventLogWriter.LOG_EXT);
+		text.deleteOnExit();
+		binary.deleteOnExit();
+
+		System.out.println("format\tevents\tbest_ms\tns_per_event\tbytes");
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round <= ROUNDS; round++) {
+			long start = System.nanoTime();
+			logText(text, names, msgIds, nrofEvents);
+			long time = System.nanoTime() - start;
+			if (round > 0) {
+				best = Math.min(best, time);
+			}
+		}
+		print("text", nrofEvents, best, text.length());
+
+		for (boolean compress : new boolean[] {false, true}) {
+			best = Long.MAX_VALUE;
+			for (int round = 0; round <= ROUNDS; round++) {
+				long start = System.nanoTime();
+				logBinary(binary, names, msgIds, nrofEvents, compress);
+				long time = System.nanoTime() - start;
+				if (round > 0) {
+					best = Math.min(best, time);
+				}
+			}
+			print(compress ? "binary" : "binary_raw", nrofEvents, best,
+					binary.length());
+		}
+
+		System.out.println("converted text equal: " + sameText(binary, text));
+	}
+
+	private static void print(String format, int nrofEvents, long time,
+			long bytes) {
+		System.out.printf("%s\t%d\t%.1f\t%.1f\t%d\n", format, nrofEvents,
+				time / 1e6, (double)time / nrofEvents, bytes);
+	}
+
+	/**
+	 * Interface for the two logging formats
+	 */
+	private interface EventSink {
+		void event(double time, byte type, int h1, int h2, int msg,
+				String cause) throws IOException;
+	}
+
+	/**
+	 * Generates the events
+	 */
+	private static void generate(EventSink sink, int nrofEvents)
+			throws IOException {
+		Random rng = new Random(SEED);
+		double time = 0;
+		int nrofMessages = 0;
+		for (int i=0; i<nrofEvents; i++) {
+			if (rng.nextInt(20) == 0) {
+				time += 0.1;
+			}
+			/* hosts meet mostly their neighbors and the events are about
+			 * recently created messages, as in a simulation */
+			int h1 = rng.nextInt(NROF_HOSTS);
+			int h2 = (h1 + 1 + rng.nextInt(NEIGHBORHOOD)) % NROF_HOSTS;
+			int r = rng.nextInt(100);
+			if (r < 30) {
+				byte type = r < 15 ? BinaryEventLogWriter.TYPE_CONNECTION_UP :
+					BinaryEventLogWriter.TYPE_CONNECTION_DOWN;
+				sink.event(time, type, h1, h2, 0, null);
+			}
+			else if (r < 35 || nrofMessages == 0) {
+				sink.event(time, BinaryEventLogWriter.TYPE_CREATE, h1, h2,
+						nrofMessages++, null);
+			}
+			else {
+				byte type = (byte)(BinaryEventLogWriter.TYPE_TRANSMISSION +
+						rng.nextInt(BinaryEventLogWriter.NROF_TYPES -
+								BinaryEventLogWriter.TYPE_TRANSMISSION));
+				int msg = nrofMessages - 1 -
+					rng.nextInt(Math.min(nrofMessages, ACTIVE_MESSAGES));
+				sink.event(time, type, h1, h2, msg,
+						CAUSES[rng.nextInt(CAUSES.length)]);
+			}
+		}
+	}
+
+	private static void logText(File file, final String[] names,
+			final String[] msgIds, int nrofEvents) throws IOException {
+		final PrintWriter out = new PrintWriter(new AsyncReportWriter(
+				new FileOutputStream(file), file.getName()));
+		final String[] actions = actions();
+		final String[] extras = {null, StandardEventsReader.CONNECTION_UP,
+				StandardEventsReader.CONNECTION_DOWN, null, null, null,
+				"R", "RA", "D", "DA", null, null, null, null, null, null};
+		generate(new EventSink() {
+			public void event(double time, byte type, int h1, int h2,
+					int msg, String cause) {
+				boolean hasHost2 = BinaryEventLogWriter.hasHost2(type) &&
+					type != BinaryEventLogWriter.TYPE_CREATE;
+				String extra = BinaryEventLogWriter.hasCause(type) ? cause :
+					extras[type];
+				/* same concatenation as in EventLogReport */
+				out.println(time + " " + actions[type] + " " + names[h1] +
+						(hasHost2 ? (" " + names[h2]) : "") +
+						(BinaryEventLogWriter.hasMessage(type) ?
+								" " + msgIds[msg] : "") +
+						(extra != null ? " " + extra : ""));
+			}
+		}, nrofEvents);
+		out.close();
+	}
+
+	private static void logBinary(File file, final String[] names,
+			final String[] msgIds, int nrofEvents, boolean compress)
+			throws IOException {
+		final BinaryEventLogWriter w = new BinaryEventLogWriter(file,
+				compress);
+		generate(new EventSink() {
+			public void event(double time, byte type, int h1, int h2,
+					int msg, String cause) throws IOException {
+				if (type == BinaryEventLogWriter.TYPE_CREATE) {
+					w.writeCreate(time, h1, names[h1], h2, names[h2],
+							msgIds[msg], 1000, 0, 0);
+				}
+				else {
+					w.write(time, type, h1, names[h1], h2, names[h2],
+							msgIds[msg], cause);
+				}
+			}
+		}, nrofEvents);
+		w.close();
+	}
+
+	private static String[] actions() {
+		return new String[] {StandardEventsReader.REGISTER,
+				StandardEventsReader.CONNECTION, StandardEventsReader.CONNECTION,
+				StandardEventsReader.CREATE, StandardEventsReader.TRANSMISSION,
+				StandardEventsReader.SEND, StandardEventsReader.DELIVERED,
+				StandardEventsReader.DELIVERED, StandardEventsReader.DELIVERED,
+				StandardEventsReader.DELIVERED, StandardEventsReader.ABORT,
+				StandardEventsReader.INTERFERED, StandardEventsReader.REMOVE,
+				StandardEventsReader.DROP, StandardEventsReader.DISCARD,
+				StandardEventsReader.EXPIRATION};
+	}
+
+	/**
+	 * Checks that the binary log converts to the text log
+	 */
+	private static boolean sameText(File binary, File text)
+			throws IOException {
+		File converted = File.createTempFile("eventlog", ".txt");
+		converted.deleteOnExit();
+		FileWriter out = new FileWriter(converted);
+		BinaryEventLogReader.convertToText(binary, out);
+		out.close();
+
+		BufferedReader expected = new BufferedReader(new FileReader(text));
+		BufferedReader actual = new BufferedReader(new FileReader(converted));
+		try {
+			String line;
+			while ((line = expected.readLine()) != null) {
+				if (!line.equals(actual.readLine())) {
+					return false;
+				}
+			}
+			return actual.readLine() == null;
+		}
+		finally {
+			expected.close();
+			actual.close();
+		}
+	}
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import report.Report;
+import routing.MessageRouter.MessageDropMode;
+import core.ConnectionListener;
+import core.ConnectionListenerDispatch;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.MessageListenerDispatch;
+import core.Settings;
+import core.SimClock;
+import core.SimScenario;
+import core.UpdateListener;
+
+/**
+ * Benchmark for the event dispatch to the reports. Creates the hosts of the
+ * scenario of the settings files given as arguments (default
+ * {@value #DEF_SETTINGS}) and typical configurations of ten reports, and
+ * then sends a synthetic stream of {@value #NROF_EVENTS} message and
+ * connection events to the reports both by calling every listener for
+ * every event, as the routers and network interfaces used to, and with
+ * {@link MessageListenerDispatch} and {@link ConnectionListenerDispatch},
+ * the way they do now. Reports the time per event and the number of
+ * listener calls per event of both.
+ */
+public class ListenerDispatchBenchmark {
+	/** Default settings file */
+	public static final String DEF_SETTINGS = "default_settings.txt";
+	/** Number of events per round */
+	public static final int NROF_EVENTS = 2000000;
+	/** Number of different messages in the events */
+	public static final int NROF_MESSAGES = 10000;
+	/** Number of measured rounds (the first round is warm up) */
+	public static final int ROUNDS = 3;
+	/** Seed for the events */
+	public static final long SEED = 42;
+
+	/** The report configurations (the first one, without reports, measures
+	 * the cost of generating the events) */
+	private static final String[][] CONFIGS = {
+		{},
+		{"CreatedMessagesReport", "DeliveredMessagesReport",
+			"MessageDelayReport", "MessageStatsReport", "DistanceDelayReport",
+			"MessageDeliveryReport", "ContactTimesReport",
+			"InterContactTimesReport", "TotalContactTimeReport",
+			"TotalEncountersReport"},
+		{"MessageStatsReport", "MessageDelayReport", "MessageDeliveryReport",
+			"CreatedMessagesReport", "DeliveredMessagesReport",
+			"MessageGraphvizReport", "ContactTimesReport",
+			"AdjacencyGraphvizReport", "ContactsPerHourReport",
+			"ConnectivityONEReport"}};
+
+	/** Event types of the stream */
+	private static final int NEW_MESSAGE = 0;
+	private static final int TRANSFER_STARTED = 1;
+	private static final int TRANSFERRED = 2;
+	private static final int TRANSMISSION_PERFORMED = 3;
+	private static final int ABORTED = 4;
+	private static final int INTERFERED = 5;
+	private static final int DELETED = 6;
+	private static final int CONNECTED = 7;
+	private static final int DISCONNECTED = 8;
+	/** Cumulative percentages of the event types in the stream */
+	private static final int[] EVENT_MIX = {5, 30, 50, 70, 73, 75, 85, 93, 100};
+
+	public static void main(String[] args) throws IOException {
+		File reportDir = File.createTempFile("dispatch", "");
+		reportDir.delete();
+		reportDir.mkdir();
+		File reportSettings = File.createTempFile("dispatch", ".txt");
+		reportSettings.deleteOnExit();
+		PrintWriter out = new PrintWriter(new FileWriter(reportSettings));
+		out.println(Report.REPORTDIR_SETTING + " = " +
+				reportDir.getAbsolutePath());
+		out.println(Report.REPORT_NS + "." + Report.WARMUP_S + " = 0");
+		out.close();
+
+		Settings.init(args.length > 0 ? args[0] : DEF_SETTINGS);
+		for (int i=1; i<args.length; i++) {
+			Settings.addSettings(args[i]);
+		}
+		Settings.addSettings(reportSettings.getAbsolutePath());
+		List<DTNHost> hosts = SimScenario.getInstance().getHosts();
+		Settings s = new Settings();
+
+		System.out.println("config\tdispatch\tevents\tbest_ms\tns_per_event" +
+				"\tcalls_per_event");
+		for (int c = 0; c < CONFIGS.length; c++) {
+			for (boolean dispatch : new boolean[] {true, false}) {
+				long best = Long.MAX_VALUE;
+				long calls = 0;
+				for (int round = 0; round <= ROUNDS; round++) {
+					/* new reports for every round so that all the rounds
+					 * start from the same state */
+					List<Report> reports = new ArrayList<Report>();
+					List<MessageListener> mls =
+						new ArrayList<MessageListener>();
+					List<ConnectionListener> cls =
+						new ArrayList<ConnectionListener>();
+					for (String name : CONFIGS[c]) {
+						Report report = (Report)s.createObject("report." + name);
+						reports.add(report);
+						if (report instanceof MessageListener) {
+							mls.add((MessageListener)report);
+						}
+						if (report instanceof ConnectionListener) {
+							cls.add((ConnectionListener)report);
+						}
+						if (report instanceof UpdateListener) {
+							((UpdateListener)report).updated(hosts);
+						}
+					}
+					SimClock.getInstance().setTime(0);
+
+					long start = System.nanoTime();
+					calls = run(hosts, mls, cls, dispatch);
+					long time = System.nanoTime() - start;
+					if (round > 0) {
+						best = Math.min(best, time);
+					}
+					for (Report report : reports) {
+						report.done();
+					}
+				}
+				System.out.printf("%d\t%s\t%d\t%.1f\t%.1f\t%.2f\n", c,
+						dispatch ? "per_event" : "all", NROF_EVENTS,
+						best / 1e6, (double)best / NROF_EVENTS,
+						(double)calls / NROF_EVENTS);
+			}
+		}
+
+		for (File f : reportDir.listFiles()) {
+			f.delete();
+		}
+		reportDir.delete();
+	}
+
+	/**
+	 * Sends the event stream to the listeners
+	 * @return The number of listener calls
+	 */
+	private static long run(List<DTNHost> hosts, List<MessageListener> mls,
+			List<ConnectionListener> cls, boolean dispatch) {
+		Random rng = new Random(SEED);
+		MessageListenerDispatch md = new MessageListenerDispatch(mls);
+		ConnectionListenerDispatch cd = new ConnectionListenerDispatch(cls);
+		Message[] messages = new Message[NROF_MESSAGES];
+		int nrofHosts = hosts.size();
+		int nrofMessages = 0;
+		long calls = 0;
+		double time = SimClock.getTime();
+
+		for (int i=0; i<NROF_EVENTS; i++) {
+			if (rng.nextInt(20) == 0) {
+				time += 0.1;
+				SimClock.getInstance().setTime(time);
+			}
+			DTNHost from = hosts.get(rng.nextInt(nrofHosts));
+			DTNHost to = hosts.get(rng.nextInt(nrofHosts));
+			int r = rng.nextInt(100);
+			int type = 0;
+			while (r >= EVENT_MIX[type]) {
+				type++;
+			}
+			if (type == NEW_MESSAGE || nrofMessages == 0) {
+				Message m = new Message(from, to, "M" + nrofMessages,
+						1000);
+				messages[nrofMessages++ % NROF_MESSAGES] = m;
+				if (dispatch) {
+					md.newMessage(m);
+					calls += md.getListeners(
+							MessageListenerDispatch.NEW_MESSAGE).length;
+				}
+				else {
+					for (MessageListener ml : mls) {
+						ml.newMessage(m);
+					}
+					calls += mls.size();
+				}
+				continue;
+			}
+
+			Message m = messages[rng.nextInt(
+					Math.min(nrofMessages, NROF_MESSAGES))];
+			if (type == CONNECTED || type == DISCONNECTED) {
+				if (dispatch) {
+					int eventType = type == CONNECTED ?
+						ConnectionListenerDispatch.HOSTS_CONNECTED :
+						ConnectionListenerDispatch.HOSTS_DISCONNECTED;
+					if (cd.hasListeners(eventType)) {
+						if (type == CONNECTED) {
+							cd.hostsConnected(from, to);
+						}
+						else {
+							cd.hostsDisconnected(from, to);
+						}
+						calls += cd.getListeners(eventType).length;
+					}
+				}
+				else {
+					for (ConnectionListener cl : cls) {
+						if (type == CONNECTED) {
+							cl.hostsConnected(from, to);
+						}
+						else {
+							cl.hostsDisconnected(from, to);
+						}
+					}
+					calls += cls.size();
+				}
+			}
+			else if (dispatch) {
+				calls += dispatch(md, type, m, from, to);
+			}
+			else {
+				for (MessageListener ml : mls) {
+					call(ml, type, m, from, to);
+				}
+				calls += mls.size();
+			}
+		}
+		return calls;
+	}
+
+	/**
+	 * Sends a message event through the dispatcher the way the routers do
+	 * @return The number of listener calls
+	 */
+	private static int dispatch(MessageListenerDispatch md, int type,
+			Message m, DTNHost from, DTNHost to) {
+		int eventType;
+		switch (type) {
+		case TRANSFER_STARTED:
+			eventType = MessageListenerDispatch.TRANSFER_STARTED;
+			break;
+		case TRANSFERRED:
+			eventType = MessageListenerDispatch.TRANSFERRED;
+			break;
+		case TRANSMISSION_PERFORMED:
+			eventType = MessageListenerDispatch.TRANSMISSION_PERFORMED;
+			break;
+		case ABORTED:
+			eventType = MessageListenerDispatch.TRANSFER_ABORTED;
+			break;
+		case INTERFERED:
+			eventType = MessageListenerDispatch.INTERFERED;
+			break;
+		default:
+			eventType = MessageListenerDispatch.DELETED;
+			break;
+		}
+		if (!md.hasListeners(eventType)) {
+			return 0;
+		}
+		call(md, type, m, from, to);
+		return md.getListeners(eventType).length;
+	}
+
+	private static void call(MessageListener ml, int type, Message m,
+			DTNHost from, DTNHost to) {
+		switch (type) {
+		case TRANSFER_STARTED:
+			ml.messageTransferStarted(m, from, to);
+			break;
+		case TRANSFERRED:
+			ml.messageTransferred(m, from, to, m.getTo() == to,
+					m.getTo() == to);
+			break;
+		case TRANSMISSION_PERFORMED:
+			ml.transmissionPerformed(m, from);
+			break;
+		case ABORTED:
+			ml.messageTransferAborted(m, from, to, "connection lost");
+			break;
+		case INTERFERED:
+			ml.messageTransmissionInterfered(m, from, to);
+			break;
+		default:
+			ml.messageDeleted(m, from, MessageDropMode.DROPPED, "buffer full");
+			break;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import routing.maxprop.MaxPropDijkstra;
+import routing.maxprop.MeetingProbabilitySet;
+import core.Debug;
+
+/**
+ * Microbenchmark for {@link MaxPropDijkstra}. Creates meeting probability
+ * sets for {@value #DEFAULT_NROF_NODES} (or the amount given as the first
+ * argument) nodes and simulates the contacts of one router (node 0): every
+ * contact updates the router's own set and {@value #SETS_PER_CONTACT}
+ * transitively learned sets, and is followed by
+ * {@value #QUERIES_PER_CONTACT} cost queries from the router and from the
+ * met node to the destinations of {@value #NROF_DESTINATIONS} messages.
+ * Between the queries, new messages arrive every
+ * {@value #QUERIES_PER_MESSAGE} queries.
+ * The <CODE>incremental</CODE> run uses one calculator for all queries;
+ * the <CODE>fresh</CODE> run creates a new calculator after every contact
+ * and every new message, which equals the full recalculation that the
+ * routers used to do.
+ */
+public class MaxPropDijkstraBenchmark {
+	/** Default number of nodes */
+	public static final int DEFAULT_NROF_NODES = 2000;
+	/** Size of the meeting probability sets */
+	public static final int SET_SIZE = 50;
+	/** Number of simulated contacts per round */
+	public static final int NROF_CONTACTS = 500;
+	/** Number of other sets that change in a contact */
+	public static final int SETS_PER_CONTACT = 5;
+	/** Number of different message destinations */
+	public static final int NROF_DESTINATIONS = 50;
+	/** Number of cost queries after each contact */
+	public static final int QUERIES_PER_CONTACT = 20;
+	/** Number of cost queries between new messages */
+	public static final int QUERIES_PER_MESSAGE = 5;
+	/** Number of measured rounds (the first round is warm up) */
+	public static final int ROUNDS = 2;
+	/** Seed for the random contacts */
+	public static final long SEED = 42;
+
+	public static void main(String[] args) {
+		/* dropped probabilities are printed as debug output; hide them */
+		new Debug().setPrintStream(new PrintStream(new OutputStream() {
+			public void write(int b) { }
+		}));
+		int n = DEFAULT_NROF_NODES;
+		if (args.length > 0) {
+			n = Integer.parseInt(args[0]);
+		}
+
+		System.out.println("mode\tnodes\tcontacts\tbest_ms\tus_per_contact\t" +
+				"checksum");
+		for (String mode : new String[] {"incremental", "fresh"}) {
+			long best = Long.MAX_VALUE;
+			double checksum = 0;
+			for (int round = 0; round <= ROUNDS; round++) {
+				Map<Integer, MeetingProbabilitySet> probs = createSets(n);
+				long start = System.nanoTime();
+				checksum = run(probs, n, mode.equals("fresh"));
+				long time = System.nanoTime() - start;
+				if (round > 0) {
+					best = Math.min(best, time);
+				}
+			}
+			System.out.printf("%s\t%d\t%d\t%.1f\t%.1f\t%.6f\n", mode, n,
+					NROF_CONTACTS, best / 1e6,
+					best / 1e3 / NROF_CONTACTS, checksum);
+		}
+	}
+
+	/**
+	 * Creates probability sets where every node has met random other nodes
+	 */
+	private static Map<Integer, MeetingProbabilitySet> createSets(int n) {
+		Map<Integer, MeetingProbabilitySet> probs =
+			new HashMap<Integer, MeetingProbabilitySet>();
+		Random rng = new Random(SEED);
+		for (int i=0; i<n; i++) {
+			MeetingProbabilitySet set = new MeetingProbabilitySet(SET_SIZE, 1.0);
+			for (int j=0; j<SET_SIZE * 2; j++) {
+				set.updateMeetingProbFor(rng.nextInt(n));
+			}
+			probs.put(i, set);
+		}
+		return probs;
+	}
+
+	/**
+	 * Runs one round of contacts and queries
+	 * @return Sum of the reachable costs (for checking that the modes agree)
+	 */
+	private static double run(Map<Integer, MeetingProbabilitySet> probs,
+			int n, boolean fresh) {
+		Random rng = new Random(SEED + 1);
+		MaxPropDijkstra dijkstra = new MaxPropDijkstra(probs);
+		double checksum = 0;
+
+		int[] destinations = new int[NROF_DESTINATIONS];
+		for (int i=0; i<destinations.length; i++) {
+			destinations[i] = rng.nextInt(n);
+		}
+
+		for (int c=0; c<NROF_CONTACTS; c++) {
+			int other = 1 + rng.nextInt(n - 1);
+			probs.get(0).updateMeetingProbFor(other);
+			dijkstra.probsChanged(0);
+			for (int i=0; i<SETS_PER_CONTACT; i++) {
+				int node = 1 + rng.nextInt(n - 1);
+				probs.get(node).updateMeetingProbFor(rng.nextInt(n));
+				dijkstra.probsChanged(node);
+			}
+			if (fresh) {
+				dijkstra = new MaxPropDijkstra(probs);
+			}
+
+			for (int q=0; q<QUERIES_PER_CONTACT; q++) {
+				if (fresh && q > 0 && q % QUERIES_PER_MESSAGE == 0) {
+					dijkstra = new MaxPropDijkstra(probs); // new message
+				}
+				double cost = dijkstra.getCost(q % 2 == 0 ? 0 : other,
+						destinations[rng.nextInt(destinations.length)]);
+				if (cost != Double.MAX_VALUE) {
+					checksum += cost;
+				}
+			}
+		}
+		return checksum;
+	}
+}
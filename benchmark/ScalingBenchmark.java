@@ -0,0 +1,429 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import routing.MessageRouter.MessageDropMode;
+import ui.DTNSimTextUI;
+import core.ConnectionListener;
+import core.DTNHost;
+import core.Message;
+import core.MessageListener;
+import core.Settings;
+import core.SimClock;
+import core.SimScenario;
+
+/**
+ * End-to-end scaling benchmark. Runs the cases of a suite of canned
+ * scenarios (by default {@value #DEF_SUITE}) headless with
+ * {@link DTNSimTextUI}, each in its own JVM, and records for every case
+ * the simulated seconds per wall clock second, the peak heap usage, the
+ * garbage collection time and the number of message and connection events.
+ * The results are compared with a baseline file and the benchmark fails
+ * (exits with status 1) if a case is slower, uses more heap or spends more
+ * time in garbage collection than the baseline allows.
+ * <P>
+ * Usage: <CODE>ScalingBenchmark [options] [case name prefixes...]</CODE>
+ * <BR>Options:
+ * <UL>
+ * <LI><CODE>-suite file</CODE> the suite file</LI>
+ * <LI><CODE>-baseline file</CODE> the baseline file (default
+ * {@value #DEF_BASELINE})</LI>
+ * <LI><CODE>-threshold value</CODE> allowed relative regression (default
+ * {@value #DEF_THRESHOLD})</LI>
+ * <LI><CODE>-heap size</CODE> maximum heap of the simulation JVMs (default
+ * {@value #DEF_HEAP})</LI>
+ * <LI><CODE>-out file</CODE> file the results are written to (default
+ * {@value #DEF_RESULTS})</LI>
+ * <LI><CODE>-update</CODE> writes the results to the baseline file instead
+ * of comparing them (the other cases of the baseline are kept)</LI>
+ * </UL>
+ * Every line of the suite file has the name of a case and the settings
+ * files (in the folder of the suite file, without the ".txt" suffix) that
+ * are read after <CODE>default_settings.txt</CODE> and
+ * <CODE>base.txt</CODE>. Only the cases whose names start with one of the
+ * given prefixes are run (all cases if none are given). The results and the
+ * baseline are tab separated text files with a header line.
+ * </P>
+ */
+public class ScalingBenchmark {
+	/** Default suite file */
+	public static final String DEF_SUITE = "benchmark/scaling/suite.txt";
+	/** Default baseline file */
+	public static final String DEF_BASELINE = "benchmark/scaling/baseline.txt";
+	/** Default results file */
+	public static final String DEF_RESULTS = "scaling-results.txt";
+	/** Default allowed relative regression */
+	public static final double DEF_THRESHOLD = 0.2;
+	/** Default maximum heap of the simulation JVMs */
+	public static final String DEF_HEAP = "2G";
+	/** GC times up to this are not compared (milliseconds), as they are
+	 * mostly noise */
+	public static final long MIN_COMPARED_GC_TIME = 500;
+	/** Settings file read before the settings files of a case */
+	public static final String BASE_SETTINGS = "base";
+	/** Prefix of the result line of a simulation JVM */
+	private static final String RESULT_PREFIX = "RESULT\t";
+	/** Header of the results and baseline files */
+	private static final String HEADER = "# case\tsim_s\twall_s\tsim_s_per_s" +
+			"\tpeak_heap_mb\tgc_ms\tevents";
+
+	public static void main(String[] args) throws Exception {
+		Locale.setDefault(Locale.US);
+		if (args.length > 0 && args[0].equals("-run")) {
+			run(args);
+			return;
+		}
+
+		String suite = DEF_SUITE;
+		String baseline = DEF_BASELINE;
+		String out = DEF_RESULTS;
+		String heap = DEF_HEAP;
+		double threshold = DEF_THRESHOLD;
+		boolean update = false;
+		List<String> prefixes = new ArrayList<String>();
+		for (int i=0; i<args.length; i++) {
+			if (args[i].equals("-suite")) {
+				suite = args[++i];
+			}
+			else if (args[i].equals("-baseline")) {
+				baseline = args[++i];
+			}
+			else if (args[i].equals("-out")) {
+				out = args[++i];
+			}
+			else if (args[i].equals("-heap")) {
+				heap = args[++i];
+			}
+			else if (args[i].equals("-threshold")) {
+				threshold = Double.parseDouble(args[++i]);
+			}
+			else if (args[i].equals("-update")) {
+				update = true;
+			}
+			else {
+				prefixes.add(args[i]);
+			}
+		}
+
+		Map<String, String[]> cases = readSuite(new File(suite), prefixes);
+		Map<String, String[]> results = new LinkedHashMap<String, String[]>();
+		System.out.println(HEADER.substring(2));
+		for (Map.Entry<String, String[]> c : cases.entrySet()) {
+			String[] result = runCase(c.getKey(), c.getValue(), heap);
+			results.put(c.getKey(), result);
+			System.out.println(join(result));
+		}
+
+		if (update) {
+			/* the cases that were not run keep their old baseline */
+			File baselineFile = new File(baseline);
+			Map<String, String[]> old = baselineFile.exists() ?
+					readResults(baselineFile) :
+					new LinkedHashMap<String, String[]>();
+			Map<String, String[]> merged =
+				new LinkedHashMap<String, String[]>();
+			for (String name : readSuite(new File(suite),
+					new ArrayList<String>()).keySet()) {
+				String[] r = results.containsKey(name) ? results.get(name) :
+					old.get(name);
+				if (r != null) {
+					merged.put(name, r);
+				}
+			}
+			writeResults(baselineFile, merged);
+			System.out.println("Baseline written to " + baseline);
+			return;
+		}
+		writeResults(new File(out), results);
+
+		File baselineFile = new File(baseline);
+		if (!baselineFile.exists()) {
+			System.out.println("No baseline " + baseline + " to compare to");
+			return;
+		}
+		int nrofRegressions = compare(readResults(baselineFile), results,
+				threshold);
+		if (nrofRegressions > 0) {
+			System.out.println(nrofRegressions + " regression(s) over " +
+					Math.round(threshold * 100) + "%");
+			System.exit(1);
+		}
+		System.out.println("No regressions over " +
+				Math.round(threshold * 100) + "%");
+	}
+
+	/**
+	 * Reads the cases of a suite file
+	 * @return The settings files of the cases by case name
+	 */
+	private static Map<String, String[]> readSuite(File suite,
+			List<String> prefixes) throws IOException {
+		Map<String, String[]> cases = new LinkedHashMap<String, String[]>();
+		String dir = suite.getParent() == null ? "" :
+			suite.getParent() + File.separator;
+		BufferedReader reader = new BufferedReader(new FileReader(suite));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+			String[] parts = line.split("\\s+");
+			if (!matches(parts[0], prefixes)) {
+				continue;
+			}
+			String[] files = new String[parts.length];
+			files[0] = dir + BASE_SETTINGS + ".txt";
+			for (int i=1; i<parts.length; i++) {
+				files[i] = dir + parts[i] + ".txt";
+			}
+			cases.put(parts[0], files);
+		}
+		reader.close();
+		return cases;
+	}
+
+	private static boolean matches(String name, List<String> prefixes) {
+		if (prefixes.size() == 0) {
+			return true;
+		}
+		for (String p : prefixes) {
+			if (name.startsWith(p)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Runs a case in a new JVM and returns its results
+	 * @return The result fields of the case
+	 */
+	private static String[] runCase(String name, String[] files, String heap)
+			throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" +
+				File.separator + "java");
+		command.add("-Xmx" + heap);
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(ScalingBenchmark.class.getName());
+		command.add("-run");
+		command.add(name);
+		for (String f : files) {
+			command.add(f);
+		}
+
+		ProcessBuilder pb = new ProcessBuilder(command);
+		pb.redirectErrorStream(true);
+		Process p = pb.start();
+		BufferedReader reader = new BufferedReader(
+				new InputStreamReader(p.getInputStream()));
+		String[] result = null;
+		StringBuilder output = new StringBuilder();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.startsWith(RESULT_PREFIX)) {
+				result = line.substring(RESULT_PREFIX.length()).split("\t");
+			}
+			else {
+				output.append(line).append('\n');
+			}
+		}
+		reader.close();
+
+		if (p.waitFor() != 0 || result == null) {
+			System.err.print(output);
+			throw new IOException("Case " + name + " failed");
+		}
+		return result;
+	}
+
+	/**
+	 * Runs the simulation of a case in this JVM and prints its results
+	 * @param args "-run", the name of the case and the settings files
+	 */
+	private static void run(String[] args) {
+		Settings.init(Settings.DEF_SETTINGS_FILE);
+		for (int i=2; i<args.length; i++) {
+			Settings.addSettings(args[i]);
+		}
+		EventCounter counter = new EventCounter();
+		SimScenario scenario = SimScenario.getInstance();
+		scenario.addMessageListener(counter);
+		scenario.addConnectionListener(counter);
+
+		long start = System.nanoTime();
+		new DTNSimTextUI().start();
+		double wallTime = (System.nanoTime() - start) / 1e9;
+
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+		long gcTime = 0;
+		for (GarbageCollectorMXBean gc :
+				ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcTime += Math.max(gc.getCollectionTime(), 0);
+		}
+
+		double simTime = scenario.getEndTime();
+		if (SimClock.getTime() < simTime) {
+			/* the UI reports errors of the simulation but doesn't fail */
+			System.err.println("Case " + args[1] + " stopped at " +
+					SimClock.getTime() + " s");
+			System.exit(1);
+		}
+		System.out.println(RESULT_PREFIX + join(new String[] {args[1],
+				String.format("%.0f", simTime), String.format("%.1f", wallTime),
+				String.format("%.2f", simTime / wallTime),
+				String.valueOf(peakHeap >> 20), String.valueOf(gcTime),
+				String.valueOf(counter.nrofEvents)}));
+	}
+
+	/**
+	 * Compares results to the baseline and prints the regressions
+	 * @return The number of regressions
+	 */
+	private static int compare(Map<String, String[]> baseline,
+			Map<String, String[]> results, double threshold) {
+		int nrofRegressions = 0;
+		for (Map.Entry<String, String[]> e : results.entrySet()) {
+			String[] base = baseline.get(e.getKey());
+			String[] r = e.getValue();
+			if (base == null) {
+				System.out.println(e.getKey() + ": not in the baseline");
+				continue;
+			}
+
+			double speed = Double.parseDouble(r[3]);
+			double baseSpeed = Double.parseDouble(base[3]);
+			if (speed < baseSpeed * (1 - threshold)) {
+				System.out.println(e.getKey() + ": speed " + r[3] +
+						" sim s/s, baseline " + base[3]);
+				nrofRegressions++;
+			}
+			long heap = Long.parseLong(r[4]);
+			long baseHeap = Long.parseLong(base[4]);
+			if (heap > baseHeap * (1 + threshold)) {
+				System.out.println(e.getKey() + ": peak heap " + heap +
+						" MB, baseline " + baseHeap);
+				nrofRegressions++;
+			}
+			long gc = Long.parseLong(r[5]);
+			long baseGc = Long.parseLong(base[5]);
+			if (gc > MIN_COMPARED_GC_TIME && gc > baseGc * (1 + threshold)) {
+				System.out.println(e.getKey() + ": GC time " + gc +
+						" ms, baseline " + baseGc);
+				nrofRegressions++;
+			}
+			if (!r[6].equals(base[6])) {
+				/* not a performance regression but the simulation result
+				 * has changed */
+				System.out.println(e.getKey() + ": " + r[6] +
+						" events, baseline " + base[6]);
+			}
+		}
+		return nrofRegressions;
+	}
+
+	private static void writeResults(File f, Map<String, String[]> results)
+			throws IOException {
+		PrintWriter out = new PrintWriter(new FileWriter(f));
+		out.println(HEADER);
+		for (String[] r : results.values()) {
+			out.println(join(r));
+		}
+		out.close();
+	}
+
+	private static Map<String, String[]> readResults(File f)
+			throws IOException {
+		Map<String, String[]> results = new LinkedHashMap<String, String[]>();
+		BufferedReader reader = new BufferedReader(new FileReader(f));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.length() == 0 || line.startsWith("#")) {
+				continue;
+			}
+			String[] r = line.split("\t");
+			results.put(r[0], r);
+		}
+		reader.close();
+		return results;
+	}
+
+	private static String join(String[] fields) {
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<fields.length; i++) {
+			if (i > 0) {
+				sb.append('\t');
+			}
+			sb.append(fields[i]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Counts the message and connection events of a simulation
+	 */
+	private static class EventCounter implements MessageListener,
+			ConnectionListener {
+		private long nrofEvents = 0;
+
+		public void registerNode(DTNHost node) {}
+		public void newMessage(Message m) {
+			nrofEvents++;
+		}
+		public void transmissionPerformed(Message m, DTNHost source) {
+			nrofEvents++;
+		}
+		public void messageTransferStarted(Message m, DTNHost from,
+				DTNHost to) {
+			nrofEvents++;
+		}
+		public void messageTransferred(Message m, DTNHost from, DTNHost to,
+				boolean firstDelivery, boolean finalTarget) {
+			nrofEvents++;
+		}
+		public void messageTransferAborted(Message m, DTNHost from,
+				DTNHost to, String cause) {
+			nrofEvents++;
+		}
+		public void messageTransmissionInterfered(Message m, DTNHost from,
+				DTNHost to) {
+			nrofEvents++;
+		}
+		public void messageDeleted(Message m, DTNHost where,
+				MessageDropMode dropMode, String cause) {
+			nrofEvents++;
+		}
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			nrofEvents++;
+		}
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+			nrofEvents++;
+		}
+	}
+}
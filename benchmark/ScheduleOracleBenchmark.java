@@ -0,0 +1,201 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import routing.schedule.ScheduleDijkstra;
+import routing.schedule.ScheduleEntry;
+import routing.schedule.ScheduleOracle;
+
+/**
+ * Microbenchmark for {@link ScheduleOracle} and {@link ScheduleDijkstra}.
+ * Generates bus schedules for {@value #DEFAULT_NROF_LINES} (or the amount
+ * given as the first argument) bus lines. Every line drives back and forth
+ * through {@value #STOPS_PER_LINE} of {@value #NROF_STOPS} stops, leaving
+ * every {@value #HEADWAY} seconds for one day. Then
+ * {@value #NROF_QUERIES} earliest arrival queries between random stops
+ * at random times are made.
+ * The <CODE>sorted</CODE> run uses the oracle's time-sorted schedules;
+ * the <CODE>linear</CODE> run does the same search by scanning all the
+ * departures of the visited stops, like the oracle used to do.
+ */
+public class ScheduleOracleBenchmark {
+	/** Default number of bus lines */
+	public static final int DEFAULT_NROF_LINES = 100;
+	/** Number of stops */
+	public static final int NROF_STOPS = 1000;
+	/** Number of stops on each line */
+	public static final int STOPS_PER_LINE = 30;
+	/** Time between two buses of a line (seconds) */
+	public static final int HEADWAY = 600;
+	/** Length of the schedule (seconds) */
+	public static final int DAY = 24 * 3600;
+	/** Number of measured queries per round */
+	public static final int NROF_QUERIES = 200;
+	/** Number of measured rounds (the first round is warm up) */
+	public static final int ROUNDS = 3;
+	/** Seed for the random schedules and queries */
+	public static final long SEED = 42;
+
+	public static void main(String[] args) {
+		int nrofLines = DEFAULT_NROF_LINES;
+		if (args.length > 0) {
+			nrofLines = Integer.parseInt(args[0]);
+		}
+
+		ScheduleOracle oracle = createSchedules(nrofLines);
+		int nrofEntries = oracle.getEntries().size();
+
+		System.out.println("mode\tentries\tqueries\tbest_ms\tus_per_query\t" +
+				"checksum");
+		for (String mode : new String[] {"sorted", "linear"}) {
+			long best = Long.MAX_VALUE;
+			double checksum = 0;
+			for (int round = 0; round <= ROUNDS; round++) {
+				long start = System.nanoTime();
+				checksum = run(oracle, mode.equals("linear"));
+				long time = System.nanoTime() - start;
+				if (round > 0) {
+					best = Math.min(best, time);
+				}
+			}
+			System.out.printf("%s\t%d\t%d\t%.1f\t%.1f\t%.1f\n", mode,
+					nrofEntries, NROF_QUERIES, best / 1e6,
+					best / 1e3 / NROF_QUERIES, checksum);
+		}
+	}
+
+	/**
+	 * Creates the bus schedules
+	 */
+	private static ScheduleOracle createSchedules(int nrofLines) {
+		ScheduleOracle oracle = new ScheduleOracle();
+		Random rng = new Random(SEED);
+
+		for (int line=0; line<nrofLines; line++) {
+			int[] stops = new int[STOPS_PER_LINE];
+			int[] durations = new int[STOPS_PER_LINE - 1];
+			for (int i=0; i<stops.length; i++) {
+				stops[i] = rng.nextInt(NROF_STOPS);
+			}
+			for (int i=0; i<durations.length; i++) {
+				durations[i] = 60 + rng.nextInt(240);
+			}
+
+			int offset = rng.nextInt(HEADWAY);
+			for (int t = offset; t < DAY; t += HEADWAY) {
+				int time = t; /* one way */
+				for (int i=0; i<durations.length; i++) {
+					oracle.addEntry(time, stops[i], line, stops[i+1],
+							durations[i]);
+					time += durations[i];
+				}
+				time = t; /* and back */
+				for (int i=durations.length - 1; i >= 0; i--) {
+					oracle.addEntry(time, stops[i+1], line, stops[i],
+							durations[i]);
+					time += durations[i];
+				}
+			}
+		}
+		return oracle;
+	}
+
+	/**
+	 * Runs the queries of one round
+	 * @return Sum of the reachable arrival times (for checking that the
+	 * modes agree)
+	 */
+	private static double run(ScheduleOracle oracle, boolean linear) {
+		Random rng = new Random(SEED + 1);
+		ScheduleDijkstra dijkstra = new ScheduleDijkstra(oracle);
+		LinearSearch linearSearch = linear ? new LinearSearch(oracle) : null;
+		double checksum = 0;
+
+		for (int q=0; q<NROF_QUERIES; q++) {
+			int from = rng.nextInt(NROF_STOPS);
+			int to = rng.nextInt(NROF_STOPS);
+			double time = rng.nextInt(DAY / 2);
+			double arrival = linear ? linearSearch.getArrival(from, to, time) :
+				dijkstra.getEarliestArrival(from, to, time);
+			if (arrival != Double.MAX_VALUE) {
+				checksum += arrival;
+			}
+		}
+		return checksum;
+	}
+
+	/**
+	 * Earliest arrival search that scans the unsorted departure lists
+	 */
+	private static class LinearSearch {
+		private Map<Integer, List<ScheduleEntry>> schedules;
+		private Map<Integer, Double> times;
+
+		public LinearSearch(ScheduleOracle oracle) {
+			this.schedules = new HashMap<Integer, List<ScheduleEntry>>();
+			for (ScheduleEntry se : oracle.getEntries()) {
+				List<ScheduleEntry> list = schedules.get(se.getFrom());
+				if (list == null) {
+					list = new ArrayList<ScheduleEntry>();
+					schedules.put(se.getFrom(), list);
+				}
+				list.add(se);
+			}
+		}
+
+		private double getTime(Integer node) {
+			Double value = times.get(node);
+			return value != null ? value : Double.MAX_VALUE;
+		}
+
+		public double getArrival(Integer from, Integer to, double time) {
+			times = new HashMap<Integer, Double>();
+			Set<Integer> visited = new HashSet<Integer>();
+			PriorityQueue<Integer> unvisited = new PriorityQueue<Integer>(11,
+					new Comparator<Integer>() {
+				public int compare(Integer n1, Integer n2) {
+					return Double.compare(getTime(n1), getTime(n2));
+				}
+			});
+			times.put(from, time);
+			unvisited.add(from);
+
+			Integer node;
+			while ((node = unvisited.poll()) != null) {
+				if (node.equals(to)) {
+					return getTime(to);
+				}
+				visited.add(node);
+				List<ScheduleEntry> all = schedules.get(node);
+				if (all == null) {
+					continue;
+				}
+				double timeNow = getTime(node);
+				for (ScheduleEntry se : all) {
+					if (se.getTime() < timeNow || visited.contains(se.getTo())) {
+						continue;
+					}
+					double timeTo = se.getDestinationTime();
+					if (timeTo < getTime(se.getTo())) {
+						unvisited.remove(se.getTo());
+						times.put(se.getTo(), timeTo);
+						unvisited.add(se.getTo());
+					}
+				}
+			}
+			return Double.MAX_VALUE;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.ScheduledUpdatesQueue;
+
+import java.util.Random;
+
+/**
+ * Microbenchmark for {@link ScheduledUpdatesQueue}. Schedules
+ * {@value #DEFAULT_NROF_UPDATES} (or the amount given as the first
+ * argument) updates with three different patterns and takes them out of
+ * the queue:
+ * <UL>
+ * <LI><CODE>bulk</CODE>: all updates at random times first, then all
+ * taken out</LI>
+ * <LI><CODE>sim</CODE>: simulation-like use where the clock advances in
+ * 0.1 s steps and every step schedules updates (e.g., transfer completion
+ * times) a random amount of time ahead</LI>
+ * <LI><CODE>dup</CODE>: like bulk, but the times are rounded to whole
+ * seconds so most of the updates are duplicates</LI>
+ * </UL>
+ */
+public class ScheduledUpdatesQueueBenchmark {
+	/** Default number of scheduled updates */
+	public static final int DEFAULT_NROF_UPDATES = 1000000;
+	/** Number of measured rounds per pattern (the first round is warm up) */
+	public static final int ROUNDS = 5;
+	/** Seed for the random update times */
+	public static final long SEED = 42;
+
+	public static void main(String[] args) {
+		int n = DEFAULT_NROF_UPDATES;
+		if (args.length > 0) {
+			n = Integer.parseInt(args[0]);
+		}
+
+		System.out.println("pattern\tupdates\tevents\tbest_ms\tns_per_update");
+		for (String pattern : new String[] {"bulk", "sim", "dup"}) {
+			long best = Long.MAX_VALUE;
+			int events = 0;
+			for (int round = 0; round <= ROUNDS; round++) {
+				long start = System.nanoTime();
+				events = run(pattern, n);
+				long time = System.nanoTime() - start;
+				if (round > 0) {
+					best = Math.min(best, time);
+				}
+			}
+			System.out.printf("%s\t%d\t%d\t%.1f\t%.1f\n", pattern, n, events,
+					best / 1e6, (double)best / n);
+		}
+	}
+
+	/**
+	 * Runs one round of the given pattern
+	 * @param pattern Name of the pattern
+	 * @param n Number of updates to schedule
+	 * @return Number of (merged) update events taken from the queue
+	 */
+	private static int run(String pattern, int n) {
+		ScheduledUpdatesQueue q = new ScheduledUpdatesQueue();
+		Random rng = new Random(SEED);
+		int events = 0;
+
+		if (pattern.equals("sim")) {
+			double clock = 0;
+			int scheduled = 0;
+			while (scheduled < n || q.nextEventsTime() != Double.MAX_VALUE) {
+				for (int i=0; i<10 && scheduled < n; i++, scheduled++) {
+					q.addUpdate(clock + rng.nextDouble() * 100);
+				}
+				clock += 0.1;
+				while (q.nextEventsTime() <= clock) {
+					q.nextEvent();
+					events++;
+				}
+			}
+			return events;
+		}
+
+		boolean round = pattern.equals("dup");
+		for (int i=0; i<n; i++) {
+			double time = rng.nextDouble() * 10000;
+			q.addUpdate(round ? Math.floor(time) : time);
+		}
+		while (q.nextEventsTime() != Double.MAX_VALUE) {
+			q.nextEvent();
+			events++;
+		}
+		return events;
+	}
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark;
+
+import input.ConnectionEvent;
+import input.ExternalEvent;
+import input.MessageCreateEvent;
+import input.MessageDeleteEvent;
+import input.MessageRelayEvent;
+import input.StandardEventsReader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Scanner;
+
+import core.Message;
+
+/**
+ * Benchmark for {@link StandardEventsReader}. Parses the external events
+ * files (by default all files in the <CODE>ee</CODE> folder) both with the
+ * reader and with a reference implementation of the old
+ * <CODE>Scanner</CODE> based parser, checks that both produce identical
+ * events and reports the parsing speeds.
+ * <P>
+ * Usage: <CODE>StandardEventsReaderBenchmark [repeats] [files...]</CODE>
+ * <BR>
+ * The contents of every file are repeated <CODE>repeats</CODE> times
+ * (default {@value #DEFAULT_REPEATS}) to a temporary file so that the
+ * parsers have a realistic amount of input.
+ * </P>
+ */
+public class StandardEventsReaderBenchmark {
+	/** Default number of times each input file is repeated */
+	public static final int DEFAULT_REPEATS = 50;
+	/** Number of events requested with a single read call */
+	public static final int BATCH_SIZE = 500;
+	/** Number of measured rounds per file (the first round is warm up) */
+	public static final int ROUNDS = 3;
+
+	public static void main(String[] args) throws IOException {
+		Locale.setDefault(Locale.US);
+		int repeats = DEFAULT_REPEATS;
+		List<File> files = new ArrayList<File>();
+
+		for (int i=0; i<args.length; i++) {
+			if (i == 0 && args[i].matches("\\d+")) {
+				repeats = Integer.parseInt(args[i]);
+			}
+			else {
+				files.add(new File(args[i]));
+			}
+		}
+		if (files.size() == 0) {
+			File[] eeFiles = new File("ee").listFiles();
+			if (eeFiles == null) {
+				System.err.println("No input files found");
+				System.exit(-1);
+			}
+			for (File f : eeFiles) {
+				files.add(f);
+			}
+		}
+
+		System.out.println("file\tevents\tscanner_ms\treader_ms\tspeedup");
+		for (File f : files) {
+			File input = createInput(f, repeats);
+			try {
+				benchmark(f.getName(), input);
+			}
+			finally {
+				input.delete();
+			}
+		}
+	}
+
+	/**
+	 * Runs the benchmark for one input file
+	 * @param name Name of the benchmark
+	 * @param input The input file
+	 */
+	private static void benchmark(String name, File input) {
+		long scannerTime = Long.MAX_VALUE;
+		long readerTime = Long.MAX_VALUE;
+		int nrofEvents = 0;
+
+		for (int round = 0; round <= ROUNDS; round++) {
+			long start = System.nanoTime();
+			List<ExternalEvent> reference = readWithScanner(input);
+			long mid = System.nanoTime();
+			List<ExternalEvent> events = readWithReader(input);
+			long end = System.nanoTime();
+
+			if (round == 0) {
+				checkEqual(reference, events);
+				nrofEvents = events.size();
+				continue; // warm up round
+			}
+			scannerTime = Math.min(scannerTime, mid - start);
+			readerTime = Math.min(readerTime, end - mid);
+		}
+
+		System.out.printf("%s\t%d\t%.1f\t%.1f\t%.1f\n", name, nrofEvents,
+				scannerTime / 1e6, readerTime / 1e6,
+				(double)scannerTime / readerTime);
+	}
+
+	/**
+	 * Writes the contents of the given file repeatedly to a temporary file
+	 * @param f The file to repeat
+	 * @param repeats How many times the contents are repeated
+	 * @return The temporary file
+	 */
+	private static File createInput(File f, int repeats) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(new FileReader(f));
+		String line;
+		while ((line = in.readLine()) != null) {
+			lines.add(line);
+		}
+		in.close();
+
+		File tmp = File.createTempFile("eeBench", ".txt");
+		PrintWriter out = new PrintWriter(tmp);
+		for (int i=0; i<repeats; i++) {
+			for (String s : lines) {
+				out.println(s);
+			}
+		}
+		out.close();
+		return tmp;
+	}
+
+	private static List<ExternalEvent> readWithReader(File input) {
+		List<ExternalEvent> all = new ArrayList<ExternalEvent>();
+		StandardEventsReader r = new StandardEventsReader(input);
+		List<ExternalEvent> events;
+		do {
+			events = r.readEvents(BATCH_SIZE);
+			all.addAll(events);
+		} while (events.size() > 0);
+		r.close();
+		return all;
+	}
+
+	private static void checkEqual(List<ExternalEvent> expected,
+			List<ExternalEvent> actual) {
+		if (expected.size() != actual.size()) {
+			throw new AssertionError("Expected " + expected.size() +
+					" events but got " + actual.size());
+		}
+		for (int i=0, n=expected.size(); i<n; i++) {
+			ExternalEvent e = expected.get(i);
+			ExternalEvent a = actual.get(i);
+			if (e.getClass() != a.getClass() ||
+					!e.toString().equals(a.toString())) {
+				throw new AssertionError("Event " + i + " differs: " + e +
+						" vs. " + a);
+			}
+		}
+	}
+
+	/**
+	 * Reference implementation of the old Scanner based parsing of
+	 * create, relay, delete and connection events
+	 * @param input The input file
+	 * @return All events of the file
+	 */
+	private static List<ExternalEvent> readWithScanner(File input) {
+		List<ExternalEvent> events = new ArrayList<ExternalEvent>();
+		Scanner scanner;
+		try {
+			scanner = new Scanner(input);
+		} catch (FileNotFoundException e) {
+			throw new AssertionError(e);
+		}
+
+		while (scanner.hasNextLine()) {
+			String line = scanner.nextLine();
+			if (line.matches("(#.*)|(^\\s*$)")) {
+				continue;
+			}
+			Scanner lineScan = new Scanner(line);
+			double time = lineScan.nextDouble();
+			String action = lineScan.next();
+
+			if (action.equals(StandardEventsReader.CONNECTION)) {
+				int host1 = getHostAddress(lineScan.next());
+				int host2 = getHostAddress(lineScan.next());
+				boolean up = lineScan.next().equalsIgnoreCase(
+						StandardEventsReader.CONNECTION_UP);
+				String interfaceId = lineScan.hasNext() ? lineScan.next() :
+					null;
+				events.add(new ConnectionEvent(host1, host2, interfaceId, up,
+						time));
+			}
+			else if (action.equals(StandardEventsReader.DROP) ||
+					action.equals(StandardEventsReader.REMOVE)) {
+				String id = lineScan.next();
+				int host = getHostAddress(lineScan.next());
+				boolean drop = action.equals(StandardEventsReader.DROP);
+				events.add(new MessageDeleteEvent(host, id, time, drop,
+						drop ? "general drop event" : "general remove event"));
+			}
+			else if (!action.equals(StandardEventsReader.REGISTER)) {
+				String id = lineScan.next();
+				int host1 = getHostAddress(lineScan.next());
+				int host2 = getHostAddress(lineScan.next());
+				if (action.equals(StandardEventsReader.CREATE)) {
+					int size = lineScan.nextInt();
+					int respSize = lineScan.hasNextInt() ? lineScan.nextInt() :
+						0;
+					events.add(new MessageCreateEvent(host1, host2, id,
+							Message.NO_PRIORITY_LEVEL, size, respSize, time));
+				}
+				else {
+					int stage = action.equals(StandardEventsReader.SEND) ?
+						MessageRelayEvent.SENDING :
+						action.equals(StandardEventsReader.DELIVERED) ?
+						MessageRelayEvent.TRANSFERRED :
+						MessageRelayEvent.ABORTED;
+					events.add(new MessageRelayEvent(host1, host2, id, time,
+							stage));
+				}
+			}
+			lineScan.close();
+		}
+		scanner.close();
+		return events;
+	}
+
+	private static int getHostAddress(String hostId) {
+		if (hostId.matches("^\\d+$")) {
+			return Integer.parseInt(hostId);
+		}
+		String [] parts = hostId.split("\\D");
+		return Integer.parseInt(parts[parts.length-1]);
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark.jmh;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Random;
+
+import core.Settings;
+import core.SimScenario;
+
+/**
+ * Seeded synthetic inputs for the JMH benchmarks: simulation scenarios
+ * with a given number of hosts, WKT maps and points, and external events
+ * files. The same parameters and seed always produce the same inputs, so
+ * results of different commits are comparable.
+ */
+public class BenchmarkInputs {
+	/** Seed of all the synthetic inputs */
+	public static final long SEED = 42;
+	/** Settings file the scenarios are based on */
+	public static final String DEF_SETTINGS = "default_settings.txt";
+	/** Host density of the scenarios (hosts per square meter); the same as
+	 * in the default scenario (246 hosts in 4500 x 3400 m) */
+	public static final double HOST_DENSITY = 246 / (4500.0 * 3400.0);
+	/** Distance between the crossings of the synthetic maps (meters) */
+	public static final int MAP_GRID_STEP = 100;
+
+	/**
+	 * Creates the scenario of the default settings with one group of
+	 * randomly moving hosts in a world whose size keeps the host density
+	 * of the default scenario.
+	 * @param nrofHosts Number of hosts
+	 * @param settings Additional settings as "key = value" lines (e.g., the
+	 * router or the interface type)
+	 * @return The scenario
+	 * @throws IOException if the settings file could not be written
+	 */
+	public static SimScenario createScenario(int nrofHosts,
+			String... settings) throws IOException {
+		int side = (int)Math.ceil(Math.sqrt(nrofHosts / HOST_DENSITY));
+		File f = File.createTempFile("jmhScenario", ".txt");
+		f.deleteOnExit();
+		PrintWriter out = new PrintWriter(new FileWriter(f));
+		out.println("Scenario.nrofHostGroups = 1");
+		out.println("Group.nrofHosts = " + nrofHosts);
+		out.println("Group.movementModel = RandomWaypoint");
+		out.println("Group.router = EpidemicRouter");
+		out.println("Group.nrofInterfaces = 1");
+		out.println("Group.interface1 = btInterface");
+		out.println("Group1.groupID = n");
+		out.println("Events.nrof = 0");
+		out.println("MovementModel.rngSeed = " + SEED);
+		out.println("MovementModel.worldSize = " + side + ", " + side);
+		out.println("MovementModel.warmup = 0");
+		for (String s : settings) {
+			out.println(s);
+		}
+		out.close();
+
+		Settings.init(DEF_SETTINGS);
+		Settings.addSettings(f.getAbsolutePath());
+		return SimScenario.getInstance();
+	}
+
+	/**
+	 * Returns a map of size x size crossings in WKT format. The roads form a
+	 * grid whose crossings are moved randomly by up to a quarter of
+	 * {@link #MAP_GRID_STEP}, and every row and column is one LINESTRING.
+	 * @param size Number of crossings per side
+	 * @return The map as WKT
+	 */
+	public static String createWktMap(int size) {
+		Random rng = new Random(SEED);
+		double[][] x = new double[size][size];
+		double[][] y = new double[size][size];
+		for (int i=0; i<size; i++) {
+			for (int j=0; j<size; j++) {
+				x[i][j] = MAP_GRID_STEP * (j + 1 +
+						(rng.nextDouble() - 0.5) / 2);
+				y[i][j] = MAP_GRID_STEP * (i + 1 +
+						(rng.nextDouble() - 0.5) / 2);
+			}
+		}
+
+		StringBuilder wkt = new StringBuilder();
+		for (int i=0; i<size; i++) {
+			wkt.append("LINESTRING (");
+			for (int j=0; j<size; j++) {
+				appendCoord(wkt, j, x[i][j], y[i][j]);
+			}
+			wkt.append(")\n");
+		}
+		for (int j=0; j<size; j++) {
+			wkt.append("LINESTRING (");
+			for (int i=0; i<size; i++) {
+				appendCoord(wkt, i, x[i][j], y[i][j]);
+			}
+			wkt.append(")\n");
+		}
+		return wkt.toString();
+	}
+
+	/**
+	 * Returns random points in WKT format
+	 * @param nrofPoints Number of points
+	 * @param maxCoord Maximum value of the coordinates
+	 * @return The points as WKT
+	 */
+	public static String createWktPoints(int nrofPoints, double maxCoord) {
+		Random rng = new Random(SEED);
+		StringBuilder wkt = new StringBuilder();
+		for (int i=0; i<nrofPoints; i++) {
+			wkt.append("POINT (");
+			appendCoord(wkt, 0, rng.nextDouble() * maxCoord,
+					rng.nextDouble() * maxCoord);
+			wkt.append(")\n");
+		}
+		return wkt.toString();
+	}
+
+	private static void appendCoord(StringBuilder wkt, int index, double x,
+			double y) {
+		if (index > 0) {
+			wkt.append(", ");
+		}
+		wkt.append(String.format(Locale.US, "%.2f %.2f", x, y));
+	}
+
+	/**
+	 * Writes an external events file with a typical mix of message
+	 * creation, relay, delete and connection events
+	 * @param nrofEvents Number of events
+	 * @param nrofHosts Number of hosts in the events
+	 * @return The file (deleted on exit)
+	 * @throws IOException if the file could not be written
+	 */
+	public static File createEventsFile(int nrofEvents, int nrofHosts)
+			throws IOException {
+		Random rng = new Random(SEED);
+		File f = File.createTempFile("jmhEvents", ".txt");
+		f.deleteOnExit();
+		PrintWriter out = new PrintWriter(new FileWriter(f));
+		double time = 0;
+		int nrofMessages = 0;
+
+		for (int i=0; i<nrofEvents; i++) {
+			time += rng.nextInt(10) / 10.0;
+			int from = rng.nextInt(nrofHosts);
+			int to = rng.nextInt(nrofHosts);
+			String t = String.format(Locale.US, "%.1f", time);
+			int r = rng.nextInt(100);
+			if (r < 10 || nrofMessages == 0) {
+				nrofMessages++;
+				out.println(t + "\tC\tM" + nrofMessages + "\t" + from + "\t" +
+						to + "\t" + (1000 + rng.nextInt(1000000)));
+				continue;
+			}
+
+			String id = "M" + (1 + rng.nextInt(nrofMessages));
+			if (r < 40) {
+				out.println(t + "\tS\t" + id + "\t" + from + "\t" + to);
+			}
+			else if (r < 65) {
+				out.println(t + "\tDE\t" + id + "\t" + from + "\t" + to);
+			}
+			else if (r < 70) {
+				out.println(t + "\tA\t" + id + "\t" + from + "\t" + to);
+			}
+			else if (r < 80) {
+				out.println(t + "\tR\t" + id + "\t" + from);
+			}
+			else {
+				out.println(t + "\tCONN\t" + from + "\t" + to + "\t" +
+						(r < 90 ? "up" : "down"));
+			}
+		}
+		out.close();
+		return f;
+	}
+}
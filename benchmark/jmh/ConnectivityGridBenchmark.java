@@ -0,0 +1,109 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark.jmh;
+
+import interfaces.ConnectivityGrid;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimScenario;
+
+/**
+ * Benchmarks of {@link ConnectivityGrid}: finding the interfaces near every
+ * interface of the scenario and updating the grid cells of all interfaces
+ * after the hosts have moved. The hosts move in precomputed random walk
+ * steps of up to {@value #STEP} meters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConnectivityGridBenchmark {
+	/** Maximum distance a host moves between two grid updates (meters) */
+	public static final double STEP = 10;
+	/** Number of precomputed location frames */
+	public static final int NROF_FRAMES = 16;
+
+	@Param({"500", "2000", "10000"})
+	public int nrofHosts;
+
+	private ConnectivityGrid grid;
+	private List<DTNHost> hosts;
+	private List<NetworkInterface> interfaces;
+	/** Locations of the hosts by frame */
+	private Coord[][] frames;
+	private int frame;
+
+	@Setup
+	public void setup() throws IOException {
+		SimScenario scenario = BenchmarkInputs.createScenario(nrofHosts);
+		hosts = scenario.getHosts();
+		interfaces = new ArrayList<NetworkInterface>();
+		for (DTNHost h : hosts) {
+			interfaces.addAll(h.getInterfaces());
+		}
+		NetworkInterface ni = interfaces.get(0);
+		grid = ConnectivityGrid.ConnectivityGridFactory(
+				ni.getInterfaceType().hashCode(), ni.getTransmitRange());
+
+		/* a random walk that stays inside the world */
+		Random rng = new Random(BenchmarkInputs.SEED);
+		double maxX = scenario.getWorldSizeX() - 1;
+		double maxY = scenario.getWorldSizeY() - 1;
+		frames = new Coord[NROF_FRAMES][hosts.size()];
+		for (int i=0; i<hosts.size(); i++) {
+			Coord c = hosts.get(i).getLocation().clone();
+			for (int f=0; f<NROF_FRAMES; f++) {
+				double x = c.getX() + (rng.nextDouble() * 2 - 1) * STEP;
+				double y = c.getY() + (rng.nextDouble() * 2 - 1) * STEP;
+				c = new Coord(Math.min(Math.max(x, 0), maxX),
+						Math.min(Math.max(y, 0), maxY));
+				frames[f][i] = c;
+			}
+		}
+		frame = 0;
+	}
+
+	@Benchmark
+	public void getNearInterfaces(Blackhole bh) {
+		for (NetworkInterface ni : interfaces) {
+			bh.consume(grid.getNearInterfaces(ni));
+		}
+	}
+
+	@Benchmark
+	public void updateLocation() {
+		Coord[] locations = frames[frame];
+		frame = (frame + 1) % NROF_FRAMES;
+		for (int i=0, n=hosts.size(); i<n; i++) {
+			hosts.get(i).setLocation(locations[i]);
+		}
+		for (NetworkInterface ni : interfaces) {
+			grid.updateLocation(ni);
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark.jmh;
+
+import input.WKTMapReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import movement.map.DijkstraPathFinder;
+import movement.map.MapNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link DijkstraPathFinder}. Finds shortest paths between
+ * random pairs of nodes of a synthetic grid map (see
+ * {@link BenchmarkInputs#createWktMap(int)}) with
+ * <CODE>mapSize</CODE> x <CODE>mapSize</CODE> crossings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DijkstraPathFinderBenchmark {
+	/** Number of precomputed node pairs */
+	public static final int NROF_PAIRS = 1024;
+
+	@Param({"30", "100"})
+	public int mapSize;
+
+	private DijkstraPathFinder finder;
+	private MapNode[] from;
+	private MapNode[] to;
+	private int pair;
+
+	@Setup
+	public void setup() throws IOException {
+		WKTMapReader reader = new WKTMapReader(true);
+		reader.addPaths(new StringReader(
+				BenchmarkInputs.createWktMap(mapSize)), 1);
+		List<MapNode> nodes = reader.getMap().getNodes();
+
+		Random rng = new Random(BenchmarkInputs.SEED);
+		from = new MapNode[NROF_PAIRS];
+		to = new MapNode[NROF_PAIRS];
+		for (int i=0; i<NROF_PAIRS; i++) {
+			from[i] = nodes.get(rng.nextInt(nodes.size()));
+			to[i] = nodes.get(rng.nextInt(nodes.size()));
+		}
+		finder = new DijkstraPathFinder(null);
+		pair = 0;
+	}
+
+	@Benchmark
+	public List<MapNode> getShortestPath() {
+		int i = pair;
+		pair = (pair + 1) % NROF_PAIRS;
+		return finder.getShortestPath(from[i], to[i]);
+	}
+}
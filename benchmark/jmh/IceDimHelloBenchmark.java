@@ -0,0 +1,117 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark.jmh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import routing.IceDimRouter;
+import core.DTNHost;
+import core.IntHashSet;
+import core.Settings;
+import core.SimScenario;
+import core.iceDim.IceDimHelloMessage;
+import core.iceDim.KnowledgeOfSurroundings;
+
+/**
+ * Benchmarks of the HELLO messages of {@link IceDimRouter}: building a
+ * HELLO message from the IDs of the received messages and the
+ * subscriptions of a node, and merging the HELLO messages of
+ * {@value #NROF_NEIGHBORS} neighbors into the knowledge of a node.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IceDimHelloBenchmark {
+	/** Number of neighbors whose HELLO messages are merged */
+	public static final int NROF_NEIGHBORS = 10;
+	/** Number of subscriptions of a node */
+	public static final int NROF_SUBSCRIPTIONS = 5;
+	/** Size of the source and ID fields of a HELLO message (bytes) */
+	public static final int SOURCE_AND_ID_SIZE = 8;
+
+	/** Number of received message IDs in a HELLO message */
+	@Param({"100", "1000", "10000"})
+	public int nrofReceived;
+
+	private DTNHost node;
+	private IntHashSet received;
+	private List<Integer> subscriptions;
+	private IceDimHelloMessage[] neighborHellos;
+	private KnowledgeOfSurroundings knowledge;
+	private int helloCounter;
+
+	@Setup
+	public void setup() throws IOException {
+		SimScenario scenario = BenchmarkInputs.createScenario(
+				NROF_NEIGHBORS + 1);
+		List<DTNHost> hosts = scenario.getHosts();
+		Random rng = new Random(BenchmarkInputs.SEED);
+		subscriptions = new ArrayList<Integer>();
+		for (int i=0; i<NROF_SUBSCRIPTIONS; i++) {
+			subscriptions.add(i + 1);
+		}
+
+		/* the neighbors know partly the same messages */
+		neighborHellos = new IceDimHelloMessage[NROF_NEIGHBORS];
+		for (int i=0; i<=NROF_NEIGHBORS; i++) {
+			IntHashSet ids = new IntHashSet();
+			while (ids.size() < nrofReceived) {
+				ids.add(rng.nextInt(4 * nrofReceived));
+			}
+			if (i == NROF_NEIGHBORS) {
+				node = hosts.get(i);
+				received = ids;
+			}
+			else {
+				neighborHellos[i] = buildHello(hosts.get(i), ids);
+			}
+		}
+		knowledge = new KnowledgeOfSurroundings(node,
+				new Settings(SimScenario.GROUP_NS));
+		helloCounter = 0;
+	}
+
+	/**
+	 * Builds a HELLO message the way the IceDim router does
+	 */
+	private IceDimHelloMessage buildHello(DTNHost from, IntHashSet ids) {
+		int size = SOURCE_AND_ID_SIZE + 4 * subscriptions.size() +
+			4 * ids.size() + 2;
+		return new IceDimHelloMessage(from, "HM_" + from + "_" +
+				String.format("%04d", helloCounter++), size, ids.toArray(),
+				subscriptions);
+	}
+
+	@Benchmark
+	public IceDimHelloMessage buildHello() {
+		return buildHello(node, received);
+	}
+
+	@Benchmark
+	public void mergeHellos() {
+		for (IceDimHelloMessage hello : neighborHellos) {
+			knowledge.processHelloMessage(hello);
+		}
+	}
+}
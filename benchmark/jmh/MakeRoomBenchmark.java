@@ -0,0 +1,85 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark.jmh;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import routing.MessageRouter;
+import core.DTNHost;
+import core.Message;
+import core.SimClock;
+import core.SimScenario;
+
+/**
+ * Benchmark of {@link MessageRouter#makeRoomForMessage(int, int)}. The
+ * cache of a host is filled with <CODE>cachedMessages</CODE> messages and
+ * every invocation creates a new message, so the router has to drop the
+ * least important message to make room for it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MakeRoomBenchmark {
+	/** Size of the messages (bytes) */
+	public static final int MESSAGE_SIZE = 1000;
+
+	@Param({"100", "1000", "5000"})
+	public int cachedMessages;
+
+	private DTNHost from;
+	private DTNHost to;
+	private int nextId;
+
+	@Setup
+	public void setup() throws IOException {
+		SimScenario scenario = BenchmarkInputs.createScenario(2,
+				"Group.cacheSize = " + cachedMessages * MESSAGE_SIZE);
+		List<DTNHost> hosts = scenario.getHosts();
+		from = hosts.get(0);
+		to = hosts.get(1);
+		nextId = 0;
+		for (int i=0; i<cachedMessages; i++) {
+			createMessage();
+		}
+	}
+
+	/**
+	 * Creates a new message at the source host, reusing the IDs of the
+	 * messages that have been dropped
+	 */
+	private void createMessage() {
+		String id;
+		do {
+			id = "M" + nextId;
+			nextId = (nextId + 1) % (2 * cachedMessages);
+		} while (from.getRouter().hasMessage(id));
+
+		SimClock clock = SimClock.getInstance();
+		clock.setTime(SimClock.getTime() + 1);
+		from.createNewMessage(new Message(from, to, id, MESSAGE_SIZE));
+	}
+
+	@Benchmark
+	public void makeRoomForNewMessage() {
+		createMessage();
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark.jmh;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import core.DTNHost;
+import core.Message;
+import core.MessageCacheManager;
+import core.Settings;
+import core.SimScenario;
+
+/**
+ * Benchmarks of the insert and evict paths of {@link MessageCacheManager}.
+ * The cache is kept full with <CODE>cachedMessages</CODE> messages of
+ * random priorities; <CODE>insertAndEvict</CODE> inserts a message and
+ * evicts the least important one the way the routers do when they make
+ * room for a new message, and <CODE>insertAndRemove</CODE> measures only
+ * the insertion and removal of a message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageCacheBenchmark {
+
+	/** Caching prioritization strategy (index of
+	 * CachingPrioritizationMode) */
+	@Param({"1", "2", "3"})
+	public int strategy;
+
+	@Param({"100", "1000", "10000"})
+	public int cachedMessages;
+
+	private MessageCacheManager cache;
+	/** Messages that are not in the cache */
+	private ArrayDeque<Message> pool;
+	private double receiveTime;
+
+	@Setup
+	public void setup() throws IOException {
+		SimScenario scenario = BenchmarkInputs.createScenario(2,
+				"Group.cachingPrioritizationStrategy = " + strategy);
+		List<DTNHost> hosts = scenario.getHosts();
+		cache = new MessageCacheManager(new Settings(
+				SimScenario.GROUP_NS));
+
+		Random rng = new Random(BenchmarkInputs.SEED);
+		pool = new ArrayDeque<Message>();
+		for (int i=0; i<2 * cachedMessages; i++) {
+			int priority = Message.NO_PRIORITY_LEVEL + rng.nextInt(
+					Message.MAX_PRIORITY_LEVEL - Message.NO_PRIORITY_LEVEL + 1);
+			pool.add(new Message(hosts.get(0), hosts.get(1), "M" + i, 1000,
+					priority));
+		}
+		receiveTime = 0;
+		for (int i=0; i<cachedMessages; i++) {
+			insert();
+		}
+	}
+
+	private void insert() {
+		Message m = pool.poll();
+		m.setReceiveTime(receiveTime++);
+		cache.addMessageToQueue(m);
+	}
+
+	@Benchmark
+	public void insertAndEvict() {
+		insert();
+		List<Message> messages = new ArrayList<Message>(
+				cache.getMessageCollection());
+		cache.sortByReversedPrioritizationMode(messages);
+		Message evicted = cache.removeMessage(messages.get(0).getIntId());
+		pool.add(evicted);
+	}
+
+	@Benchmark
+	public void insertAndRemove() {
+		Message m = pool.peek();
+		insert();
+		pool.add(cache.removeMessage(m.getIntId()));
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark.jmh;
+
+import interfaces.InterferenceLimitedInterface;
+import interfaces.SimpleBroadcastInterface;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimScenario;
+
+/**
+ * Benchmarks of the <CODE>update</CODE> methods of
+ * {@link SimpleBroadcastInterface} and {@link InterferenceLimitedInterface},
+ * which create and tear down the connections of the moving hosts. Every
+ * invocation advances the simulation by one update interval, moves the
+ * hosts and updates all the interfaces; <CODE>moveHosts</CODE> measures the
+ * movement alone so that it can be subtracted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NetworkInterfaceBenchmark {
+
+	@Param({"SimpleBroadcastInterface", "InterferenceLimitedInterface"})
+	public String interfaceType;
+
+	@Param({"500", "2000"})
+	public int nrofHosts;
+
+	private List<DTNHost> hosts;
+	private List<NetworkInterface> interfaces;
+	private double updateInterval;
+
+	@Setup
+	public void setup() throws IOException {
+		SimScenario scenario = BenchmarkInputs.createScenario(nrofHosts,
+				"btInterface.type = " + interfaceType);
+		hosts = scenario.getHosts();
+		interfaces = new ArrayList<NetworkInterface>();
+		for (DTNHost h : hosts) {
+			interfaces.addAll(h.getInterfaces());
+		}
+		updateInterval = scenario.getUpdateInterval();
+		SimClock.getInstance().setTime(0);
+	}
+
+	private void move() {
+		SimClock.getInstance().setTime(SimClock.getTime() + updateInterval);
+		for (int i=0, n=hosts.size(); i<n; i++) {
+			hosts.get(i).move(updateInterval);
+		}
+	}
+
+	@Benchmark
+	public void moveHosts() {
+		move();
+	}
+
+	@Benchmark
+	public void updateInterfaces() {
+		move();
+		for (int i=0, n=interfaces.size(); i<n; i++) {
+			interfaces.get(i).update();
+		}
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark.jmh;
+
+import input.ExternalEvent;
+import input.StandardEventsReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of {@link StandardEventsReader}. Parses a synthetic external
+ * events file (see {@link BenchmarkInputs#createEventsFile(int, int)}) of
+ * <CODE>nrofEvents</CODE> events in batches of {@value #BATCH_SIZE} events,
+ * the way the external events queue reads it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StandardEventsReaderBenchmark {
+	/** Number of events requested with a single read call */
+	public static final int BATCH_SIZE = 500;
+	/** Number of hosts in the events */
+	public static final int NROF_HOSTS = 2000;
+
+	@Param({"100000", "1000000"})
+	public int nrofEvents;
+
+	private File events;
+
+	@Setup
+	public void setup() throws IOException {
+		events = BenchmarkInputs.createEventsFile(nrofEvents, NROF_HOSTS);
+	}
+
+	@Benchmark
+	public int readEvents() {
+		StandardEventsReader reader = new StandardEventsReader(events);
+		int count = 0;
+		List<ExternalEvent> batch;
+		do {
+			batch = reader.readEvents(BATCH_SIZE);
+			count += batch.size();
+		} while (batch.size() > 0);
+		reader.close();
+		return count;
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package benchmark.jmh;
+
+import input.WKTMapReader;
+import input.WKTReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import core.Coord;
+
+/**
+ * Benchmarks of {@link WKTReader} and {@link WKTMapReader}: parsing a
+ * synthetic grid map with <CODE>mapSize</CODE> x <CODE>mapSize</CODE>
+ * crossings (see {@link BenchmarkInputs#createWktMap(int)}) into map
+ * nodes and parsing the same number of points.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WKTReaderBenchmark {
+
+	@Param({"30", "100"})
+	public int mapSize;
+
+	private String map;
+	private String points;
+
+	@Setup
+	public void setup() {
+		map = BenchmarkInputs.createWktMap(mapSize);
+		points = BenchmarkInputs.createWktPoints(mapSize * mapSize,
+				(mapSize + 1) * BenchmarkInputs.MAP_GRID_STEP);
+	}
+
+	@Benchmark
+	public int readMap() throws IOException {
+		WKTMapReader reader = new WKTMapReader(true);
+		reader.addPaths(new StringReader(map), 1);
+		return reader.getNodes().size();
+	}
+
+	@Benchmark
+	public List<Coord> readPoints() throws IOException {
+		return new WKTReader().readPoints(new StringReader(points));
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dispatches connection events to a list of connection listeners, calling
+ * only the listeners that are interested in the event. See
+ * {@link MessageListenerDispatch} for the details.
+ */
+public class ConnectionListenerDispatch implements ConnectionListener {
+	/** Event type of {@link ConnectionListener#hostsConnected(DTNHost,
+	 * DTNHost)} */
+	public static final int HOSTS_CONNECTED = 0;
+	/** Event type of {@link ConnectionListener#hostsDisconnected(DTNHost,
+	 * DTNHost)} */
+	public static final int HOSTS_DISCONNECTED = 1;
+	/** Number of event types */
+	public static final int NROF_EVENT_TYPES = 2;
+
+	private static final ConnectionListener[] NO_LISTENERS =
+		new ConnectionListener[0];
+
+	/** The listeners this dispatcher dispatches to */
+	private List<ConnectionListener> listeners;
+	/** Number of listeners when the dispatch arrays were built */
+	private int nrofListeners;
+	/** Interested listeners by event type */
+	private ConnectionListener[][] dispatch;
+	/** Were the listeners wrapped for the profiler when the dispatch arrays
+	 * were built */
+	private boolean profiled;
+
+	/**
+	 * Creates a dispatcher for a list of listeners
+	 * @param listeners The listeners (may be null, for no listeners)
+	 */
+	public ConnectionListenerDispatch(List<ConnectionListener> listeners) {
+		this.listeners = listeners;
+		this.nrofListeners = 0;
+		this.dispatch = new ConnectionListener[NROF_EVENT_TYPES][];
+		for (int i=0; i<NROF_EVENT_TYPES; i++) {
+			dispatch[i] = NO_LISTENERS;
+		}
+		update();
+	}
+
+	/**
+	 * Rebuilds the dispatch arrays if listeners were added to the list or
+	 * the {@link Profiler} was enabled or disabled
+	 */
+	private void update() {
+		if (listeners == null || (listeners.size() == nrofListeners &&
+				Profiler.isEnabled() == profiled)) {
+			return;
+		}
+		profiled = Profiler.isEnabled();
+		for (int i=0; i<NROF_EVENT_TYPES; i++) {
+			List<ConnectionListener> interested =
+				new ArrayList<ConnectionListener>();
+			for (ConnectionListener cl : listeners) {
+				if ((getInterests(cl) & (1 << i)) != 0) {
+					interested.add(profiled ? new ProfiledListener(cl) : cl);
+				}
+			}
+			dispatch[i] = interested.toArray(NO_LISTENERS);
+		}
+		nrofListeners = listeners.size();
+	}
+
+	/**
+	 * Returns the connection events a listener is interested in
+	 * @param cl The listener
+	 * @return The interests declared by the listener or
+	 * {@link ListenerInterests#ALL_EVENTS} if it doesn't declare any
+	 */
+	private static int getInterests(ConnectionListener cl) {
+		if (cl instanceof ListenerInterests) {
+			return ((ListenerInterests)cl).getConnectionEventInterests();
+		}
+		return ListenerInterests.ALL_EVENTS;
+	}
+
+	/**
+	 * Returns the listeners interested in an event type
+	 * @param eventType The event type (e.g., {@link #HOSTS_CONNECTED})
+	 * @return The listeners interested in the event type
+	 */
+	public ConnectionListener[] getListeners(int eventType) {
+		update();
+		return dispatch[eventType];
+	}
+
+	/**
+	 * Returns true if any listener is interested in an event type
+	 * @param eventType The event type (e.g., {@link #HOSTS_CONNECTED})
+	 * @return true if any listener is interested in the event type
+	 */
+	public boolean hasListeners(int eventType) {
+		return getListeners(eventType).length > 0;
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		for (ConnectionListener cl : getListeners(HOSTS_CONNECTED)) {
+			cl.hostsConnected(host1, host2);
+		}
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		for (ConnectionListener cl : getListeners(HOSTS_DISCONNECTED)) {
+			cl.hostsDisconnected(host1, host2);
+		}
+	}
+}
@@ -331,6 +331,10 @@ public class DTNHost implements Comparable<DTNHost> {
 		if (!isActive()) {
 			return;
 		}
+		if (Profiler.isEnabled()) {
+			updateProfiled(simulateConnections);
+			return;
+		}
 		
 		if (simulateConnections) {
 			for (NetworkInterface i : net) {
@@ -340,6 +344,25 @@ public class DTNHost implements Comparable<DTNHost> {
 		router.update();
 	}
 
+	/**
+	 * Updates node's network layer and router like
+	 * {@link #update(boolean)} and adds the times to the {@link Profiler}.
+	 * @param simulateConnections Should network layer be updated too
+	 */
+	private void updateProfiled(boolean simulateConnections) {
+		long start;
+		if (simulateConnections) {
+			for (NetworkInterface i : net) {
+				start = System.nanoTime();
+				i.update();
+				Profiler.phaseDone(Profiler.CONNECTIVITY, i, start);
+			}
+		}
+		start = System.nanoTime();
+		router.update();
+		Profiler.phaseDone(Profiler.ROUTING, router, start);
+	}
+
 	/**
 	 * Moves the node towards the next waypoint, or waits if
 	 * it is not the time to move, yet.
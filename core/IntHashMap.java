@@ -0,0 +1,238 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Hash map with non-negative int keys (e.g., the interned message ids of
+ * {@link MessageIdInterner}). The keys are stored in a primitive array
+ * using open addressing with linear probing, so no key objects are created.
+ * Null values are not supported.
+ * @param <V> Type of the values
+ */
+public class IntHashMap<V> {
+	/** Key value of the empty slots */
+	static final int EMPTY = -1;
+	private static final int INIT_CAPACITY = 16;
+
+	private int[] keys;
+	private Object[] values;
+	private int size;
+	/** number of structural modifications (for the iterators) */
+	private int modCount;
+
+	/**
+	 * Creates an empty map
+	 */
+	public IntHashMap() {
+		this.keys = new int[INIT_CAPACITY];
+		this.values = new Object[INIT_CAPACITY];
+		Arrays.fill(this.keys, EMPTY);
+	}
+
+	/**
+	 * Returns the slot for a key in a table of the given size
+	 */
+	static int slot(int key, int mask) {
+		int h = key * 0x9E3779B9; // spreads consecutive keys
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private int indexOf(int key) {
+		if (key < 0) {
+			return EMPTY;
+		}
+		int mask = keys.length - 1;
+		for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return i;
+			}
+		}
+		return EMPTY;
+	}
+
+	/**
+	 * Returns the value of a key
+	 * @param key The key
+	 * @return The value or null if the key is not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int i = indexOf(key);
+		return i == EMPTY ? null : (V)values[i];
+	}
+
+	/**
+	 * Returns true if the map contains the key
+	 * @param key The key
+	 * @return True if the map contains the key
+	 */
+	public boolean containsKey(int key) {
+		return indexOf(key) != EMPTY;
+	}
+
+	/**
+	 * Maps a key to a value
+	 * @param key The key (must not be negative)
+	 * @param value The value (must not be null)
+	 * @return The previous value of the key or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if (key < 0) {
+			throw new SimError("Invalid key " + key);
+		}
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				V old = (V)values[i];
+				values[i] = value;
+				return old;
+			}
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		modCount++;
+		if (++size > keys.length / 2) {
+			rehash(keys.length * 2);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes a key from the map
+	 * @param key The key
+	 * @return The value of the removed key or null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int i = indexOf(key);
+		if (i == EMPTY) {
+			return null;
+		}
+		V old = (V)values[i];
+		deleteSlot(i);
+		return old;
+	}
+
+	/**
+	 * Empties a slot and moves the following entries of the probe sequence
+	 * back so that no tombstones are needed
+	 */
+	private void deleteSlot(int i) {
+		int mask = keys.length - 1;
+		for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			int home = slot(keys[j], mask);
+			/* move the entry if its home slot is not between the gap and j */
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = EMPTY;
+		values[i] = null;
+		size--;
+		modCount++;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[capacity];
+		values = new Object[capacity];
+		Arrays.fill(keys, EMPTY);
+
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != EMPTY) {
+				int i = slot(oldKeys[j], mask);
+				while (keys[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of keys in the map
+	 * @return The number of keys in the map
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Removes all the keys from the map
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		Arrays.fill(values, null);
+		size = 0;
+		modCount++;
+	}
+
+	/**
+	 * Returns a view of the values of the map. The view does not support
+	 * modifications.
+	 * @return The values
+	 */
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new ValueIterator();
+			}
+
+			@Override
+			public int size() {
+				return IntHashMap.this.size;
+			}
+		};
+	}
+
+	private class ValueIterator implements Iterator<V> {
+		private final int expectedModCount = modCount;
+		private int next = advance(0);
+
+		private int advance(int i) {
+			while (i < keys.length && keys[i] == EMPTY) {
+				i++;
+			}
+			return i;
+		}
+
+		public boolean hasNext() {
+			return next < keys.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		public V next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (next >= keys.length) {
+				throw new NoSuchElementException();
+			}
+			V value = (V)values[next];
+			next = advance(next + 1);
+			return value;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
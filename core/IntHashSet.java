@@ -0,0 +1,147 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * Hash set of non-negative ints (e.g., the interned message ids of
+ * {@link MessageIdInterner}). Uses the same open addressing scheme as
+ * {@link IntHashMap} without storing any values.
+ */
+public class IntHashSet {
+	private static final int EMPTY = IntHashMap.EMPTY;
+	private static final int INIT_CAPACITY = 16;
+
+	private int[] keys;
+	private int size;
+
+	/**
+	 * Creates an empty set
+	 */
+	public IntHashSet() {
+		this.keys = new int[INIT_CAPACITY];
+		Arrays.fill(this.keys, EMPTY);
+	}
+
+	private int indexOf(int key) {
+		if (key < 0) {
+			return EMPTY;
+		}
+		int mask = keys.length - 1;
+		for (int i = IntHashMap.slot(key, mask); keys[i] != EMPTY;
+				i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return i;
+			}
+		}
+		return EMPTY;
+	}
+
+	/**
+	 * Returns true if the set contains the value
+	 * @param key The value
+	 * @return True if the set contains the value
+	 */
+	public boolean contains(int key) {
+		return indexOf(key) != EMPTY;
+	}
+
+	/**
+	 * Adds a value to the set
+	 * @param key The value (must not be negative)
+	 * @return True if the value was added, false if it already was in the set
+	 */
+	public boolean add(int key) {
+		if (key < 0) {
+			throw new SimError("Invalid key " + key);
+		}
+		int mask = keys.length - 1;
+		int i = IntHashMap.slot(key, mask);
+		for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return false;
+			}
+		}
+
+		keys[i] = key;
+		if (++size > keys.length / 2) {
+			rehash(keys.length * 2);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a value from the set
+	 * @param key The value
+	 * @return True if the value was removed, false if it was not in the set
+	 */
+	public boolean remove(int key) {
+		int i = indexOf(key);
+		if (i == EMPTY) {
+			return false;
+		}
+
+		int mask = keys.length - 1;
+		for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			int home = IntHashMap.slot(keys[j], mask);
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				i = j;
+			}
+		}
+		keys[i] = EMPTY;
+		size--;
+		return true;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		keys = new int[capacity];
+		Arrays.fill(keys, EMPTY);
+
+		int mask = capacity - 1;
+		for (int key : oldKeys) {
+			if (key != EMPTY) {
+				int i = IntHashMap.slot(key, mask);
+				while (keys[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = key;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of values in the set
+	 * @return The number of values in the set
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Removes all the values from the set
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	/**
+	 * Returns the values of the set in an array
+	 * @return A new array with the values
+	 */
+	public int[] toArray() {
+		int[] array = new int[size];
+		int n = 0;
+		for (int key : keys) {
+			if (key != EMPTY) {
+				array[n++] = key;
+			}
+		}
+		return array;
+	}
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Interface for listeners that declare which events they want to be
+ * called for. The listener dispatchers ({@link MessageListenerDispatch}
+ * and {@link ConnectionListenerDispatch}) don't call a listener's
+ * callbacks of the events it has no interest in. Listeners that don't
+ * implement this interface are called for all events.
+ */
+public interface ListenerInterests {
+	/** Interests of a listener that wants all the events */
+	public static final int ALL_EVENTS = -1;
+
+	/**
+	 * Returns the message events the listener wants to be called for
+	 * @return Bit mask with the bit <CODE>1 &lt;&lt; type</CODE> set for
+	 * every wanted event type of {@link MessageListenerDispatch} (e.g.,
+	 * {@link MessageListenerDispatch#NEW_MESSAGE})
+	 */
+	public int getMessageEventInterests();
+
+	/**
+	 * Returns the connection events the listener wants to be called for
+	 * @return Bit mask with the bit <CODE>1 &lt;&lt; type</CODE> set for
+	 * every wanted event type of {@link ConnectionListenerDispatch} (e.g.,
+	 * {@link ConnectionListenerDispatch#HOSTS_CONNECTED})
+	 */
+	public int getConnectionEventInterests();
+}
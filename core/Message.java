@@ -4,7 +4,8 @@
  */
 package core;
 
-import java.util.ArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -23,26 +24,17 @@ public class Message implements Comparable<Message> {
 	/** Max priority value allowed */
 	public static int MAX_PRIORITY_LEVEL = NO_PRIORITY_LEVEL;
 	
-	/** Source of the message */
-	private DTNHost from;
-	/** Destination of the message */
-	private DTNHost to;
-	/** Identifier of the message */
-	private String id;
-	/** message priority level */
-	private final int priority;
-	/** Size of the message (bytes) */
-	private int size;
-	/** List of nodes this message has passed */
-	private List<DTNHost> path; 
+	/** The immutable data of the message (shared by the replicates) */
+	private Header header;
+	/** The last node this message has passed (the nodes before it are
+	 * linked from it) */
+	private Hop path; 
 	/** Next unique identifier to be given */
 	private static int nextUniqueId;
 	/** Unique ID of this message */
 	private int uniqueId;
 	/** The time this message was received */
 	private double timeReceived;
-	/** The time when this message was created */
-	private double timeCreated;
 	/** Initial TTL of the message */
 	private int initTtl;
 	/** Number of times the message has been forwarded */
@@ -58,6 +50,15 @@ public class Message implements Comparable<Message> {
 	 * stored in the properties should be immutable because only a shallow
 	 * copy of the properties is made when replicating messages */
 	private Map<String, Object> properties;
+	/** Values of the typed properties by slot (see 
+	 * {@link MessagePropertyKey}); int and double values are stored as 
+	 * long bits */
+	private long[] typedValues;
+	/** Bit mask of the typed property slots that have a value */
+	private long typedValuesSet;
+	/** True if the properties map or the typed values may be shared with
+	 * replicates (and must be copied before modifying them) */
+	private boolean propertiesShared;
 	
 	/** Application ID of the application that created the message */
 	private String appID;
@@ -76,16 +77,12 @@ public class Message implements Comparable<Message> {
 	 * @param size Size of the message (in bytes)
 	 */
 	public Message(DTNHost from, DTNHost to, String id, int size) {
-		this.from = from;
-		this.to = to;
-		this.id = id;
-		this.size = size;
-		this.path = new ArrayList<DTNHost>();
+		this.header = new Header(from, to, id, size, NO_PRIORITY_LEVEL, 
+				SimClock.getTime());
+		this.path = null;
 		this.uniqueId = nextUniqueId;
-		this.priority = NO_PRIORITY_LEVEL;
 		
-		this.timeCreated = SimClock.getTime();
-		this.timeReceived = this.timeCreated;
+		this.timeReceived = header.timeCreated;
 		this.initTtl = INFINITE_TTL;
 		this.forwardTimes = 0;
 		this.responseSize = 0;
@@ -109,16 +106,12 @@ public class Message implements Comparable<Message> {
 	 * @param SubscriptionID The ID of the subscription the message belongs to
 	 */
 	public Message(DTNHost from, DTNHost to, String id, int size, int priority) {
-		this.from = from;
-		this.to = to;
-		this.id = id;
-		this.size = size;
-		this.path = new ArrayList<DTNHost>();
+		this.header = new Header(from, to, id, size, priority, 
+				SimClock.getTime());
+		this.path = null;
 		this.uniqueId = Message.nextUniqueId;
-		this.priority = priority;
 		
-		this.timeCreated = SimClock.getTime();
-		this.timeReceived = this.timeCreated;
+		this.timeReceived = header.timeCreated;
 		this.initTtl = INFINITE_TTL;
 		this.forwardTimes = 0;
 		this.responseSize = 0;
@@ -130,12 +123,23 @@ public class Message implements Comparable<Message> {
 		Message.nextUniqueId++;
 	}
 	
+	/**
+	 * Creates a replicate of a message. The replicate shares the immutable
+	 * data and the path of the original message.
+	 * @param m The message to replicate
+	 */
+	protected Message(Message m) {
+		this.uniqueId = Message.nextUniqueId++;
+		this.timeReceived = SimClock.getTime();
+		copyFrom(m);
+	}
+	
 	/**
 	 * Returns the node this message is originally from
 	 * @return the node this message is originally from
 	 */
 	public DTNHost getFrom() {
-		return from;
+		return header.from;
 	}
 
 	/**
@@ -143,7 +147,7 @@ public class Message implements Comparable<Message> {
 	 * @return the node this message is originally to
 	 */
 	public DTNHost getTo() {
-		return to;
+		return header.to;
 	}
 
 	/**
@@ -151,7 +155,22 @@ public class Message implements Comparable<Message> {
 	 * @return The message id
 	 */
 	public String getID() {
-		return id;
+		return header.id;
+	}
+
+	/**
+	 * Returns the interned integer ID of the message (see
+	 * {@link MessageIdInterner}). All replicates have the same integer ID.
+	 * The identifier is interned on the first call, so only the messages
+	 * that are stored by their integer IDs (e.g. in caches or reports) are
+	 * kept in the interner.
+	 * @return The integer id
+	 */
+	public int getIntId() {
+		if (header.intId == MessageIdInterner.NO_ID) {
+			header.intId = MessageIdInterner.intern(header.id);
+		}
+		return header.intId;
 	}
 
 	/**
@@ -159,7 +178,7 @@ public class Message implements Comparable<Message> {
 	 * @return the priority
 	 */
 	public int getPriority() {
-		return priority;
+		return header.priority;
 	}
 
 	/**
@@ -176,7 +195,7 @@ public class Message implements Comparable<Message> {
 	 * @return the size of the message
 	 */
 	public int getSize() {
-		return size;
+		return header.size;
 	}
 
 	/**
@@ -184,15 +203,35 @@ public class Message implements Comparable<Message> {
 	 * @param node The node to add
 	 */
 	public void addNodeOnPath(DTNHost node) {
-		path.add(node);
+		path = new Hop(node, path);
 	}
 	
 	/**
-	 * Returns a list of nodes this message has passed so far
-	 * @return The list as vector
+	 * Returns a list of nodes this message has passed so far. The list is
+	 * a copy and it is not updated when new nodes are added to the path.
+	 * @return The list of nodes, the source node first
 	 */
 	public List<DTNHost> getHops() {
-		return path;
+		DTNHost[] hops = new DTNHost[path == null ? 0 : path.count];
+		for (Hop h = path; h != null; h = h.previous) {
+			hops[h.count - 1] = h.node;
+		}
+		return new ArrayList<DTNHost>(Arrays.asList(hops));
+	}
+	
+	/**
+	 * Returns true if the given node is on the list of nodes this message
+	 * has passed so far
+	 * @param node The node to look for
+	 * @return True if the message has passed the node
+	 */
+	public boolean isOnPath(DTNHost node) {
+		for (Hop h = path; h != null; h = h.previous) {
+			if (h.node == node) {
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	/**
@@ -202,8 +241,8 @@ public class Message implements Comparable<Message> {
 	 * @return The node from which the message was received
 	 */
 	public DTNHost getSenderNode() {
-		if (path.size() > 1) {
-			return path.get(path.size() - 2);
+		if (path != null && path.count > 1) {
+			return path.previous.node;
 		}
 		
 		return null;
@@ -214,7 +253,7 @@ public class Message implements Comparable<Message> {
 	 * @return the amount of hops this message has passed
 	 */
 	public int getHopCount() {
-		return path.size() -1;
+		return (path == null ? 0 : path.count) - 1;
 	}
 	
 	/** 
@@ -228,12 +267,24 @@ public class Message implements Comparable<Message> {
 			return Integer.MAX_VALUE;
 		}
 		else {
-			return (int)(((initTtl * 60) - (SimClock.getTime() - timeCreated)) / 60.0);
+			return (int)(((initTtl * 60) - (SimClock.getTime() - 
+					header.timeCreated)) / 60.0);
 		}
 	}
 	
 	
 	/**
+	 * Returns the simulation time when the TTL of the message expires
+	 * @return The expiry time or Double.MAX_VALUE if the TTL is infinite
+	 */
+	public double getExpiryTime() {
+		if (initTtl == INFINITE_TTL) {
+			return Double.MAX_VALUE;
+		}
+		return header.timeCreated + initTtl * 60.0;
+	}
+	
+	/**
 	 * Sets the initial TTL (time-to-live) for this message. The initial
 	 * TTL is the TTL when the original message was created. The current TTL
 	 * is calculated based on the time of 
@@ -287,7 +338,7 @@ public class Message implements Comparable<Message> {
 	 * @return the time when this message was created
 	 */
 	public double getCreationTime() {
-		return timeCreated;
+		return header.timeCreated;
 	}
 	
 	/**
@@ -338,7 +389,7 @@ public class Message implements Comparable<Message> {
 	 * @return a string representation of the message
 	 */
 	public String toString () {
-		return id;
+		return header.id;
 	}
 
 	/**
@@ -348,20 +399,15 @@ public class Message implements Comparable<Message> {
 	 * @param m The message where the data is copied
 	 */
 	protected void copyFrom(Message m) {
-		this.path = new ArrayList<DTNHost>(m.path);
-		this.timeCreated = m.timeCreated;
+		this.header = m.header;
+		this.path = m.path; // hops added to the copy are linked to the path
 		this.responseSize = m.responseSize;
 		this.requestMsg  = m.requestMsg;
 		this.initTtl = m.initTtl;
 		this.appID = m.appID;
 		this.forwardTimes = 0;	// the copy has never been forwarded
 		
-		if (m.properties != null) {
-			Set<String> keys = m.properties.keySet();
-			for (String key : keys) {
-				updateProperty(key, m.getProperty(key));
-			}
-		}
+		copyPropertiesFrom(m);
 	}
 	
 	/**
@@ -370,12 +416,16 @@ public class Message implements Comparable<Message> {
 	 * The value can be any object but it's good idea to store only immutable
 	 * objects because when message is replicated, only a shallow copy of the
 	 * properties is made.  
+	 * If the key has been registered as a {@link MessagePropertyKey}, the
+	 * value is stored as a typed property.
 	 * @param key The key which is used to lookup the value
 	 * @param value The value to store
 	 * @throws SimError if the message already has a value for the given key
 	 */
 	public void addProperty(String key, Object value) throws SimError {
-		if (properties != null && properties.containsKey(key)) {
+		MessagePropertyKey typedKey = MessagePropertyKey.getKey(key);
+		if ((typedKey != null && hasProperty(typedKey)) ||
+				(properties != null && properties.containsKey(key))) {
 			/* check to prevent accidental name space collisions */
 			throw new SimError("Message " + this + " already contains value " + 
 					"for a key " + key);
@@ -390,6 +440,17 @@ public class Message implements Comparable<Message> {
 	 * @return The stored object or null if it isn't found
 	 */
 	public Object getProperty(String key) {
+		MessagePropertyKey typedKey = MessagePropertyKey.getKey(key);
+		if (typedKey != null && hasProperty(typedKey)) {
+			switch (typedKey.getType()) {
+			case INT:
+				return getIntProperty(typedKey);
+			case LONG:
+				return getLongProperty(typedKey);
+			default:
+				return getDoubleProperty(typedKey);
+			}
+		}
 		if (properties == null) {
 			return null;
 		}
@@ -404,6 +465,28 @@ public class Message implements Comparable<Message> {
 	 * @param value The new value to store
 	 */
 	public void updateProperty(String key, Object value) throws SimError {
+		MessagePropertyKey typedKey = MessagePropertyKey.getKey(key);
+		if (typedKey != null) {
+			if (value == null) {
+				removeProperty(typedKey);
+			}
+			else if (!(value instanceof Number)) {
+				throw new SimError("Value " + value + " of message property " +
+						typedKey + " is not a number");
+			}
+			else if (typedKey.getType() == MessagePropertyKey.Type.INT) {
+				setIntProperty(typedKey, ((Number)value).intValue());
+			}
+			else if (typedKey.getType() == MessagePropertyKey.Type.LONG) {
+				setLongProperty(typedKey, ((Number)value).longValue());
+			}
+			else {
+				setDoubleProperty(typedKey, ((Number)value).doubleValue());
+			}
+			return;
+		}
+		
+		unshareProperties();
 		if (properties == null) {
 			/* lazy creation to prevent performance overhead for classes
 			   that don't use the property feature  */
@@ -414,26 +497,236 @@ public class Message implements Comparable<Message> {
 	
 
 	/**
-	 * Deep copies message properties from other message.
+	 * Deep copies message properties from other message. If this message
+	 * has no properties, the properties are shared with the other message
+	 * until either one of the messages modifies them.
 	 * @param m The message from which properties are copied
 	 */
 	public void copyPropertiesFrom(Message m) {		
+		if (m.typedValuesSet == 0 && m.properties == null) {
+			return; // nothing to copy
+		}
+		if (this.typedValuesSet == 0 && this.properties == null) {
+			this.typedValues = m.typedValues;
+			this.typedValuesSet = m.typedValuesSet;
+			this.properties = m.properties;
+			this.propertiesShared = true;
+			m.propertiesShared = true;
+			return;
+		}
+		
+		unshareProperties();
+		if (m.typedValuesSet != 0) {
+			if (this.typedValues == null) {
+				this.typedValues = new long[m.typedValues.length];
+			}
+			else if (this.typedValues.length < m.typedValues.length) {
+				this.typedValues = Arrays.copyOf(this.typedValues, 
+						m.typedValues.length);
+			}
+			for (int i=0; i<m.typedValues.length; i++) {
+				if ((m.typedValuesSet & (1L << i)) != 0) {
+					this.typedValues[i] = m.typedValues[i];
+				}
+			}
+			this.typedValuesSet |= m.typedValuesSet;
+		}
 		if (m.properties != null) {
 			Set<String> keys = m.properties.keySet();
 			for (String key : keys) {
-				updateProperty(key, m.getProperty(key));
+				updateProperty(key, m.properties.get(key));
 			}
 		}
 	}
 	
+	/**
+	 * Makes sure that the properties of this message are not shared with
+	 * other messages before they are modified
+	 */
+	private void unshareProperties() {
+		if (!propertiesShared) {
+			return;
+		}
+		if (typedValues != null) {
+			typedValues = typedValues.clone();
+		}
+		if (properties != null) {
+			properties = new HashMap<String, Object>(properties);
+		}
+		propertiesShared = false;
+	}
+	
+	/**
+	 * Returns true if this message has a value for a typed property
+	 * @param key The key of the property
+	 * @return True if the message has a value for the property
+	 */
+	public boolean hasProperty(MessagePropertyKey key) {
+		return (typedValuesSet & (1L << key.getSlot())) != 0;
+	}
+	
+	/**
+	 * Returns the value of an int valued typed property
+	 * @param key The key of the property
+	 * @return The value of the property
+	 * @throws SimError if the message has no value for the property or the
+	 * property is not int valued
+	 */
+	public int getIntProperty(MessagePropertyKey key) throws SimError {
+		return (int)getTypedValue(key, MessagePropertyKey.Type.INT);
+	}
+	
+	/**
+	 * Returns the value of a long valued typed property
+	 * @param key The key of the property
+	 * @return The value of the property
+	 * @throws SimError if the message has no value for the property or the
+	 * property is not long valued
+	 */
+	public long getLongProperty(MessagePropertyKey key) throws SimError {
+		return getTypedValue(key, MessagePropertyKey.Type.LONG);
+	}
+	
+	/**
+	 * Returns the value of a double valued typed property
+	 * @param key The key of the property
+	 * @return The value of the property
+	 * @throws SimError if the message has no value for the property or the
+	 * property is not double valued
+	 */
+	public double getDoubleProperty(MessagePropertyKey key) throws SimError {
+		return Double.longBitsToDouble(
+				getTypedValue(key, MessagePropertyKey.Type.DOUBLE));
+	}
+	
+	/**
+	 * Sets the value of an int valued typed property
+	 * @param key The key of the property
+	 * @param value The new value
+	 * @throws SimError if the property is not int valued
+	 */
+	public void setIntProperty(MessagePropertyKey key, int value) 
+			throws SimError {
+		setTypedValue(key, MessagePropertyKey.Type.INT, value);
+	}
+	
+	/**
+	 * Sets the value of a long valued typed property
+	 * @param key The key of the property
+	 * @param value The new value
+	 * @throws SimError if the property is not long valued
+	 */
+	public void setLongProperty(MessagePropertyKey key, long value) 
+			throws SimError {
+		setTypedValue(key, MessagePropertyKey.Type.LONG, value);
+	}
+	
+	/**
+	 * Sets the value of a double valued typed property
+	 * @param key The key of the property
+	 * @param value The new value
+	 * @throws SimError if the property is not double valued
+	 */
+	public void setDoubleProperty(MessagePropertyKey key, double value) 
+			throws SimError {
+		setTypedValue(key, MessagePropertyKey.Type.DOUBLE, 
+				Double.doubleToRawLongBits(value));
+	}
+	
+	/**
+	 * Adds a value for an int valued typed property. Like
+	 * {@link #addProperty(String, Object)}, fails if the message already
+	 * has a value for the property.
+	 * @param key The key of the property
+	 * @param value The value
+	 * @throws SimError if the property is not int valued or the message
+	 * already has a value for it
+	 */
+	public void addIntProperty(MessagePropertyKey key, int value) 
+			throws SimError {
+		addTypedValue(key, MessagePropertyKey.Type.INT, value);
+	}
+	
+	/**
+	 * Adds a value for a long valued typed property. Like
+	 * {@link #addProperty(String, Object)}, fails if the message already
+	 * has a value for the property.
+	 * @param key The key of the property
+	 * @param value The value
+	 * @throws SimError if the property is not long valued or the message
+	 * already has a value for it
+	 */
+	public void addLongProperty(MessagePropertyKey key, long value) 
+			throws SimError {
+		addTypedValue(key, MessagePropertyKey.Type.LONG, value);
+	}
+	
+	/**
+	 * Adds a value for a double valued typed property. Like
+	 * {@link #addProperty(String, Object)}, fails if the message already
+	 * has a value for the property.
+	 * @param key The key of the property
+	 * @param value The value
+	 * @throws SimError if the property is not double valued or the message
+	 * already has a value for it
+	 */
+	public void addDoubleProperty(MessagePropertyKey key, double value) 
+			throws SimError {
+		addTypedValue(key, MessagePropertyKey.Type.DOUBLE, 
+				Double.doubleToRawLongBits(value));
+	}
+	
+	/**
+	 * Removes the value of a typed property (if any)
+	 * @param key The key of the property
+	 */
+	public void removeProperty(MessagePropertyKey key) {
+		typedValuesSet &= ~(1L << key.getSlot());
+	}
+	
+	private long getTypedValue(MessagePropertyKey key, 
+			MessagePropertyKey.Type type) throws SimError {
+		if (key.getType() != type || !hasProperty(key)) {
+			throw new SimError("Message " + this + " has no " + type + 
+					" value for property " + key);
+		}
+		return typedValues[key.getSlot()];
+	}
+	
+	private void addTypedValue(MessagePropertyKey key, 
+			MessagePropertyKey.Type type, long value) throws SimError {
+		if (hasProperty(key)) {
+			/* check to prevent accidental name space collisions */
+			throw new SimError("Message " + this + " already contains value " + 
+					"for a key " + key);
+		}
+		setTypedValue(key, type, value);
+	}
+	
+	private void setTypedValue(MessagePropertyKey key, 
+			MessagePropertyKey.Type type, long value) throws SimError {
+		if (key.getType() != type) {
+			throw new SimError("Message property " + key + " is not of type " + 
+					type);
+		}
+		unshareProperties();
+		int slot = key.getSlot();
+		if (typedValues == null) {
+			typedValues = new long[slot + 1];
+		}
+		else if (slot >= typedValues.length) {
+			typedValues = Arrays.copyOf(typedValues, slot + 1);
+		}
+		typedValues[slot] = value;
+		typedValuesSet |= 1L << slot;
+	}
+	
 	/**
 	 * Returns a replicate of this message (identical except for the unique id)
 	 * @return A replicate of the message
 	 */
 	public Message replicate() {
-		Message m = new Message(from, to, id, size, priority);
-		m.copyFrom(this);
-		return m;
+		return new Message(this);
 	}
 	
 	/**
@@ -465,4 +758,47 @@ public class Message implements Comparable<Message> {
 		this.appID = appID;
 	}
 	
+	/**
+	 * The data of a message that doesn't change when the message is
+	 * replicated. All the replicates of a message share the same header.
+	 */
+	private static final class Header {
+		private final DTNHost from;
+		private final DTNHost to;
+		private final String id;
+		/** interned id or {@link MessageIdInterner#NO_ID} until needed */
+		private int intId;
+		private final int size;
+		private final int priority;
+		private final double timeCreated;
+		
+		private Header(DTNHost from, DTNHost to, String id, int size, 
+				int priority, double timeCreated) {
+			this.from = from;
+			this.to = to;
+			this.id = id;
+			this.intId = MessageIdInterner.NO_ID;
+			this.size = size;
+			this.priority = priority;
+			this.timeCreated = timeCreated;
+		}
+	}
+	
+	/**
+	 * A node on the path of a message. The hops form a persistent linked
+	 * list: a replicate of a message shares the hops of the original message
+	 * and new hops are only linked to the path of the replicate.
+	 */
+	private static final class Hop {
+		private final DTNHost node;
+		private final Hop previous;
+		/** number of nodes on the path up to (and including) this hop */
+		private final int count;
+		
+		private Hop(DTNHost node, Hop previous) {
+			this.node = node;
+			this.previous = previous;
+			this.count = previous == null ? 1 : previous.count + 1;
+		}
+	}
 }
@@ -5,7 +5,6 @@ package core;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 
 import messageForwardingOrderManager.MessageForwardingOrderManager;
@@ -31,8 +30,8 @@ public class MessageCacheManager {
 
 	/** size of the cache */
 	private final int cacheSize;
-	/** The messages this router is carrying */
-	private HashMap<String, Message> messages;
+	/** The messages this router is carrying (by their integer IDs) */
+	private IntHashMap<Message> messages;
 
 	/** Manager that implements the message forwarding policy */
 	private MessageForwardingOrderManager messageForwardingOrderManager;
@@ -42,7 +41,7 @@ public class MessageCacheManager {
 	public MessageCacheManager(Settings s) {
 		// Default cache size is large (~2GB)
 		this.cacheSize = s.contains(CACHE_SIZE_S) ? s.getInt(CACHE_SIZE_S) : Integer.MAX_VALUE;
-		this.messages = new HashMap<String, Message>();
+		this.messages = new IntHashMap<Message>();
 		
 		int sendQueueMode = 0;
 		if (s.contains(CACHING_PRIORITIZATION_STRATEGY_S)) {
@@ -71,7 +70,7 @@ public class MessageCacheManager {
 	/** Copy constructor */
 	public MessageCacheManager(MessageCacheManager mqm) {
 		this.cacheSize = mqm.cacheSize;
-		this.messages = new HashMap<String, Message>();
+		this.messages = new IntHashMap<Message>();
 		
 		// Create a new messageForwardingOrderStrategy of the same type of the copied MessageCacheManager
 		this.messageCachingPrioritizationStrategy = MessageCachingPrioritizationStrategy.messageCachingPrioritizationStrategyFactory(
@@ -80,7 +79,11 @@ public class MessageCacheManager {
 	}
 	
 	public Message getMessage(String messageID) {
-		return messages.get(messageID);
+		return messages.get(MessageIdInterner.getIntId(messageID));
+	}
+	
+	public Message getMessage(int messageIntId) {
+		return messages.get(messageIntId);
 	}
 	
 	public Collection<Message> getMessageCollection() {
@@ -88,11 +91,15 @@ public class MessageCacheManager {
 	}
 	
 	public boolean hasMessage(String messageID) {
-		return messages.containsKey(messageID);
+		return messages.containsKey(MessageIdInterner.getIntId(messageID));
+	}
+	
+	public boolean hasMessage(int messageIntId) {
+		return messages.containsKey(messageIntId);
 	}
 	
 	public boolean hasMessage(Message m) {
-		return messages.containsKey(m.getID());
+		return messages.containsKey(m.getIntId());
 	}
 	
 	public int getNumberOfMessages() {
@@ -101,11 +108,15 @@ public class MessageCacheManager {
 	
 	public void addMessageToQueue(Message m) {
 		setForwardedTimesToMinAmongMessages(m);
-		messages.put(m.getID(), m);
+		messages.put(m.getIntId(), m);
 	}
 	
 	public Message removeMessage(String messageID) {
-		return messages.remove(messageID);
+		return messages.remove(MessageIdInterner.getIntId(messageID));
+	}
+	
+	public Message removeMessage(int messageIntId) {
+		return messages.remove(messageIntId);
 	}
 	
 	public List<Message> sortCachedMessagesForForwarding() {
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Global mapping of message identifiers to dense integer ids. The first
+ * interned identifier gets id 0, the next one id 1 and so on, so the ids
+ * can be used as indexes of arrays and bitmaps. All replicates of a message
+ * have the same id.
+ * <P>
+ * Messages intern their identifiers when their integer ids are first
+ * needed (see {@link Message#getIntId()}), so routers and caches can store
+ * messages by their integer ids and use the String identifiers only for
+ * reporting. Identifiers of messages that are never stored by their integer
+ * ids (e.g. the HELLO messages of {@link routing.IceDimRouter}) are not
+ * kept here.
+ * </P>
+ */
+public class MessageIdInterner {
+	/** Value for identifiers that have not been interned */
+	public static final int NO_ID = -1;
+
+	private static HashMap<String, Integer> ids;
+	private static ArrayList<String> strings;
+
+	static {
+		reset();
+		DTNSim.registerForReset(MessageIdInterner.class.getCanonicalName());
+	}
+
+	private MessageIdInterner() {}
+
+	/**
+	 * Returns the integer id of a message identifier, assigning a new id if
+	 * the identifier has not been interned yet
+	 * @param id The message identifier
+	 * @return The integer id
+	 */
+	public static int intern(String id) {
+		Integer intId = ids.get(id);
+		if (intId == null) {
+			intId = strings.size();
+			ids.put(id, intId);
+			strings.add(id);
+		}
+		return intId;
+	}
+
+	/**
+	 * Returns the integer id of a message identifier without interning it
+	 * @param id The message identifier
+	 * @return The integer id or {@link #NO_ID} if the identifier has not
+	 * been interned
+	 */
+	public static int getIntId(String id) {
+		Integer intId = ids.get(id);
+		return intId == null ? NO_ID : intId;
+	}
+
+	/**
+	 * Returns the message identifier of an integer id
+	 * @param intId The integer id
+	 * @return The message identifier
+	 */
+	public static String getId(int intId) {
+		return strings.get(intId);
+	}
+
+	/**
+	 * Returns the number of interned identifiers
+	 * @return The number of interned identifiers
+	 */
+	public static int size() {
+		return strings.size();
+	}
+
+	/**
+	 * Resets all static fields to default values
+	 */
+	public static void reset() {
+		ids = new HashMap<String, Integer>();
+		strings = new ArrayList<String>();
+	}
+}
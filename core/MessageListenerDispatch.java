@@ -0,0 +1,185 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import routing.MessageRouter.MessageDropMode;
+
+/**
+ * Dispatches message events to a list of message listeners. For each type
+ * of event, the dispatcher keeps an array of only the listeners that are
+ * interested in the event (see {@link ListenerInterests}), so listeners
+ * aren't called for events they ignore and the callers can check with
+ * {@link #hasListeners(int)} if an event has any listeners before
+ * preparing its arguments.
+ * <P>
+ * The dispatcher follows the list it was created with: listeners
+ * added to the list later (e.g., reports added after the hosts were
+ * created) are taken into account the next time an event is dispatched.
+ * Listeners are expected to be only added to the list, not replaced.
+ * </P>
+ */
+public class MessageListenerDispatch implements MessageListener {
+	/** Event type of {@link MessageListener#registerNode(DTNHost)} */
+	public static final int REGISTER_NODE = 0;
+	/** Event type of {@link MessageListener#newMessage(Message)} */
+	public static final int NEW_MESSAGE = 1;
+	/** Event type of
+	 * {@link MessageListener#transmissionPerformed(Message, DTNHost)} */
+	public static final int TRANSMISSION_PERFORMED = 2;
+	/** Event type of {@link MessageListener#messageTransferStarted(Message,
+	 * DTNHost, DTNHost)} */
+	public static final int TRANSFER_STARTED = 3;
+	/** Event type of {@link MessageListener#messageTransferred(Message,
+	 * DTNHost, DTNHost, boolean, boolean)} */
+	public static final int TRANSFERRED = 4;
+	/** Event type of {@link MessageListener#messageTransferAborted(Message,
+	 * DTNHost, DTNHost, String)} */
+	public static final int TRANSFER_ABORTED = 5;
+	/** Event type of {@link MessageListener#messageTransmissionInterfered(
+	 * Message, DTNHost, DTNHost)} */
+	public static final int INTERFERED = 6;
+	/** Event type of {@link MessageListener#messageDeleted(Message, DTNHost,
+	 * MessageDropMode, String)} */
+	public static final int DELETED = 7;
+	/** Number of event types */
+	public static final int NROF_EVENT_TYPES = 8;
+
+	private static final MessageListener[] NO_LISTENERS =
+		new MessageListener[0];
+
+	/** The listeners this dispatcher dispatches to */
+	private List<MessageListener> listeners;
+	/** Number of listeners when the dispatch arrays were built */
+	private int nrofListeners;
+	/** Interested listeners by event type */
+	private MessageListener[][] dispatch;
+	/** Were the listeners wrapped for the profiler when the dispatch arrays
+	 * were built */
+	private boolean profiled;
+
+	/**
+	 * Creates a dispatcher for a list of listeners
+	 * @param listeners The listeners (may be null, for no listeners)
+	 */
+	public MessageListenerDispatch(List<MessageListener> listeners) {
+		this.listeners = listeners;
+		this.nrofListeners = 0;
+		this.dispatch = new MessageListener[NROF_EVENT_TYPES][];
+		for (int i=0; i<NROF_EVENT_TYPES; i++) {
+			dispatch[i] = NO_LISTENERS;
+		}
+		update();
+	}
+
+	/**
+	 * Rebuilds the dispatch arrays if listeners were added to the list or
+	 * the {@link Profiler} was enabled or disabled
+	 */
+	private void update() {
+		if (listeners == null || (listeners.size() == nrofListeners &&
+				Profiler.isEnabled() == profiled)) {
+			return;
+		}
+		profiled = Profiler.isEnabled();
+		for (int i=0; i<NROF_EVENT_TYPES; i++) {
+			List<MessageListener> interested =
+				new ArrayList<MessageListener>();
+			for (MessageListener ml : listeners) {
+				if ((getInterests(ml) & (1 << i)) != 0) {
+					interested.add(profiled ? new ProfiledListener(ml) : ml);
+				}
+			}
+			dispatch[i] = interested.toArray(NO_LISTENERS);
+		}
+		nrofListeners = listeners.size();
+	}
+
+	/**
+	 * Returns the message events a listener is interested in
+	 * @param ml The listener
+	 * @return The interests declared by the listener or
+	 * {@link ListenerInterests#ALL_EVENTS} if it doesn't declare any
+	 */
+	private static int getInterests(MessageListener ml) {
+		if (ml instanceof ListenerInterests) {
+			return ((ListenerInterests)ml).getMessageEventInterests();
+		}
+		return ListenerInterests.ALL_EVENTS;
+	}
+
+	/**
+	 * Returns the listeners interested in an event type
+	 * @param eventType The event type (e.g., {@link #NEW_MESSAGE})
+	 * @return The listeners interested in the event type
+	 */
+	public MessageListener[] getListeners(int eventType) {
+		update();
+		return dispatch[eventType];
+	}
+
+	/**
+	 * Returns true if any listener is interested in an event type
+	 * @param eventType The event type (e.g., {@link #NEW_MESSAGE})
+	 * @return true if any listener is interested in the event type
+	 */
+	public boolean hasListeners(int eventType) {
+		return getListeners(eventType).length > 0;
+	}
+
+	public void registerNode(DTNHost node) {
+		for (MessageListener ml : getListeners(REGISTER_NODE)) {
+			ml.registerNode(node);
+		}
+	}
+
+	public void newMessage(Message m) {
+		for (MessageListener ml : getListeners(NEW_MESSAGE)) {
+			ml.newMessage(m);
+		}
+	}
+
+	public void transmissionPerformed(Message m, DTNHost source) {
+		for (MessageListener ml : getListeners(TRANSMISSION_PERFORMED)) {
+			ml.transmissionPerformed(m, source);
+		}
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+		for (MessageListener ml : getListeners(TRANSFER_STARTED)) {
+			ml.messageTransferStarted(m, from, to);
+		}
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery, boolean finalTarget) {
+		for (MessageListener ml : getListeners(TRANSFERRED)) {
+			ml.messageTransferred(m, from, to, firstDelivery, finalTarget);
+		}
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to,
+			String cause) {
+		for (MessageListener ml : getListeners(TRANSFER_ABORTED)) {
+			ml.messageTransferAborted(m, from, to, cause);
+		}
+	}
+
+	public void messageTransmissionInterfered(Message m, DTNHost from,
+			DTNHost to) {
+		for (MessageListener ml : getListeners(INTERFERED)) {
+			ml.messageTransmissionInterfered(m, from, to);
+		}
+	}
+
+	public void messageDeleted(Message m, DTNHost where,
+			MessageDropMode dropMode, String cause) {
+		for (MessageListener ml : getListeners(DELETED)) {
+			ml.messageDeleted(m, where, dropMode, cause);
+		}
+	}
+}
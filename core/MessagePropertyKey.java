@@ -0,0 +1,107 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.HashMap;
+
+/**
+ * Key of a typed message property. Every key is registered once with a
+ * name and a primitive type, and gets a slot in the typed property storage
+ * of {@link Message}. Values of typed properties are stored without boxing
+ * and copying them to message replicates is cheap.
+ * <P>
+ * The generic String based property interface of messages uses the typed
+ * storage for names that have been registered, so a key should be
+ * registered (e.g., in a static field of the class using it) before any
+ * values are stored using its name.
+ * </P>
+ */
+public class MessagePropertyKey {
+	/** Primitive types of the property values */
+	public enum Type {INT, LONG, DOUBLE};
+	/** Maximum number of typed property keys */
+	public static final int MAX_KEYS = 64;
+
+	private static HashMap<String, MessagePropertyKey> keys =
+		new HashMap<String, MessagePropertyKey>();
+
+	private final String name;
+	private final Type type;
+	private final int slot;
+
+	private MessagePropertyKey(String name, Type type, int slot) {
+		this.name = name;
+		this.type = type;
+		this.slot = slot;
+	}
+
+	/**
+	 * Registers a typed property key. Registering the same name again with
+	 * the same type returns the already registered key.
+	 * @param name Name of the property (used by the generic property
+	 * interface)
+	 * @param type Type of the property values
+	 * @return The key
+	 * @throws SimError if the name is already registered with another type
+	 * or there are too many keys
+	 */
+	public static MessagePropertyKey register(String name,
+			Type type) throws SimError {
+		MessagePropertyKey key = keys.get(name);
+		if (key != null) {
+			if (key.type != type) {
+				throw new SimError("Message property " + name + " is already"
+						+ " registered with type " + key.type);
+			}
+			return key;
+		}
+		if (keys.size() == MAX_KEYS) {
+			throw new SimError("Too many typed message properties (max " +
+					MAX_KEYS + ")");
+		}
+
+		key = new MessagePropertyKey(name, type, keys.size());
+		keys.put(name, key);
+		return key;
+	}
+
+	/**
+	 * Returns the registered key of a property name
+	 * @param name The name of the property
+	 * @return The key or null if the name has not been registered
+	 */
+	public static MessagePropertyKey getKey(String name) {
+		return keys.get(name);
+	}
+
+	/**
+	 * Returns the name of the property
+	 * @return the name of the property
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Returns the type of the property values
+	 * @return the type of the property values
+	 */
+	public Type getType() {
+		return this.type;
+	}
+
+	/**
+	 * Returns the storage slot of the property
+	 * @return the storage slot
+	 */
+	int getSlot() {
+		return this.slot;
+	}
+
+	@Override
+	public String toString() {
+		return this.name + " (" + this.type + ")";
+	}
+}
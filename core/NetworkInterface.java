@@ -54,6 +54,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	protected String interfacetype;
 	protected List<Connection> connections; // connected hosts
 	private List<ConnectionListener> cListeners = null; // list of listeners
+	private ConnectionListenerDispatch cDispatch = null; // interested listeners
 	private int address; // network interface address
 	protected double transmitRange;
 	protected int transmitSpeed;
@@ -121,6 +122,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		setInterferenceModel(ni.interferenceModel.replicate());
 		
 		this.cListeners = ni.cListeners;
+		this.cDispatch = ni.cDispatch;
 		this.transmitRange = ni.transmitRange;
 		this.transmitSpeed = ni.transmitSpeed;
 		
@@ -163,6 +165,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	public void setClisteners(List<ConnectionListener> cListeners) {
 		this.cListeners = cListeners;
+		this.cDispatch = new ConnectionListenerDispatch(cListeners);
 	}
 	
 	/**
@@ -333,6 +336,7 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	protected void connect(Connection con, NetworkInterface anotherInterface) {
 
+		Profiler.count(Profiler.CONNECTIONS);
 		connections.add(con);
 		notifyConnectionListeners(CON_UP, anotherInterface.getHost());
 
@@ -641,20 +645,18 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 * @param otherHost The other host on the other end of the connection
 	 */
 	private void notifyConnectionListeners(int type, DTNHost otherHost) {
-		if (cListeners == null) {
+		if (cDispatch == null) {
 			return;
 		}
-		for (ConnectionListener cl : cListeners) {
-			switch (type) {
-			case CON_UP:
-				cl.hostsConnected(host, otherHost);
-				break;
-			case CON_DOWN:
-				cl.hostsDisconnected(host, otherHost);
-				break;
-			default:
-				assert false : type;	// invalid type code
-			}
+		switch (type) {
+		case CON_UP:
+			cDispatch.hostsConnected(host, otherHost);
+			break;
+		case CON_DOWN:
+			cDispatch.hostsDisconnected(host, otherHost);
+			break;
+		default:
+			assert false : type;	// invalid type code
 		}
 	}
 	
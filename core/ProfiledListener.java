@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import routing.MessageRouter.MessageDropMode;
+
+/**
+ * Message and connection listener that passes the events to another
+ * listener and adds the time of the calls to the {@link Profiler} section
+ * of the listener's class. The listener dispatchers use these in place of
+ * the listeners while the profiler is enabled.
+ */
+class ProfiledListener implements MessageListener, ConnectionListener {
+	private MessageListener ml;
+	private ConnectionListener cl;
+	private Profiler.Section section;
+
+	/**
+	 * Creates a profiled message listener
+	 * @param ml The listener the events are passed to
+	 */
+	public ProfiledListener(MessageListener ml) {
+		this.ml = ml;
+		this.section = Profiler.getListenerSection(ml.getClass());
+	}
+
+	/**
+	 * Creates a profiled connection listener
+	 * @param cl The listener the events are passed to
+	 */
+	public ProfiledListener(ConnectionListener cl) {
+		this.cl = cl;
+		this.section = Profiler.getListenerSection(cl.getClass());
+	}
+
+	public void registerNode(DTNHost node) {
+		long start = System.nanoTime();
+		ml.registerNode(node);
+		section.add(start);
+	}
+
+	public void newMessage(Message m) {
+		long start = System.nanoTime();
+		ml.newMessage(m);
+		section.add(start);
+	}
+
+	public void transmissionPerformed(Message m, DTNHost source) {
+		long start = System.nanoTime();
+		ml.transmissionPerformed(m, source);
+		section.add(start);
+	}
+
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {
+		long start = System.nanoTime();
+		ml.messageTransferStarted(m, from, to);
+		section.add(start);
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery, boolean finalTarget) {
+		long start = System.nanoTime();
+		ml.messageTransferred(m, from, to, firstDelivery, finalTarget);
+		section.add(start);
+	}
+
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to,
+			String cause) {
+		long start = System.nanoTime();
+		ml.messageTransferAborted(m, from, to, cause);
+		section.add(start);
+	}
+
+	public void messageTransmissionInterfered(Message m, DTNHost from,
+			DTNHost to) {
+		long start = System.nanoTime();
+		ml.messageTransmissionInterfered(m, from, to);
+		section.add(start);
+	}
+
+	public void messageDeleted(Message m, DTNHost where,
+			MessageDropMode dropMode, String cause) {
+		long start = System.nanoTime();
+		ml.messageDeleted(m, where, dropMode, cause);
+		section.add(start);
+	}
+
+	public void hostsConnected(DTNHost host1, DTNHost host2) {
+		long start = System.nanoTime();
+		cl.hostsConnected(host1, host2);
+		section.add(start);
+	}
+
+	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
+		long start = System.nanoTime();
+		cl.hostsDisconnected(host1, host2);
+		section.add(start);
+	}
+}
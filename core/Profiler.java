@@ -0,0 +1,391 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Optional profiler of the simulation loop. When enabled (see
+ * {@link #ENABLED_S}), the profiler accumulates the wall clock time spent
+ * in the phases of the world updates (host movement, processing of
+ * external events, network interface connectivity updates, router updates
+ * and update listeners), the time spent in the routers and network
+ * interfaces of every class and in every listener class, and counts
+ * connections, message transfers and cache evictions. A summary table is
+ * printed when the simulation is done and, optionally, snapshots of the
+ * cumulative values are written to a CSV file and every world update is
+ * recorded as a Java Flight Recorder event ({@link ProfilerEvent}).
+ * <P>
+ * The listener times are included in the times of the phases the events
+ * occur in (e.g., the message events of the routers in the router phase).
+ * When the profiler is disabled, the instrumented code only checks
+ * {@link #isEnabled()}.
+ * </P>
+ */
+public class Profiler {
+	/** Profiler settings namespace ({@value}) */
+	public static final String PROFILER_NS = "Profiler";
+	/** Is the profiler enabled -setting id ({@value}). Boolean, default
+	 * false. */
+	public static final String ENABLED_S = "enabled";
+	/** CSV snapshot file -setting id ({@value}). If not set, no snapshots
+	 * are written. */
+	public static final String SNAPSHOT_FILE_S = "snapshotFile";
+	/** Snapshot interval -setting id ({@value}). Simulated seconds between
+	 * the CSV snapshots. Default {@link #DEF_SNAPSHOT_INTERVAL}. */
+	public static final String SNAPSHOT_INTERVAL_S = "snapshotInterval";
+	/** Record JFR events -setting id ({@value}). Boolean, default false. */
+	public static final String JFR_S = "jfr";
+	/** Default snapshot interval ({@value}) */
+	public static final double DEF_SNAPSHOT_INTERVAL = 600;
+
+	/** Phase of moving the hosts */
+	public static final int MOVEMENT = 0;
+	/** Phase of processing the external events */
+	public static final int EVENTS = 1;
+	/** Phase of updating the connectivity of the network interfaces */
+	public static final int CONNECTIVITY = 2;
+	/** Phase of updating the routers */
+	public static final int ROUTING = 3;
+	/** Phase of informing the update listeners */
+	public static final int REPORTS = 4;
+	/** Number of phases */
+	public static final int NROF_PHASES = 5;
+	/** Names of the phases */
+	public static final String[] PHASE_NAMES = {"movement", "events",
+		"connectivity", "routing", "reports"};
+
+	/** Counter of the connections that went up */
+	public static final int CONNECTIONS = 0;
+	/** Counter of the completed message transfers */
+	public static final int TRANSFERS = 1;
+	/** Counter of the messages evicted from caches to make room */
+	public static final int EVICTIONS = 2;
+	/** Number of counters */
+	public static final int NROF_COUNTERS = 3;
+	/** Names of the counters */
+	public static final String[] COUNTER_NAMES = {"connections", "transfers",
+		"evictions"};
+
+	/** Category of the listener class times */
+	private static final String LISTENER = "listener";
+
+	private static boolean enabled;
+	private static long[] phaseTimes;
+	private static long[] counters;
+	/** Times of the classes by category and class */
+	private static Map<String, Map<Class<?>, Section>> sections;
+	/** The sections in the order they were created */
+	private static List<Section> sectionList;
+	private static long startTime;
+	private static double startSimTime;
+
+	private static PrintWriter snapshots;
+	private static double snapshotInterval;
+	private static double nextSnapshot;
+	private static double lastSnapshot;
+
+	private static boolean jfr;
+	private static ProfilerEvent jfrEvent;
+	private static long[] jfrPhaseTimes;
+	private static long[] jfrCounters;
+
+	static {
+		DTNSim.registerForReset(Profiler.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Accumulated time of a router, interface or listener class
+	 */
+	public static class Section {
+		private String category;
+		private String name;
+		private long time;
+		private long calls;
+
+		private Section(String category, String name) {
+			this.category = category;
+			this.name = name;
+		}
+
+		/**
+		 * Adds the time from a start time to now as one call
+		 * @param start The start time (from {@link System#nanoTime()})
+		 */
+		public void add(long start) {
+			time += System.nanoTime() - start;
+			calls++;
+		}
+
+		private void addTime(long t) {
+			time += t;
+			calls++;
+		}
+	}
+
+	/**
+	 * Disables the profiler and clears all the values
+	 */
+	public static void reset() {
+		if (snapshots != null) {
+			snapshots.close();
+		}
+		enabled = false;
+		phaseTimes = new long[NROF_PHASES];
+		counters = new long[NROF_COUNTERS];
+		sections = new HashMap<String, Map<Class<?>, Section>>();
+		sectionList = new ArrayList<Section>();
+		snapshots = null;
+		jfr = false;
+		jfrEvent = null;
+	}
+
+	/**
+	 * Enables the profiler if the settings say so. Called when the
+	 * simulation starts (after the movement model warmup).
+	 */
+	public static void init() {
+		reset();
+		Settings s = new Settings(PROFILER_NS);
+		if (!s.contains(ENABLED_S) || !s.getBoolean(ENABLED_S)) {
+			return;
+		}
+
+		if (s.contains(SNAPSHOT_FILE_S)) {
+			snapshotInterval = s.contains(SNAPSHOT_INTERVAL_S) ?
+					s.getDouble(SNAPSHOT_INTERVAL_S) : DEF_SNAPSHOT_INTERVAL;
+			if (snapshotInterval <= 0) {
+				throw new SettingsError("Invalid value " + snapshotInterval +
+						" for " + PROFILER_NS + "." + SNAPSHOT_INTERVAL_S);
+			}
+			String file = s.getSetting(SNAPSHOT_FILE_S);
+			try {
+				snapshots = new PrintWriter(new FileWriter(file));
+			} catch (IOException e) {
+				throw new SimError("Can't open profiler snapshot file " +
+						file + ": " + e.getMessage());
+			}
+			StringBuilder header = new StringBuilder("sim_time,wall_s");
+			for (String phase : PHASE_NAMES) {
+				header.append(',').append(phase).append("_ms");
+			}
+			for (String counter : COUNTER_NAMES) {
+				header.append(',').append(counter);
+			}
+			snapshots.println(header);
+			nextSnapshot = SimClock.getTime() + snapshotInterval;
+			lastSnapshot = Double.NaN;
+		}
+
+		jfr = s.contains(JFR_S) && s.getBoolean(JFR_S);
+		jfrPhaseTimes = new long[NROF_PHASES];
+		jfrCounters = new long[NROF_COUNTERS];
+
+		startTime = System.nanoTime();
+		startSimTime = SimClock.getTime();
+		enabled = true;
+	}
+
+	/**
+	 * Returns true if the profiler is enabled
+	 * @return true if the profiler is enabled
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Adds the time from a start time to now to a phase
+	 * @param phase The phase (e.g., {@link #MOVEMENT})
+	 * @param start The start time (from {@link System#nanoTime()})
+	 */
+	public static void phaseDone(int phase, long start) {
+		phaseTimes[phase] += System.nanoTime() - start;
+	}
+
+	/**
+	 * Adds the time from a start time to now to a phase and to the
+	 * section of the class of the object that was updated
+	 * @param phase The phase (e.g., {@link #ROUTING})
+	 * @param o The router or network interface that was updated
+	 * @param start The start time (from {@link System#nanoTime()})
+	 */
+	public static void phaseDone(int phase, Object o, long start) {
+		long t = System.nanoTime() - start;
+		phaseTimes[phase] += t;
+		getSection(PHASE_NAMES[phase], o.getClass()).addTime(t);
+	}
+
+	/**
+	 * Returns the section of a listener class
+	 * @param c The class of the listener
+	 * @return The section the times of the listener are added to
+	 */
+	public static Section getListenerSection(Class<?> c) {
+		return getSection(LISTENER, c);
+	}
+
+	private static Section getSection(String category, Class<?> c) {
+		Map<Class<?>, Section> m = sections.get(category);
+		if (m == null) {
+			m = new HashMap<Class<?>, Section>();
+			sections.put(category, m);
+		}
+		Section section = m.get(c);
+		if (section == null) {
+			section = new Section(category, c.getSimpleName());
+			m.put(c, section);
+			sectionList.add(section);
+		}
+		return section;
+	}
+
+	/**
+	 * Increments a counter if the profiler is enabled
+	 * @param counter The counter (e.g., {@link #TRANSFERS})
+	 */
+	public static void count(int counter) {
+		if (enabled) {
+			counters[counter]++;
+		}
+	}
+
+	/**
+	 * Returns the value of a counter
+	 * @param counter The counter (e.g., {@link #TRANSFERS})
+	 * @return The value of the counter
+	 */
+	public static long getCount(int counter) {
+		return counters[counter];
+	}
+
+	/**
+	 * Returns the time spent in a phase
+	 * @param phase The phase (e.g., {@link #MOVEMENT})
+	 * @return The time in nanoseconds
+	 */
+	public static long getPhaseTime(int phase) {
+		return phaseTimes[phase];
+	}
+
+	/**
+	 * Starts the JFR event of a world update. Called when a world update
+	 * starts.
+	 */
+	public static void updateStarted() {
+		if (jfr) {
+			jfrEvent = new ProfilerEvent();
+			jfrEvent.begin();
+		}
+	}
+
+	/**
+	 * Commits the JFR event of a world update and writes a snapshot if
+	 * one is due. Called when a world update is done.
+	 * @param simTime The simulation time after the update
+	 */
+	public static void updateDone(double simTime) {
+		if (jfrEvent != null) {
+			commitJfrEvent(simTime);
+		}
+		if (snapshots != null && simTime >= nextSnapshot) {
+			writeSnapshot(simTime);
+			nextSnapshot += snapshotInterval *
+				Math.floor((simTime - nextSnapshot) / snapshotInterval + 1);
+		}
+	}
+
+	private static void commitJfrEvent(double simTime) {
+		ProfilerEvent e = jfrEvent;
+		jfrEvent = null;
+		e.end();
+		if (e.shouldCommit()) {
+			e.simTime = simTime;
+			e.movement = phaseTimes[MOVEMENT] - jfrPhaseTimes[MOVEMENT];
+			e.events = phaseTimes[EVENTS] - jfrPhaseTimes[EVENTS];
+			e.connectivity = phaseTimes[CONNECTIVITY] -
+				jfrPhaseTimes[CONNECTIVITY];
+			e.routing = phaseTimes[ROUTING] - jfrPhaseTimes[ROUTING];
+			e.reports = phaseTimes[REPORTS] - jfrPhaseTimes[REPORTS];
+			e.connections = counters[CONNECTIONS] - jfrCounters[CONNECTIONS];
+			e.transfers = counters[TRANSFERS] - jfrCounters[TRANSFERS];
+			e.evictions = counters[EVICTIONS] - jfrCounters[EVICTIONS];
+			e.commit();
+		}
+		System.arraycopy(phaseTimes, 0, jfrPhaseTimes, 0, NROF_PHASES);
+		System.arraycopy(counters, 0, jfrCounters, 0, NROF_COUNTERS);
+	}
+
+	private static void writeSnapshot(double simTime) {
+		lastSnapshot = simTime;
+		StringBuilder line = new StringBuilder();
+		line.append(String.format("%.1f,%.3f", simTime,
+				(System.nanoTime() - startTime) / 1e9));
+		for (long t : phaseTimes) {
+			line.append(String.format(",%.3f", t / 1e6));
+		}
+		for (long c : counters) {
+			line.append(',').append(c);
+		}
+		snapshots.println(line);
+	}
+
+	/**
+	 * Prints the summary table and closes the snapshot file. Called when
+	 * the simulation is done.
+	 */
+	public static void done() {
+		if (!enabled) {
+			return;
+		}
+		if (snapshots != null) {
+			if (SimClock.getTime() != lastSnapshot) {
+				writeSnapshot(SimClock.getTime());
+			}
+			snapshots.close();
+			snapshots = null;
+		}
+		enabled = false;
+		jfr = false;
+
+		double wallTime = (System.nanoTime() - startTime) / 1e9;
+		long total = 0;
+		for (long t : phaseTimes) {
+			total += t;
+		}
+
+		System.out.println(String.format("Profile of %.2f s of simulation " +
+				"in %.2f s", SimClock.getTime() - startSimTime, wallTime));
+		System.out.println(String.format("%-40s %12s %7s", "phase",
+				"time_s", "share"));
+		for (int i=0; i<NROF_PHASES; i++) {
+			System.out.println(String.format("%-40s %12.3f %6.1f%%",
+					PHASE_NAMES[i], phaseTimes[i] / 1e9,
+					total > 0 ? 100.0 * phaseTimes[i] / total : 0));
+		}
+		System.out.println(String.format("%-40s %12.3f", "other",
+				wallTime - total / 1e9));
+
+		System.out.println(String.format("%-40s %12s %12s %10s", "class",
+				"calls", "time_s", "us_per_call"));
+		for (Section s : sectionList) {
+			System.out.println(String.format("%-40s %12d %12.3f %10.2f",
+					s.category + " " + s.name, s.calls, s.time / 1e9,
+					s.calls > 0 ? s.time / 1e3 / s.calls : 0));
+		}
+
+		for (int i=0; i<NROF_COUNTERS; i++) {
+			System.out.println(String.format("%-40s %12d", COUNTER_NAMES[i],
+					counters[i]));
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder event of one world update, recorded by the
+ * {@link Profiler} when its JFR setting is on. The event lasts as long as
+ * the update and has the time spent in every phase and the counter values
+ * of the update.
+ */
+@Name("core.WorldUpdate")
+@Label("World Update")
+@Category("ONE Simulator")
+@Description("One update interval of the simulation world")
+@StackTrace(false)
+class ProfilerEvent extends Event {
+	@Label("Simulation Time")
+	double simTime;
+
+	@Label("Movement")
+	@Timespan(Timespan.NANOSECONDS)
+	long movement;
+
+	@Label("Events")
+	@Timespan(Timespan.NANOSECONDS)
+	long events;
+
+	@Label("Connectivity")
+	@Timespan(Timespan.NANOSECONDS)
+	long connectivity;
+
+	@Label("Routing")
+	@Timespan(Timespan.NANOSECONDS)
+	long routing;
+
+	@Label("Reports")
+	@Timespan(Timespan.NANOSECONDS)
+	long reports;
+
+	@Label("Connections")
+	long connections;
+
+	@Label("Transfers")
+	long transfers;
+
+	@Label("Evictions")
+	long evictions;
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Update listener that only needs to be informed about the updates at
+ * certain times, e.g., a report that creates a snapshot of the hosts once
+ * every "granularity" seconds. The world calls
+ * {@link #updated(java.util.List)} of a scheduled listener only on the
+ * updates at or after the time returned by {@link #nextUpdateTime()}
+ * instead of on every update cycle (see {@link UpdateListenerSchedule}).
+ */
+public interface ScheduledUpdateListener extends UpdateListener {
+
+	/**
+	 * Returns the simulation time of the next update the listener wants to
+	 * be informed about. The time is asked again after every call of
+	 * {@link #updated(java.util.List)}, so the listener may also be called
+	 * before it has anything to do (e.g., if it can't tell the exact time
+	 * in advance) as long as the returned time is not later than needed.
+	 * @return The time of the next update the listener needs, or
+	 * {@link Double#MAX_VALUE} if it doesn't need any more updates
+	 */
+	public double nextUpdateTime();
+
+}
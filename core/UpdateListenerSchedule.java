@@ -0,0 +1,132 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.List;
+
+/**
+ * Informs a list of update listeners about the updates of the world.
+ * Plain {@link UpdateListener}s are informed about every update, but
+ * {@link ScheduledUpdateListener}s only about the updates at or after
+ * their next update time, so snapshot reports don't have to be polled on
+ * every update cycle. The listeners that are due are called in the order
+ * of the list, just as if all of them were called on every update.
+ * <P>
+ * The schedule follows the list it was created with: listeners added to
+ * the list later (e.g., reports added after the world was created) are
+ * taken into account on the next update. Listeners are expected to be only
+ * added to the list, not replaced.
+ * </P>
+ */
+public class UpdateListenerSchedule {
+	/** The listeners of the schedule */
+	private List<UpdateListener> listeners;
+	/** Number of listeners when the arrays were built */
+	private int nrofListeners;
+	/** The listeners that are informed about every update */
+	private UpdateListener[] everyUpdate;
+	/** Next update times of the listeners (NaN for plain listeners) */
+	private double[] nextTimes;
+	/** The earliest next update time of the scheduled listeners */
+	private double nextScheduled;
+
+	/**
+	 * Creates a schedule for a list of listeners
+	 * @param listeners The listeners (can be null)
+	 */
+	public UpdateListenerSchedule(List<UpdateListener> listeners) {
+		this.listeners = listeners;
+		this.nrofListeners = -1;
+	}
+
+	/**
+	 * Rebuilds the arrays if listeners were added to the list
+	 */
+	private void checkListeners() {
+		int n = listeners == null ? 0 : listeners.size();
+		if (n == nrofListeners) {
+			return;
+		}
+
+		int nrofEvery = 0;
+		nextTimes = new double[n];
+		nextScheduled = Double.MAX_VALUE;
+		for (int i=0; i<n; i++) {
+			UpdateListener ul = listeners.get(i);
+			if (ul instanceof ScheduledUpdateListener) {
+				nextTimes[i] = ((ScheduledUpdateListener)ul).nextUpdateTime();
+				nextScheduled = Math.min(nextScheduled, nextTimes[i]);
+			}
+			else {
+				nextTimes[i] = Double.NaN;
+				nrofEvery++;
+			}
+		}
+
+		everyUpdate = new UpdateListener[nrofEvery];
+		nrofEvery = 0;
+		for (int i=0; i<n; i++) {
+			if (Double.isNaN(nextTimes[i])) {
+				everyUpdate[nrofEvery++] = listeners.get(i);
+			}
+		}
+		nrofListeners = n;
+	}
+
+	/**
+	 * Informs the listeners that are due about an update
+	 * @param hosts All the hosts in the world
+	 * @param time The simulation time of the update
+	 */
+	public void updated(List<DTNHost> hosts, double time) {
+		checkListeners();
+
+		if (time < nextScheduled) { // only the plain listeners
+			for (UpdateListener ul : everyUpdate) {
+				inform(ul, hosts);
+			}
+			return;
+		}
+
+		nextScheduled = Double.MAX_VALUE;
+		for (int i=0; i<nrofListeners; i++) {
+			UpdateListener ul = listeners.get(i);
+			if (Double.isNaN(nextTimes[i])) {
+				inform(ul, hosts);
+				continue;
+			}
+			if (time >= nextTimes[i]) {
+				inform(ul, hosts);
+				nextTimes[i] = ((ScheduledUpdateListener)ul).nextUpdateTime();
+			}
+			nextScheduled = Math.min(nextScheduled, nextTimes[i]);
+		}
+	}
+
+	/**
+	 * Informs a listener about an update and adds the time to the listener's
+	 * {@link Profiler} section if the profiler is enabled
+	 */
+	private void inform(UpdateListener ul, List<DTNHost> hosts) {
+		if (Profiler.isEnabled()) {
+			long start = System.nanoTime();
+			ul.updated(hosts);
+			Profiler.getListenerSection(ul.getClass()).add(start);
+		}
+		else {
+			ul.updated(hosts);
+		}
+	}
+
+	/**
+	 * Returns the earliest time a scheduled listener needs an update
+	 * @return The earliest next update time or {@link Double#MAX_VALUE}
+	 * if no scheduled listener needs any more updates
+	 */
+	public double getNextScheduledTime() {
+		checkListeners();
+		return nextScheduled;
+	}
+}
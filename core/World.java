@@ -69,6 +69,8 @@ public class World {
 	/** is cancellation of simulation requested from UI */
 	private boolean isCancelled;
 	private List<UpdateListener> updateListeners;
+	/** Informs the update listeners that are due about the updates */
+	private UpdateListenerSchedule updateSchedule;
 	/** Queue of scheduled update requests */
 	private ScheduledUpdatesQueue scheduledUpdates;
 
@@ -96,6 +98,7 @@ public class World {
 		this.sizeY = sizeY;
 		this.updateInterval = updateInterval;
 		this.updateListeners = updateListeners;
+		this.updateSchedule = new UpdateListenerSchedule(updateListeners);
 		this.simulateConnections = simulateConnections;
 		this.eventQueues = eventQueues;
 		
@@ -193,6 +196,11 @@ public class World {
 	 */
 	public void update() {
 		double runUntil = SimClock.getTime() + updateInterval;
+		boolean profile = Profiler.isEnabled();
+		long start = 0;
+		if (profile) {
+			Profiler.updateStarted();
+		}
 
 		setNextEventQueue();
 
@@ -200,20 +208,38 @@ public class World {
 		while (nextQueueEventTime <= runUntil) {
 			simClock.setTime(nextQueueEventTime);
 			ExternalEvent ee = nextEventQueue.nextEvent();
-			ee.processEvent(this);
+			if (profile) {
+				start = System.nanoTime();
+				ee.processEvent(this);
+				Profiler.phaseDone(Profiler.EVENTS, start);
+			}
+			else {
+				ee.processEvent(this);
+			}
 			updateHosts(); // update all hosts after every event
 			setNextEventQueue();
 		}
 
+		if (profile) {
+			start = System.nanoTime();
+		}
 		moveHosts(updateInterval);
+		if (profile) {
+			Profiler.phaseDone(Profiler.MOVEMENT, start);
+		}
 		simClock.setTime(runUntil);
 
 		updateHosts();
 
-		/* inform all update listeners */
-		for (UpdateListener ul : updateListeners) {
-			ul.updated(hosts);
-		}
+		/* inform the update listeners (scheduled ones only when due) */
+		if (profile) {
+			start = System.nanoTime();
+		}
+		updateSchedule.updated(hosts, runUntil);
+		if (profile) {
+			Profiler.phaseDone(Profiler.REPORTS, start);
+			Profiler.updateDone(runUntil);
+		}
 	}
 
 	/**
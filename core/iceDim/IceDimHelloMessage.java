@@ -23,24 +23,39 @@ public class IceDimHelloMessage extends Message {
 	 * @param size an int to indicate the size of the Hello Message
 	 */
 	
-	private ArrayList<String> msgIDs;
+	/** Integer IDs of the received messages (shared by the replicates) */
+	private int[] msgIDs;
 	private ArrayList<Integer> nodeSubscriptionsList;
 	
-	public IceDimHelloMessage(DTNHost from, String id, int size, List<String> receivedMsgIDs,
+	public IceDimHelloMessage(DTNHost from, String id, int size, int[] receivedMsgIDs,
 									List<Integer> nodeSubscriptions) {
 		super(from, null, id, size);
 		
-		this.msgIDs = new ArrayList<String>(receivedMsgIDs.size());
-		for (String msgID : receivedMsgIDs) {
-			this.msgIDs.add(msgID);
-		}
+		this.msgIDs = receivedMsgIDs.clone();
 		this.nodeSubscriptionsList = new ArrayList<Integer>(nodeSubscriptions.size());
 		for (Integer subID : nodeSubscriptions) {
 			this.nodeSubscriptionsList.add(subID);
 		}
 	}
 
-	public ArrayList<String> getMsgIDs() {
+	/**
+	 * Creates a replicate of a HELLO message
+	 * @param iceDimHelloMessage The message to replicate
+	 */
+	@SuppressWarnings("unchecked")
+	protected IceDimHelloMessage(IceDimHelloMessage iceDimHelloMessage) {
+		super(iceDimHelloMessage);
+		this.msgIDs = iceDimHelloMessage.msgIDs;
+		this.nodeSubscriptionsList = (ArrayList<Integer>) iceDimHelloMessage.nodeSubscriptionsList.clone();
+	}
+
+	/**
+	 * Returns the integer IDs (see {@link Message#getIntId()}) of the
+	 * messages received by the sender. The returned array must not be
+	 * modified.
+	 * @return the integer IDs of the received messages
+	 */
+	public int[] getMsgIDs() {
 		return msgIDs;
 	}
 
@@ -58,16 +73,13 @@ public class IceDimHelloMessage extends Message {
 	@SuppressWarnings("unchecked")
 	protected void copyFrom(IceDimHelloMessage iceDimHelloMessage) {
 		super.copyFrom(iceDimHelloMessage);
-		this.msgIDs = (ArrayList<String>) iceDimHelloMessage.msgIDs.clone();
+		this.msgIDs = iceDimHelloMessage.msgIDs;
 		this.nodeSubscriptionsList = (ArrayList<Integer>) iceDimHelloMessage.nodeSubscriptionsList.clone();
 	}
 	
 	@Override
 	public IceDimHelloMessage replicate() {
-		IceDimHelloMessage iceDimHelloMessage = new IceDimHelloMessage(getFrom(), getID(), getSize(),
-                                                                        msgIDs, nodeSubscriptionsList);
-		iceDimHelloMessage.copyFrom(this);
-		return iceDimHelloMessage;
+		return new IceDimHelloMessage(this);
 	}
 
 }
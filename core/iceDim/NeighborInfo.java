@@ -1,10 +1,11 @@
 package core.iceDim;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 
 import core.DTNHost;
+import core.IntHashSet;
+import core.MessageIdInterner;
 import core.SimClock;
 
 public class NeighborInfo {
@@ -17,7 +18,7 @@ public class NeighborInfo {
     private boolean isNearby;					// true if a HELLO message was recently received
 
     SubscriptionListManager subscriptionList;			// The list of the node's subscriptions
-    HashSet<String> receivedMessages;			// The list of message IDs received by this neighbor
+    IntHashSet receivedMessages;				// The integer IDs of the messages received by this neighbor
     ArrayList<Contact> contactsList;			// The list of past contacts with this neighbor
     ArrayList<Double> contactDurationList;    	// maintains the lengths of the contacts with the neighbor
     ArrayList<Double> intercontactTimes;		// maintains the lengths of intercontact times with this neighbor
@@ -38,7 +39,7 @@ public class NeighborInfo {
 		this.isNearby = false;
 		
 		this.subscriptionList = new SubscriptionListManager();
-		this.receivedMessages = new HashSet<String>();
+		this.receivedMessages = new IntHashSet();
 		this.contactsList = new ArrayList<Contact>();
 		this.contactDurationList = new ArrayList<Double>();
 		this.intercontactTimes = new ArrayList<Double>();
@@ -108,7 +109,15 @@ public class NeighborInfo {
 	}
 
 	public List<String> getReceivedMessagesList() {
-		return new ArrayList<String> (receivedMessages);
+		List<String> msgIDs = new ArrayList<String>(receivedMessages.size());
+		for (int msgIntId : receivedMessages.toArray()) {
+			msgIDs.add(MessageIdInterner.getId(msgIntId));
+		}
+		return msgIDs;
+	}
+
+	public boolean hasReceivedMessage(int msgIntId) {
+		return receivedMessages.contains(msgIntId);
 	}
 
 	public ArrayList<Contact> getContactsList() {
@@ -139,9 +148,9 @@ public class NeighborInfo {
 		++this.contactsCount;
 	}
 
-	public void updateReceivedMessages(List<String> receivedMessageList) {
-		for (String msgID : receivedMessageList) {
-			receivedMessages.add(msgID);
+	public void updateReceivedMessages(int[] receivedMessageIDs) {
+		for (int msgIntId : receivedMessageIDs) {
+			receivedMessages.add(msgIntId);
 		}
 	}
 
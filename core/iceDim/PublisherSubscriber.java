@@ -3,6 +3,8 @@
  */
 package core.iceDim;
 
+import core.MessagePropertyKey;
+
 /**
  * Methods common to any router based on the Publisher/Subscriber Model
  * @author Alessandro Morelli
@@ -21,6 +23,11 @@ public interface PublisherSubscriber {
 	 * routers to specify the SubscriptionID the messages belong to.
 	 * Returned value is of {@link Integer} type. */
 	public static final String SUBSCRIPTION_MESSAGE_PROPERTY_KEY = "subID";
+	/** Typed key of the {@link #SUBSCRIPTION_MESSAGE_PROPERTY_KEY} property
+	 * (int valued) */
+	public static final MessagePropertyKey SUBSCRIPTION_ID_PROPERTY = 
+		MessagePropertyKey.register(SUBSCRIPTION_MESSAGE_PROPERTY_KEY, 
+				MessagePropertyKey.Type.INT);
 	/** The string that identifies the {@link ADCMode} 
 	 * option in the settings file */
 	public static final String ADC_MODE_S = "adcMode";
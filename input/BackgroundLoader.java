@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import core.SimError;
+
+/**
+ * Loads chunks of input data on a background thread so that the simulation
+ * thread does not have to wait for I/O and parsing. Chunks are handed over
+ * in the same order they were loaded through a bounded queue, so at most
+ * <CODE>capacity</CODE> loaded chunks (plus the one being loaded) are kept
+ * in memory at a time. Capacity of one gives double buffering: the next
+ * chunk is loaded while the current one is being consumed.
+ * <P>
+ * Errors thrown by {@link #load()} are passed to the consumer and rethrown
+ * by {@link #next()} after all the chunks loaded before the error.
+ * </P>
+ * @param <T> Type of the loaded chunks
+ */
+public abstract class BackgroundLoader<T> implements Runnable {
+	/** Marker object for the end of the input */
+	private static final Object END = new Object();
+
+	private BlockingQueue<Object> chunks;
+	private Thread thread;
+	private volatile boolean closed;
+	private boolean endReached;
+	private Throwable error;
+
+	/**
+	 * Creates a new loader. Loading is started with {@link #start(String)}.
+	 * @param capacity Maximum number of loaded chunks waiting to be consumed
+	 */
+	public BackgroundLoader(int capacity) {
+		this.chunks = new ArrayBlockingQueue<Object>(Math.max(1, capacity));
+	}
+
+	/**
+	 * Starts the background loading thread
+	 * @param name Name of the thread
+	 */
+	public void start(String name) {
+		this.thread = new Thread(this, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Loads the next chunk. Called from the background thread.
+	 * @return The next chunk or null if there is no more input
+	 */
+	protected abstract T load();
+
+	/**
+	 * Releases the resources of the input. Called from the background
+	 * thread after the last chunk was loaded or loading was stopped.
+	 */
+	protected abstract void closeInput();
+
+	public void run() {
+		try {
+			T chunk;
+			while (!closed && (chunk = load()) != null) {
+				chunks.put(chunk);
+			}
+			if (!closed) {
+				chunks.put(END);
+			}
+		} catch (InterruptedException e) {
+			// closed while waiting for space in the queue
+		} catch (Throwable t) {
+			if (!closed) {
+				try {
+					chunks.put(t); // behind the chunks loaded before it
+				} catch (InterruptedException e) {
+					// closed while waiting for space in the queue
+				}
+			}
+		}
+		finally {
+			closeInput();
+		}
+	}
+
+	/**
+	 * Returns the next loaded chunk, waiting for the background thread if
+	 * it has not loaded the chunk yet
+	 * @return The next chunk or null if all chunks have been read
+	 * @throws SimError if loading the chunk failed
+	 */
+	@SuppressWarnings("unchecked")
+	public T next() {
+		if (error != null) {
+			throw new SimError("Background loading failed: " +
+					error.getMessage(), toException(error));
+		}
+		if (endReached || closed) {
+			return null;
+		}
+
+		Object o;
+		try {
+			o = chunks.take();
+		} catch (InterruptedException e) {
+			throw new SimError("Interrupted while waiting for input", e);
+		}
+
+		if (o == END) {
+			endReached = true;
+			return null;
+		}
+		if (o instanceof Throwable) {
+			error = (Throwable)o;
+			if (error instanceof SimError) {
+				throw (SimError)error;
+			}
+			throw new SimError("Background loading failed: " +
+					error.getMessage(), toException(error));
+		}
+		return (T)o;
+	}
+
+	private static Exception toException(Throwable t) {
+		return t instanceof Exception ? (Exception)t : new Exception(t);
+	}
+
+	/**
+	 * Stops the background thread and waits until it has released the
+	 * input. Chunks that were loaded but not consumed are discarded.
+	 */
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		chunks.clear();
+		if (thread == null) {
+			closeInput(); // never started
+			return;
+		}
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
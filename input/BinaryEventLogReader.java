@@ -0,0 +1,518 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import core.SimError;
+
+/**
+ * Reads binary event logs created with {@link BinaryEventLogWriter} (e.g.,
+ * by {@link report.BinaryEventLogReport}). The events can be iterated
+ * with {@link #next()} and converted to the text lines of
+ * {@link report.EventLogReport} with {@link #getLine()}, or read as
+ * external events, so a log can be replayed like a
+ * {@link StandardEventsReader} events file. When replaying, connection
+ * events, message creations, transfers and deletes are read (the
+ * discards and expirations as removes, and the creations without a
+ * destination with {@link MessageCreateEvent#NO_DESTINATION}); node
+ * registrations and transmission events have no external event
+ * counterpart and are skipped.
+ * <P>
+ * Can also be used as a command line tool for converting a binary event
+ * log to the text format:<BR>
+ * <CODE>java input.BinaryEventLogReader logFile [textFile]</CODE><BR>
+ * The text is written to the standard output if no text file is given.
+ * </P>
+ */
+public class BinaryEventLogReader implements ExternalEventsReader {
+	/** Actions of the type codes in the text format */
+	private static final String[] ACTIONS = {
+		StandardEventsReader.REGISTER, StandardEventsReader.CONNECTION,
+		StandardEventsReader.CONNECTION, StandardEventsReader.CREATE,
+		StandardEventsReader.TRANSMISSION, StandardEventsReader.SEND,
+		StandardEventsReader.DELIVERED, StandardEventsReader.DELIVERED,
+		StandardEventsReader.DELIVERED, StandardEventsReader.DELIVERED,
+		StandardEventsReader.ABORT, StandardEventsReader.INTERFERED,
+		StandardEventsReader.REMOVE, StandardEventsReader.DROP,
+		StandardEventsReader.DISCARD, StandardEventsReader.EXPIRATION};
+	/** Fixed extra info of the type codes in the text format (or null) */
+	private static final String[] EXTRAS = {
+		null, StandardEventsReader.CONNECTION_UP,
+		StandardEventsReader.CONNECTION_DOWN, null, null, null,
+		"R", "RA", "D", "DA", null, null, null, null, null, null};
+	/** Index of the read position of the tables of a block */
+	private static final int TABLES = BinaryEventLogWriter.NROF_COLS;
+
+	private DataInputStream in;
+	private boolean compressed;
+	private boolean allRead;
+	private Inflater inflater;
+
+	private String[] hostNames;
+	private String[] messageIds;
+	private List<String> strings;
+
+	/** the current block and the read positions of its columns */
+	private byte[] block;
+	private int[] positions;
+	private int blockEvents;
+	private int nextIndex;
+	private long timeBits;
+
+	/** the current event */
+	private double time;
+	private int type;
+	private int host1;
+	private int host2;
+	private int msg;
+	private int size;
+	private int responseSize;
+	private int priority;
+	private int cause;
+
+	/**
+	 * Constructor.
+	 * @param logFile The binary event log file
+	 * @throws SimError if the file is not a valid binary event log
+	 */
+	public BinaryEventLogReader(File logFile) {
+		try {
+			this.in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(logFile), 256 * 1024));
+			if (in.readInt() != BinaryEventLogWriter.MAGIC ||
+					in.readShort() != BinaryEventLogWriter.VERSION) {
+				in.close();
+				throw new SimError("Invalid binary event log file " +
+						logFile.getAbsolutePath());
+			}
+			this.compressed = (in.readShort() &
+					BinaryEventLogWriter.FLAG_COMPRESSED) != 0;
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+		if (compressed) {
+			this.inflater = new Inflater();
+		}
+		this.hostNames = new String[16];
+		this.messageIds = new String[1024];
+		this.strings = new ArrayList<String>();
+		this.positions = new int[BinaryEventLogWriter.NROF_COLS + 1];
+	}
+
+	/**
+	 * Checks if the given file is a binary event log file
+	 * @param file The file to check
+	 * @return True if the file starts with the binary event log header
+	 */
+	public static boolean isEventLogFile(File file) {
+		if (!file.isFile() ||
+				file.length() < BinaryEventLogWriter.HEADER_SIZE) {
+			return false;
+		}
+		try {
+			DataInputStream f = new DataInputStream(new FileInputStream(file));
+			try {
+				return f.readInt() == BinaryEventLogWriter.MAGIC &&
+					f.readShort() == BinaryEventLogWriter.VERSION;
+			}
+			finally {
+				f.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Moves to the next event of the log
+	 * @return True if there was a next event, false if all events were read
+	 */
+	public boolean next() {
+		if (nextIndex >= blockEvents && !loadBlock()) {
+			return false;
+		}
+		nextIndex++;
+
+		long delta = readVarLong(BinaryEventLogWriter.TIME_COL);
+		timeBits += (delta >>> 1) ^ -(delta & 1);
+		time = Double.longBitsToDouble(timeBits);
+		type = block[positions[BinaryEventLogWriter.TYPE_COL]++];
+		if (type < 0 || type >= BinaryEventLogWriter.NROF_TYPES) {
+			throw new SimError("Invalid event type " + type +
+					" in binary event log");
+		}
+		host1 = readVarint(BinaryEventLogWriter.HOST1_COL) - 1;
+		host2 = BinaryEventLogWriter.NO_HOST;
+		if (BinaryEventLogWriter.hasHost2(type)) {
+			host2 = readVarint(BinaryEventLogWriter.HOST2_COL) - 1;
+		}
+		msg = -1;
+		if (BinaryEventLogWriter.hasMessage(type)) {
+			msg = readVarint(BinaryEventLogWriter.MSG_COL);
+		}
+		if (type == BinaryEventLogWriter.TYPE_CREATE) {
+			size = readVarint(BinaryEventLogWriter.ARGS_COL);
+			responseSize = readVarint(BinaryEventLogWriter.ARGS_COL);
+			int p = readVarint(BinaryEventLogWriter.ARGS_COL);
+			priority = (p >>> 1) ^ -(p & 1);
+		}
+		cause = -1;
+		if (BinaryEventLogWriter.hasCause(type)) {
+			cause = readVarint(BinaryEventLogWriter.ARGS_COL) - 1;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the time of the current event
+	 * @return The time
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Returns the type code of the current event
+	 * @return The type code (see the <CODE>TYPE_*</CODE> constants of
+	 * {@link BinaryEventLogWriter})
+	 */
+	public int getType() {
+		return this.type;
+	}
+
+	/**
+	 * Returns the address of the first host of the current event
+	 * @return The address or {@link BinaryEventLogWriter#NO_HOST}
+	 */
+	public int getHost1() {
+		return this.host1;
+	}
+
+	/**
+	 * Returns the address of the second host of the current event
+	 * @return The address or {@link BinaryEventLogWriter#NO_HOST}
+	 */
+	public int getHost2() {
+		return this.host2;
+	}
+
+	/**
+	 * Returns the name of a host that has appeared in the log
+	 * @param address Address of the host
+	 * @return The name or null for {@link BinaryEventLogWriter#NO_HOST}
+	 */
+	public String getHostName(int address) {
+		return address == BinaryEventLogWriter.NO_HOST ? null :
+			hostNames[address];
+	}
+
+	/**
+	 * Returns the identifier of the message of the current event
+	 * @return The identifier or null if the event has no message
+	 */
+	public String getMessageId() {
+		return msg == -1 ? null : messageIds[msg];
+	}
+
+	/**
+	 * Returns the cause of the current abort or delete event
+	 * @return The cause or null if the event has no cause
+	 */
+	public String getCause() {
+		return cause == -1 ? null : strings.get(cause);
+	}
+
+	/**
+	 * Returns the current event as a line of {@link report.EventLogReport}
+	 * @return The line
+	 */
+	public String getLine() {
+		StringBuilder sb = new StringBuilder(64);
+		sb.append(time).append(' ').append(ACTIONS[type]).append(' ');
+		if (host1 != BinaryEventLogWriter.NO_HOST) {
+			sb.append(hostNames[host1]);
+		}
+		if (host2 != BinaryEventLogWriter.NO_HOST &&
+				type != BinaryEventLogWriter.TYPE_CREATE) {
+			sb.append(' ').append(hostNames[host2]);
+		}
+		if (msg != -1) {
+			sb.append(' ').append(messageIds[msg]);
+		}
+		String extra = BinaryEventLogWriter.hasCause(type) ? getCause() :
+			EXTRAS[type];
+		if (extra != null) {
+			sb.append(' ').append(extra);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Read events from the log
+	 * @param nrof Maximum number of events to read
+	 * @return Events in an ArrayList (empty list if didn't read any)
+	 */
+	public List<ExternalEvent> readEvents(int nrof) {
+		ArrayList<ExternalEvent> events = new ArrayList<ExternalEvent>(
+				Math.min(nrof, BinaryEventLogWriter.DEFAULT_BLOCK_SIZE));
+
+		while (events.size() < nrof && next()) {
+			String id = getMessageId();
+			switch (type) {
+			case BinaryEventLogWriter.TYPE_CONNECTION_UP:
+			case BinaryEventLogWriter.TYPE_CONNECTION_DOWN:
+				boolean up = type == BinaryEventLogWriter.TYPE_CONNECTION_UP;
+				events.add(new ConnectionEvent(host1, host2, null, up, time));
+				break;
+			case BinaryEventLogWriter.TYPE_CREATE:
+				int to = host2 != BinaryEventLogWriter.NO_HOST ? host2 :
+					MessageCreateEvent.NO_DESTINATION;
+				events.add(new MessageCreateEvent(host1, to, id, priority,
+						size, responseSize, time));
+				break;
+			case BinaryEventLogWriter.TYPE_SEND:
+				events.add(new MessageRelayEvent(host1, host2, id, time,
+						MessageRelayEvent.SENDING));
+				break;
+			case BinaryEventLogWriter.TYPE_RELAYED:
+			case BinaryEventLogWriter.TYPE_RELAYED_AGAIN:
+			case BinaryEventLogWriter.TYPE_DELIVERED:
+			case BinaryEventLogWriter.TYPE_DELIVERED_AGAIN:
+				events.add(new MessageRelayEvent(host1, host2, id, time,
+						MessageRelayEvent.TRANSFERRED));
+				break;
+			case BinaryEventLogWriter.TYPE_ABORT:
+				events.add(new MessageRelayEvent(host1, host2, id, time,
+						MessageRelayEvent.ABORTED));
+				break;
+			case BinaryEventLogWriter.TYPE_INTERFERED:
+				events.add(new MessageRelayEvent(host1, host2, id, time,
+						MessageRelayEvent.INTERFERED));
+				break;
+			case BinaryEventLogWriter.TYPE_DROP:
+				events.add(new MessageDeleteEvent(host1, id, time, true,
+						getCause()));
+				break;
+			case BinaryEventLogWriter.TYPE_REMOVE:
+			case BinaryEventLogWriter.TYPE_DISCARD:
+			case BinaryEventLogWriter.TYPE_EXPIRATION:
+				events.add(new MessageDeleteEvent(host1, id, time, false,
+						getCause()));
+				break;
+			default:
+				break; // no external event
+			}
+		}
+
+		return events;
+	}
+
+	/**
+	 * Reads (and inflates, if necessary) the next block of the log
+	 * @return True if a new block was loaded, false if all blocks were read
+	 */
+	private boolean loadBlock() {
+		if (allRead) {
+			return false;
+		}
+
+		int n;
+		try {
+			n = in.readInt();
+			if (n == 0) {
+				allRead = true;
+				this.block = null;
+				this.blockEvents = 0;
+				return false;
+			}
+			int rawLength = in.readInt();
+			int storedLength = in.readInt();
+			byte[] data = new byte[storedLength];
+			in.readFully(data);
+			if (compressed) {
+				data = inflate(data, rawLength);
+			}
+			this.block = data;
+		} catch (EOFException e) {
+			throw new SimError("Truncated binary event log");
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+
+		positions[TABLES] = 0;
+		int nrofHosts = readVarint(TABLES);
+		for (int i=0; i<nrofHosts; i++) {
+			int address = readVarint(TABLES);
+			if (address >= hostNames.length) {
+				hostNames = Arrays.copyOf(hostNames,
+						Math.max(address + 1, hostNames.length * 2));
+			}
+			hostNames[address] = readString();
+		}
+		int nrofMessages = readVarint(TABLES);
+		for (int i=0; i<nrofMessages; i++) {
+			int id = readVarint(TABLES);
+			if (id >= messageIds.length) {
+				messageIds = Arrays.copyOf(messageIds,
+						Math.max(id + 1, messageIds.length * 2));
+			}
+			messageIds[id] = readString();
+		}
+		int nrofStrings = readVarint(TABLES);
+		for (int i=0; i<nrofStrings; i++) {
+			strings.add(readString());
+		}
+
+		for (int c=0; c<BinaryEventLogWriter.NROF_COLS; c++) {
+			int length = readVarint(TABLES);
+			positions[c] = positions[TABLES];
+			positions[TABLES] += length;
+		}
+
+		if (positions[TABLES] != block.length) {
+			throw new SimError("Corrupted block in binary event log");
+		}
+		this.blockEvents = n;
+		this.nextIndex = 0;
+		return true;
+	}
+
+	private byte[] inflate(byte[] data, int rawLength) {
+		byte[] raw = new byte[rawLength];
+		inflater.reset();
+		inflater.setInput(data);
+		try {
+			int len = 0;
+			while (len < rawLength && !inflater.finished()) {
+				int n = inflater.inflate(raw, len, rawLength - len);
+				if (n == 0 && (inflater.needsInput() ||
+						inflater.needsDictionary())) {
+					throw new SimError("Truncated block in binary event log");
+				}
+				len += n;
+			}
+		} catch (DataFormatException e) {
+			throw new SimError("Corrupted binary event log", e);
+		}
+		return raw;
+	}
+
+	private int readVarint(int column) {
+		byte[] b = this.block;
+		int pos = positions[column];
+		int value = 0;
+		int shift = 0;
+		byte next;
+		do {
+			next = b[pos++];
+			value |= (next & 0x7F) << shift;
+			shift += 7;
+		} while (next < 0);
+		positions[column] = pos;
+		return value;
+	}
+
+	private long readVarLong(int column) {
+		byte[] b = this.block;
+		int pos = positions[column];
+		long value = 0;
+		int shift = 0;
+		byte next;
+		do {
+			next = b[pos++];
+			value |= (long)(next & 0x7F) << shift;
+			shift += 7;
+		} while (next < 0);
+		positions[column] = pos;
+		return value;
+	}
+
+	private String readString() {
+		int length = readVarint(TABLES);
+		int pos = positions[TABLES];
+		positions[TABLES] = pos + length;
+		return new String(block, pos, length, StandardCharsets.UTF_8);
+	}
+
+	public void close() {
+		try {
+			this.in.close();
+		}
+		catch (IOException ioe) {
+			throw new SimError(ioe);
+		}
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+	}
+
+	/**
+	 * Writes the events of a binary event log as text lines
+	 * @param logFile The binary event log file
+	 * @param out The writer to write the lines to
+	 * @return Number of events written
+	 * @throws IOException if writing fails
+	 */
+	public static long convertToText(File logFile, Writer out)
+			throws IOException {
+		BinaryEventLogReader reader = new BinaryEventLogReader(logFile);
+		long total = 0;
+		try {
+			while (reader.next()) {
+				out.write(reader.getLine());
+				out.write('\n');
+				total++;
+			}
+		}
+		finally {
+			reader.close();
+		}
+		out.flush();
+		return total;
+	}
+
+	/**
+	 * Converts a binary event log to the text format.
+	 * @param args <CODE>logFile [textFile]</CODE>
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Usage: java input.BinaryEventLogReader " +
+					"logFile [textFile]");
+			System.exit(-1);
+		}
+
+		Writer out;
+		if (args.length == 2) {
+			out = new BufferedWriter(new FileWriter(args[1]), 256 * 1024);
+		}
+		else {
+			out = new BufferedWriter(new OutputStreamWriter(System.out),
+					256 * 1024);
+		}
+		long total = convertToText(new File(args[0]), out);
+		out.close();
+		if (args.length == 2) {
+			System.out.println("Converted " + total + " events");
+		}
+	}
+}
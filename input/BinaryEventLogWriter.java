@@ -0,0 +1,546 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Writes simulation events (the events of {@link report.EventLogReport})
+ * to a binary event log that can be read with {@link BinaryEventLogReader}.
+ * The events are collected to blocks of columns: time deltas, event type
+ * codes, host addresses, message indexes and event specific arguments.
+ * All values except the type codes are stored as variable length
+ * integers, so a typical event takes only a few bytes. Full blocks are
+ * (optionally) deflated and written by a background thread, so writing an
+ * event only encodes its values to the columns.
+ * <P>
+ * File format (fixed width values big-endian):<BR>
+ * <CODE>header: magic (int), version (short), flags (short)</CODE><BR>
+ * <CODE>block*: nrofEvents (int), rawLength (int), storedLength (int),
+ * data (storedLength bytes)</CODE><BR>
+ * <CODE>end: 0 (int)</CODE>
+ * </P><P>
+ * The (optionally deflated) data of a block starts with the names of the
+ * hosts, the identifiers of the messages and the other strings (causes of
+ * aborts and deletes) that are introduced in the block. Hosts are
+ * introduced with their address and messages with their index; messages
+ * and the other strings get consecutive indexes in the order of
+ * appearance in the file. Each table is a count
+ * followed by the entries; a string is stored as its length and UTF-8
+ * bytes.
+ * </P><P>
+ * The tables are followed by six columns, each stored as its length in
+ * bytes and the bytes:
+ * <UL>
+ * <LI>time: zigzag encoded difference of the raw bits of the event's time
+ * and the previous event's time (the times are stored exactly and equal
+ * times take a single byte)</LI>
+ * <LI>type: one byte per event (see the <CODE>TYPE_*</CODE> constants)</LI>
+ * <LI>host1: address + 1 of the first host (0 for none)</LI>
+ * <LI>host2: address + 1 of the second host, only for the event types
+ * that have one (see {@link #hasHost2(int)})</LI>
+ * <LI>message: index of the message of message events</LI>
+ * <LI>args: size, response size and (zigzag) priority of created messages
+ * and string index + 1 of the causes (0 for none)</LI>
+ * </UL>
+ * All lengths, counts and ids in the blocks are variable length integers
+ * (7 bits per byte, least significant group first).
+ * </P>
+ */
+public class BinaryEventLogWriter {
+	/** Identifier in the beginning of binary event log files */
+	public static final int MAGIC = 0x4F4E454C; // "ONEL"
+	/** Version of the file format */
+	public static final short VERSION = 1;
+	/** Header flag for deflated blocks */
+	public static final short FLAG_COMPRESSED = 1;
+	/** Extension of binary event log files */
+	public static final String LOG_EXT = ".elb";
+	/** Default number of events per block */
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+	/** Size of the file header (bytes) */
+	public static final int HEADER_SIZE = 8;
+	/** Number of blocks that can be queued for the writer thread */
+	public static final int NROF_QUEUED_BLOCKS = 2;
+	/** Address of a non-existing host */
+	public static final int NO_HOST = -1;
+
+	/** Type code of a node registration event */
+	public static final byte TYPE_REGISTER = 0;
+	/** Type code of a connection up event */
+	public static final byte TYPE_CONNECTION_UP = 1;
+	/** Type code of a connection down event */
+	public static final byte TYPE_CONNECTION_DOWN = 2;
+	/** Type code of a message creation event */
+	public static final byte TYPE_CREATE = 3;
+	/** Type code of a transmission performed event */
+	public static final byte TYPE_TRANSMISSION = 4;
+	/** Type code of a message transfer start event */
+	public static final byte TYPE_SEND = 5;
+	/** Type code of a message relayed event */
+	public static final byte TYPE_RELAYED = 6;
+	/** Type code of a message relayed again event */
+	public static final byte TYPE_RELAYED_AGAIN = 7;
+	/** Type code of a message delivered event */
+	public static final byte TYPE_DELIVERED = 8;
+	/** Type code of a message delivered again event */
+	public static final byte TYPE_DELIVERED_AGAIN = 9;
+	/** Type code of a message transfer aborted event */
+	public static final byte TYPE_ABORT = 10;
+	/** Type code of a message transfer interfered event */
+	public static final byte TYPE_INTERFERED = 11;
+	/** Type code of a message removed event */
+	public static final byte TYPE_REMOVE = 12;
+	/** Type code of a message dropped event */
+	public static final byte TYPE_DROP = 13;
+	/** Type code of a message discarded event */
+	public static final byte TYPE_DISCARD = 14;
+	/** Type code of a message expiration event */
+	public static final byte TYPE_EXPIRATION = 15;
+	/** Number of type codes */
+	public static final int NROF_TYPES = 16;
+
+	/** Indexes of the columns in a block */
+	static final int TIME_COL = 0, TYPE_COL = 1, HOST1_COL = 2,
+		HOST2_COL = 3, MSG_COL = 4, ARGS_COL = 5, NROF_COLS = 6;
+
+	/** marker for the end of the log in the block queue */
+	private static final ByteColumn END = new ByteColumn();
+
+	private DataOutputStream out;
+	private boolean compress;
+	private Deflater deflater;
+	/** blocks to compress and write, in order */
+	private BlockingQueue<ByteColumn> queue;
+	private Thread writerThread;
+	/** error from the writer thread */
+	private volatile IOException error;
+	private boolean closed;
+	private int blockSize;
+	private int nrofEvents;
+	private long lastTimeBits;
+
+	/** hosts that have been introduced in the file */
+	private BitSet hostsDefined;
+	/** indexes of the messages and strings introduced in the file */
+	private HashMap<String, Integer> messageIndexes;
+	private HashMap<String, Integer> stringIndexes;
+
+	/** the tables of the current block */
+	private ByteColumn hostTable;
+	private int nrofNewHosts;
+	private ByteColumn messageTable;
+	private int nrofNewMessages;
+	private ByteColumn stringTable;
+	private int nrofNewStrings;
+	private ByteColumn[] columns;
+
+	/**
+	 * Creates a new writer with the default block size
+	 * @param file The file to write the events to
+	 * @param compress If true, the blocks are deflated
+	 * @throws IOException if the file can't be created
+	 */
+	public BinaryEventLogWriter(File file, boolean compress)
+			throws IOException {
+		this(file, compress, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates a new writer
+	 * @param file The file to write the events to
+	 * @param compress If true, the blocks are deflated
+	 * @param blockSize Maximum number of events per block
+	 * @throws IOException if the file can't be created
+	 */
+	public BinaryEventLogWriter(File file, boolean compress, int blockSize)
+			throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 256 * 1024));
+		this.compress = compress;
+		this.blockSize = blockSize;
+		if (compress) {
+			this.deflater = new Deflater(Deflater.BEST_SPEED);
+		}
+
+		this.hostsDefined = new BitSet();
+		this.messageIndexes = new HashMap<String, Integer>();
+		this.stringIndexes = new HashMap<String, Integer>();
+		this.hostTable = new ByteColumn();
+		this.messageTable = new ByteColumn();
+		this.stringTable = new ByteColumn();
+		this.columns = new ByteColumn[NROF_COLS];
+		for (int i=0; i<NROF_COLS; i++) {
+			columns[i] = new ByteColumn();
+		}
+
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeShort(compress ? FLAG_COMPRESSED : 0);
+
+		this.queue = new ArrayBlockingQueue<ByteColumn>(NROF_QUEUED_BLOCKS);
+		this.writerThread = new Thread("EventLogWriter " + file.getName()) {
+			public void run() {
+				writeBlocks();
+			}
+		};
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	/**
+	 * Returns true if events of the type have a second host
+	 * @param type The type code
+	 * @return True if the second host is stored for the type
+	 */
+	public static boolean hasHost2(int type) {
+		return type == TYPE_CONNECTION_UP || type == TYPE_CONNECTION_DOWN ||
+			type == TYPE_CREATE || (type >= TYPE_SEND &&
+					type <= TYPE_INTERFERED);
+	}
+
+	/**
+	 * Returns true if events of the type refer to a message
+	 * @param type The type code
+	 * @return True if a message is stored for the type
+	 */
+	public static boolean hasMessage(int type) {
+		return type >= TYPE_CREATE;
+	}
+
+	/**
+	 * Returns true if events of the type have a cause string
+	 * @param type The type code
+	 * @return True if a cause is stored for the type
+	 */
+	public static boolean hasCause(int type) {
+		return type == TYPE_ABORT || type >= TYPE_REMOVE;
+	}
+
+	/**
+	 * Writes an event. The names and identifiers are stored only the
+	 * first time a host or a message appears in the log.
+	 * @param time Time of the event
+	 * @param type Type code of the event
+	 * @param host1 Address of the first host (or {@link #NO_HOST})
+	 * @param host1Name Name of the first host (or null)
+	 * @param host2 Address of the second host (or {@link #NO_HOST});
+	 * ignored if the type doesn't have a second host
+	 * @param host2Name Name of the second host (or null)
+	 * @param msgId Identifier of the message (or null); ignored if the type
+	 * doesn't refer to a message
+	 * @param cause The cause of an abort or a delete (or null); ignored
+	 * for other types
+	 * @throws IOException if writing fails
+	 */
+	public void write(double time, byte type, int host1, String host1Name,
+			int host2, String host2Name, String msgId, String cause)
+			throws IOException {
+		writeCommon(time, type, host1, host1Name);
+		if (hasHost2(type)) {
+			writeHost(HOST2_COL, host2, host2Name);
+		}
+		if (hasMessage(type)) {
+			columns[MSG_COL].writeVarint(messageIndex(msgId));
+		}
+		if (hasCause(type)) {
+			columns[ARGS_COL].writeVarint(stringIndex(cause) + 1);
+		}
+		endEvent();
+	}
+
+	/**
+	 * Writes a message creation event
+	 * @param time Time of the event
+	 * @param from Address of the creating host
+	 * @param fromName Name of the creating host
+	 * @param to Address of the destination host (or {@link #NO_HOST})
+	 * @param toName Name of the destination host (or null)
+	 * @param msgId Identifier of the message
+	 * @param size Size of the message
+	 * @param responseSize Size of the requested response (or 0)
+	 * @param priority Priority of the message
+	 * @throws IOException if writing fails
+	 */
+	public void writeCreate(double time, int from, String fromName, int to,
+			String toName, String msgId, int size, int responseSize,
+			int priority) throws IOException {
+		writeCommon(time, TYPE_CREATE, from, fromName);
+		writeHost(HOST2_COL, to, toName);
+		columns[MSG_COL].writeVarint(messageIndex(msgId));
+		ByteColumn args = columns[ARGS_COL];
+		args.writeVarint(size);
+		args.writeVarint(responseSize);
+		args.writeVarint((priority << 1) ^ (priority >> 31));
+		endEvent();
+	}
+
+	private void writeCommon(double time, byte type, int host1,
+			String host1Name) {
+		long bits = Double.doubleToLongBits(time);
+		long delta = bits - lastTimeBits;
+		lastTimeBits = bits;
+		columns[TIME_COL].writeVarLong((delta << 1) ^ (delta >> 63));
+		columns[TYPE_COL].writeByte(type);
+		writeHost(HOST1_COL, host1, host1Name);
+	}
+
+	private void writeHost(int column, int address, String name) {
+		if (address == NO_HOST) {
+			columns[column].writeVarint(0);
+			return;
+		}
+		if (!hostsDefined.get(address)) {
+			hostsDefined.set(address);
+			hostTable.writeVarint(address);
+			hostTable.writeString(name);
+			nrofNewHosts++;
+		}
+		columns[column].writeVarint(address + 1);
+	}
+
+	/**
+	 * Returns the index of a message, adding it to the messages of the
+	 * current block if it hasn't been seen before
+	 * @param msgId Identifier of the message
+	 * @return Index of the message
+	 */
+	private int messageIndex(String msgId) {
+		Integer index = messageIndexes.get(msgId);
+		if (index == null) {
+			index = messageIndexes.size();
+			messageIndexes.put(msgId, index);
+			messageTable.writeVarint(index);
+			messageTable.writeString(msgId);
+			nrofNewMessages++;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the index of a string, adding it to the strings of the current
+	 * block if it hasn't been seen before
+	 * @param s The string (or null)
+	 * @return Index of the string or -1 for null
+	 */
+	private int stringIndex(String s) {
+		if (s == null) {
+			return -1;
+		}
+		Integer index = stringIndexes.get(s);
+		if (index == null) {
+			index = stringIndexes.size();
+			stringIndexes.put(s, index);
+			stringTable.writeString(s);
+			nrofNewStrings++;
+		}
+		return index;
+	}
+
+	private void endEvent() throws IOException {
+		nrofEvents++;
+		if (nrofEvents == blockSize) {
+			flushBlock();
+		}
+	}
+
+	/**
+	 * Hands the buffered events as a block to the writer thread
+	 */
+	private void flushBlock() throws IOException {
+		checkError();
+		if (nrofEvents == 0) {
+			return;
+		}
+
+		ByteColumn raw = new ByteColumn();
+		raw.writeVarint(nrofNewHosts);
+		raw.write(hostTable);
+		raw.writeVarint(nrofNewMessages);
+		raw.write(messageTable);
+		raw.writeVarint(nrofNewStrings);
+		raw.write(stringTable);
+		for (ByteColumn c : columns) {
+			raw.writeVarint(c.length);
+			raw.write(c);
+		}
+		raw.nrofEvents = nrofEvents;
+		handOff(raw);
+
+		nrofEvents = 0;
+		nrofNewHosts = 0;
+		nrofNewMessages = 0;
+		nrofNewStrings = 0;
+		hostTable.length = 0;
+		messageTable.length = 0;
+		stringTable.length = 0;
+		for (ByteColumn c : columns) {
+			c.length = 0;
+		}
+	}
+
+	private void handOff(ByteColumn block) throws IOException {
+		try {
+			queue.put(block);
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException(e.getMessage());
+		}
+	}
+
+	private void checkError() throws IOException {
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Compresses and writes the queued blocks until the end of the log
+	 */
+	private void writeBlocks() {
+		try {
+			ByteColumn block;
+			while ((block = queue.take()) != END) {
+				if (error == null) {
+					writeBlock(block);
+				}
+			}
+			out.writeInt(0); // end of blocks
+		} catch (IOException e) {
+			error = e;
+		} catch (InterruptedException e) {
+			error = new InterruptedIOException(e.getMessage());
+		} finally {
+			try {
+				out.close();
+			} catch (IOException e) {
+				if (error == null) {
+					error = e;
+				}
+			}
+			if (deflater != null) {
+				deflater.end();
+			}
+		}
+	}
+
+	/**
+	 * Writes a block of events
+	 * @param block Raw data of the block
+	 */
+	private void writeBlock(ByteColumn block) throws IOException {
+		byte[] data = block.bytes;
+		int rawLength = block.length;
+		int storedLength = rawLength;
+		if (compress) {
+			byte[] compressed = new byte[rawLength + rawLength / 100 + 64];
+			deflater.reset();
+			deflater.setInput(data, 0, rawLength);
+			deflater.finish();
+			storedLength = 0;
+			while (!deflater.finished()) {
+				if (storedLength == compressed.length) {
+					compressed = Arrays.copyOf(compressed, compressed.length*2);
+				}
+				storedLength += deflater.deflate(compressed, storedLength,
+						compressed.length - storedLength);
+			}
+			data = compressed;
+		}
+
+		out.writeInt(block.nrofEvents);
+		out.writeInt(rawLength);
+		out.writeInt(storedLength);
+		out.write(data, 0, storedLength);
+	}
+
+	/**
+	 * Writes the remaining events, closes the file and waits until the
+	 * writer thread has finished
+	 * @throws IOException if writing fails
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			flushBlock();
+		} finally {
+			try {
+				queue.put(END);
+				writerThread.join();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException(e.getMessage());
+			}
+		}
+		checkError();
+	}
+
+	/**
+	 * Growable byte array with variable length integer encoding
+	 */
+	private static class ByteColumn {
+		private byte[] bytes = new byte[1024];
+		private int length;
+		/** number of events (if the column is the data of a block) */
+		private int nrofEvents;
+
+		private void ensureCapacity(int n) {
+			if (length + n > bytes.length) {
+				bytes = Arrays.copyOf(bytes,
+						Math.max(bytes.length * 2, length + n));
+			}
+		}
+
+		private void writeByte(int b) {
+			ensureCapacity(1);
+			bytes[length++] = (byte)b;
+		}
+
+		private void writeVarint(int value) {
+			ensureCapacity(5);
+			while ((value & ~0x7F) != 0) {
+				bytes[length++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte)value;
+		}
+
+		private void writeVarLong(long value) {
+			ensureCapacity(10);
+			while ((value & ~0x7FL) != 0) {
+				bytes[length++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte)value;
+		}
+
+		private void writeString(String s) {
+			byte[] b = (s != null ? s : "").getBytes(StandardCharsets.UTF_8);
+			writeVarint(b.length);
+			ensureCapacity(b.length);
+			System.arraycopy(b, 0, bytes, length, b.length);
+			length += b.length;
+		}
+
+		private void write(ByteColumn other) {
+			ensureCapacity(other.length);
+			System.arraycopy(other.bytes, 0, bytes, length, other.length);
+			length += other.length;
+		}
+	}
+}
@@ -17,7 +17,9 @@ import core.SimError;
 
 /**
  * Reads External Events from a binary file. Can also create binary files
- * from a list of external events.
+ * from a list of external events. The events are stored using Java object
+ * serialization; see {@link CompactEventsWriter} for a faster and more
+ * compact binary format.
  */
 public class BinaryEventsReader implements ExternalEventsReader {
 	/** Extension of binary external events file */
@@ -106,7 +108,7 @@ public class BinaryEventsReader implements ExternalEventsReader {
 
 		// make sure the file name ends with binary extension
 		if (!fileName.endsWith(BINARY_EXT)) {
-			fileName += "BINARY_EXT";
+			fileName += BINARY_EXT;
 		}
 		
 		ObjectOutputStream out;
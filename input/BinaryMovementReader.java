@@ -0,0 +1,350 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import core.SettingsError;
+
+/**
+ * Reader for binary movement files created with
+ * {@link BinaryMovementWriter}. The file is memory mapped in windows and
+ * the locations of every time instance are read to reusable primitive
+ * arrays, so reading does not create any objects per location.
+ * <P>
+ * Like {@link ExternalMovementReader}, the values are normalized by
+ * default (decremented by the minimum values of the offset header).
+ * </P>
+ */
+public class BinaryMovementReader {
+	/** Maximum size of a mapped window of the file (bytes) */
+	public static final int MAP_WINDOW = 64 * 1024 * 1024;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private long position;
+	private long dataEnd;
+	private boolean normalize;
+
+	private double minTime;
+	private double maxTime;
+	private double minX;
+	private double maxX;
+	private double minY;
+	private double maxY;
+
+	private String[] ids;
+	private HashMap<String, Integer> indexes;
+
+	private double time = -1;
+	private int count;
+	private int[] nodeIndexes;
+	private double[] xs;
+	private double[] ys;
+
+	/**
+	 * Constructor. Creates a new reader that reads the data from a file.
+	 * @param inFilePath Path to the file where the data is read
+	 * @throws SettingsError if the file wasn't found or it's not a valid
+	 * binary movement file
+	 */
+	public BinaryMovementReader(String inFilePath) {
+		this.normalize = true;
+		try {
+			this.file = new RandomAccessFile(inFilePath, "r");
+			this.channel = file.getChannel();
+			long size = channel.size();
+			if (size < BinaryMovementWriter.HEADER_SIZE +
+					BinaryMovementWriter.FOOTER_SIZE) {
+				throw new SettingsError("Invalid binary movement file " +
+						inFilePath);
+			}
+
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					BinaryMovementWriter.HEADER_SIZE);
+			ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY,
+					size - BinaryMovementWriter.FOOTER_SIZE,
+					BinaryMovementWriter.FOOTER_SIZE);
+			if (header.getInt(0) != BinaryMovementWriter.MAGIC ||
+					header.getShort(4) != BinaryMovementWriter.VERSION ||
+					footer.getInt(8) != BinaryMovementWriter.MAGIC) {
+				throw new SettingsError("Invalid binary movement file " +
+						inFilePath);
+			}
+			minTime = header.getDouble(8);
+			maxTime = header.getDouble(16);
+			minX = header.getDouble(24);
+			maxX = header.getDouble(32);
+			minY = header.getDouble(40);
+			maxY = header.getDouble(48);
+
+			dataEnd = footer.getLong(0);
+			readIds(size);
+		} catch (IOException e) {
+			throw new SettingsError("Couldn't read binary movement file " +
+					inFilePath + ": " + e.getMessage());
+		}
+
+		this.position = BinaryMovementWriter.HEADER_SIZE;
+		this.nodeIndexes = new int[Math.max(1, ids.length)];
+		this.xs = new double[nodeIndexes.length];
+		this.ys = new double[nodeIndexes.length];
+	}
+
+	/**
+	 * Reads the id table from the end of the file
+	 */
+	private void readIds(long size) throws IOException {
+		ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, dataEnd,
+				size - BinaryMovementWriter.FOOTER_SIZE - dataEnd);
+		int nrof = table.getInt();
+		ids = new String[nrof];
+		indexes = new HashMap<String, Integer>();
+		for (int i=0; i<nrof; i++) {
+			byte[] b = new byte[table.getInt()];
+			table.get(b);
+			ids[i] = new String(b, StandardCharsets.UTF_8);
+			indexes.put(ids[i], i);
+		}
+	}
+
+	/**
+	 * Checks if the given file is a binary movement file
+	 * @param filePath Path to the file
+	 * @return True if the file starts with the binary movement file header
+	 */
+	public static boolean isBinaryMovementFile(String filePath) {
+		File f = new File(filePath);
+		if (!f.isFile() || f.length() < BinaryMovementWriter.HEADER_SIZE) {
+			return false;
+		}
+		try {
+			RandomAccessFile raf = new RandomAccessFile(f, "r");
+			try {
+				return raf.readInt() == BinaryMovementWriter.MAGIC;
+			}
+			finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Sets normalizing of read values on/off. If on, values read by
+	 * {@link #nextInstance()} are decremented by minimum values of the
+	 * offsets. Default is on (normalize).
+	 * @param normalize If true, normalizing is on (false -> off).
+	 */
+	public void setNormalize(boolean normalize) {
+		this.normalize = normalize;
+	}
+
+	/**
+	 * Makes sure that the given number of bytes starting from the current
+	 * position are inside the mapped window
+	 */
+	private void ensureMapped(long nrofBytes) throws IOException {
+		if (window != null && position >= windowStart &&
+				position + nrofBytes <= windowStart + window.capacity()) {
+			return;
+		}
+		long size = Math.min(Math.max(nrofBytes, MAP_WINDOW),
+				dataEnd - position);
+		window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		windowStart = position;
+	}
+
+	/**
+	 * Reads the locations of the next time instance. The locations can be
+	 * queried with {@link #getNrofLocations()}, {@link #getNodeIndexes()},
+	 * {@link #getXs()} and {@link #getYs()}.
+	 * @return True if a time instance was read, false if there were no more
+	 * time instances
+	 */
+	public boolean nextInstance() {
+		if (position + BinaryMovementWriter.INSTANCE_HEADER_SIZE > dataEnd) {
+			count = 0;
+			return false;
+		}
+
+		try {
+			ensureMapped(BinaryMovementWriter.INSTANCE_HEADER_SIZE);
+			int offset = (int)(position - windowStart);
+			double t = window.getDouble(offset);
+			int n = window.getInt(offset + 8);
+			position += BinaryMovementWriter.INSTANCE_HEADER_SIZE;
+
+			ensureMapped((long)n * BinaryMovementWriter.ENTRY_SIZE);
+			offset = (int)(position - windowStart);
+			if (n > nodeIndexes.length) {
+				nodeIndexes = new int[n];
+				xs = new double[n];
+				ys = new double[n];
+			}
+			for (int i=0; i<n; i++) {
+				nodeIndexes[i] = window.getInt(offset);
+				xs[i] = window.getDouble(offset + 4);
+				ys[i] = window.getDouble(offset + 12);
+				if (normalize) {
+					xs[i] -= minX;
+					ys[i] -= minY;
+				}
+				offset += BinaryMovementWriter.ENTRY_SIZE;
+			}
+			position += (long)n * BinaryMovementWriter.ENTRY_SIZE;
+
+			this.time = normalize ? t - minTime : t;
+			this.count = n;
+		} catch (IOException e) {
+			throw new SettingsError("Couldn't read binary movement file: " +
+					e.getMessage());
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the time stamp of the last time instance read with
+	 * {@link #nextInstance()}
+	 * @return The time stamp
+	 */
+	public double getLastTimeStamp() {
+		return this.time;
+	}
+
+	/**
+	 * Returns the number of locations in the last read time instance
+	 * @return The number of locations
+	 */
+	public int getNrofLocations() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the node indexes of the last read time instance. Only the
+	 * first {@link #getNrofLocations()} values are valid. The array is
+	 * reused by the next call of {@link #nextInstance()}.
+	 * @return The node indexes
+	 */
+	public int[] getNodeIndexes() {
+		return this.nodeIndexes;
+	}
+
+	/**
+	 * Returns the x coordinates of the last read time instance
+	 * @return The x coordinates
+	 * @see #getNodeIndexes()
+	 */
+	public double[] getXs() {
+		return this.xs;
+	}
+
+	/**
+	 * Returns the y coordinates of the last read time instance
+	 * @return The y coordinates
+	 * @see #getNodeIndexes()
+	 */
+	public double[] getYs() {
+		return this.ys;
+	}
+
+	/**
+	 * Returns the number of distinct node ids in the file
+	 * @return The number of ids
+	 */
+	public int getNrofIds() {
+		return this.ids.length;
+	}
+
+	/**
+	 * Returns the external id of a node
+	 * @param index Index of the node
+	 * @return The id
+	 */
+	public String getId(int index) {
+		return this.ids[index];
+	}
+
+	/**
+	 * Returns the index of a node's external id
+	 * @param id The id
+	 * @return The index or -1 if the id is not in the file
+	 */
+	public int getIndex(String id) {
+		Integer index = indexes.get(id);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * Closes the input file
+	 */
+	public void close() {
+		try {
+			channel.close();
+			file.close();
+		} catch (IOException e) {
+			// nothing to do about it
+		}
+	}
+
+	/**
+	 * Returns offset maxTime
+	 * @return the maxTime
+	 */
+	public double getMaxTime() {
+		return maxTime;
+	}
+
+	/**
+	 * Returns offset maxX
+	 * @return the maxX
+	 */
+	public double getMaxX() {
+		return maxX;
+	}
+
+	/**
+	 * Returns offset maxY
+	 * @return the maxY
+	 */
+	public double getMaxY() {
+		return maxY;
+	}
+
+	/**
+	 * Returns offset minTime
+	 * @return the minTime
+	 */
+	public double getMinTime() {
+		return minTime;
+	}
+
+	/**
+	 * Returns offset minX
+	 * @return the minX
+	 */
+	public double getMinX() {
+		return minX;
+	}
+
+	/**
+	 * Returns offset minY
+	 * @return the minY
+	 */
+	public double getMinY() {
+		return minY;
+	}
+}
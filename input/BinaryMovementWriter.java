@@ -0,0 +1,175 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import core.Coord;
+import core.Tuple;
+
+/**
+ * Writes node locations to a binary movement file that can be read with
+ * {@link BinaryMovementReader}. Can also be used as a command line tool
+ * for converting external movement text files (see
+ * {@link ExternalMovementReader}) to the binary format:<BR>
+ * <CODE>java input.BinaryMovementWriter inputFile outputFile</CODE>
+ * <P>
+ * File format (all values big-endian):<BR>
+ * <CODE>header: magic (int), version (short), flags (short), minTime,
+ * maxTime, minX, maxX, minY, maxY (doubles)</CODE><BR>
+ * <CODE>time instance*: time (double), count (int), count * (node index
+ * (int), x (double), y (double))</CODE><BR>
+ * <CODE>id table: count (int), count * (length (int), UTF-8 bytes)</CODE><BR>
+ * <CODE>footer: id table offset (long), magic (int)</CODE>
+ * </P><P>
+ * Node indexes refer to the id table, where the external ids are stored
+ * in the order of their first appearance. Coordinates and times are
+ * stored as they are in the input, i.e., without normalization.
+ * </P>
+ */
+public class BinaryMovementWriter {
+	/** Identifier in the beginning and the end of binary movement files */
+	public static final int MAGIC = 0x4F4E454D; // "ONEM"
+	/** Version of the file format */
+	public static final short VERSION = 1;
+	/** Size of the file header (bytes) */
+	public static final int HEADER_SIZE = 8 + 6 * 8;
+	/** Size of the file footer (bytes) */
+	public static final int FOOTER_SIZE = 8 + 4;
+	/** Size of the time instance header (bytes) */
+	public static final int INSTANCE_HEADER_SIZE = 8 + 4;
+	/** Size of one location entry (bytes) */
+	public static final int ENTRY_SIZE = 4 + 8 + 8;
+
+	private DataOutputStream out;
+	private long position;
+	private HashMap<String, Integer> indexes;
+	private List<String> ids;
+
+	/**
+	 * Creates a new writer and writes the header of the file
+	 * @param file The file to write to
+	 * @param minTime Offset header's minimum time
+	 * @param maxTime Offset header's maximum time
+	 * @param minX Offset header's minimum x coordinate
+	 * @param maxX Offset header's maximum x coordinate
+	 * @param minY Offset header's minimum y coordinate
+	 * @param maxY Offset header's maximum y coordinate
+	 * @throws IOException if the file can't be written
+	 */
+	public BinaryMovementWriter(File file, double minTime, double maxTime,
+			double minX, double maxX, double minY, double maxY)
+			throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 1024 * 1024));
+		this.indexes = new HashMap<String, Integer>();
+		this.ids = new ArrayList<String>();
+
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeShort(0);
+		out.writeDouble(minTime);
+		out.writeDouble(maxTime);
+		out.writeDouble(minX);
+		out.writeDouble(maxX);
+		out.writeDouble(minY);
+		out.writeDouble(maxY);
+		position = HEADER_SIZE;
+	}
+
+	/**
+	 * Writes the locations of nodes at one time instance
+	 * @param time The time of the instance
+	 * @param moves List of id-location tuples
+	 * @throws IOException if writing fails
+	 */
+	public void writeInstance(double time, List<Tuple<String, Coord>> moves)
+			throws IOException {
+		out.writeDouble(time);
+		out.writeInt(moves.size());
+		for (Tuple<String, Coord> t : moves) {
+			out.writeInt(getIndex(t.getKey()));
+			out.writeDouble(t.getValue().getX());
+			out.writeDouble(t.getValue().getY());
+		}
+		position += INSTANCE_HEADER_SIZE + (long)moves.size() * ENTRY_SIZE;
+	}
+
+	private int getIndex(String id) {
+		Integer index = indexes.get(id);
+		if (index == null) {
+			index = ids.size();
+			indexes.put(id, index);
+			ids.add(id);
+		}
+		return index;
+	}
+
+	/**
+	 * Writes the id table and the footer and closes the file
+	 * @throws IOException if writing fails
+	 */
+	public void close() throws IOException {
+		out.writeInt(ids.size());
+		for (String id : ids) {
+			byte[] b = id.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(b.length);
+			out.write(b);
+		}
+		out.writeLong(position);
+		out.writeInt(MAGIC);
+		out.close();
+	}
+
+	/**
+	 * Converts an external movement text file to a binary movement file
+	 * @param inFile The text file
+	 * @param outFile The binary file
+	 * @return Number of converted time instances
+	 * @throws IOException if writing fails
+	 */
+	public static int convert(String inFile, String outFile)
+			throws IOException {
+		ExternalMovementReader reader = new ExternalMovementReader(inFile);
+		reader.setNormalize(false);
+		BinaryMovementWriter writer = new BinaryMovementWriter(
+				new File(outFile), reader.getMinTime(), reader.getMaxTime(),
+				reader.getMinX(), reader.getMaxX(), reader.getMinY(),
+				reader.getMaxY());
+		int instances = 0;
+
+		List<Tuple<String, Coord>> moves = reader.readNextMovements();
+		while (moves.size() > 0) {
+			writer.writeInstance(reader.getLastTimeStamp(), moves);
+			instances++;
+			moves = reader.readNextMovements();
+		}
+		reader.close();
+		writer.close();
+		return instances;
+	}
+
+	/**
+	 * Converts an external movement text file to a binary movement file.
+	 * @param args <CODE>inputFile outputFile</CODE>
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: java input.BinaryMovementWriter " +
+					"inputFile outputFile");
+			System.exit(-1);
+		}
+		System.out.println("Converted " + convert(args[0], args[1]) +
+				" time instances");
+	}
+}
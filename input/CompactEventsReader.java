@@ -0,0 +1,285 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import core.SimError;
+
+/**
+ * Reads external events from a compact binary file created with
+ * {@link CompactEventsWriter}. The file is memory mapped one block at a
+ * time, so files of any size can be read without loading them to the
+ * heap. Message identifiers are interned: all events referring to the same
+ * message share the same String object.
+ * @see CompactEventsWriter
+ */
+public class CompactEventsReader implements ExternalEventsReader {
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long position;
+	private boolean compressed;
+	private boolean allRead;
+	private Inflater inflater;
+	private byte[] storedData;
+
+	private List<String> strings;
+	/** Columns of the current block */
+	private ByteBuffer block;
+	private int blockEvents;
+	private int nextIndex;
+	private int timeOffset;
+	private int typeOffset;
+	private int host1Offset;
+	private int host2Offset;
+	private int msgOffset;
+	private int arg1Offset;
+	private int arg2Offset;
+	private int arg3Offset;
+
+	/**
+	 * Constructor.
+	 * @param eventsFile The file where the events are read
+	 * @throws SimError if the file is not a valid compact events file
+	 */
+	public CompactEventsReader(File eventsFile) {
+		try {
+			this.file = new RandomAccessFile(eventsFile, "r");
+			this.channel = file.getChannel();
+			if (!hasHeader(file)) {
+				file.close();
+				throw new SimError("Invalid compact external events file " +
+						eventsFile.getAbsolutePath());
+			}
+			file.seek(CompactEventsWriter.HEADER_SIZE - 2);
+			this.compressed = (file.readShort() &
+					CompactEventsWriter.FLAG_COMPRESSED) != 0;
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+		if (compressed) {
+			this.inflater = new Inflater();
+		}
+		this.position = CompactEventsWriter.HEADER_SIZE;
+		this.strings = new ArrayList<String>();
+	}
+
+	/**
+	 * Checks if the file starts with the compact events file header
+	 */
+	private static boolean hasHeader(RandomAccessFile f) throws IOException {
+		if (f.length() < CompactEventsWriter.HEADER_SIZE) {
+			return false;
+		}
+		f.seek(0);
+		return f.readInt() == CompactEventsWriter.MAGIC &&
+			f.readShort() == CompactEventsWriter.VERSION;
+	}
+
+	/**
+	 * Checks if the given file is a compact binary external events file
+	 * @param file The file to check
+	 * @return True if the file is a compact events file, false if not
+	 */
+	public static boolean isCompactEeFile(File file) {
+		if (!file.isFile()) {
+			return false;
+		}
+		try {
+			RandomAccessFile f = new RandomAccessFile(file, "r");
+			try {
+				return hasHeader(f);
+			}
+			finally {
+				f.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Read events from the file
+	 * @param nrof Maximum number of events to read
+	 * @return Events in an ArrayList (empty list if didn't read any)
+	 */
+	public List<ExternalEvent> readEvents(int nrof) {
+		ArrayList<ExternalEvent> events = new ArrayList<ExternalEvent>(
+				Math.min(nrof, CompactEventsWriter.DEFAULT_BLOCK_SIZE));
+
+		while (events.size() < nrof) {
+			if (nextIndex >= blockEvents && !loadBlock()) {
+				break;
+			}
+			events.add(createEvent(nextIndex++));
+		}
+
+		return events;
+	}
+
+	/**
+	 * Creates the event at the given index of the current block
+	 * @param i The index
+	 * @return The event
+	 */
+	private ExternalEvent createEvent(int i) {
+		ByteBuffer b = this.block;
+		double time = b.getDouble(timeOffset + i * 8);
+		byte type = b.get(typeOffset + i);
+		int h1 = b.getInt(host1Offset + i * 4);
+		int h2 = b.getInt(host2Offset + i * 4);
+		int msg = b.getInt(msgOffset + i * 4);
+		int a1 = b.getInt(arg1Offset + i * 4);
+		int a2 = b.getInt(arg2Offset + i * 4);
+
+		switch (type) {
+		case CompactEventsWriter.TYPE_CREATE:
+			return new MessageCreateEvent(h1, h2, getString(msg),
+					b.getInt(arg3Offset + i * 4), a1, a2, time);
+		case CompactEventsWriter.TYPE_RELAY:
+			return new MessageRelayEvent(h1, h2, getString(msg), time, a1);
+		case CompactEventsWriter.TYPE_DELETE:
+			return new MessageDeleteEvent(h1, getString(msg), time, a1 != 0,
+					getString(a2));
+		case CompactEventsWriter.TYPE_CONNECTION:
+			return new ConnectionEvent(h1, h2, getString(a2), a1 != 0, time);
+		case CompactEventsWriter.TYPE_DUMMY:
+			return new ExternalEvent(time);
+		default:
+			throw new SimError("Invalid event type " + type +
+					" in compact external events file");
+		}
+	}
+
+	private String getString(int index) {
+		return index == CompactEventsWriter.NO_STRING ? null :
+			strings.get(index);
+	}
+
+	/**
+	 * Maps (and inflates, if necessary) the next block of the file
+	 * @return True if a new block was loaded, false if all blocks were read
+	 */
+	private boolean loadBlock() {
+		if (allRead) {
+			return false;
+		}
+
+		try {
+			long remaining = channel.size() - position;
+			if (remaining < 4) {
+				throw new SimError("Invalid compact external events file " +
+						"(truncated block header)");
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+					position, Math.min(CompactEventsWriter.BLOCK_HEADER_SIZE,
+							remaining));
+			int n = header.getInt(0);
+			if (n == 0) {
+				allRead = true;
+				this.block = null;
+				close();
+				return false;
+			}
+			if (remaining < CompactEventsWriter.BLOCK_HEADER_SIZE) {
+				throw new SimError("Invalid compact external events file " +
+						"(truncated block header)");
+			}
+			int rawLength = header.getInt(4);
+			int storedLength = header.getInt(8);
+			position += CompactEventsWriter.BLOCK_HEADER_SIZE;
+			if (storedLength < 0 || storedLength > remaining -
+					CompactEventsWriter.BLOCK_HEADER_SIZE) {
+				throw new SimError("Invalid compact external events file " +
+						"(truncated block)");
+			}
+
+			ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY,
+					position, storedLength);
+			position += storedLength;
+
+			if (compressed) {
+				data = inflate(data, storedLength, rawLength);
+			}
+
+			int count = data.getInt(0);
+			int offset = 4;
+			for (int i=0; i<count; i++) {
+				int len = data.getInt(offset);
+				byte[] b = new byte[len];
+				data.position(offset + 4);
+				data.get(b);
+				strings.add(new String(b, StandardCharsets.UTF_8));
+				offset += 4 + len;
+			}
+
+			this.block = data;
+			this.blockEvents = n;
+			this.nextIndex = 0;
+			this.timeOffset = offset;
+			this.typeOffset = timeOffset + n * 8;
+			this.host1Offset = typeOffset + n;
+			this.host2Offset = host1Offset + n * 4;
+			this.msgOffset = host2Offset + n * 4;
+			this.arg1Offset = msgOffset + n * 4;
+			this.arg2Offset = arg1Offset + n * 4;
+			this.arg3Offset = arg2Offset + n * 4;
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
+
+		return true;
+	}
+
+	private ByteBuffer inflate(ByteBuffer data, int storedLength,
+			int rawLength) {
+		if (storedData == null || storedData.length < storedLength) {
+			storedData = new byte[storedLength];
+		}
+		data.get(storedData, 0, storedLength);
+
+		byte[] raw = new byte[rawLength];
+		inflater.reset();
+		inflater.setInput(storedData, 0, storedLength);
+		try {
+			int len = 0;
+			while (len < rawLength && !inflater.finished()) {
+				int n = inflater.inflate(raw, len, rawLength - len);
+				if (n == 0 && (inflater.needsInput() ||
+						inflater.needsDictionary())) {
+					throw new SimError("Truncated block in compact " +
+							"external events file");
+				}
+				len += n;
+			}
+		} catch (DataFormatException e) {
+			throw new SimError("Corrupted compact external events file", e);
+		}
+		return ByteBuffer.wrap(raw);
+	}
+
+	public void close() {
+		try {
+			this.channel.close();
+			this.file.close();
+		}
+		catch (IOException ioe) {
+			throw new SimError(ioe);
+		}
+		if (inflater != null) {
+			inflater.end();
+			inflater = null;
+		}
+	}
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import core.SimError;
+
+/**
+ * Writes external events to a compact binary file that can be read with
+ * {@link CompactEventsReader}. Can also be used as a command line tool
+ * for converting standard external events files (see
+ * {@link StandardEventsReader}) to the compact format:<BR>
+ * <CODE>java input.CompactEventsWriter [-c] inputFile outputFile</CODE><BR>
+ * where <CODE>-c</CODE> enables block compression.
+ * <P>
+ * File format (all values big-endian):<BR>
+ * <CODE>header: magic (int), version (short), flags (short)</CODE><BR>
+ * <CODE>block*: nrofEvents (int), rawLength (int), storedLength (int),
+ * data (storedLength bytes)</CODE><BR>
+ * <CODE>end: 0 (int)</CODE>
+ * </P><P>
+ * The (optionally deflated) data of a block starts with the strings
+ * (message, interface and cause identifiers) that are introduced in the
+ * block: count (int) and length (int) + UTF-8 bytes for every string.
+ * Strings get consecutive indexes in the order of appearance in the file.
+ * The strings are followed by fixed-width columns of <CODE>nrofEvents</CODE>
+ * values each: time (double), type (byte), host1 (int), host2 (int),
+ * message id index (int), and three event type specific int arguments.
+ * </P>
+ */
+public class CompactEventsWriter {
+	/** Identifier in the beginning of compact events files */
+	public static final int MAGIC = 0x4F4E4545; // "ONEE"
+	/** Version of the file format */
+	public static final short VERSION = 1;
+	/** Header flag for deflated blocks */
+	public static final short FLAG_COMPRESSED = 1;
+	/** Extension of compact binary external events files */
+	public static final String COMPACT_EXT = ".eeb";
+	/** Default number of events per block */
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+	/** Size of the file header (bytes) */
+	public static final int HEADER_SIZE = 8;
+	/** Size of a block header (bytes) */
+	public static final int BLOCK_HEADER_SIZE = 12;
+	/** Size of one event in the columns of a block (bytes) */
+	public static final int EVENT_SIZE = 8 + 1 + 6 * 4;
+	/** Index of a non-existing string */
+	public static final int NO_STRING = -1;
+
+	/** Type code of a dummy {@link ExternalEvent} */
+	public static final byte TYPE_DUMMY = 0;
+	/** Type code of a {@link MessageCreateEvent} */
+	public static final byte TYPE_CREATE = 1;
+	/** Type code of a {@link MessageRelayEvent} */
+	public static final byte TYPE_RELAY = 2;
+	/** Type code of a {@link MessageDeleteEvent} */
+	public static final byte TYPE_DELETE = 3;
+	/** Type code of a {@link ConnectionEvent} */
+	public static final byte TYPE_CONNECTION = 4;
+
+	private DataOutputStream out;
+	private boolean compress;
+	private Deflater deflater;
+	private int blockSize;
+
+	private HashMap<String, Integer> stringIndexes;
+	private List<String> newStrings;
+	private int nrofEvents;
+	private double[] times;
+	private byte[] types;
+	private int[] host1;
+	private int[] host2;
+	private int[] msgIds;
+	private int[] arg1;
+	private int[] arg2;
+	private int[] arg3;
+
+	/**
+	 * Creates a new writer with the default block size
+	 * @param file The file to write the events to
+	 * @param compress If true, the blocks are deflated
+	 * @throws IOException if the file can't be created
+	 */
+	public CompactEventsWriter(File file, boolean compress)
+			throws IOException {
+		this(file, compress, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates a new writer
+	 * @param file The file to write the events to
+	 * @param compress If true, the blocks are deflated
+	 * @param blockSize Maximum number of events per block
+	 * @throws IOException if the file can't be created
+	 */
+	public CompactEventsWriter(File file, boolean compress, int blockSize)
+			throws IOException {
+		this.out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), 1024 * 1024));
+		this.compress = compress;
+		this.blockSize = blockSize;
+		if (compress) {
+			this.deflater = new Deflater(Deflater.BEST_SPEED);
+		}
+
+		this.stringIndexes = new HashMap<String, Integer>();
+		this.newStrings = new ArrayList<String>();
+		this.times = new double[blockSize];
+		this.types = new byte[blockSize];
+		this.host1 = new int[blockSize];
+		this.host2 = new int[blockSize];
+		this.msgIds = new int[blockSize];
+		this.arg1 = new int[blockSize];
+		this.arg2 = new int[blockSize];
+		this.arg3 = new int[blockSize];
+
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeShort(compress ? FLAG_COMPRESSED : 0);
+	}
+
+	/**
+	 * Writes all events of a list
+	 * @param events The events to write
+	 * @throws IOException if writing fails
+	 */
+	public void writeAll(List<ExternalEvent> events) throws IOException {
+		for (ExternalEvent ee : events) {
+			write(ee);
+		}
+	}
+
+	/**
+	 * Writes an event
+	 * @param ee The event to write
+	 * @throws IOException if writing fails
+	 * @throws SimError if the event is of a type that can't be stored
+	 */
+	public void write(ExternalEvent ee) throws IOException {
+		int i = nrofEvents;
+		int h1 = 0, h2 = 0, msg = NO_STRING, a1 = 0, a2 = 0, a3 = 0;
+		byte type;
+
+		if (ee.getClass() == MessageCreateEvent.class) {
+			MessageCreateEvent mce = (MessageCreateEvent)ee;
+			type = TYPE_CREATE;
+			h1 = mce.fromAddr;
+			h2 = mce.toAddr;
+			msg = stringIndex(mce.id);
+			a1 = mce.size;
+			a2 = mce.responseSize;
+			a3 = mce.priority;
+		}
+		else if (ee.getClass() == MessageRelayEvent.class) {
+			MessageRelayEvent mre = (MessageRelayEvent)ee;
+			type = TYPE_RELAY;
+			h1 = mre.fromAddr;
+			h2 = mre.toAddr;
+			msg = stringIndex(mre.id);
+			a1 = mre.stage;
+		}
+		else if (ee.getClass() == MessageDeleteEvent.class) {
+			MessageDeleteEvent mde = (MessageDeleteEvent)ee;
+			type = TYPE_DELETE;
+			h1 = mde.fromAddr;
+			h2 = mde.toAddr;
+			msg = stringIndex(mde.id);
+			a1 = mde.drop ? 1 : 0;
+			a2 = stringIndex(mde.cause);
+		}
+		else if (ee.getClass() == ConnectionEvent.class) {
+			ConnectionEvent ce = (ConnectionEvent)ee;
+			type = TYPE_CONNECTION;
+			h1 = ce.fromAddr;
+			h2 = ce.toAddr;
+			a1 = ce.isUp ? 1 : 0;
+			a2 = stringIndex(ce.interfaceId);
+		}
+		else if (ee.getClass() == ExternalEvent.class) {
+			type = TYPE_DUMMY;
+		}
+		else {
+			throw new SimError("Can't store events of type " +
+					ee.getClass().getName() + " to a compact events file");
+		}
+
+		times[i] = ee.getTime();
+		types[i] = type;
+		host1[i] = h1;
+		host2[i] = h2;
+		msgIds[i] = msg;
+		arg1[i] = a1;
+		arg2[i] = a2;
+		arg3[i] = a3;
+		nrofEvents++;
+
+		if (nrofEvents == blockSize) {
+			flushBlock();
+		}
+	}
+
+	/**
+	 * Returns the index of a string, adding it to the strings of the current
+	 * block if it hasn't been seen before
+	 * @param s The string (or null)
+	 * @return Index of the string or {@link #NO_STRING} for null
+	 */
+	private int stringIndex(String s) {
+		if (s == null) {
+			return NO_STRING;
+		}
+		Integer index = stringIndexes.get(s);
+		if (index == null) {
+			index = stringIndexes.size();
+			stringIndexes.put(s, index);
+			newStrings.add(s);
+		}
+		return index;
+	}
+
+	/**
+	 * Writes the buffered events as a block
+	 */
+	private void flushBlock() throws IOException {
+		if (nrofEvents == 0) {
+			return;
+		}
+		int n = nrofEvents;
+		List<byte[]> strings = new ArrayList<byte[]>(newStrings.size());
+		int rawLength = 4 + n * EVENT_SIZE;
+		for (String s : newStrings) {
+			byte[] b = s.getBytes(StandardCharsets.UTF_8);
+			strings.add(b);
+			rawLength += 4 + b.length;
+		}
+
+		ByteBuffer buf = ByteBuffer.allocate(rawLength);
+		buf.putInt(strings.size());
+		for (byte[] b : strings) {
+			buf.putInt(b.length);
+			buf.put(b);
+		}
+		for (int i=0; i<n; i++) {
+			buf.putDouble(times[i]);
+		}
+		buf.put(types, 0, n);
+		putInts(buf, host1, n);
+		putInts(buf, host2, n);
+		putInts(buf, msgIds, n);
+		putInts(buf, arg1, n);
+		putInts(buf, arg2, n);
+		putInts(buf, arg3, n);
+
+		byte[] data = buf.array();
+		int storedLength = rawLength;
+		if (compress) {
+			byte[] compressed = new byte[rawLength + rawLength / 100 + 64];
+			deflater.reset();
+			deflater.setInput(data);
+			deflater.finish();
+			storedLength = 0;
+			while (!deflater.finished()) {
+				if (storedLength == compressed.length) {
+					compressed = Arrays.copyOf(compressed, compressed.length*2);
+				}
+				storedLength += deflater.deflate(compressed, storedLength,
+						compressed.length - storedLength);
+			}
+			data = compressed;
+		}
+
+		out.writeInt(n);
+		out.writeInt(rawLength);
+		out.writeInt(storedLength);
+		out.write(data, 0, storedLength);
+
+		nrofEvents = 0;
+		newStrings.clear();
+	}
+
+	private static void putInts(ByteBuffer buf, int[] values, int n) {
+		for (int i=0; i<n; i++) {
+			buf.putInt(values[i]);
+		}
+	}
+
+	/**
+	 * Writes the remaining events and closes the file
+	 * @throws IOException if writing fails
+	 */
+	public void close() throws IOException {
+		flushBlock();
+		out.writeInt(0); // end of blocks
+		out.close();
+		if (deflater != null) {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Stores the events to a compact binary file
+	 * @param fileName Path to the file where the events are stored
+	 * @param events List of events to store
+	 * @param compress If true, the blocks are deflated
+	 * @throws IOException if something in storing went wrong
+	 */
+	public static void storeToFile(String fileName, List<ExternalEvent> events,
+			boolean compress) throws IOException {
+		CompactEventsWriter w = new CompactEventsWriter(new File(fileName),
+				compress);
+		w.writeAll(events);
+		w.close();
+	}
+
+	/**
+	 * Converts a standard external events file to a compact binary file.
+	 * @param args <CODE>[-c] inputFile outputFile</CODE>
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean compress = false;
+		int first = 0;
+		if (args.length > 0 && args[0].equals("-c")) {
+			compress = true;
+			first = 1;
+		}
+		if (args.length - first != 2) {
+			System.err.println("Usage: java input.CompactEventsWriter [-c] " +
+					"inputFile outputFile");
+			System.exit(-1);
+		}
+
+		StandardEventsReader reader = new StandardEventsReader(
+				new File(args[first]));
+		CompactEventsWriter writer = new CompactEventsWriter(
+				new File(args[first + 1]), compress);
+		long total = 0;
+		List<ExternalEvent> events = reader.readEvents(DEFAULT_BLOCK_SIZE);
+		while (events.size() > 0) {
+			writer.writeAll(events);
+			total += events.size();
+			events = reader.readEvents(DEFAULT_BLOCK_SIZE);
+		}
+		reader.close();
+		writer.close();
+		System.out.println("Converted " + total + " events");
+	}
+}
@@ -48,6 +48,9 @@ public class EventQueueHandler  {
 	public static final String PRELOAD_SETTING = "nrofPreload";
 	/** path of external events file -setting id ({@value})*/
 	public static final String PATH_SETTING = "filePath";
+	/** load external events on a background thread -setting id 
+	 * ({@value}). Boolean. Default = false. */
+	public static final String PREFETCH_SETTING = "prefetch";
 	
 	private List<EventQueue> queues;
 	
@@ -65,13 +68,17 @@ public class EventQueueHandler  {
 
 			if (s.contains(PATH_SETTING)) { // external events file
 				int preload = 0;
+				boolean prefetch = false;
 				String path = "";
 				if (s.contains(PRELOAD_SETTING)) {
 					preload = s.getInt(PRELOAD_SETTING);
 				}
+				if (s.contains(PREFETCH_SETTING)) {
+					prefetch = s.getBoolean(PREFETCH_SETTING);
+				}
 				path = s.getSetting(PATH_SETTING);
 
-				queues.add(new ExternalEventsQueue(path, preload));
+				queues.add(new ExternalEventsQueue(path, preload, prefetch));
 			}
 			else if (s.contains(CLASS_SETTING)) { // event generator class
 				String className = CLASS_PACKAGE + "." + 
@@ -21,6 +21,9 @@ public class ExternalEventsQueue implements EventQueue {
 	public static final String PRELOAD_SETTING = "nrofPreload";
 	/** path of external events file -setting id ({@value})*/
 	public static final String PATH_SETTING = "filePath";
+	/** load events on a background thread -setting id ({@value}). 
+	 * Boolean. Default = false. */
+	public static final String PREFETCH_SETTING = "prefetch";
 	
 	/** default number of preloaded events */
 	public static final int DEFAULT_NROF_PRELOAD = 500;
@@ -31,24 +34,44 @@ public class ExternalEventsQueue implements EventQueue {
 	private int nrofPreload;
 	private List<ExternalEvent> queue;
 	private boolean allEventsRead = false;
+	private boolean prefetch;
 	
 	/**
 	 * Creates a new Queue from a file
 	 * @param filePath Path to the file where the events are read from. If
-	 * file ends with extension defined in {@link BinaryEventsReader#BINARY_EXT}
-	 * the file is assumed to be a binary file.
+	 * the file starts with a compact events file header, it is read with
+	 * {@link CompactEventsReader} and if it starts with a binary event log
+	 * header, with {@link BinaryEventLogReader}. If file ends with
+	 * extension defined in {@link BinaryEventsReader#BINARY_EXT} the file
+	 * is assumed to be a binary file.
 	 * @param nrofPreload How many events to preload
 	 * @see BinaryEventsReader#BINARY_EXT
 	 * @see BinaryEventsReader#storeToBinaryFile(String, List)
+	 * @see CompactEventsWriter
 	 */
 	public ExternalEventsQueue(String filePath, int nrofPreload) {
+		this(filePath, nrofPreload, false);
+	}
+	
+	/**
+	 * Creates a new Queue from a file
+	 * @param filePath Path to the file where the events are read from
+	 * @param nrofPreload How many events to preload
+	 * @param prefetch If true, the next events are read and parsed on a
+	 * background thread while the current ones are being processed
+	 * @see #ExternalEventsQueue(String, int)
+	 */
+	public ExternalEventsQueue(String filePath, int nrofPreload, 
+			boolean prefetch) {
 		setNrofPreload(nrofPreload);
+		this.prefetch = prefetch;
 		init(filePath);
 	}
 	
 	/**
-	 * Create a new Queue based on the given settings: {@link #PRELOAD_SETTING}
-	 * and {@link #PATH_SETTING}. The path setting supports value filling.
+	 * Create a new Queue based on the given settings: {@link #PRELOAD_SETTING},
+	 * {@link #PREFETCH_SETTING} and {@link #PATH_SETTING}. The path setting 
+	 * supports value filling.
 	 * @param s The settings
 	 */
 	public ExternalEventsQueue(Settings s) {
@@ -58,6 +81,8 @@ public class ExternalEventsQueue implements EventQueue {
 		else {
 			setNrofPreload(DEFAULT_NROF_PRELOAD);
 		}
+		this.prefetch = s.contains(PREFETCH_SETTING) && 
+			s.getBoolean(PREFETCH_SETTING);
         String eeFilePath = s.valueFillString(s.getSetting(PATH_SETTING));
         init(eeFilePath);
     }
@@ -77,13 +102,24 @@ public class ExternalEventsQueue implements EventQueue {
 	private void init(String eeFilePath) {
 		this.eventsFile = new File(eeFilePath);
 		
-		if (BinaryEventsReader.isBinaryEeFile(eventsFile)) {
+		if (CompactEventsReader.isCompactEeFile(eventsFile)) {
+			this.reader = new CompactEventsReader(eventsFile);
+		}
+		else if (BinaryEventLogReader.isEventLogFile(eventsFile)) {
+			this.reader = new BinaryEventLogReader(eventsFile);
+		}
+		else if (BinaryEventsReader.isBinaryEeFile(eventsFile)) {
 			this.reader = new BinaryEventsReader(eventsFile);
 		}
 		else {
 			this.reader = new StandardEventsReader(eventsFile);
 		}
 		
+		if (prefetch) {
+			this.reader = new PrefetchingEventsReader(reader, nrofPreload,
+					PrefetchingEventsReader.DEFAULT_NROF_CHUNKS);
+		}
+		
 		this.queue = readEvents(nrofPreload);
 		this.nextEventIndex = 0;
 	}
@@ -139,6 +175,19 @@ public class ExternalEventsQueue implements EventQueue {
 	}
 		
 	
+	/**
+	 * Closes the events file (and stops the background loading if 
+	 * prefetching is used). No more events are returned after this.
+	 */
+	public void close() {
+		if (!allEventsRead) {
+			reader.close();
+			allEventsRead = true;
+		}
+		this.queue = new ArrayList<ExternalEvent>(0);
+		this.nextEventIndex = 0;
+	}
+	
 	/**
 	 * Read some events from the external events reader
 	 * @param nrof Maximum number of events to read
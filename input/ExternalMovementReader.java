@@ -34,12 +34,20 @@ import core.Tuple;
  * All lines must be sorted by time. Sampling interval (time difference between
  * two time instances) must be same for the whole file.
  * </P>
+ * <P>
+ * Lines can be read and parsed ahead on a background thread, see
+ * {@link #setPrefetch(int)}.
+ * </P>
  */
 public class ExternalMovementReader {
 	/* Prefix for comment lines (lines starting with this are ignored) */
 	public static final String COMMENT_PREFIX = "#";
 	private Scanner scanner;
 	private double lastTimeStamp = -1;
+	/** time stamp of the latest parsed time instance */
+	private double parsedTimeStamp = -1;
+	/** background loader of time instances (null if not prefetching) */
+	private BackgroundLoader<Tuple<Double, List<Tuple<String, Coord>>>> loader;
 	private String lastLine;
 	private double minTime;
 	private double maxTime;
@@ -95,12 +103,68 @@ public class ExternalMovementReader {
 		this.normalize = normalize;
 	}
 	
+	/**
+	 * Starts reading and parsing the following time instances on a 
+	 * background thread. After this, {@link #readNextMovements()} returns
+	 * the prefetched tuples in the same order as they would be read without
+	 * prefetching.
+	 * @param nrofInstances Maximum number of time instances that are read
+	 * ahead
+	 */
+	public void setPrefetch(int nrofInstances) {
+		if (loader != null) {
+			return; // already prefetching
+		}
+		
+		loader = new BackgroundLoader<Tuple<Double, 
+				List<Tuple<String, Coord>>>>(nrofInstances) {
+			@Override
+			protected Tuple<Double, List<Tuple<String, Coord>>> load() {
+				List<Tuple<String, Coord>> moves = parseNextMovements();
+				if (moves.size() == 0) {
+					return null;
+				}
+				return new Tuple<Double, List<Tuple<String, Coord>>>(
+						parsedTimeStamp, moves);
+			}
+			
+			@Override
+			protected void closeInput() {
+				scanner.close();
+			}
+		};
+		loader.start("ExternalMovementLoader");
+	}
+	
 	/**
 	 * Reads all new id-coordinate tuples that belong to the same time instance
 	 * @return A list of tuples or empty list if there were no more moves
 	 * @throws SettingError if an invalid line was read
 	 */
 	public List<Tuple<String, Coord>> readNextMovements() {
+		if (loader == null) {
+			List<Tuple<String, Coord>> moves = parseNextMovements();
+			if (moves.size() > 0) {
+				lastTimeStamp = parsedTimeStamp;
+			}
+			return moves;
+		}
+		
+		Tuple<Double, List<Tuple<String, Coord>>> instance = loader.next();
+		if (instance == null) {
+			return new ArrayList<Tuple<String, Coord>>();
+		}
+		lastTimeStamp = instance.getKey();
+		return instance.getValue();
+	}
+	
+	/**
+	 * Parses all new id-coordinate tuples that belong to the same time 
+	 * instance and sets {@link #parsedTimeStamp}.
+	 * @return A list of tuples or empty list if there were no more moves
+	 * @throws SettingError if an invalid line was read
+	 */
+	private List<Tuple<String, Coord>> parseNextMovements() {
 		ArrayList<Tuple<String, Coord>> moves = 
 			new ArrayList<Tuple<String, Coord>>();
 		
@@ -120,9 +184,9 @@ public class ExternalMovementReader {
 			y -= minY;
 		}
 		
-		lastTimeStamp = time;
+		parsedTimeStamp = time;
 		
-		while (scanner.hasNextLine() && lastTimeStamp == time) {
+		while (scanner.hasNextLine() && parsedTimeStamp == time) {
 			lastLine = scanner.nextLine();
 			
 			if (lastLine.trim().length() == 0 || 
@@ -171,6 +235,19 @@ public class ExternalMovementReader {
 		return lastTimeStamp;
 	}
 
+	/**
+	 * Closes the input file (and stops the background thread if 
+	 * prefetching).
+	 */
+	public void close() {
+		if (loader != null) {
+			loader.close();
+		}
+		else {
+			scanner.close();
+		}
+	}
+	
 	/**
 	 * Returns offset maxTime
 	 * @return the maxTime
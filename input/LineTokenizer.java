@@ -0,0 +1,387 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Fast whitespace tokenizer for line based text input files. Reads the
+ * input as bytes through an internal buffer and splits every line into
+ * tokens without creating intermediate objects. Tokens are accessed by
+ * their index on the current line; only the tokens that are explicitly
+ * requested as Strings are ever decoded.
+ * <P>
+ * Tokens are separated by spaces, tabs, vertical tabs, form feeds and
+ * carriage returns. Lines are terminated by <CODE>\n</CODE>,
+ * <CODE>\r\n</CODE> or a lone <CODE>\r</CODE>.
+ * </P>
+ */
+public class LineTokenizer {
+	/** Size of the read buffer (bytes) */
+	public static final int BUFFER_SIZE = 64 * 1024;
+	/** Maximum number of significant digits for the exact double fast path */
+	private static final int MAX_FAST_DIGITS = 15;
+	/** Exactly representable powers of ten */
+	private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+		1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17,
+		1e18, 1e19, 1e20, 1e21, 1e22};
+
+	private InputStream in;
+	private byte[] buffer;
+	private int bufPos;
+	private int bufLen;
+	private boolean eof;
+
+	private byte[] line;
+	private int lineLen;
+	private int[] tokStart;
+	private int[] tokEnd;
+	private int nrofTokens;
+	private long lineNumber;
+
+	/**
+	 * Creates a new tokenizer
+	 * @param in The stream to read the lines from
+	 */
+	public LineTokenizer(InputStream in) {
+		this.in = in;
+		this.buffer = new byte[BUFFER_SIZE];
+		this.line = new byte[256];
+		this.tokStart = new int[16];
+		this.tokEnd = new int[16];
+	}
+
+	/**
+	 * Reads the next line from the input and splits it into tokens
+	 * @return True if a line was read, false if the end of input was reached
+	 * @throws IOException if reading the input fails
+	 */
+	public boolean nextLine() throws IOException {
+		lineLen = 0;
+		nrofTokens = 0;
+
+		if (bufPos >= bufLen && !fill()) {
+			return false;
+		}
+
+		while (true) {
+			if (bufPos >= bufLen && !fill()) {
+				break; // last line without a line terminator
+			}
+			byte b = buffer[bufPos++];
+			if (b == '\n') {
+				break;
+			}
+			else if (b == '\r') {
+				if (bufPos >= bufLen) {
+					fill();
+				}
+				if (bufPos < bufLen && buffer[bufPos] == '\n') {
+					bufPos++;
+				}
+				break;
+			}
+			if (lineLen == line.length) {
+				line = Arrays.copyOf(line, line.length * 2);
+			}
+			line[lineLen++] = b;
+		}
+
+		lineNumber++;
+		tokenize();
+		return true;
+	}
+
+	/**
+	 * Refills the read buffer
+	 * @return True if at least one new byte is available
+	 */
+	private boolean fill() throws IOException {
+		if (eof) {
+			return false;
+		}
+		int n = in.read(buffer, 0, buffer.length);
+		while (n == 0) {
+			n = in.read(buffer, 0, buffer.length);
+		}
+		if (n < 0) {
+			eof = true;
+			bufLen = bufPos = 0;
+			return false;
+		}
+		bufPos = 0;
+		bufLen = n;
+		return true;
+	}
+
+	/**
+	 * Splits the current line to tokens
+	 */
+	private void tokenize() {
+		int i = 0;
+		while (i < lineLen) {
+			while (i < lineLen && isWhitespace(line[i])) {
+				i++;
+			}
+			if (i >= lineLen) {
+				break;
+			}
+			if (nrofTokens == tokStart.length) {
+				tokStart = Arrays.copyOf(tokStart, nrofTokens * 2);
+				tokEnd = Arrays.copyOf(tokEnd, nrofTokens * 2);
+			}
+			tokStart[nrofTokens] = i;
+			while (i < lineLen && !isWhitespace(line[i])) {
+				i++;
+			}
+			tokEnd[nrofTokens++] = i;
+		}
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+	}
+
+	/**
+	 * Returns true if the current line is empty, contains only whitespace
+	 * or starts with the given comment prefix character
+	 * @param commentPrefix The comment prefix character
+	 * @return True if the line should be skipped
+	 */
+	public boolean isEmptyOrComment(char commentPrefix) {
+		return nrofTokens == 0 || (lineLen > 0 && line[0] == commentPrefix);
+	}
+
+	/**
+	 * Returns the number of tokens on the current line
+	 * @return the number of tokens on the current line
+	 */
+	public int getNrofTokens() {
+		return this.nrofTokens;
+	}
+
+	/**
+	 * Returns the number of lines read so far
+	 * @return the number of lines read so far
+	 */
+	public long getLineNumber() {
+		return this.lineNumber;
+	}
+
+	/**
+	 * Returns the length of a token (in bytes)
+	 * @param index Index of the token on the current line
+	 * @return The length of the token
+	 */
+	public int getTokenLength(int index) {
+		checkIndex(index);
+		return tokEnd[index] - tokStart[index];
+	}
+
+	/**
+	 * Returns a single byte of a token
+	 * @param index Index of the token on the current line
+	 * @param pos Position of the byte inside the token
+	 * @return The byte at the given position
+	 */
+	public byte getByte(int index, int pos) {
+		return line[tokStart[index] + pos];
+	}
+
+	/**
+	 * Returns true if the token equals the given (ASCII) string
+	 * @param index Index of the token on the current line
+	 * @param s The string to compare to
+	 * @return True if the token and the string are equal
+	 */
+	public boolean tokenEquals(int index, String s) {
+		checkIndex(index);
+		int start = tokStart[index];
+		int len = tokEnd[index] - start;
+		if (len != s.length()) {
+			return false;
+		}
+		for (int i=0; i<len; i++) {
+			if (line[start + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the token equals the given (ASCII) string when
+	 * case is ignored
+	 * @param index Index of the token on the current line
+	 * @param s The string to compare to
+	 * @return True if the token and the string are equal ignoring case
+	 */
+	public boolean tokenEqualsIgnoreCase(int index, String s) {
+		checkIndex(index);
+		int start = tokStart[index];
+		int len = tokEnd[index] - start;
+		if (len != s.length()) {
+			return false;
+		}
+		for (int i=0; i<len; i++) {
+			if (Character.toLowerCase((char)line[start + i]) !=
+				Character.toLowerCase(s.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns a token as a String
+	 * @param index Index of the token on the current line
+	 * @return The token decoded as an UTF-8 string
+	 */
+	public String getString(int index) {
+		checkIndex(index);
+		return new String(line, tokStart[index], tokEnd[index] -
+				tokStart[index], StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns true if the token is a valid (optionally signed) decimal
+	 * integer that fits into an int
+	 * @param index Index of the token on the current line
+	 * @return True if the token can be parsed with {@link #getInt(int)}
+	 */
+	public boolean isInt(int index) {
+		if (index < 0 || index >= nrofTokens) {
+			return false;
+		}
+		int start = tokStart[index];
+		int end = tokEnd[index];
+		if (line[start] == '-' || line[start] == '+') {
+			start++;
+		}
+		if (start == end) {
+			return false;
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			int d = line[i] - '0';
+			if (d < 0 || d > 9) {
+				return false;
+			}
+			value = value * 10 + d;
+			if (value > (long)Integer.MAX_VALUE + 1) {
+				return false;
+			}
+		}
+		return line[tokStart[index]] == '-' || value <= Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Parses a token as a decimal integer
+	 * @param index Index of the token on the current line
+	 * @return The integer value of the token
+	 * @throws NumberFormatException if the token is not a valid int
+	 */
+	public int getInt(int index) {
+		if (!isInt(index)) {
+			throw new NumberFormatException("Invalid integer '" +
+					getString(index) + "'");
+		}
+		int start = tokStart[index];
+		boolean negative = line[start] == '-';
+		if (negative || line[start] == '+') {
+			start++;
+		}
+		long value = 0;
+		for (int i = start; i < tokEnd[index]; i++) {
+			value = value * 10 + (line[i] - '0');
+		}
+		return (int)(negative ? -value : value);
+	}
+
+	/**
+	 * Parses a token as a double value. Plain decimal values with at most
+	 * {@value #MAX_FAST_DIGITS} significant digits are parsed directly from
+	 * the bytes (the result is exact, i.e., identical to
+	 * {@link Double#parseDouble(String)}); all other values are delegated
+	 * to {@link Double#parseDouble(String)}.
+	 * @param index Index of the token on the current line
+	 * @return The double value of the token
+	 * @throws NumberFormatException if the token is not a valid double
+	 */
+	public double getDouble(int index) {
+		checkIndex(index);
+		int start = tokStart[index];
+		int end = tokEnd[index];
+		boolean negative = false;
+		int i = start;
+
+		if (line[i] == '-' || line[i] == '+') {
+			negative = line[i] == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = 0;
+		boolean dotSeen = false;
+		boolean digitSeen = false;
+		boolean fastPath = true;
+
+		for (; i < end && fastPath; i++) {
+			byte b = line[i];
+			if (b >= '0' && b <= '9') {
+				digitSeen = true;
+				if (mantissa != 0 || b != '0') {
+					digits++;
+				}
+				mantissa = mantissa * 10 + (b - '0');
+				if (dotSeen) {
+					decimals++;
+				}
+			}
+			else if (b == '.' && !dotSeen) {
+				dotSeen = true;
+			}
+			else {
+				fastPath = false;
+			}
+		}
+
+		if (fastPath && digitSeen && digits <= MAX_FAST_DIGITS &&
+				decimals < POW10.length) {
+			double value = decimals == 0 ? (double)mantissa :
+				(double)mantissa / POW10[decimals];
+			return negative ? -value : value;
+		}
+
+		return Double.parseDouble(getString(index));
+	}
+
+	/**
+	 * Returns the current line as a String (e.g., for error messages)
+	 * @return The current line
+	 */
+	public String getLine() {
+		return new String(line, 0, lineLen, StandardCharsets.UTF_8);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= nrofTokens) {
+			throw new IllegalStateException("No token " + index + " in line '"
+					+ getLine() + "'");
+		}
+	}
+
+	/**
+	 * Closes the underlying input stream
+	 * @throws IOException if closing the stream fails
+	 */
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -16,6 +16,9 @@ import core.iceDim.SubscriptionListManager;
 public class MessageCreateEvent extends MessageEvent {
 	
 	private static final long serialVersionUID = 1L;
+	/** Destination address of messages without a destination (e.g.,
+	 * broadcast messages) */
+	public static final int NO_DESTINATION = -1;
 	
 	protected int size;
 	protected int responseSize;
@@ -24,7 +27,7 @@ public class MessageCreateEvent extends MessageEvent {
 	/**
 	 * Creates a message creation event with a optional response request
 	 * @param from The creator of the message
-	 * @param to Where the message is destined to
+	 * @param to Where the message is destined to or {@link #NO_DESTINATION}
 	 * @param id ID of the message
 	 * @param size Size of the message
 	 * @param responseSize Size of the requested response message or 0 if
@@ -46,7 +49,8 @@ public class MessageCreateEvent extends MessageEvent {
 	 */
 	@Override
 	public void processEvent(World world) {
-		DTNHost to = world.getNodeByAddress(toAddr);
+		DTNHost to = toAddr == NO_DESTINATION ? null :
+			world.getNodeByAddress(toAddr);
 		DTNHost from = world.getNodeByAddress(fromAddr);
 		
 		Integer subID = SubscriptionListManager.DEFAULT_SUB_ID;
@@ -65,7 +69,7 @@ public class MessageCreateEvent extends MessageEvent {
 		// No priority - Use the PrioritizedMessageEventGenerator to generate messages with priorities
 		Message m = new Message(from, to, id, size, priority);
 		m.setResponseSize(responseSize);
-		m.addProperty(PublisherSubscriber.SUBSCRIPTION_MESSAGE_PROPERTY_KEY, subID);
+		m.addIntProperty(PublisherSubscriber.SUBSCRIPTION_ID_PROPERTY, subID);
 		from.createNewMessage(m);
 	}
 	
@@ -18,8 +18,9 @@ import core.World;
 
 public class MessageDeleteEvent extends MessageEvent {
 	/** is the delete caused by a drop (not "normal" removing) */
-	private boolean drop;
-	private String cause;
+	protected boolean drop;
+	/** cause of the delete (for reports) */
+	protected String cause;
 	
 	/**
 	 * Creates a message delete event
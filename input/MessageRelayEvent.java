@@ -13,7 +13,8 @@ import core.World;
  * hosts (start and possible abort or delivery).
  */
 public class MessageRelayEvent extends MessageEvent {
-	private int stage;
+	/** stage of the relay (SENDING, TRANSFERRED, ABORTED or INTERFERED) */
+	protected int stage;
 	
 	/** Message relay stage constant for start of sending */
 	public static final int SENDING = 1;
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * External events reader that reads the events of another reader in
+ * chunks on a background thread. The events are returned in exactly the
+ * same order as the wrapped reader would return them.
+ * @see BackgroundLoader
+ */
+public class PrefetchingEventsReader implements ExternalEventsReader {
+	/** Default number of chunks that are loaded ahead */
+	public static final int DEFAULT_NROF_CHUNKS = 1;
+
+	private BackgroundLoader<List<ExternalEvent>> loader;
+	private List<ExternalEvent> current;
+	private int currentIndex;
+
+	/**
+	 * Creates a new prefetching reader and starts loading events
+	 * @param reader The reader to read the events from
+	 * @param chunkSize Number of events to read per chunk
+	 * @param nrofChunks Maximum number of chunks loaded ahead
+	 */
+	public PrefetchingEventsReader(final ExternalEventsReader reader,
+			final int chunkSize, int nrofChunks) {
+		this.loader = new BackgroundLoader<List<ExternalEvent>>(nrofChunks) {
+			@Override
+			protected List<ExternalEvent> load() {
+				List<ExternalEvent> events = reader.readEvents(chunkSize);
+				return events.size() > 0 ? events : null;
+			}
+
+			@Override
+			protected void closeInput() {
+				reader.close();
+			}
+		};
+		this.loader.start("ExternalEventsLoader");
+	}
+
+	public List<ExternalEvent> readEvents(int nrof) {
+		List<ExternalEvent> events = new ArrayList<ExternalEvent>(nrof);
+		while (events.size() < nrof) {
+			if (current == null || currentIndex >= current.size()) {
+				current = loader.next();
+				currentIndex = 0;
+				if (current == null) {
+					break;
+				}
+				if (events.size() == 0 && current.size() == nrof) {
+					// the usual case: return the whole prefetched chunk
+					List<ExternalEvent> chunk = current;
+					current = null;
+					return chunk;
+				}
+			}
+			events.add(current.get(currentIndex++));
+		}
+		return events;
+	}
+
+	public void close() {
+		loader.close();
+	}
+}
@@ -4,25 +4,42 @@
  */
 package input;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Event queue where simulation objects can request an update to happen
  * at the specified simulation time. Multiple updates at the same time 
  * are merged to a single update.
+ * <P>
+ * The update times are kept in a binary min-heap of primitive doubles, so
+ * adding an update and taking the next one are both O(log n) operations
+ * and adding an update doesn't create any objects. The pending times are
+ * also kept in a primitive hash set, so an update for a time that is
+ * already pending is ignored when it's added.
+ * </P>
  */
 public class ScheduledUpdatesQueue implements EventQueue {
-	/** Time of the event (simulated seconds) */
-	private ExternalEvent nextEvent;
-	private List<ExternalEvent> updates;
+	/** Initial capacity of the heap */
+	private static final int INITIAL_CAPACITY = 64;
+	/** Update times in a binary min-heap */
+	private double[] heap;
+	/** Number of update times in the heap */
+	private int size;
+	/** The pending update times as bits of the doubles in an open
+	 * addressing hash table */
+	private long[] pending;
+	/** Bits of the empty slots of the hash table (bits of -0.0, which is
+	 * stored as 0.0) */
+	private static final long EMPTY = Double.doubleToLongBits(-0.0);
 	
 	/**
 	 * Constructor. Creates an empty update queue.
 	 */
 	public ScheduledUpdatesQueue(){
-		this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
-		this.updates = new ArrayList<ExternalEvent>();
+		this.heap = new double[INITIAL_CAPACITY];
+		this.size = 0;
+		this.pending = new long[INITIAL_CAPACITY * 2];
+		Arrays.fill(this.pending, EMPTY);
 	}
 	
 	/**
@@ -31,16 +48,15 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @return the next scheduled event
 	 */
 	public ExternalEvent nextEvent() {
-		ExternalEvent event = this.nextEvent;
-		
-		if (this.updates.size() == 0) {
-			this.nextEvent = new ExternalEvent(Double.MAX_VALUE);
-		}
-		else {
-			this.nextEvent = this.updates.remove(0);
+		if (size == 0) {
+			return new ExternalEvent(Double.MAX_VALUE);
 		}
 		
-		return event;
+		double time = heap[0];
+		removeTop();
+		removePending(time);
+		
+		return new ExternalEvent(time);
 	}
 	
 	/**
@@ -49,7 +65,7 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @return the next scheduled event's time
 	 */
 	public double nextEventsTime() {
-		return this.nextEvent.getTime();
+		return size == 0 ? Double.MAX_VALUE : heap[0];
 	}
 
 	/**
@@ -57,49 +73,140 @@ public class ScheduledUpdatesQueue implements EventQueue {
 	 * @param simTime The time when the update should happen
 	 */
 	public void addUpdate(double simTime) {
-		ExternalEvent ee = new ExternalEvent(simTime);
-
-		if (ee.compareTo(nextEvent) == 0) { // this event is already next
+		simTime += 0.0; // -0.0 to 0.0
+		if (!addPending(simTime)) { // an update at this time is pending
 			return;
 		}
-		else if (this.nextEvent.getTime() > simTime) { // new nextEvent
-			putToQueue(this.nextEvent); // put the old nextEvent back to q
-			this.nextEvent = ee;
+		
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
 		}
-		else { // given event happens later..
-			putToQueue(ee);
+		
+		/* sift up */
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			double p = heap[parent];
+			if (p <= simTime) {
+				break;
+			}
+			heap[i] = p;
+			i = parent;
 		}
+		heap[i] = simTime;
 	}
 	
 	/**
-	 * Puts a event to the queue in the right place
-	 * @param ee The event to put to the queue
+	 * Removes the smallest time from the heap
 	 */
-	private void putToQueue(ExternalEvent ee) {
-		double eeTime = ee.getTime();
-		
-		for (int i=0, n=this.updates.size(); i<n; i++) {
-			double time = updates.get(i).getTime();
-			if (time == eeTime) {
-				return; // update with the given time exists -> no need for new
+	private void removeTop() {
+		size--;
+		if (size > 0) {
+			siftDownFrom(0, heap[size]);
+		}
+	}
+	
+	/**
+	 * Places a value to the heap starting from the given (free) index and
+	 * moving it down until the heap property holds
+	 * @param index The index where the value is placed first
+	 * @param value The value
+	 */
+	private void siftDownFrom(int index, double value) {
+		int half = size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < size && heap[right] < heap[child]) {
+				child = right;
+			}
+			if (value <= heap[child]) {
+				break;
+			}
+			heap[index] = heap[child];
+			index = child;
+		}
+		heap[index] = value;
+	}
+	
+	/**
+	 * Returns the home slot of a time in the pending times table
+	 */
+	private int slot(long bits) {
+		long h = bits * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32)) & (pending.length - 1);
+	}
+
+	/**
+	 * Adds a time to the pending times
+	 * @return True if the time was added, false if it was pending already
+	 */
+	private boolean addPending(double time) {
+		if (2 * (size + 1) > pending.length) {
+			rehashPending(pending.length * 2);
+		}
+		long bits = Double.doubleToLongBits(time);
+		int mask = pending.length - 1;
+		int i = slot(bits);
+		for (; pending[i] != EMPTY; i = (i + 1) & mask) {
+			if (pending[i] == bits) {
+				return false;
 			}
-			else if (eeTime < time) {
-				this.updates.add(i, ee);
+		}
+		pending[i] = bits;
+		return true;
+	}
+
+	/**
+	 * Removes a time from the pending times. The following entries of the
+	 * probe sequence are moved back so that no tombstones are needed.
+	 */
+	private void removePending(double time) {
+		long bits = Double.doubleToLongBits(time);
+		int mask = pending.length - 1;
+		int i = slot(bits);
+		while (pending[i] != bits) {
+			if (pending[i] == EMPTY) {
 				return;
 			}
+			i = (i + 1) & mask;
 		}
-		
-		/* all existing updates are earlier -> add to the end of the list */
-		this.updates.add(ee);  
+		for (int j = (i + 1) & mask; pending[j] != EMPTY; j = (j + 1) & mask) {
+			int home = slot(pending[j]);
+			/* move the entry if its home slot is not between the gap and j */
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				pending[i] = pending[j];
+				i = j;
+			}
+		}
+		pending[i] = EMPTY;
+	}
+
+	private void rehashPending(int capacity) {
+		pending = new long[capacity];
+		Arrays.fill(pending, EMPTY);
+		for (int i = 0; i < size; i++) {
+			addPending(heap[i]);
+		}
+	}
+	
+	/**
+	 * Returns the number of scheduled update times in the queue
+	 * @return The number of update times
+	 */
+	public int size() {
+		return this.size;
 	}
 	
 	public String toString() {
-		String times = "updates @ " + this.nextEvent.getTime();
+		double[] times = Arrays.copyOf(heap, size);
+		Arrays.sort(times);
+		String s = "updates @ " + nextEventsTime();
 		
-		for (ExternalEvent ee : this.updates) {
-			times += ", " + ee.getTime();
+		for (int i=1; i<times.length; i++) {
+			s += ", " + times[i];
 		}
 		
-		return times;
+		return s;
 	}
 }
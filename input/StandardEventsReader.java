@@ -5,11 +5,11 @@
 package input;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
-import java.util.regex.Pattern;
 
 import core.Message;
 import core.SimError;
@@ -39,6 +39,9 @@ import core.SimError;
  * message ID for referring to all messages the node has in message buffer 
  * (i.e., to delete all messages).
  * </P>
+ * <P> Lines are parsed with a {@link LineTokenizer} directly from the bytes
+ * of the file, so no regular expressions or per line objects are used.
+ * </P>
  */
 public class StandardEventsReader implements ExternalEventsReader {
 	/** Identifier of node registration event ({@value}) */
@@ -72,11 +75,14 @@ public class StandardEventsReader implements ExternalEventsReader {
 	/** Message identifier to use to refer to all messages ({@value}) */ 
 	public static final String ALL_MESSAGES_ID = "*";
 	
-	private Scanner scanner;
+	/** Prefix of comment lines */
+	private static final char COMMENT_PREFIX = '#';
+
+	private LineTokenizer tokenizer;
 	
 	public StandardEventsReader(File eventsFile){
 		try {
-			this.scanner = new Scanner(eventsFile);
+			this.tokenizer = new LineTokenizer(new FileInputStream(eventsFile));
 		} catch (FileNotFoundException e) {
 			throw new SimError(e.getMessage(),e);
 		}
@@ -86,65 +92,58 @@ public class StandardEventsReader implements ExternalEventsReader {
 	public List<ExternalEvent> readEvents(int nrof) {
 		ArrayList<ExternalEvent> events = new ArrayList<ExternalEvent>(nrof);
 		int eventsRead = 0;
-		// skip empty and comment lines
-		Pattern skipPattern = Pattern.compile("(#.*)|(^\\s*$)");
+		LineTokenizer t = this.tokenizer;
 
-		while (eventsRead < nrof && scanner.hasNextLine()) {
-			String line = scanner.nextLine();
-			Scanner lineScan = new Scanner(line);
-			if (skipPattern.matcher(line).matches()) {
+		while (eventsRead < nrof && nextLine()) {
+			if (t.isEmptyOrComment(COMMENT_PREFIX)) {
 				// skip empty and comment lines
 				continue;
 			}
 			
 			double time;
-			String action;
 			String msgId;
 			int hostAddr;
 			int host2Addr;
 					
 			try {
-				time = lineScan.nextDouble();
-				action = lineScan.next();
+				time = t.getDouble(0);
 				
-				if (action.equals(REGISTER)) {
-					msgId = lineScan.next();
-					hostAddr = getHostAddress(lineScan.next());
+				if (t.tokenEquals(1, REGISTER)) {
+					t.getString(2); // message id is not used
+					hostAddr = getHostAddress(3);
 					// No event necessary ??
 				}
-				else if (action.equals(DROP)) {
-					msgId = lineScan.next();
-					hostAddr = getHostAddress(lineScan.next());
+				else if (t.tokenEquals(1, DROP)) {
+					msgId = t.getString(2);
+					hostAddr = getHostAddress(3);
 					events.add(new MessageDeleteEvent(hostAddr, msgId,
 							time, true, "general drop event"));
 				}
-				else if (action.equals(REMOVE)) {
-					msgId = lineScan.next();
-					hostAddr = getHostAddress(lineScan.next());
+				else if (t.tokenEquals(1, REMOVE)) {
+					msgId = t.getString(2);
+					hostAddr = getHostAddress(3);
 					events.add(new MessageDeleteEvent(hostAddr, msgId,
 							time, false, "general remove event"));
 				}
-				else if (action.equals(CONNECTION)) {
-					String connEventType;
+				else if (t.tokenEquals(1, CONNECTION)) {
 					boolean isUp;
-					hostAddr = getHostAddress(lineScan.next());
-					host2Addr = getHostAddress(lineScan.next());
-					connEventType = lineScan.next();
+					hostAddr = getHostAddress(2);
+					host2Addr = getHostAddress(3);
 					
 					String interfaceId = null;
-					if (lineScan.hasNext()) {
-						interfaceId = lineScan.next();
+					if (t.getNrofTokens() > 5) {
+						interfaceId = t.getString(5);
 					}	
 					
-					if (connEventType.equalsIgnoreCase(CONNECTION_UP)) {
+					if (t.tokenEqualsIgnoreCase(4, CONNECTION_UP)) {
 						isUp = true;
 					}
-					else if (connEventType.equalsIgnoreCase(CONNECTION_DOWN)) {
+					else if (t.tokenEqualsIgnoreCase(4, CONNECTION_DOWN)) {
 						isUp = false;
 					}
 					else {
 						throw new SimError("Unknown up/down value '" + 
-								connEventType + "'");
+								t.getString(4) + "'");
 					}
 					
 					ConnectionEvent ce = new ConnectionEvent(hostAddr, 
@@ -153,15 +152,15 @@ public class StandardEventsReader implements ExternalEventsReader {
 					events.add(ce);
 				}
 				else {
-					msgId = lineScan.next();
-					hostAddr = getHostAddress(lineScan.next());				
-					host2Addr = getHostAddress(lineScan.next());
+					msgId = t.getString(2);
+					hostAddr = getHostAddress(3);				
+					host2Addr = getHostAddress(4);
 				
-					if (action.equals(CREATE)){
-						int size = lineScan.nextInt();
+					if (t.tokenEquals(1, CREATE)){
+						int size = t.getInt(5);
 						int respSize = 0;
-						if (lineScan.hasNextInt()) {
-							respSize = lineScan.nextInt();
+						if (t.isInt(6)) {
+							respSize = t.getInt(6);
 						}
 						
 						// TODO: handle message priority here
@@ -170,37 +169,30 @@ public class StandardEventsReader implements ExternalEventsReader {
 					}
 					else {
 						int stage = -1;
-						if (action.equals(SEND)) {
+						if (t.tokenEquals(1, SEND)) {
 							stage = MessageRelayEvent.SENDING;
 						}
-						else if (action.equals(DELIVERED)) {
+						else if (t.tokenEquals(1, DELIVERED)) {
 							stage = MessageRelayEvent.TRANSFERRED;
 						}
-						else if (action.equals(ABORT)) {
+						else if (t.tokenEquals(1, ABORT)) {
 							stage = MessageRelayEvent.ABORTED;
 						}
-						else if (action.equals(INTERFERED)) {
+						else if (t.tokenEquals(1, INTERFERED)) {
 							stage = MessageRelayEvent.INTERFERED;
 						}
 						else {
-							throw new SimError("Unknown action '" + action + 
-								"' in external events");
+							throw new SimError("Unknown action '" + 
+								t.getString(1) + "' in external events");
 						}
 						events.add(new MessageRelayEvent(hostAddr, host2Addr,
 								msgId, time, stage));
 					}						
 				}
-				// discard the newline in the end
-				if (lineScan.hasNextLine()) {
-					lineScan.nextLine(); // TODO: test
-				}
 				eventsRead++;
 			} catch (Exception e) {
 				throw new SimError("Can't parse external event " + (eventsRead+1) +
-									" from '" + line + "'", e);
-			}
-			finally {
-				lineScan.close();
+									" from '" + t.getLine() + "'", e);
 			}
 		}
 		
@@ -208,30 +200,65 @@ public class StandardEventsReader implements ExternalEventsReader {
 	}
 
 	/**
-	 * Parses a host address from a hostId string (the numeric part after
-	 * optional non-numeric part).
-	 * @param hostId The id to parse the address from
+	 * Reads the next line from the tokenizer
+	 * @return True if a line was read, false if there are no more lines
+	 * @throws SimError if reading the events file failed
+	 */
+	private boolean nextLine() {
+		try {
+			return this.tokenizer.nextLine();
+		} catch (IOException e) {
+			throw new SimError("Can't read external events", e);
+		}
+	}
+
+	/**
+	 * Parses a host address from a hostId token (the numeric part after
+	 * optional non-numeric part). The token must be either only digits or
+	 * non-digits followed by digits.
+	 * @param index Index of the token on the current line
 	 * @return The address
 	 * @throws SimError if no address could be parsed from the id
 	 */
-	private int getHostAddress(String hostId) {
-		String addressPart = "";
-		if (hostId.matches("^\\d+$")) {
-			addressPart = hostId; // host id is only the address
+	private int getHostAddress(int index) {
+		LineTokenizer t = this.tokenizer;
+		int len = t.getTokenLength(index);
+		int firstDigit = 0;
+		
+		while (firstDigit < len && !isDigit(t.getByte(index, firstDigit))) {
+			firstDigit++;
 		}
-		else if (hostId.matches("^\\D+\\d+$")) {
-			String [] parts = hostId.split("\\D");
-			addressPart = parts[parts.length-1]; // last occurence is the addr
+		if (firstDigit == len) {
+			throw new SimError("Invalid host ID '" + t.getString(index) + "'");
 		}
-		else {
-			throw new SimError("Invalid host ID '" + hostId + "'");
+		
+		long address = 0;
+		for (int i = firstDigit; i < len; i++) {
+			byte b = t.getByte(index, i);
+			if (!isDigit(b)) {
+				throw new SimError("Invalid host ID '" + t.getString(index) + 
+						"'");
+			}
+			address = address * 10 + (b - '0');
+			if (address > Integer.MAX_VALUE) {
+				throw new SimError("Too large address in host ID '" + 
+						t.getString(index) + "'");
+			}
 		}
 		
-		return Integer.parseInt(addressPart);
+		return (int)address;
+	}
+	
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
 	}
 	
 	public void close() {
-		this.scanner.close();
+		try {
+			this.tokenizer.close();
+		} catch (IOException e) {
+			throw new SimError(e);
+		}
 	}
 
 }
@@ -0,0 +1,9 @@
+@echo off
+rem Compiles and runs the JMH microbenchmarks of the benchmark.jmh package
+rem (see jmh.sh).
+rem The results are written in JSON to jmh-results\jmh-result.json.
+if not exist jmh-classes mkdir jmh-classes
+if not exist jmh-results mkdir jmh-results
+javac -cp .;lib/*;lib/uncommons-maths-1.2.3/uncommons-maths-1.2.3.jar;lib/batik/*;lib/jmh/* -d jmh-classes benchmark/jmh/*.java
+if errorlevel 1 exit /b 1
+java -cp jmh-classes;.;lib/*;lib/uncommons-maths-1.2.3/uncommons-maths-1.2.3.jar;lib/batik/*;lib/jmh/* org.openjdk.jmh.Main -rf json -rff jmh-results\jmh-result.json %*
@@ -0,0 +1,13 @@
+#! /bin/sh
+# Compiles and runs the JMH microbenchmarks of the benchmark.jmh package.
+# The simulator must have been compiled first (compile.bat) and the JMH
+# jars (jmh-core, jmh-generator-annprocess, jopt-simple and commons-math3)
+# must be in lib/jmh/. The results are written in JSON to jmh-results/
+# (not committed), named after the current commit when run in a git
+# checkout. Arguments are passed to JMH, e.g.:
+# ./jmh.sh ConnectivityGrid -p nrofHosts=2000
+CP=".:lib/*:lib/uncommons-maths-1.2.3/uncommons-maths-1.2.3.jar:lib/batik/*:lib/jmh/*"
+RESULT=jmh-results/`git rev-parse --short HEAD 2>/dev/null || echo jmh-result`.json
+mkdir -p jmh-classes jmh-results
+javac -cp "$CP" -d jmh-classes benchmark/jmh/*.java || exit 1
+java -cp "jmh-classes:$CP" org.openjdk.jmh.Main -rf json -rff $RESULT "$@"
@@ -4,8 +4,10 @@
  */
 package movement;
 
+import input.BinaryMovementReader;
 import input.ExternalMovementReader;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -19,7 +21,10 @@ import core.SimClock;
 import core.Tuple;
 
 /**
- * Movement model that uses external data of node locations.
+ * Movement model that uses external data of node locations. The data can be
+ * either in the text format of {@link ExternalMovementReader} or in the
+ * binary format of {@link BinaryMovementReader} (detected automatically).
+ * Binary files are read without any per location string handling.
  */
 public class ExternalMovement extends MovementModel {
 	/** Namespace for settings */
@@ -28,14 +33,21 @@ public class ExternalMovement extends MovementModel {
 	public static final String MOVEMENT_FILE_S = "file";
 	/** number of preloaded intervals per preload run -setting id ({@value})*/
 	public static final String NROF_PRELOAD_S = "nrofPreload";
+	/** read locations on a background thread -setting id ({@value}).
+	 * Boolean. Default = false. */
+	public static final String PREFETCH_S = "prefetch";
 	
 	/** default initial location for excess nodes */
 	private static final Coord DEF_INIT_LOC = new Coord(0,0);
 	private static ExternalMovementReader reader;
+	/** reader for binary input files (null if the input is a text file) */
+	private static BinaryMovementReader binaryReader;
 	private static String inputFileName;
 	
 	/** mapping of external id to movement model */
 	private static Map<String, ExternalMovement> idMapping;
+	/** mapping of binary file node index to movement model */
+	private static ExternalMovement[] indexMapping;
 	/** initial locations for nodes */
 	private static List<Tuple<String, Coord>> initLocations;
 	/** time of the very first location data */
@@ -81,10 +93,14 @@ public class ExternalMovement extends MovementModel {
 			Settings s = new Settings(EXTERNAL_MOVEMENT_NS);
 			idMapping = new HashMap<String, ExternalMovement>();
 			inputFileName = s.getSetting(MOVEMENT_FILE_S);
-			reader = new ExternalMovementReader(inputFileName);
-			
-			initLocations = reader.readNextMovements();
-			initTime = reader.getLastTimeStamp();
+			if (BinaryMovementReader.isBinaryMovementFile(inputFileName)) {
+				initBinaryReader();
+			}
+			else {
+				reader = new ExternalMovementReader(inputFileName);
+				initLocations = reader.readNextMovements();
+				initTime = reader.getLastTimeStamp();
+			}
 			samplingInterval = -1;
 			lastPreloadTime = -1;
 			
@@ -95,7 +111,33 @@ public class ExternalMovement extends MovementModel {
 					nrofPreload = 1;
 				}
 			}
+			if (reader != null && s.contains(PREFETCH_S) && 
+					s.getBoolean(PREFETCH_S)) {
+				// keep enough time instances ready for two preload runs
+				reader.setPrefetch((int)(2 * nrofPreload));
+			}
+		}
+	}
+	
+	/**
+	 * Opens the binary input file and reads the initial locations
+	 */
+	private static void initBinaryReader() {
+		binaryReader = new BinaryMovementReader(inputFileName);
+		indexMapping = new ExternalMovement[binaryReader.getNrofIds()];
+		initLocations = new ArrayList<Tuple<String, Coord>>();
+		
+		if (binaryReader.nextInstance()) {
+			int[] indexes = binaryReader.getNodeIndexes();
+			double[] xs = binaryReader.getXs();
+			double[] ys = binaryReader.getYs();
+			for (int i=0, n=binaryReader.getNrofLocations(); i<n; i++) {
+				initLocations.add(new Tuple<String, Coord>(
+						binaryReader.getId(indexes[i]), 
+						new Coord(xs[i], ys[i])));
+			}
 		}
+		initTime = binaryReader.getLastTimeStamp();
 	}
 	
 	/** 
@@ -117,6 +159,9 @@ public class ExternalMovement extends MovementModel {
 			
 			// puts the new model to model map for later updates
 			idMapping.put(initLoc.getKey(), this);
+			if (binaryReader != null) {
+				indexMapping[binaryReader.getIndex(initLoc.getKey())] = this;
+			}
 			isActive = true;
 		}
 		else {
@@ -165,17 +210,53 @@ public class ExternalMovement extends MovementModel {
 		assert samplingInterval > 0 : "Non-positive sampling interval!";
 		
 		if (loc.equals(latestLocation)) { // node didn't move
-			if (latestPath != null) {
-				// constructing path -> end constructing and put it in the queue
-				pathQueue.add(new Tuple<Double, Path>
-					(latestPathStartTime, latestPath));
-				latestPath = null;
-			}
-
-			this.latestPathStartTime = time;
+			nodeStayed(time);
 			return;
 		}
 		
+		addWaypoint(loc);
+	}
+	
+	/**
+	 * Adds a new location with a time to this model's move pattern without
+	 * creating a new coordinate object if the node didn't move.
+	 * @param x The X coordinate of the location
+	 * @param y The Y coordinate of the location
+	 * @param time When should the node be there
+	 * @see #addLocation(Coord, double)
+	 */
+	private void addLocation(double x, double y, double time) {
+		assert samplingInterval > 0 : "Non-positive sampling interval!";
+		
+		if (x == latestLocation.getX() && y == latestLocation.getY()) {
+			nodeStayed(time);
+			return;
+		}
+		
+		addWaypoint(new Coord(x, y));
+	}
+	
+	/**
+	 * Ends the path under construction (if any) because the node stayed
+	 * stationary during the update
+	 * @param time The time of the update
+	 */
+	private void nodeStayed(double time) {
+		if (latestPath != null) {
+			// constructing path -> end constructing and put it in the queue
+			pathQueue.add(new Tuple<Double, Path>
+				(latestPathStartTime, latestPath));
+			latestPath = null;
+		}
+
+		this.latestPathStartTime = time;
+	}
+	
+	/**
+	 * Adds a new waypoint to the path under construction
+	 * @param loc The location of the waypoint
+	 */
+	private void addWaypoint(Coord loc) {
 		if (latestPath == null) {
 			latestPath = new Path();			
 		}
@@ -223,11 +304,17 @@ public class ExternalMovement extends MovementModel {
 	
 	@Override
 	public int getMaxX() {
+		if (binaryReader != null) {
+			return (int)(binaryReader.getMaxX() - binaryReader.getMinX()) + 1;
+		}
 		return (int)(reader.getMaxX() - reader.getMinX()) + 1;
 	}
 
 	@Override
 	public int getMaxY() {
+		if (binaryReader != null) {
+			return (int)(binaryReader.getMaxY() - binaryReader.getMinY()) + 1;
+		}
 		return (int)(reader.getMaxY() - reader.getMinY()) + 1;
 	}
 
@@ -243,6 +330,10 @@ public class ExternalMovement extends MovementModel {
 	 * were read.
 	 */
 	private static double readMorePaths() {
+		if (binaryReader != null) {
+			return readMoreBinaryPaths();
+		}
+		
 		List<Tuple<String, Coord>> list = reader.readNextMovements();
 		double time = reader.getLastTimeStamp();
 		
@@ -266,11 +357,48 @@ public class ExternalMovement extends MovementModel {
 		}
 	}
 	
+	/**
+	 * Reads paths for the next time instance from the binary reader
+	 * @return The time stamp of the reading or Double.NaN if no movements
+	 * were read.
+	 */
+	private static double readMoreBinaryPaths() {
+		if (!binaryReader.nextInstance()) {
+			return Double.NaN;
+		}
+		double time = binaryReader.getLastTimeStamp();
+		
+		if (samplingInterval == -1) {
+			samplingInterval = time - initTime;
+		}
+		
+		int[] indexes = binaryReader.getNodeIndexes();
+		double[] xs = binaryReader.getXs();
+		double[] ys = binaryReader.getYs();
+		for (int i=0, n=binaryReader.getNrofLocations(); i<n; i++) {
+			ExternalMovement em = indexMapping[indexes[i]];
+			if (em != null) { // skip IDs not mentioned in the init phase
+				em.addLocation(xs[i], ys[i], time);
+			}
+		}
+		
+		return time;
+	}
+	
 	/**
 	 * Reset state so that next instance will have a fresh state
 	 */
 	public static void reset() {
 		idMapping = null;
+		indexMapping = null;
+		if (reader != null) {
+			reader.close();
+			reader = null;
+		}
+		if (binaryReader != null) {
+			binaryReader.close();
+			binaryReader = null;
+		}
 	}
 
 }
@@ -4,10 +4,11 @@
  */
 package report;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 
 import core.ConnectionListener;
+import core.ConnectionListenerDispatch;
 import core.DTNHost;
 
 /**
@@ -18,8 +19,10 @@ public class AdjacencyGraphvizReport extends Report implements ConnectionListene
 	/** Name of the graphviz report ({@value})*/
 	public static final String GRAPH_NAME = "adjgraph";
 	
-	private String HOST_DELIM = "<->"; // used in toString()
-	private HashMap<String, ConnectionInfo> cons;
+	/** Number of connections by ordered host pair */
+	private HostPairMap cons;
+	/** The connected hosts by address */
+	private DTNHost[] hosts;
 	private Collection<DTNHost> allHosts;
 	
 	/**
@@ -32,24 +35,37 @@ public class AdjacencyGraphvizReport extends Report implements ConnectionListene
 	
 	protected void init() {
 		super.init();
-		this.cons = new HashMap<String, ConnectionInfo>();
+		this.cons = new HostPairMap();
+		this.hosts = new DTNHost[0];
 	}
 	
 		
+	@Override
+	public int getConnectionEventInterests() {
+		return (1 << ConnectionListenerDispatch.HOSTS_CONNECTED);
+	}
+		
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
 		if (isWarmup()) {
 			return;
 		}
 		
 		newEvent();
-		ConnectionInfo ci = cons.get(host1+HOST_DELIM+host2);
-		
-		if (ci == null) {
-			cons.put(host1+HOST_DELIM+host2, new ConnectionInfo(host1,host2));
-		}
-		else {
-			ci.nrofConnections++;
+		cons.add(HostPairMap.orderedPairKey(host1, host2), 1);
+		addHost(host1);
+		addHost(host2);
+	}
+	
+	/**
+	 * Stores a host so that it can be found by its address
+	 */
+	private void addHost(DTNHost host) {
+		int address = host.getAddress();
+		if (address >= hosts.length) {
+			hosts = Arrays.copyOf(hosts, Math.max(address + 1,
+					hosts.length * 2));
 		}
+		hosts[address] = host;
 	}
 
 	// 	Nothing to do here..
@@ -67,9 +83,12 @@ public class AdjacencyGraphvizReport extends Report implements ConnectionListene
 		write("graph " + GRAPH_NAME + " {");
 		setPrefix("\t"); // indent following lines by one tab
 		
-		for (ConnectionInfo ci : cons.values()) {
-			int weight = ci.nrofConnections;
-			write(ci.h1 + "--" + ci.h2 + " [weight=" + weight + "];");
+		for (int i = cons.nextSlot(0); i >= 0; i = cons.nextSlot(i + 1)) {
+			long key = cons.keyAt(i);
+			int weight = (int)cons.valueAt(i);
+			write(hosts[HostPairMap.firstAddress(key)] + "--" +
+					hosts[HostPairMap.secondAddress(key)] +
+					" [weight=" + weight + "];");
 		}
 		
 		// mention all hosts in the graph at least once
@@ -85,34 +104,4 @@ public class AdjacencyGraphvizReport extends Report implements ConnectionListene
 		super.done();
 	}
 
-	/**
-	 * Private class stores information of the connected hosts
-	 * and nrof times they have connected.
-	 */
-	private class ConnectionInfo {
-		private DTNHost h1;
-		private DTNHost h2;
-		private int nrofConnections;
-		
-		public ConnectionInfo(DTNHost h1, DTNHost h2) {
-			this.h1 = h1;
-			this.h2 = h2;
-			this.nrofConnections = 1;
-		}
-				
-		public boolean equals(Object o) {
-			return o.toString().equals(this.toString());
-		}
-		public int hashCode() {
-			return toString().hashCode();
-		}
-		public String toString() {
-			return h1+HOST_DELIM+h2;
-		}
-		@SuppressWarnings("unused")
-		public int compareTo(Object o) {
-			return nrofConnections - ((ConnectionInfo)o).nrofConnections;
-		}
-	}
-
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writer that moves the actual output of a report to a background thread.
+ * The written characters are collected to batches of {@value #BATCH_SIZE}
+ * characters on the simulation thread. Full batches are handed to a
+ * writer thread through a bounded queue of {@value #NROF_BATCHES} batches
+ * and the thread encodes and writes them to a buffered output stream. The
+ * batch buffers are recycled, so the hand-off doesn't create garbage, and
+ * the simulation thread waits only if the writer thread falls more than
+ * the whole queue behind. {@link #close()} writes all the remaining
+ * batches and waits for the writer thread to finish, so the output is
+ * complete when a report's <CODE>done()</CODE> returns.
+ * Errors of the writer thread are thrown on the next call of the writer.
+ */
+public class AsyncReportWriter extends Writer {
+	/** Size of the character batches */
+	public static final int BATCH_SIZE = 32 * 1024;
+	/** Number of batches that can be queued for the writer thread */
+	public static final int NROF_BATCHES = 8;
+	/** Size of the output stream buffer (bytes) */
+	public static final int STREAM_BUFFER_SIZE = 256 * 1024;
+
+	/** batch telling the writer thread to flush its output */
+	private static final Batch FLUSH = new Batch(0);
+	/** batch telling the writer thread to close its output */
+	private static final Batch CLOSE = new Batch(0);
+
+	/** batches to write, in order */
+	private final BlockingQueue<Batch> queue;
+	/** empty batches to fill */
+	private final BlockingQueue<Batch> free;
+	/** the batch that is being filled */
+	private Batch current;
+	private final Thread writerThread;
+	/** error from the writer thread */
+	private volatile IOException error;
+	private boolean closed;
+
+	/**
+	 * Creates a new writer and starts its writer thread
+	 * @param stream The stream to write the output to
+	 * @param name Name of the output (for the thread's name)
+	 */
+	public AsyncReportWriter(OutputStream stream, String name) {
+		this.queue = new ArrayBlockingQueue<Batch>(NROF_BATCHES + 1);
+		this.free = new ArrayBlockingQueue<Batch>(NROF_BATCHES + 1);
+		for (int i = 0; i < NROF_BATCHES; i++) {
+			free.add(new Batch(BATCH_SIZE));
+		}
+		this.current = new Batch(BATCH_SIZE);
+
+		final Writer target = new BufferedWriter(
+				new OutputStreamWriter(stream), STREAM_BUFFER_SIZE);
+		this.writerThread = new Thread("ReportWriter " + name) {
+			public void run() {
+				writeBatches(target);
+			}
+		};
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	/**
+	 * Writes the queued batches until the writer is closed
+	 * @param target The writer for the output
+	 */
+	private void writeBatches(Writer target) {
+		try {
+			while (true) {
+				Batch b = queue.take();
+				if (b == CLOSE) {
+					break;
+				}
+				else if (b == FLUSH) {
+					target.flush();
+					continue;
+				}
+
+				target.write(b.chars, 0, b.length);
+				b.length = 0;
+				free.put(b);
+			}
+		} catch (IOException e) {
+			error = e;
+			drain();
+		} catch (InterruptedException e) {
+			error = new InterruptedIOException(e.getMessage());
+		} finally {
+			try {
+				target.close();
+			} catch (IOException e) {
+				if (error == null) {
+					error = e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keeps recycling the batches after an error so that the simulation
+	 * thread doesn't block
+	 */
+	private void drain() {
+		try {
+			Batch b;
+			while ((b = queue.take()) != CLOSE) {
+				if (b != FLUSH) {
+					b.length = 0;
+					free.put(b);
+				}
+			}
+		} catch (InterruptedException e) {
+			// writer is stopped
+		}
+	}
+
+	private void checkError() throws IOException {
+		if (error != null) {
+			throw error;
+		}
+		if (closed) {
+			throw new IOException("Writer closed");
+		}
+	}
+
+	/**
+	 * Hands the current batch to the writer thread
+	 */
+	private void handOff() throws IOException {
+		try {
+			queue.put(current);
+			current = free.take();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException(e.getMessage());
+		}
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		checkError();
+		while (len > 0) {
+			int n = Math.min(len, BATCH_SIZE - current.length);
+			System.arraycopy(cbuf, off, current.chars, current.length, n);
+			current.length += n;
+			off += n;
+			len -= n;
+			if (current.length == BATCH_SIZE) {
+				handOff();
+			}
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		checkError();
+		while (len > 0) {
+			int n = Math.min(len, BATCH_SIZE - current.length);
+			str.getChars(off, off + n, current.chars, current.length);
+			current.length += n;
+			off += n;
+			len -= n;
+			if (current.length == BATCH_SIZE) {
+				handOff();
+			}
+		}
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		checkError();
+		current.chars[current.length++] = (char)c;
+		if (current.length == BATCH_SIZE) {
+			handOff();
+		}
+	}
+
+	/**
+	 * Hands the written characters to the writer thread and asks it to
+	 * flush its output. Does not wait for the output to be written.
+	 */
+	@Override
+	public void flush() throws IOException {
+		checkError();
+		try {
+			if (current.length > 0) {
+				handOff();
+			}
+			queue.put(FLUSH);
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes all the remaining output, closes the output stream and waits
+	 * for the writer thread to finish
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (current.length > 0) {
+				queue.put(current);
+			}
+			queue.put(CLOSE);
+			writerThread.join();
+		} catch (InterruptedException e) {
+			throw new InterruptedIOException(e.getMessage());
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Batch of characters
+	 */
+	private static class Batch {
+		private final char[] chars;
+		private int length;
+
+		private Batch(int size) {
+			this.chars = new char[size];
+		}
+	}
+}
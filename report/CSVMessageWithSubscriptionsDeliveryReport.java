@@ -8,6 +8,7 @@ import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 import core.iceDim.PublisherSubscriber;
 
 /**
@@ -32,6 +33,12 @@ public class CSVMessageWithSubscriptionsDeliveryReport extends Report implements
 		write(HEADER);
 	}
 	
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+			(1 << MessageListenerDispatch.TRANSFERRED);
+	}
+	
 	@Override
 	public void registerNode(DTNHost node) {}
 
@@ -12,6 +12,7 @@ import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 import core.iceDim.PublisherSubscriber;
 
 /**
@@ -83,6 +84,13 @@ public class CSVMessageWithSubscriptionsDropReport extends Report implements Mes
 		abortEventsMap.get(m.getID()).add(makeDropEventString(m, where, dropMode, cause));
 	}
 
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+			(1 << MessageListenerDispatch.TRANSFERRED) |
+			(1 << MessageListenerDispatch.DELETED);
+	}
+
 	// nothing to implement for the rest
 	@Override
 	public void transmissionPerformed(Message m, DTNHost source) {}
@@ -8,6 +8,7 @@ import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 
 /**
  * Reports transferred messages. A new report line is created with
@@ -31,6 +32,12 @@ public class CSVPrioritizedMessageDeliveryReport extends Report implements Messa
 		write(HEADER);
 	}
 
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+			(1 << MessageListenerDispatch.TRANSFERRED);
+	}
+
 	@Override
 	public void newMessage(Message m) {
 		if (isWarmup()) {
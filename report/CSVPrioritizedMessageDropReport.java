@@ -12,6 +12,7 @@ import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 
 /**
  * Reports dropped messages. A new report entry is saved in a table
@@ -81,6 +82,13 @@ public class CSVPrioritizedMessageDropReport extends Report implements MessageLi
 
 	// nothing to implement for the rest
 
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+			(1 << MessageListenerDispatch.TRANSFERRED) |
+			(1 << MessageListenerDispatch.DELETED);
+	}
+
 	@Override
 	public void transmissionPerformed(Message m, DTNHost source) {}
 	@Override
@@ -10,7 +10,7 @@ import java.util.List;
 
 import core.ConnectionListener;
 import core.DTNHost;
-import core.UpdateListener;
+import core.ScheduledUpdateListener;
 
 /**
  * The number of contacts during an inter-contact time metric is similar to 
@@ -24,7 +24,7 @@ import core.UpdateListener;
  * @author Frans Ekman
  */
 public class ContactsDuringAnICTReport extends Report 
-	implements ConnectionListener, UpdateListener {
+	implements ConnectionListener, ScheduledUpdateListener {
 
 	private boolean[][] areDisconnected;
 	private int[][] contactCount;
@@ -89,6 +89,13 @@ public class ContactsDuringAnICTReport extends Report
 		}
 		updateHasBeenCalled = true;
 	}
+
+	/**
+	 * The report needs only the first update (to know the number of hosts)
+	 */
+	public double nextUpdateTime() {
+		return updateHasBeenCalled ? Double.MAX_VALUE : 0;
+	}
 	
 	@Override
 	public void done() {
@@ -8,6 +8,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 
 import core.ConnectionListener;
+import core.ConnectionListenerDispatch;
 import core.DTNHost;
 import core.SimClock;
 
@@ -32,6 +33,11 @@ public class ContactsPerHourReport extends Report implements ConnectionListener
 		contactCounts = new LinkedList<Integer>();
 	}
 	
+	@Override
+	public int getConnectionEventInterests() {
+		return (1 << ConnectionListenerDispatch.HOSTS_CONNECTED);
+	}
+	
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
 		int time = SimClock.getIntTime() / 3600;
 		while (Math.floor(time) > currentHour) {
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.Arrays;
+
+/**
+ * Array of int counters indexed by small non-negative integers, e.g.,
+ * subscription IDs or interned message ids. The array grows on demand and
+ * the counters that have not been incremented are zero.
+ */
+public class CounterArray {
+	private static final int INIT_SIZE = 16;
+	private int[] counts;
+
+	/**
+	 * Creates an array of counters
+	 */
+	public CounterArray() {
+		this(INIT_SIZE);
+	}
+
+	/**
+	 * Creates an array of counters with an initial size
+	 * @param size The initial size (number of counters before growing)
+	 */
+	public CounterArray(int size) {
+		this.counts = new int[Math.max(size, 1)];
+	}
+
+	/**
+	 * Increments a counter by one
+	 * @param index Index of the counter
+	 */
+	public void increment(int index) {
+		ensureCapacity(index);
+		counts[index]++;
+	}
+
+	/**
+	 * Adds an amount to a counter
+	 * @param index Index of the counter
+	 * @param amount The amount to add
+	 */
+	public void add(int index, int amount) {
+		ensureCapacity(index);
+		counts[index] += amount;
+	}
+
+	/**
+	 * Returns the value of a counter
+	 * @param index Index of the counter
+	 * @return The value of the counter
+	 */
+	public int get(int index) {
+		return index < counts.length ? counts[index] : 0;
+	}
+
+	private void ensureCapacity(int index) {
+		if (index >= counts.length) {
+			int size = counts.length;
+			while (size <= index) {
+				size *= 2;
+			}
+			counts = Arrays.copyOf(counts, size);
+		}
+	}
+}
@@ -8,6 +8,7 @@ import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 
 /**
  * Reports information about all created messages. Messages created during
@@ -30,6 +31,11 @@ public class CreatedMessagesReport extends Report implements MessageListener {
 		write(HEADER);
 	}
 
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE);
+	}
+
 	public void newMessage(Message m) {
 		if (isWarmup()) {
 			return;
@@ -10,6 +10,7 @@ import core.DTN2Manager;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 import fi.tkk.netlab.dtn.ecla.CLAParser;
 
 /**
@@ -28,6 +29,11 @@ public class DTN2Reporter extends Report implements MessageListener {
 	}
 
 
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.TRANSFERRED);
+	}
+
 	@Override
 	public void registerNode(DTNHost node) {}
 
@@ -10,6 +10,7 @@ import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 
 /**
  * Report information about all delivered messages. Messages
@@ -48,6 +49,12 @@ public class DeliveredMessagesReport extends Report implements MessageListener {
 		
 		return str;
 	}
+	
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+			(1 << MessageListenerDispatch.TRANSFERRED);
+	}
 	
 	public void messageTransferred(Message m, DTNHost from, DTNHost to, 
 									boolean firstDelivery, boolean finalTarget) {
@@ -11,6 +11,7 @@ import core.Coord;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 
 /**
  * Report for how far apart the nodes were when the message
@@ -38,6 +39,12 @@ public class DistanceDelayReport extends Report implements MessageListener {
 		printHeader();
 	}
 
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+			(1 << MessageListenerDispatch.TRANSFERRED);
+	}
+
 	/**
 	 * This is called when a message is transferred between nodes
 	 */
@@ -54,7 +61,7 @@ public class DistanceDelayReport extends Report implements MessageListener {
 		}
 		
 		report(m.getID(), info.getLoc1().distance(info.getLoc2()),
-				getSimTime() - info.getTime(), m.getHops().size()-1);
+				getSimTime() - info.getTime(), m.getHopCount());
 	}
 
 	/**
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Fast fixed precision formatting of double values. Gives the same result
+ * as <CODE>String.format("%.&lt;precision&gt;f", value)</CODE> without
+ * parsing a format pattern and creating a formatter for every value. The
+ * value is scaled and rounded with long arithmetic; values too large for
+ * that, values too close to a rounding tie and non-finite values are
+ * formatted with {@link String#format(String, Object...)}.
+ */
+public class DoubleFormatter {
+	/** Largest scaled value that is formatted with long arithmetic */
+	private static final double MAX_SCALED = 1e15;
+	/** Largest supported precision of the fast path */
+	private static final int MAX_PRECISION = 15;
+	private static final double[] POWERS_OF_TEN = new double[MAX_PRECISION + 1];
+	private static final char DECIMAL_SEPARATOR;
+	/** Is the default locale compatible with the fast path */
+	private static final boolean FAST_LOCALE;
+
+	static {
+		double pow = 1;
+		for (int i = 0; i <= MAX_PRECISION; i++) {
+			POWERS_OF_TEN[i] = pow;
+			pow *= 10;
+		}
+
+		DecimalFormatSymbols dfs = DecimalFormatSymbols.getInstance(
+				Locale.getDefault(Locale.Category.FORMAT));
+		DECIMAL_SEPARATOR = dfs.getDecimalSeparator();
+		FAST_LOCALE = dfs.getZeroDigit() == '0' && dfs.getMinusSign() == '-';
+	}
+
+	/**
+	 * Formats a double value with the given number of decimals
+	 * @param value The value to format
+	 * @param precision Number of decimals
+	 * @return The formatted value
+	 */
+	public static String format(double value, int precision) {
+		return append(new StringBuilder(24), value, precision).toString();
+	}
+
+	/**
+	 * Appends a double value with the given number of decimals to a string
+	 * builder
+	 * @param sb The string builder to append to
+	 * @param value The value to format
+	 * @param precision Number of decimals
+	 * @return The string builder
+	 */
+	public static StringBuilder append(StringBuilder sb, double value,
+			int precision) {
+		if (!FAST_LOCALE || precision > MAX_PRECISION || precision < 0) {
+			return sb.append(slowFormat(value, precision));
+		}
+
+		boolean negative = Double.doubleToRawLongBits(value) < 0;
+		double scaled = Math.abs(value) * POWERS_OF_TEN[precision];
+		/* the scaled value can differ from the decimal value that
+		 * String.format rounds by a few ulps; if that could flip the
+		 * rounding (or the value is too large or not finite) use the
+		 * standard formatter */
+		if (!(scaled < MAX_SCALED)) {
+			return sb.append(slowFormat(value, precision));
+		}
+		double floor = Math.floor(scaled);
+		double fraction = scaled - floor;
+		if (Math.abs(fraction - 0.5) <= Math.ulp(scaled) * 4) {
+			return sb.append(slowFormat(value, precision));
+		}
+		long digits = (long)floor + (fraction > 0.5 ? 1 : 0);
+
+		if (negative) {
+			sb.append('-');
+		}
+		if (precision == 0) {
+			return sb.append(digits);
+		}
+
+		long unit = (long)POWERS_OF_TEN[precision];
+		sb.append(digits / unit);
+		sb.append(DECIMAL_SEPARATOR);
+		long decimals = digits % unit;
+		for (long div = unit / 10; div > decimals && div > 1; div /= 10) {
+			sb.append('0'); // leading zeros of the decimals
+		}
+		return sb.append(decimals);
+	}
+
+	private static String slowFormat(double value, int precision) {
+		return String.format("%." + precision + "f", value);
+	}
+}
@@ -10,14 +10,15 @@ import java.util.List;
 import core.DTNHost;
 import core.Settings;
 import core.SimError;
-import core.UpdateListener;
+import core.ScheduledUpdateListener;
 
 /**
  * Node energy level report. Reports the energy level of all (or only some) 
  * nodes every configurable-amount-of seconds. Writes reports only after
  * the warmup period.
  */
-public class EnergyLevelReport extends Report implements UpdateListener {
+public class EnergyLevelReport extends Report implements
+		ScheduledUpdateListener {
 	/** Reporting granularity -setting id ({@value}). 
 	 * Defines the interval how often (seconds) a new snapshot of energy levels
 	 * is created */
@@ -69,6 +70,14 @@ public class EnergyLevelReport extends Report implements UpdateListener {
 			this.lastUpdate = simTime - simTime % granularity;
 		}
 	}
+
+	/**
+	 * Returns the time when the next snapshot is due
+	 * @return The time of the next snapshot
+	 */
+	public double nextUpdateTime() {
+		return Math.max(lastUpdate + granularity, warmupTime);
+	}
 	
 	/**
 	 * Creates a snapshot of energy levels 
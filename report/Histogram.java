@@ -0,0 +1,65 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+/**
+ * Histogram of non-negative values (e.g., contact durations) in bins of
+ * equal size. The counts of the bins are stored in a primitive array that
+ * grows on demand.
+ */
+public class Histogram {
+	private double binSize;
+	private CounterArray counts;
+	private int nrofBins;
+
+	/**
+	 * Creates an empty histogram
+	 * @param binSize Size of the bins; value <CODE>v</CODE> is counted in
+	 * the bin <CODE>(int)(v / binSize)</CODE>
+	 */
+	public Histogram(double binSize) {
+		this.binSize = binSize;
+		this.counts = new CounterArray();
+		this.nrofBins = 0;
+	}
+
+	/**
+	 * Counts a value in its bin
+	 * @param value The value
+	 */
+	public void add(double value) {
+		int bin = (int)(value / binSize);
+		counts.increment(bin);
+		if (bin >= nrofBins) {
+			nrofBins = bin + 1;
+		}
+	}
+
+	/**
+	 * Returns the number of bins up to the last non-empty bin
+	 * @return The number of bins
+	 */
+	public int getNrofBins() {
+		return nrofBins;
+	}
+
+	/**
+	 * Returns the number of values counted in a bin
+	 * @param bin Index of the bin
+	 * @return The number of values in the bin
+	 */
+	public int getCount(int bin) {
+		return counts.get(bin);
+	}
+
+	/**
+	 * Returns the smallest value of a bin
+	 * @param bin Index of the bin
+	 * @return The start of the bin
+	 */
+	public double getBinStart(int bin) {
+		return bin * binSize;
+	}
+}
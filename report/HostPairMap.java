@@ -0,0 +1,292 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.Arrays;
+
+import core.DTNHost;
+import core.SimError;
+
+/**
+ * Hash map from pairs of hosts to double values (e.g., the start times of
+ * contacts or the numbers of contacts between hosts) for contact related
+ * reports. The addresses of the two hosts are packed into one long key
+ * (see {@link #pairKey(DTNHost, DTNHost)} and
+ * {@link #orderedPairKey(DTNHost, DTNHost)}) and the keys and values are
+ * stored in primitive arrays using open addressing with linear probing, so
+ * no objects are created per contact.
+ * <P>
+ * The entries can be iterated over by slot:
+ * <PRE>
+ * for (int i = map.nextSlot(0); i >= 0; i = map.nextSlot(i + 1)) {
+ *     ... map.keyAt(i) ... map.valueAt(i) ...
+ * }</PRE>
+ * The map must not be modified during the iteration.
+ */
+public class HostPairMap {
+	/** Value returned for keys that are not in the map ({@value}) */
+	public static final double NO_VALUE = Double.NaN;
+	/** Key value of the empty slots */
+	private static final long EMPTY = -1;
+	private static final int INIT_CAPACITY = 16;
+
+	private long[] keys;
+	private double[] values;
+	private int size;
+
+	/**
+	 * Creates an empty map
+	 */
+	public HostPairMap() {
+		this.keys = new long[INIT_CAPACITY];
+		this.values = new double[INIT_CAPACITY];
+		Arrays.fill(this.keys, EMPTY);
+	}
+
+	/**
+	 * Returns the key of a host pair regardless of the order of the hosts,
+	 * i.e., <CODE>pairKey(a, b) == pairKey(b, a)</CODE>.
+	 * @param host1 The first host
+	 * @param host2 The second host
+	 * @return The key of the pair
+	 */
+	public static long pairKey(DTNHost host1, DTNHost host2) {
+		int a1 = host1.getAddress();
+		int a2 = host2.getAddress();
+		return a1 <= a2 ? orderedPairKey(a1, a2) : orderedPairKey(a2, a1);
+	}
+
+	/**
+	 * Returns the key of an ordered host pair, i.e., the key of
+	 * (a, b) is different from the key of (b, a).
+	 * @param host1 The first host
+	 * @param host2 The second host
+	 * @return The key of the pair
+	 */
+	public static long orderedPairKey(DTNHost host1, DTNHost host2) {
+		return orderedPairKey(host1.getAddress(), host2.getAddress());
+	}
+
+	/**
+	 * Returns the key of an ordered pair of host addresses
+	 * @param address1 Address of the first host
+	 * @param address2 Address of the second host
+	 * @return The key of the pair
+	 */
+	public static long orderedPairKey(int address1, int address2) {
+		return ((long)address1 << 32) | (address2 & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Returns the address of the first host of a key
+	 * @param key The key
+	 * @return The address of the first host
+	 */
+	public static int firstAddress(long key) {
+		return (int)(key >>> 32);
+	}
+
+	/**
+	 * Returns the address of the second host of a key
+	 * @param key The key
+	 * @return The address of the second host
+	 */
+	public static int secondAddress(long key) {
+		return (int)key;
+	}
+
+	/**
+	 * Returns the slot for a key in a table of the given size
+	 */
+	private static int slot(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L; // spreads consecutive keys
+		return (int)(h ^ (h >>> 32)) & mask;
+	}
+
+	private int indexOf(long key) {
+		if (key < 0) {
+			return -1;
+		}
+		int mask = keys.length - 1;
+		for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the value of a key
+	 * @param key The key
+	 * @return The value or {@link #NO_VALUE} if the key is not in the map
+	 */
+	public double get(long key) {
+		int i = indexOf(key);
+		return i < 0 ? NO_VALUE : values[i];
+	}
+
+	/**
+	 * Returns true if the map contains the key
+	 * @param key The key
+	 * @return True if the map contains the key
+	 */
+	public boolean containsKey(long key) {
+		return indexOf(key) >= 0;
+	}
+
+	/**
+	 * Maps a key to a value
+	 * @param key The key
+	 * @param value The value
+	 */
+	public void put(long key, double value) {
+		int i = insert(key); // may replace the arrays
+		values[i] = value;
+	}
+
+	/**
+	 * Adds an amount to the value of a key. Keys that are not in the map
+	 * are added with the value zero first, so the map can be used as
+	 * counters.
+	 * @param key The key
+	 * @param amount The amount to add
+	 * @return The new value of the key
+	 */
+	public double add(long key, double amount) {
+		int i = insert(key);
+		values[i] += amount;
+		return values[i];
+	}
+
+	/**
+	 * Returns the slot of a key, adding the key with the value zero if it's
+	 * not in the map
+	 */
+	private int insert(long key) {
+		if (key < 0) {
+			throw new SimError("Invalid key " + key);
+		}
+		int mask = keys.length - 1;
+		int i = slot(key, mask);
+		for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return i;
+			}
+		}
+
+		if (size + 1 > keys.length / 2) {
+			rehash(keys.length * 2);
+			return insert(key);
+		}
+		keys[i] = key;
+		values[i] = 0;
+		size++;
+		return i;
+	}
+
+	/**
+	 * Removes a key from the map
+	 * @param key The key
+	 * @return The value of the removed key or {@link #NO_VALUE} if the key
+	 * was not in the map
+	 */
+	public double remove(long key) {
+		int i = indexOf(key);
+		if (i < 0) {
+			return NO_VALUE;
+		}
+		double old = values[i];
+		deleteSlot(i);
+		return old;
+	}
+
+	/**
+	 * Empties a slot and moves the following entries of the probe sequence
+	 * back so that no tombstones are needed
+	 */
+	private void deleteSlot(int i) {
+		int mask = keys.length - 1;
+		for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			int home = slot(keys[j], mask);
+			/* move the entry if its home slot is not between the gap and j */
+			if (((j - home) & mask) >= ((j - i) & mask)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				i = j;
+			}
+		}
+		keys[i] = EMPTY;
+		size--;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		double[] oldValues = values;
+		keys = new long[capacity];
+		values = new double[capacity];
+		Arrays.fill(keys, EMPTY);
+
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != EMPTY) {
+				int i = slot(oldKeys[j], mask);
+				while (keys[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of keys in the map
+	 * @return The number of keys in the map
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Removes all the keys from the map
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	/**
+	 * Returns the first used slot at or after a slot
+	 * @param slot The slot to start from
+	 * @return Index of the used slot or -1 if there are no more entries
+	 */
+	public int nextSlot(int slot) {
+		for (int i = slot; i < keys.length; i++) {
+			if (keys[i] != EMPTY) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the key in a used slot
+	 * @param slot Index of the slot (see {@link #nextSlot(int)})
+	 * @return The key
+	 */
+	public long keyAt(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * Returns the value in a used slot
+	 * @param slot Index of the slot (see {@link #nextSlot(int)})
+	 * @return The value
+	 */
+	public double valueAt(int slot) {
+		return values[slot];
+	}
+}
@@ -11,6 +11,7 @@ import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 
 /**
  * Reports delivered messages' delays (one line per delivered message)
@@ -40,6 +41,12 @@ public class MessageDelayReport extends Report implements MessageListener {
 		nrofCreated = 0;
 		
 		write(HEADER);
+	}
+	
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+			(1 << MessageListenerDispatch.TRANSFERRED);
 	}
 	
 	@Override
@@ -8,6 +8,7 @@ import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 
 /**
  * Report for of amount of messages delivered vs. time. A new report line
@@ -38,6 +39,12 @@ public class MessageDeliveryReport extends Report implements MessageListener {
 		write(HEADER);
 	}
 	
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+			(1 << MessageListenerDispatch.TRANSFERRED);
+	}
+	
 	@Override
 	public void registerNode(DTNHost node) {}
 
@@ -11,6 +11,7 @@ import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 
 /**
  * Creates a graphviz compatible graph of messages that were passed.
@@ -33,6 +34,12 @@ public class MessageGraphvizReport extends Report implements MessageListener {
 		super.init();
 		
 		deliveredMessages = new Vector<Message>();		
+	}
+	
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+			(1 << MessageListenerDispatch.TRANSFERRED);
 	}
 	
 	@Override
@@ -4,20 +4,34 @@
  */
 package report;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 
+import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
+import core.MessageListener;
+import core.MessageListenerDispatch;
+import core.ScheduledUpdateListener;
 import core.Settings;
-import core.UpdateListener;
 
 
 /**
  * Message location report. Reports the location (coordinates) of messages.
  * The messages that are reported and the reporting interval can be configured.
+ * <P>
+ * The report is only informed about the updates when a snapshot is due and
+ * it follows the message events to know which hosts may hold the reported
+ * messages, so a snapshot only checks the buffers of those hosts instead
+ * of the buffers of all the hosts.
+ * </P>
  */
-public class MessageLocationReport extends Report implements UpdateListener {
+public class MessageLocationReport extends Report implements
+		ScheduledUpdateListener, MessageListener {
 	/** Reporting granularity -setting id ({@value}). 
 	 * Defines the interval how often (seconds) a new snapshot of message 
 	 * locations is created */
@@ -32,6 +46,10 @@ public class MessageLocationReport extends Report implements UpdateListener {
 	protected double lastUpdate; 
 	/** Identifiers of the message which are reported */
 	protected HashSet<String> reportedMessages;
+	/** Hosts that may hold a copy of the reported messages, by message ID.
+	 * Each host that receives a copy is added here and the hosts that no
+	 * longer hold the message are removed when the next snapshot is made. */
+	protected HashMap<String, HashSet<DTNHost>> holders;
 	
 	/**
 	 * Constructor. Reads the settings and initializes the report module.
@@ -42,8 +60,10 @@ public class MessageLocationReport extends Report implements UpdateListener {
 		this.granularity = settings.getInt(GRANULARITY);
 		
 		this.reportedMessages = new HashSet<String>();
+		this.holders = new HashMap<String, HashSet<DTNHost>>();
 		for (String msgId : settings.getCsvSetting(REPORTED_MESSAGES)) {
 			this.reportedMessages.add(msgId);
+			this.holders.put(msgId, new HashSet<DTNHost>());
 		}
 		
 		init();
@@ -58,22 +78,72 @@ public class MessageLocationReport extends Report implements UpdateListener {
 		double simTime = getSimTime();
 		/* creates a snapshot once every granularity seconds */
 		if (simTime - lastUpdate >= granularity) {
-			createSnapshot(hosts);
+			createSnapshot();
 			this.lastUpdate = simTime - simTime % granularity;
 		}
 	}
+
+	/**
+	 * Returns the time when the next snapshot is due
+	 * @return The time of the next snapshot
+	 */
+	public double nextUpdateTime() {
+		return lastUpdate + granularity;
+	}
+
+	/**
+	 * Adds a host to the possible holders of a message if the message is
+	 * reported
+	 * @param m The message
+	 * @param host The host that received a copy of the message
+	 */
+	private void addHolder(Message m, DTNHost host) {
+		HashSet<DTNHost> hosts = this.holders.get(m.getID());
+		if (hosts != null) {
+			hosts.add(host);
+		}
+	}
 	
 	/**
 	 * Creates a snapshot of message locations 
-	 * @param hosts The list of hosts in the world
 	 */
-	private void createSnapshot(List<DTNHost> hosts) {
+	private void createSnapshot() {
 		boolean isFirstMessage;
 		String reportLine;
 		
 		write ("[" + (int)getSimTime() + "]"); /* write sim time stamp */
 		
-		for (DTNHost host : hosts) {
+		/* the reported messages each current holder has */
+		HashMap<DTNHost, List<String>> held =
+			new HashMap<DTNHost, List<String>>();
+		for (String msgId : this.reportedMessages) {
+			Iterator<DTNHost> i = this.holders.get(msgId).iterator();
+			while (i.hasNext()) {
+				DTNHost host = i.next();
+				if (!host.getRouter().hasMessage(msgId)) {
+					i.remove(); /* the copy was deleted */
+					continue;
+				}
+				List<String> ids = held.get(host);
+				if (ids == null) {
+					ids = new ArrayList<String>(1);
+					held.put(host, ids);
+				}
+				ids.add(msgId);
+			}
+		}
+		
+		/* report the holders in the same order as the host list */
+		List<DTNHost> holderList = new ArrayList<DTNHost>(held.keySet());
+		Collections.sort(holderList);
+		for (DTNHost host : holderList) {
+			List<String> ids = held.get(host);
+			if (ids.size() == 1) {
+				write(host.getLocation().toString() + " " + ids.get(0));
+				continue;
+			}
+			
+			/* the IDs in the order of the host's buffer */
 			isFirstMessage = true;
 			reportLine = "";
 			for (Message m : host.getRouter().getMessageList()) {
@@ -90,5 +160,31 @@ public class MessageLocationReport extends Report implements UpdateListener {
 			}
 		}
 	}
+
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+			(1 << MessageListenerDispatch.TRANSFERRED);
+	}
+
+	public void newMessage(Message m) {
+		addHolder(m, m.getFrom());
+	}
+
+	public void messageTransferred(Message m, DTNHost from, DTNHost to,
+			boolean firstDelivery, boolean finalTarget) {
+		addHolder(m, to);
+	}
+
+	// nothing to implement for the rest
+	public void registerNode(DTNHost node) {}
+	public void transmissionPerformed(Message m, DTNHost source) {}
+	public void messageTransferStarted(Message m, DTNHost from, DTNHost to) {}
+	public void messageTransferAborted(Message m, DTNHost from, DTNHost to,
+			String cause) {}
+	public void messageTransmissionInterfered(Message m, DTNHost from,
+			DTNHost to) {}
+	public void messageDeleted(Message m, DTNHost where,
+			MessageDropMode dropMode, String cause) {}
 	 
 }
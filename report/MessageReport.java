@@ -8,6 +8,7 @@ import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 
 /**
  * Reports delivered messages
@@ -28,6 +29,11 @@ public class MessageReport extends Report implements MessageListener {
 	public void init() {
 		super.init();
 		write(HEADER);
+	}
+
+	@Override
+	public int getMessageEventInterests() {
+		return (1 << MessageListenerDispatch.TRANSFERRED);
 	}
 
 	@Override
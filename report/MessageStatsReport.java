@@ -4,9 +4,7 @@
  */
 package report;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import routing.MessageRouter.MessageDropMode;
@@ -20,14 +18,16 @@ import core.MessageListener;
  * are ignored.
  * <P><strong>Note:</strong> if some statistics could not be created (e.g.
  * overhead ratio if no messages were delivered) "NaN" is reported for
- * double values and zero for integer median(s).
+ * double values and zero for integer median(s). The medians are
+ * approximated unless exact statistics are requested with the
+ * {@link Report#EXACT_STATS_S} setting.
  */
 public class MessageStatsReport extends Report implements MessageListener {
 	private Map<String, Double> creationTimes;
-	private List<Double> latencies;
-	private List<Integer> hopCounts;
-	private List<Double> msgCacheTime;
-	private List<Double> rtt; // round trip times
+	private StreamingStats latencies;
+	private StreamingStats hopCounts;
+	private StreamingStats msgCacheTime;
+	private StreamingStats rtt; // round trip times
 
 	private int nrofCreated;
 	private int nrofStarted;
@@ -57,10 +57,10 @@ public class MessageStatsReport extends Report implements MessageListener {
 		super.init();
 		
 		this.creationTimes = new HashMap<String, Double>();
-		this.latencies = new ArrayList<Double>();
-		this.msgCacheTime = new ArrayList<Double>();
-		this.hopCounts = new ArrayList<Integer>();
-		this.rtt = new ArrayList<Double>();
+		this.latencies = newStats();
+		this.msgCacheTime = newStats();
+		this.hopCounts = newStats();
+		this.rtt = newStats();
 
 		this.nrofCreated = 0;
 		this.nrofStarted = 0;
@@ -117,7 +117,7 @@ public class MessageStatsReport extends Report implements MessageListener {
 			if (finalTarget) {
 				nrofDelivered++;
 				latencies.add(getSimTime() - creationTimes.get(m.getID()));
-				hopCounts.add(m.getHops().size() - 1);
+				hopCounts.add(m.getHopCount());
 				
 				if (m.isResponse()) {
 					rtt.add(getSimTime() -	m.getRequest().getCreationTime());
@@ -217,7 +217,7 @@ public class MessageStatsReport extends Report implements MessageListener {
 							"\noverhead_ratio: " + format(overHead) + 
 							"\nlatency_avg: " + getAverage(latencies) +
 							"\nlatency_med: " + getMedian(latencies) + 
-							"\nhopcount_avg: " + getIntAverage(hopCounts) +
+							"\nhopcount_avg: " + getAverage(hopCounts) +
 							"\nhopcount_med: " + getIntMedian(hopCounts) + 
 							"\ncachetime_avg: " + getAverage(msgCacheTime) +
 							"\ncachetime_med: " + getMedian(msgCacheTime) +
@@ -4,10 +4,7 @@
  */
 package report;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
@@ -24,10 +21,16 @@ import core.iceDim.SubscriptionListManager;
  * Messages that were created during the warm up period are ignored.
  * <P><strong>Note:</strong> if some statistics could not be created (e.g.
  * overhead ratio if no messages were delivered) "NaN" is reported for
- * double values and zero for integer median(s).
+ * double values and zero for integer median(s). The medians are
+ * approximated unless exact statistics are requested with the
+ * {@link Report#EXACT_STATS_S} setting.
  */
 public class MessagesWithSubscriptionsStatsReport extends Report implements MessageListener {
-	private Map<String, Double> creationTimes;
+	/** Initial size of the creation time array */
+	private static final int INIT_NROF_MESSAGES = 1024;
+
+	/** creation times of the messages by their interned ids */
+	private double[] creationTimes;
 
 	private int nrofCreated;
 	private int nrofStarted;
@@ -52,29 +55,29 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 	private int nrofHelloMessagesAborted;
 	private int nrofHelloMessagesInterfered;
 	
-	private HashMap<Integer, Integer> nodesPerSubscription;
-	private HashMap<Integer, Integer> transmissionsPerSubscription;
-	private HashMap<Integer, Integer> messageCreatedPerSubscription;
-	private HashMap<Integer, Integer> messageResponseCreatedPerSubscription;
-	private HashMap<Integer, Integer> messageStartedPerSubscription;
-	private HashMap<Integer, Integer> messageRelayedPerSubscription;
-	private HashMap<Integer, Integer> messageDuplicatesPerSubscription;
-	private HashMap<Integer, Integer> messageDeliveredPerSubscription;
-	private HashMap<Integer, Integer> messageResponseDeliveredPerSubscription;
-	private HashMap<Integer, Integer> messageAbortedPerSubscription;
-	private HashMap<Integer, Integer> messageRemovedPerSubscription;
-	private HashMap<Integer, Integer> messageDroppedPerSubscription;
-	private HashMap<Integer, Integer> messageDiscardedPerSubscription;
-	private HashMap<Integer, Integer> messageExpiredPerSubscription;
-	private HashMap<Integer, Integer> messageInterferedPerSubscription;
+	private CounterArray nodesPerSubscription;
+	private CounterArray transmissionsPerSubscription;
+	private CounterArray messageCreatedPerSubscription;
+	private CounterArray messageResponseCreatedPerSubscription;
+	private CounterArray messageStartedPerSubscription;
+	private CounterArray messageRelayedPerSubscription;
+	private CounterArray messageDuplicatesPerSubscription;
+	private CounterArray messageDeliveredPerSubscription;
+	private CounterArray messageResponseDeliveredPerSubscription;
+	private CounterArray messageAbortedPerSubscription;
+	private CounterArray messageRemovedPerSubscription;
+	private CounterArray messageDroppedPerSubscription;
+	private CounterArray messageDiscardedPerSubscription;
+	private CounterArray messageExpiredPerSubscription;
+	private CounterArray messageInterferedPerSubscription;
 	
-	private HashMap<String, Integer> firstDeliveriesPerMessage;
-	private HashMap<String, Integer> totalTransmissionsPerMessage;
+	private CounterArray firstDeliveriesPerMessage;
+	private CounterArray totalTransmissionsPerMessage;
 	
-	private HashMap<Integer, ArrayList<Double>> latenciesPerSubscription;
-	private HashMap<Integer, ArrayList<Integer>> hopCountsPerSubscription;
-	private HashMap<Integer, ArrayList<Double>> msgCacheTimePerSubscription;
-	private HashMap<Integer, ArrayList<Double>> msgRTTPerSubscription;
+	private StatsPerSubscription latenciesPerSubscription;
+	private StatsPerSubscription hopCountsPerSubscription;
+	private StatsPerSubscription msgCacheTimePerSubscription;
+	private StatsPerSubscription msgRTTPerSubscription;
 	
 	
 	/**
@@ -90,7 +93,7 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 		int subscriptionsArraySize = SubscriptionListManager.MAX_SUB_ID_OF_SIMULATION + 1;
 		int maxSubscriptionsPerNode = SubscriptionListManager.MAX_NUMBER_OF_SUBSCRIPTIONS + 1;
 		
-		creationTimes = new HashMap<String, Double>();
+		creationTimes = new double[INIT_NROF_MESSAGES];
 		
 		nrofHelloMessagesStarted = 0;
 		nrofHelloMessagesDelivered = 0;
@@ -119,75 +122,29 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 			nrofNodesPerNrofSubscriptions[i] = 0;
 		}
 
-		nodesPerSubscription = new HashMap<Integer, Integer>();
-		transmissionsPerSubscription = new HashMap<Integer, Integer>();
-		messageCreatedPerSubscription = new HashMap<Integer, Integer>();
-		messageResponseCreatedPerSubscription = new HashMap<Integer, Integer>();
-		messageStartedPerSubscription = new HashMap<Integer, Integer>();
-		messageRelayedPerSubscription = new HashMap<Integer, Integer>();
-		messageDuplicatesPerSubscription = new HashMap<Integer, Integer>();
-		messageDeliveredPerSubscription = new HashMap<Integer, Integer>();
-		messageResponseDeliveredPerSubscription = new HashMap<Integer, Integer>();
-		messageAbortedPerSubscription = new HashMap<Integer, Integer>();
-		messageRemovedPerSubscription = new HashMap<Integer, Integer>();
-		messageDroppedPerSubscription = new HashMap<Integer, Integer>();
-		messageDiscardedPerSubscription= new HashMap<Integer, Integer>();
-		messageExpiredPerSubscription = new HashMap<Integer, Integer>();
-		messageInterferedPerSubscription = new HashMap<Integer, Integer>();
-		
-		firstDeliveriesPerMessage = new HashMap<String, Integer>();
-		totalTransmissionsPerMessage = new HashMap<String, Integer>();
+		nodesPerSubscription = new CounterArray(subscriptionsArraySize);
+		transmissionsPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageCreatedPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageResponseCreatedPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageStartedPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageRelayedPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageDuplicatesPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageDeliveredPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageResponseDeliveredPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageAbortedPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageRemovedPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageDroppedPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageDiscardedPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageExpiredPerSubscription = new CounterArray(subscriptionsArraySize);
+		messageInterferedPerSubscription = new CounterArray(subscriptionsArraySize);
 		
-		latenciesPerSubscription = new HashMap<Integer, ArrayList<Double>>();
-		hopCountsPerSubscription = new HashMap<Integer, ArrayList<Integer>>();
-		msgCacheTimePerSubscription = new HashMap<Integer, ArrayList<Double>>();
-		msgRTTPerSubscription = new HashMap<Integer, ArrayList<Double>>();
-
-		for (int i = 1; i < subscriptionsArraySize; ++i) {
-			nodesPerSubscription.put(i, 0);
-			transmissionsPerSubscription.put(i, 0);
-			messageCreatedPerSubscription.put(i, 0);
-			messageResponseCreatedPerSubscription.put(i, 0);
-			messageStartedPerSubscription.put(i, 0);
-			messageRelayedPerSubscription.put(i, 0);
-			messageDuplicatesPerSubscription.put(i, 0);
-			messageDeliveredPerSubscription.put(i, 0);
-			messageResponseDeliveredPerSubscription.put(i, 0);
-			messageAbortedPerSubscription.put(i, 0);
-			messageRemovedPerSubscription.put(i, 0);
-			messageDroppedPerSubscription.put(i, 0);
-			messageDiscardedPerSubscription.put(i, 0);
-			messageExpiredPerSubscription.put(i, 0);
-			messageInterferedPerSubscription.put(i, 0);
-			
-			latenciesPerSubscription.put(i, new ArrayList<Double>());
-			hopCountsPerSubscription.put(i, new ArrayList<Integer>());
-			msgCacheTimePerSubscription.put(i, new ArrayList<Double>());
-			msgRTTPerSubscription.put(i, new ArrayList<Double>());
-		}
+		firstDeliveriesPerMessage = new CounterArray();
+		totalTransmissionsPerMessage = new CounterArray();
 		
-		if (subscriptionsArraySize <= 1) {
-			nodesPerSubscription.put(0, 0);
-			transmissionsPerSubscription.put(0, 0);
-			messageCreatedPerSubscription.put(0, 0);
-			messageResponseCreatedPerSubscription.put(0, 0);
-			messageStartedPerSubscription.put(0, 0);
-			messageRelayedPerSubscription.put(0, 0);
-			messageDuplicatesPerSubscription.put(0, 0);
-			messageDeliveredPerSubscription.put(0, 0);
-			messageResponseDeliveredPerSubscription.put(0, 0);
-			messageAbortedPerSubscription.put(0, 0);
-			messageRemovedPerSubscription.put(0, 0);
-			messageDroppedPerSubscription.put(0, 0);
-			messageDiscardedPerSubscription.put(0, 0);
-			messageExpiredPerSubscription.put(0, 0);
-			messageInterferedPerSubscription.put(0, 0);
-			
-			latenciesPerSubscription.put(0, new ArrayList<Double>());
-			hopCountsPerSubscription.put(0, new ArrayList<Integer>());
-			msgCacheTimePerSubscription.put(0, new ArrayList<Double>());
-			msgRTTPerSubscription.put(0, new ArrayList<Double>());
-		}
+		latenciesPerSubscription = new StatsPerSubscription();
+		hopCountsPerSubscription = new StatsPerSubscription();
+		msgCacheTimePerSubscription = new StatsPerSubscription();
+		msgRTTPerSubscription = new StatsPerSubscription();
 	}
 
 	
@@ -198,16 +155,14 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 			
 			SubscriptionListManager sl = destNode.getSubscriptionList();
 			for (int subID : sl.getSubscriptionList()) {
-				nodesPerSubscription.put(subID, Integer.valueOf(
-						nodesPerSubscription.get(subID).intValue() + 1));
+				nodesPerSubscription.increment(subID);
 			}
 			nrofNodesPerNrofSubscriptions[sl.getSubscriptionList().size()]++;
 		}
 		else {
 			// No subscriptions
 			int subID = SubscriptionListManager.DEFAULT_SUB_ID;
-			nodesPerSubscription.put(subID, Integer.valueOf(
-					nodesPerSubscription.get(subID).intValue() + 1));
+			nodesPerSubscription.increment(subID);
 			nrofNodesPerNrofSubscriptions[0]++;
 		}
 	}
@@ -220,19 +175,15 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 		}
 	
 		nrofCreated++;
-		creationTimes.put(m.getID(), getSimTime());
-		firstDeliveriesPerMessage.put(m.getID(), 0);
-		totalTransmissionsPerMessage.put(m.getID(), 0);
+		setCreationTime(m, getSimTime());
 	
-		Integer subID = (Integer) m.getProperty(PublisherSubscriber.SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
+		int subID = m.getIntProperty(PublisherSubscriber.SUBSCRIPTION_ID_PROPERTY);
 		nrofTotalDueDeliveries += nodesPerSubscription.get(subID);
-		messageCreatedPerSubscription.put(subID, Integer.valueOf(
-				messageCreatedPerSubscription.get(subID).intValue() + 1));
+		messageCreatedPerSubscription.increment(subID);
 		
 		if (m.getResponseSize() > 0) {
 			nrofResponseReqCreated++;
-			messageResponseCreatedPerSubscription.put(subID, Integer.valueOf(
-					messageResponseCreatedPerSubscription.get(subID).intValue() + 1));
+			messageResponseCreatedPerSubscription.increment(subID);
 		}
 	}
 
@@ -248,9 +199,8 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 		else {
 			nrofStarted++;
 	
-			Integer subID = (Integer) m.getProperty(PublisherSubscriber.SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
-			messageStartedPerSubscription.put(subID, Integer.valueOf(
-					messageStartedPerSubscription.get(subID).intValue() + 1));
+			int subID = m.getIntProperty(PublisherSubscriber.SUBSCRIPTION_ID_PROPERTY);
+			messageStartedPerSubscription.increment(subID);
 		}
 	}
 
@@ -262,12 +212,10 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 		}
 		
 		nrofTransmissions++;
-		totalTransmissionsPerMessage.put(m.getID(), Integer.valueOf(
-				totalTransmissionsPerMessage.get(m.getID()).intValue() + 1));
+		totalTransmissionsPerMessage.increment(m.getIntId());
 		
-		Integer subID = (Integer) m.getProperty(PublisherSubscriber.SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
-		transmissionsPerSubscription.put(subID, Integer.valueOf(
-				transmissionsPerSubscription.get(subID).intValue() + 1));
+		int subID = m.getIntProperty(PublisherSubscriber.SUBSCRIPTION_ID_PROPERTY);
+		transmissionsPerSubscription.increment(subID);
 	}
 
 	@Override
@@ -283,15 +231,14 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 		else if (firstDelivery) {
 			nrofRelayed++;
 			
-			Integer subID = (Integer) m.getProperty(PublisherSubscriber.SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
-			messageRelayedPerSubscription.put(subID,
-			Integer.valueOf(messageRelayedPerSubscription.get(subID).intValue() + 1));
+			int subID = m.getIntProperty(PublisherSubscriber.SUBSCRIPTION_ID_PROPERTY);
+			messageRelayedPerSubscription.increment(subID);
 			
 			if (finalTarget) {
 				nrofDelivered++;
-				firstDeliveriesPerMessage.put(m.getID(), firstDeliveriesPerMessage.get(m.getID()) + 1);
-				latenciesPerSubscription.get(subID).add(getSimTime() - creationTimes.get(m.getID()));
-				hopCountsPerSubscription.get(subID).add(m.getHops().size() - 1);
+				firstDeliveriesPerMessage.increment(m.getIntId());
+				latenciesPerSubscription.get(subID).add(getSimTime() - getCreationTime(m));
+				hopCountsPerSubscription.get(subID).add(m.getHopCount());
 				
 				if (m.isResponse()) {
 					nrofResponseDelivered++;
@@ -306,13 +253,11 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 					PublisherSubscriber destNode = (PublisherSubscriber) to.getRouter();
 					SubscriptionListManager sl = destNode.getSubscriptionList();
 					if (sl.containsSubscriptionID(subID)) {
-						messageDeliveredPerSubscription.put(subID, Integer.valueOf(
-								messageDeliveredPerSubscription.get(subID).intValue() + 1));
+						messageDeliveredPerSubscription.increment(subID);
 					}
 	
 					if (m.isResponse() && sl.containsSubscriptionID(subID)) {
-						messageResponseDeliveredPerSubscription.put(subID, Integer.valueOf(
-								messageResponseDeliveredPerSubscription.get(subID).intValue() + 1));
+						messageResponseDeliveredPerSubscription.increment(subID);
 					}
 				}
 			}
@@ -321,9 +266,8 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 			// Duplicate message
 			nrofDuplicates++;
 			
-			Integer subID = (Integer) m.getProperty(PublisherSubscriber.SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
-			messageDuplicatesPerSubscription.put(subID, Integer.valueOf(
-					messageDuplicatesPerSubscription.get(subID).intValue() + 1));
+			int subID = m.getIntProperty(PublisherSubscriber.SUBSCRIPTION_ID_PROPERTY);
+			messageDuplicatesPerSubscription.increment(subID);
 		}
 	}
 
@@ -339,9 +283,8 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 		else {
 			nrofAborted++;
 			
-			Integer subID = (Integer) m.getProperty(PublisherSubscriber.SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
-			messageAbortedPerSubscription.put(subID, Integer.valueOf(
-					messageAbortedPerSubscription.get(subID).intValue() + 1));
+			int subID = m.getIntProperty(PublisherSubscriber.SUBSCRIPTION_ID_PROPERTY);
+			messageAbortedPerSubscription.increment(subID);
 		}
 	}
 
@@ -353,9 +296,8 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 		else {
 			nrofInterfered++;
 			
-			Integer subID = (Integer) m.getProperty(PublisherSubscriber.SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
-			messageInterferedPerSubscription.put(subID, Integer.valueOf(
-					messageInterferedPerSubscription.get(subID).intValue() + 1));
+			int subID = m.getIntProperty(PublisherSubscriber.SUBSCRIPTION_ID_PROPERTY);
+			messageInterferedPerSubscription.increment(subID);
 		}
 	}
 
@@ -365,27 +307,23 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 			return;
 		}
 	
-		Integer subID = (Integer) m.getProperty(PublisherSubscriber.SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
+		int subID = m.getIntProperty(PublisherSubscriber.SUBSCRIPTION_ID_PROPERTY);
 		switch (dropMode) {
 		case REMOVED:
 			nrofRemoved++;
-			messageRemovedPerSubscription.put(subID, Integer.valueOf(
-					messageRemovedPerSubscription.get(subID).intValue() + 1));
+			messageRemovedPerSubscription.increment(subID);
 			break;
 		case DROPPED:
 			nrofDropped++;
-			messageDroppedPerSubscription.put(subID, Integer.valueOf(
-					messageDroppedPerSubscription.get(subID).intValue() + 1));
+			messageDroppedPerSubscription.increment(subID);
 			break;
 		case DISCARDED:
 			nrofDiscarded++;
-			messageDiscardedPerSubscription.put(subID, Integer.valueOf(
-					messageDiscardedPerSubscription.get(subID).intValue() + 1));
+			messageDiscardedPerSubscription.increment(subID);
 			break;
 		case TTL_EXPIRATION:
 			nrofExpired++;
-			messageExpiredPerSubscription.put(subID, Integer.valueOf(
-					messageExpiredPerSubscription.get(subID).intValue() + 1));
+			messageExpiredPerSubscription.increment(subID);
 			break;
 		}
 		msgCacheTimePerSubscription.get(subID).add(getSimTime() - m.getReceiveTime());
@@ -415,22 +353,10 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 			write(statsText);
 		}
 		
-		List<Double> latencies = new ArrayList<Double>();
-		for(List<Double> latenciesPerSub : latenciesPerSubscription.values()) {
-			latencies.addAll(latenciesPerSub);
-		}
-		List<Integer> hopCounts = new ArrayList<Integer>();
-		for(List<Integer> hopsPerSub : hopCountsPerSubscription.values()) {
-			hopCounts.addAll(hopsPerSub);
-		}
-		List<Double> msgCacheTime = new ArrayList<Double>();
-		for(List<Double> msgBufTimePerSub : msgCacheTimePerSubscription.values()) {
-			msgCacheTime.addAll(msgBufTimePerSub);
-		}
-		List<Double> totalRTTs = new ArrayList<Double>();
-		for(List<Double> msgRTTPerSub : msgRTTPerSubscription.values()) {
-			totalRTTs.addAll(msgRTTPerSub);
-		}
+		StreamingStats latencies = latenciesPerSubscription.getTotal();
+		StreamingStats hopCounts = hopCountsPerSubscription.getTotal();
+		StreamingStats msgCacheTime = msgCacheTimePerSubscription.getTotal();
+		StreamingStats totalRTTs = msgRTTPerSubscription.getTotal();
 		
 		statsText = "\nNumber of nodes per number of subscriptions (in order, " +
 					"nodes with 0, 1, 2, ... N subscriptions):\n";
@@ -458,7 +384,7 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 					"\noverhead_ratio: " + format(overHead) +
 					"\nlatency_avg: " + getAverage(latencies) +
 					"\nlatency_med: " + getMedian(latencies) +
-					"\nhopcount_avg: " + getIntAverage(hopCounts) +
+					"\nhopcount_avg: " + getAverage(hopCounts) +
 					"\nhopcount_med: " + getIntMedian(hopCounts) +
 					"\ncachetime_avg: " + getAverage(msgCacheTime) +
 					"\ncachetime_med: " + getMedian(msgCacheTime) +
@@ -466,67 +392,126 @@ public class MessagesWithSubscriptionsStatsReport extends Report implements Mess
 					"\nrtt_med: " + getMedian(totalRTTs) + "\n\n";
 		write(statsText);
 
-		if (!nodesPerSubscription.isEmpty()) {
-			int statsSize = SubscriptionListManager.MAX_SUB_ID_OF_SIMULATION;
-			double deliveryProbPerSub[] = new double[statsSize];		// delivery probability
-			double responseProbPerSub[] = new double[statsSize];		// request-response success probability
-			double overHeadPerSub[] = new double[statsSize];			// overhead ratio
-			
-			for (int i = 1; i <= statsSize; i++) {
-				if (messageCreatedPerSubscription.get(i).intValue() > 0) {
-					deliveryProbPerSub[i - 1] = (1.0 * messageDeliveredPerSubscription.get(i).intValue()) /
-													(messageCreatedPerSubscription.get(i).intValue() *
-													nodesPerSubscription.get(i));
-				}
-				else {
-					deliveryProbPerSub[i - 1] = 0;
-				}
+		int statsSize = SubscriptionListManager.MAX_SUB_ID_OF_SIMULATION;
+		double deliveryProbPerSub[] = new double[statsSize];		// delivery probability
+		double responseProbPerSub[] = new double[statsSize];		// request-response success probability
+		double overHeadPerSub[] = new double[statsSize];			// overhead ratio
+		
+		for (int i = 1; i <= statsSize; i++) {
+			if (messageCreatedPerSubscription.get(i) > 0) {
+				deliveryProbPerSub[i - 1] = (1.0 * messageDeliveredPerSubscription.get(i)) /
+												(messageCreatedPerSubscription.get(i) *
+												nodesPerSubscription.get(i));
 			}
-			for (int i = 1; i <= statsSize; i++) {
-				if (messageDeliveredPerSubscription.get(i).intValue() > 0) {
-					/*
-					overHeadPerSub[i - 1] = (1.0 * (messageDuplicatesPerSubscription.get(i) +
-												messageRelayedPerSubscription.get(i).intValue() -
-												messageDeliveredPerSubscription.get(i).intValue())) /
-												messageDeliveredPerSubscription.get(i).intValue();
-												*/
-					overHeadPerSub[i - 1] = (1.0 * (transmissionsPerSubscription.get(i) -
-												messageDeliveredPerSubscription.get(i).intValue())) /
-												messageDeliveredPerSubscription.get(i).intValue();
-				}
-				else {
-					overHeadPerSub[i - 1] = Double.NaN;
-				}
+			else {
+				deliveryProbPerSub[i - 1] = 0;
 			}
-			for (int i = 1; i <= statsSize; i++) {
-				if (messageResponseCreatedPerSubscription.get(i).intValue() > 0) {
-					responseProbPerSub[i - 1] = (1.0 * messageResponseDeliveredPerSubscription.get(i).intValue()) /
-													(messageResponseCreatedPerSubscription.get(i).intValue() *
-													nodesPerSubscription.get(i));
-				}
+		}
+		for (int i = 1; i <= statsSize; i++) {
+			if (messageDeliveredPerSubscription.get(i) > 0) {
+				/*
+				overHeadPerSub[i - 1] = (1.0 * (messageDuplicatesPerSubscription.get(i) +
+											messageRelayedPerSubscription.get(i) -
+											messageDeliveredPerSubscription.get(i))) /
+											messageDeliveredPerSubscription.get(i);
+											*/
+				overHeadPerSub[i - 1] = (1.0 * (transmissionsPerSubscription.get(i) -
+											messageDeliveredPerSubscription.get(i))) /
+											messageDeliveredPerSubscription.get(i);
 			}
-			write("Statistics per subscription ID:\n");
-			for (int i = 1; i <= statsSize; i++) {
-				statsText = "Subscription ID: " + i +
-							"\nregistered: " + nodesPerSubscription.get(i).intValue() +
-							"\ncreated: " + messageCreatedPerSubscription.get(i).intValue() +
-							"\nstarted: " + messageStartedPerSubscription.get(i).intValue() +
-							"\nrelayed: " + messageRelayedPerSubscription.get(i).intValue() +
-							"\nduplicates: " + messageDuplicatesPerSubscription.get(i).intValue() +
-							"\naborted: " + messageAbortedPerSubscription.get(i).intValue() +
-							"\nInterfered: " + messageInterferedPerSubscription.get(i).intValue() +
-							"\ndropped: " + messageDroppedPerSubscription.get(i).intValue() +
-							"\nremoved: " + messageRemovedPerSubscription.get(i).intValue() +
-							"\ndelivered: " + messageDeliveredPerSubscription.get(i).intValue() +
-							"\ndelivery_prob: " + format(deliveryProbPerSub[i - 1]) +
-							"\nresponse_prob: " + format(responseProbPerSub[i - 1]) +
-							"\noverhead_ratio: " + format(overHeadPerSub[i - 1]) +
-							"\n\n";
-				write(statsText);
+			else {
+				overHeadPerSub[i - 1] = Double.NaN;
 			}
 		}
+		for (int i = 1; i <= statsSize; i++) {
+			if (messageResponseCreatedPerSubscription.get(i) > 0) {
+				responseProbPerSub[i - 1] = (1.0 * messageResponseDeliveredPerSubscription.get(i)) /
+												(messageResponseCreatedPerSubscription.get(i) *
+												nodesPerSubscription.get(i));
+			}
+		}
+		write("Statistics per subscription ID:\n");
+		for (int i = 1; i <= statsSize; i++) {
+			statsText = "Subscription ID: " + i +
+						"\nregistered: " + nodesPerSubscription.get(i) +
+						"\ncreated: " + messageCreatedPerSubscription.get(i) +
+						"\nstarted: " + messageStartedPerSubscription.get(i) +
+						"\nrelayed: " + messageRelayedPerSubscription.get(i) +
+						"\nduplicates: " + messageDuplicatesPerSubscription.get(i) +
+						"\naborted: " + messageAbortedPerSubscription.get(i) +
+						"\nInterfered: " + messageInterferedPerSubscription.get(i) +
+						"\ndropped: " + messageDroppedPerSubscription.get(i) +
+						"\nremoved: " + messageRemovedPerSubscription.get(i) +
+						"\ndelivered: " + messageDeliveredPerSubscription.get(i) +
+						"\ndelivery_prob: " + format(deliveryProbPerSub[i - 1]) +
+						"\nresponse_prob: " + format(responseProbPerSub[i - 1]) +
+						"\noverhead_ratio: " + format(overHeadPerSub[i - 1]) +
+						"\n\n";
+			write(statsText);
+		}
 		
 		super.done();
 	}
 	
+	/**
+	 * Stores the creation time of a message
+	 * @param m The message
+	 * @param time The creation time
+	 */
+	private void setCreationTime(Message m, double time) {
+		int id = m.getIntId();
+		if (id >= creationTimes.length) {
+			creationTimes = Arrays.copyOf(creationTimes,
+					Math.max(id + 1, creationTimes.length * 2));
+		}
+		creationTimes[id] = time;
+	}
+	
+	/**
+	 * Returns the stored creation time of a message
+	 * @param m The message
+	 * @return The creation time
+	 */
+	private double getCreationTime(Message m) {
+		return creationTimes[m.getIntId()];
+	}
+	
+	/**
+	 * Statistics accumulators indexed by subscription ID
+	 */
+	private class StatsPerSubscription {
+		private StreamingStats[] stats = new StreamingStats[
+				SubscriptionListManager.MAX_SUB_ID_OF_SIMULATION + 1];
+		
+		/**
+		 * Returns the accumulator of a subscription, creating it if needed
+		 * @param subID The subscription ID
+		 * @return The accumulator
+		 */
+		public StreamingStats get(int subID) {
+			if (subID >= stats.length) {
+				stats = Arrays.copyOf(stats, subID + 1);
+			}
+			if (stats[subID] == null) {
+				stats[subID] = newStats();
+			}
+			return stats[subID];
+		}
+		
+		/**
+		 * Returns the statistics of all the subscriptions merged in the
+		 * order of the subscription IDs
+		 * @return The merged statistics
+		 */
+		public StreamingStats getTotal() {
+			StreamingStats total = newStats();
+			for (StreamingStats s : stats) {
+				if (s != null) {
+					total.merge(s);
+				}
+			}
+			return total;
+		}
+	}
+	
 }
\ No newline at end of file
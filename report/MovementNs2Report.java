@@ -27,8 +27,8 @@ public class MovementNs2Report extends Report implements MovementListener {
 	
 	/** a value "close enough" to zero ({@value}). Used for fixing zero values*/
 	public static final double EPSILON = 0.00001; 
-	/** formatting string for coordinate values ({@value})*/
-	public static final String COORD_FORMAT = "%.5f";
+	/** number of decimals in coordinate values ({@value})*/
+	public static final int COORD_PRECISION = 5;
 	
 	private String nodeArray;
 	private String nsCmd;
@@ -78,12 +78,12 @@ public class MovementNs2Report extends Report implements MovementListener {
 	/** 
 	 * Fixes and formats coordinate values suitable for Ns2 module. 
 	 * I.e. converts zero-values to {@value EPSILON} and formats values
-	 * with {@link #COORD_FORMAT}. 
+	 * with {@link #COORD_PRECISION} decimals. 
 	 * @param val The value to fix
 	 * @return The fixed value
 	 */
 	private String fix(double val) {
 		val = val == 0 ? EPSILON : val;
-		return String.format(COORD_FORMAT, val);
+		return DoubleFormatter.format(val, COORD_PRECISION);
 	}
 }
@@ -4,9 +4,7 @@
  */
 package report;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import routing.MessageRouter.MessageDropMode;
 import core.DTNHost;
@@ -19,14 +17,20 @@ import core.MessageListener;
  * Messages that were created during the warm up period are ignored.
  * <P><strong>Note:</strong> if some statistics could not be created (e.g.
  * overhead ratio if no messages were delivered) "NaN" is reported for
- * double values and zero for integer median(s).
+ * double values and zero for integer median(s). The medians are
+ * approximated unless exact statistics are requested with the
+ * {@link Report#EXACT_STATS_S} setting.
  */
 public class PrioritizedMessageStatsReport extends Report implements MessageListener {
-	private Map<String, Double> creationTimes;
-	private ArrayList<Double> latencies[];
-	private ArrayList<Integer> hopCounts[];
-	private ArrayList<Double> msgCacheTime[];
-	private ArrayList<Double> rtt[]; // round trip times
+	/** Initial size of the creation time array */
+	private static final int INIT_NROF_MESSAGES = 1024;
+
+	/** creation times of the messages by their interned ids */
+	private double[] creationTimes;
+	private StreamingStats latencies[];
+	private StreamingStats hopCounts[];
+	private StreamingStats msgCacheTime[];
+	private StreamingStats rtt[]; // round trip times
 
 	private int nrofCreated[];
 	private int nrofTransmissions[];
@@ -53,27 +57,26 @@ public class PrioritizedMessageStatsReport extends Report implements MessageList
 	}
 
 	@Override
-	@SuppressWarnings("unchecked")
 	protected void init() {
 		super.init();
 		int priorityArraySize = Message.MAX_PRIORITY_LEVEL + 1;
 		
-		creationTimes = new HashMap<String, Double>();
-		latencies = new ArrayList[priorityArraySize];
+		creationTimes = new double[INIT_NROF_MESSAGES];
+		latencies = new StreamingStats[priorityArraySize];
 		for (int i = 0; i < priorityArraySize; i++) {
-			latencies[i] = new ArrayList<Double>();
+			latencies[i] = newStats();
 		}
-		hopCounts = new ArrayList[priorityArraySize];
+		hopCounts = new StreamingStats[priorityArraySize];
 		for (int i = 0; i < priorityArraySize; i++) {
-			hopCounts[i] = new ArrayList<Integer>();
+			hopCounts[i] = newStats();
 		}		
-		msgCacheTime = new ArrayList[priorityArraySize];
+		msgCacheTime = new StreamingStats[priorityArraySize];
 		for (int i = 0; i < priorityArraySize; i++) {
-			msgCacheTime[i] = new ArrayList<Double>();
+			msgCacheTime[i] = newStats();
 		}
-		rtt = new ArrayList[priorityArraySize];
+		rtt = new StreamingStats[priorityArraySize];
 		for (int i = 0; i < priorityArraySize; i++) {
-			rtt[i] = new ArrayList<Double>();
+			rtt[i] = newStats();
 		}
 
 		nrofCreated = new int[priorityArraySize];
@@ -147,7 +150,7 @@ public class PrioritizedMessageStatsReport extends Report implements MessageList
 		}
 	
 		nrofCreated[m.getPriority()]++;
-		creationTimes.put(m.getID(), getSimTime());
+		setCreationTime(m, getSimTime());
 		if (m.getTo() != null) {
 			nrofTotalDueDeliveries[m.getPriority()]++;
 		}
@@ -177,9 +180,9 @@ public class PrioritizedMessageStatsReport extends Report implements MessageList
 			nrofRelayed[m.getPriority()]++;
 			
 			if (finalTarget) {
-				latencies[m.getPriority()].add(getSimTime() - creationTimes.get(m.getID()));
+				latencies[m.getPriority()].add(getSimTime() - getCreationTime(m));
 				nrofDelivered[m.getPriority()]++;
-				hopCounts[m.getPriority()].add(m.getHops().size() - 1);
+				hopCounts[m.getPriority()].add(m.getHopCount());
 				
 				if (m.isResponse()) {
 					rtt[m.getPriority()].add(getSimTime() -	m.getRequest().getCreationTime());
@@ -289,7 +292,7 @@ public class PrioritizedMessageStatsReport extends Report implements MessageList
 						"\noverhead_ratio: " + format(overHead[i]) +
 						"\nlatency_avg: " + getAverage(latencies[i]) +
 						"\nlatency_med: " + getMedian(latencies[i]) +
-						"\nhopcount_avg: " + getIntAverage(hopCounts[i]) +
+						"\nhopcount_avg: " + getAverage(hopCounts[i]) +
 						"\nhopcount_med: " + getIntMedian(hopCounts[i]) +
 						"\ncachetime_avg: " + getAverage(msgCacheTime[i]) +
 						"\ncachetime_med: " + getMedian(msgCacheTime[i]) +
@@ -301,4 +304,27 @@ public class PrioritizedMessageStatsReport extends Report implements MessageList
 		super.done();
 	}
 	
+	/**
+	 * Stores the creation time of a message
+	 * @param m The message
+	 * @param time The creation time
+	 */
+	private void setCreationTime(Message m, double time) {
+		int id = m.getIntId();
+		if (id >= creationTimes.length) {
+			creationTimes = Arrays.copyOf(creationTimes,
+					Math.max(id + 1, creationTimes.length * 2));
+		}
+		creationTimes[id] = time;
+	}
+	
+	/**
+	 * Returns the stored creation time of a message
+	 * @param m The message
+	 * @return The creation time
+	 */
+	private double getCreationTime(Message m) {
+		return creationTimes[m.getIntId()];
+	}
+	
 }
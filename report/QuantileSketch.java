@@ -0,0 +1,229 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.Arrays;
+
+import core.SimError;
+
+/**
+ * Mergeable quantile sketch of double values (a KLL sketch). The values
+ * are kept in a hierarchy of compactors: a value on level <CODE>h</CODE>
+ * represents <CODE>2^h</CODE> original values. When the sketch gets full,
+ * its lowest full level is sorted and every other value of the level is
+ * moved to the next level. The
+ * capacities of the lower levels decrease geometrically, so the sketch
+ * keeps <CODE>O(k)</CODE> values and the rank error of the quantiles is
+ * roughly <CODE>1.7 / k</CODE> of the number of values (about 1% with the
+ * default {@value #DEF_K}). The compactions alternate between keeping the
+ * odd and the even values, so the results are deterministic.
+ * <P>
+ * The quantiles are always values that were added to the sketch, e.g.,
+ * integer valued input gives integer valued quantiles.
+ * </P>
+ */
+public class QuantileSketch {
+	/** Default size parameter */
+	public static final int DEF_K = 200;
+	/** Capacity ratio of two consecutive levels */
+	private static final double C = 2.0 / 3.0;
+	/** Smallest capacity of a level */
+	private static final int MIN_CAPACITY = 2;
+
+	private final int k;
+	/** the values of each level */
+	private double[][] levels;
+	/** number of values on each level */
+	private int[] sizes;
+	private int nrofLevels;
+	/** number of values added to the sketch */
+	private long count;
+	/** which values are kept in the next compaction */
+	private boolean oddOffset;
+
+	/**
+	 * Creates a sketch with the default size parameter
+	 */
+	public QuantileSketch() {
+		this(DEF_K);
+	}
+
+	/**
+	 * Creates a sketch
+	 * @param k The size parameter; larger values give smaller errors
+	 */
+	public QuantileSketch(int k) {
+		if (k < MIN_CAPACITY) {
+			throw new SimError("Invalid sketch size " + k);
+		}
+		this.k = k;
+		this.levels = new double[1][];
+		this.sizes = new int[1];
+		this.levels[0] = new double[capacity(0, 1)];
+		this.nrofLevels = 1;
+	}
+
+	/**
+	 * Returns the capacity of a level
+	 * @param level The level
+	 * @param height Number of levels in the sketch
+	 */
+	private int capacity(int level, int height) {
+		int depth = height - level - 1;
+		return Math.max(MIN_CAPACITY, (int)Math.ceil(k * Math.pow(C, depth)));
+	}
+
+	/**
+	 * Adds a value to the sketch
+	 * @param value The value
+	 */
+	public void add(double value) {
+		append(0, value);
+		count++;
+		compress();
+	}
+
+	/**
+	 * Adds the values of another sketch to this sketch. The other sketch is
+	 * not modified.
+	 * @param other The other sketch
+	 */
+	public void merge(QuantileSketch other) {
+		for (int h = 0; h < other.nrofLevels; h++) {
+			for (int i = 0; i < other.sizes[h]; i++) {
+				append(h, other.levels[h][i]);
+			}
+		}
+		count += other.count;
+		compress();
+	}
+
+	/**
+	 * Appends a value to a level, growing the level (and adding levels)
+	 * as needed
+	 */
+	private void append(int level, double value) {
+		if (level >= nrofLevels) {
+			if (level >= levels.length) {
+				levels = Arrays.copyOf(levels, level + 1);
+				sizes = Arrays.copyOf(sizes, level + 1);
+			}
+			for (int h = nrofLevels; h <= level; h++) {
+				levels[h] = new double[MIN_CAPACITY];
+			}
+			nrofLevels = level + 1;
+		}
+		if (sizes[level] == levels[level].length) {
+			levels[level] = Arrays.copyOf(levels[level], sizes[level] * 2);
+		}
+		levels[level][sizes[level]++] = value;
+	}
+
+	/**
+	 * Compacts the lowest full level(s) while the sketch holds more values
+	 * than its total capacity
+	 */
+	private void compress() {
+		while (true) {
+			int size = 0;
+			int totalCapacity = 0;
+			int lowestFull = -1;
+			for (int h = 0; h < nrofLevels; h++) {
+				int capacity = capacity(h, nrofLevels);
+				size += sizes[h];
+				totalCapacity += capacity;
+				if (lowestFull == -1 && sizes[h] >= capacity) {
+					lowestFull = h;
+				}
+			}
+			if (size < totalCapacity || lowestFull == -1) {
+				return;
+			}
+			compact(lowestFull);
+		}
+	}
+
+	/**
+	 * Moves every other value of a level to the next level. If the level
+	 * has an odd number of values, the largest value stays on the level.
+	 */
+	private void compact(int level) {
+		double[] values = levels[level];
+		int size = sizes[level];
+		Arrays.sort(values, 0, size);
+
+		int pairs = size / 2;
+		int offset = oddOffset ? 1 : 0;
+		oddOffset = !oddOffset;
+		for (int i = 0; i < pairs; i++) {
+			append(level + 1, values[2 * i + offset]);
+		}
+		/* levels may have been reallocated by the append */
+		values = levels[level];
+		if (size % 2 == 1) {
+			values[0] = values[size - 1];
+			sizes[level] = 1;
+		}
+		else {
+			sizes[level] = 0;
+		}
+	}
+
+	/**
+	 * Returns the number of values added to the sketch
+	 * @return The number of values
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the (approximately) rank-th smallest added value
+	 * @param rank The rank (0 for the smallest value)
+	 * @return The value or NaN if the sketch is empty
+	 */
+	public double getValueAtRank(long rank) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+
+		/* walk the sorted levels in parallel, smallest value first */
+		int[] next = new int[nrofLevels];
+		for (int h = 0; h < nrofLevels; h++) {
+			Arrays.sort(levels[h], 0, sizes[h]);
+		}
+
+		long weight = 0;
+		double last = Double.NaN;
+		while (true) {
+			int minLevel = -1;
+			for (int h = 0; h < nrofLevels; h++) {
+				if (next[h] < sizes[h] && (minLevel == -1 ||
+						levels[h][next[h]] < levels[minLevel][next[minLevel]])) {
+					minLevel = h;
+				}
+			}
+			if (minLevel == -1) {
+				return last; // rank >= count
+			}
+
+			last = levels[minLevel][next[minLevel]++];
+			weight += 1L << minLevel;
+			if (weight > rank) {
+				return last;
+			}
+		}
+	}
+
+	/**
+	 * Returns the (approximate) quantile of the added values
+	 * @param q The quantile (between 0 and 1)
+	 * @return The value or NaN if the sketch is empty
+	 */
+	public double getQuantile(double q) {
+		long rank = (long)(q * count);
+		return getValueAtRank(Math.min(rank, count - 1));
+	}
+}
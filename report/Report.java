@@ -5,15 +5,19 @@
 package report;
 
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
+import core.ListenerInterests;
 import core.Settings;
 import core.SimClock;
 import core.SimError;
@@ -25,8 +29,13 @@ import core.SimScenario;
  * reports ({@link #INTERVAL_SETTING}) and will ignore that setting. Most of 
  * the reports implement warm up feature ({@link #WARMUP_S}) but the
  * implementations are always report specific.
+ * <P>
+ * Listener reports are called for all the events of the listener
+ * interfaces they implement, unless they override the
+ * {@link ListenerInterests} methods.
+ * </P>
  */
-public abstract class Report {
+public abstract class Report implements ListenerInterests {
 	/** Name space of the settings that are common to all reports ({@value}). */ 
 	public static final String REPORT_NS = "Report";
 	/** The interval (simulated seconds) of creating new settings files 
@@ -49,6 +58,24 @@ public abstract class Report {
 	 *  respective report classes for details. Default is 0. Must be a positive
 	 *  integer or 0. */
 	public static final String WARMUP_S = "warmup";
+	/** Asynchronous output -setting id ({@value}). Boolean valued. If true,
+	 * the output is written by a background thread (see
+	 * {@link AsyncReportWriter}). Default is true. */
+	public static final String ASYNC_OUTPUT_S = "asyncOutput";
+	/** Compressed output -setting id ({@value}). Boolean valued. If true,
+	 * the output is gzip compressed and {@value #GZ_SUFFIX} is appended to
+	 * the output file names. Default is false. */
+	public static final String COMPRESS_S = "compress";
+	/** Suffix of compressed report files */
+	public static final String GZ_SUFFIX = ".gz";
+	/** Exact statistics -setting id ({@value}). Boolean valued. If true,
+	 * the reports store all the values of their statistics and report
+	 * exact medians. By default the medians are approximated with quantile
+	 * sketches (see {@link StreamingStats}). */
+	public static final String EXACT_STATS_S = "exactStats";
+	/** Quantile sketch size -setting id ({@value}). Larger sketches give
+	 * more accurate medians. Default is {@value QuantileSketch#DEF_K}. */
+	public static final String SKETCH_SIZE_S = "sketchSize";
 	/** Suffix of report files without explicit output */
 	public static final String OUT_SUFFIX = ".txt";
 	/** Suffix for reports that are created on n second intervals */
@@ -59,6 +86,10 @@ public abstract class Report {
 	public static final String NAN = "NaN";
 	private String prefix = "";
 	private int precision;
+	private boolean asyncOutput;
+	private boolean compress;
+	private boolean exactStats;
+	private int sketchSize;
 	protected int warmupTime;
 	protected Set<String> warmupIDs;
 	
@@ -107,6 +138,19 @@ public abstract class Report {
 			precision = DEF_PRECISION;
 		}
 		
+		asyncOutput = !settings.contains(ASYNC_OUTPUT_S) ||
+			settings.getBoolean(ASYNC_OUTPUT_S);
+		compress = settings.contains(COMPRESS_S) &&
+			settings.getBoolean(COMPRESS_S);
+		exactStats = settings.contains(EXACT_STATS_S) &&
+			settings.getBoolean(EXACT_STATS_S);
+		if (settings.contains(SKETCH_SIZE_S)) {
+			sketchSize = settings.getInt(SKETCH_SIZE_S);
+		}
+		else {
+			sketchSize = QuantileSketch.DEF_K;
+		}
+		
 		if (settings.contains(OUTPUT_SETTING)) {
 			outFileName = settings.getSetting(OUTPUT_SETTING);
 			// fill value place holders in the name
@@ -191,8 +235,24 @@ public abstract class Report {
 	 * @param outFileName Name (&path) of the file to create
 	 */
 	private void createOutput(String outFileName) {
+		if (compress) {
+			outFileName += GZ_SUFFIX;
+		}
+		
 		try {
-			this.out = new PrintWriter(new FileWriter(outFileName));
+			OutputStream stream = new FileOutputStream(outFileName);
+			if (compress) {
+				stream = new GZIPOutputStream(stream,
+						AsyncReportWriter.STREAM_BUFFER_SIZE);
+			}
+			
+			if (asyncOutput) {
+				this.out = new PrintWriter(
+						new AsyncReportWriter(stream, outFileName));
+			}
+			else {
+				this.out = new PrintWriter(new OutputStreamWriter(stream));
+			}
 		} catch (IOException e) {
 			throw new SimError("Couldn't open file '" + outFileName + 
 					"' for report output\n" + e.getMessage(), e);
@@ -235,7 +295,12 @@ public abstract class Report {
 		if (out == null) {
 			init();
 		}
-		out.println(prefix + txt);
+		if (prefix.length() == 0) {
+			out.println(txt);
+		}
+		else {
+			out.println(prefix + txt);
+		}
 	}
 	
 	/**
@@ -245,7 +310,7 @@ public abstract class Report {
 	 * @return Formatted value in a string
 	 */
 	protected String format(double value) {
-		return String.format("%." + precision + "f", value);
+		return DoubleFormatter.format(value, precision);
 	}
 	
 	/**
@@ -256,6 +321,15 @@ public abstract class Report {
 		this.prefix = txt;
 	}
 	
+	/**
+	 * Returns the name (and path) of the report's output file. Intervalled
+	 * reports append a number suffix to the name.
+	 * @return The name of the output file
+	 */
+	protected String getOutputFileName() {
+		return this.outFileName;
+	}
+	
 	/**
 	 * Returns the name of the scenario as read from the settings
 	 * @return the name of the scenario as read from the settings
@@ -328,7 +402,8 @@ public abstract class Report {
 	/**
 	 * Called when the simulation is done, user requested
 	 * premature termination or intervalled report generating decided
-	 * that it's time for the next report.
+	 * that it's time for the next report. Closing the output waits until
+	 * all the output has been written.
 	 */
 	public void done() {
 		if (out != null) {
@@ -336,6 +411,74 @@ public abstract class Report {
 		}
 	}
 	
+	public int getMessageEventInterests() {
+		return ALL_EVENTS;
+	}
+	
+	public int getConnectionEventInterests() {
+		return ALL_EVENTS;
+	}
+	
+	/**
+	 * Creates a new statistics accumulator that uses the report's
+	 * {@link #EXACT_STATS_S} and {@link #SKETCH_SIZE_S} settings
+	 * @return A new, empty, accumulator
+	 */
+	protected StreamingStats newStats() {
+		return new StreamingStats(exactStats, sketchSize);
+	}
+	
+	/**
+	 * Returns the average of the values of an accumulator
+	 * @param stats The accumulator
+	 * @return average of the values in a formatted String or "NaN" if
+	 * there are no values
+	 */
+	public String getAverage(StreamingStats stats) {
+		if (stats.getCount() == 0) {
+			return NAN;
+		}
+		return format(stats.getMean());
+	}
+	
+	/**
+	 * Returns the median of the values of an accumulator
+	 * @param stats The accumulator
+	 * @return median of the values in a formatted String or "NaN" if
+	 * there are no values
+	 */
+	public String getMedian(StreamingStats stats) {
+		if (stats.getCount() == 0) {
+			return NAN;
+		}
+		return format(stats.getMedian());
+	}
+	
+	/**
+	 * Returns the median of integer values of an accumulator
+	 * @param stats The accumulator
+	 * @return median of the values or 0 if there are no values
+	 */
+	public int getIntMedian(StreamingStats stats) {
+		if (stats.getCount() == 0) {
+			return 0;
+		}
+		return (int)stats.getValueAtRank(stats.getCount() / 2);
+	}
+	
+	/**
+	 * Returns the variance of the values of an accumulator
+	 * @param stats The accumulator
+	 * @return variance of the values in a formatted String or "NaN" if
+	 * there are no values
+	 */
+	public String getVariance(StreamingStats stats) {
+		if (stats.getCount() == 0) {
+			return NAN;
+		}
+		return format(stats.getVariance());
+	}
+	
 	/**
 	 * Returns the average of double values stored in a List or "NaN" for
 	 * empty lists.
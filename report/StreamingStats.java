@@ -0,0 +1,227 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import java.util.Arrays;
+
+import core.SimError;
+
+/**
+ * Accumulator of statistics of a stream of double values. The count, sum,
+ * minimum and maximum are kept exactly and the variance is updated with
+ * Welford's algorithm. The medians and other quantiles come from a
+ * {@link QuantileSketch}, so the memory use doesn't grow with the number
+ * of values. In the exact mode all the values are stored in a primitive
+ * array instead of the sketch and the quantiles are exact.
+ * Accumulators can be merged (e.g., for totals of per class statistics).
+ */
+public class StreamingStats {
+	private final boolean exact;
+	private long count;
+	private double sum;
+	private double mean;
+	/** sum of the squared differences from the mean */
+	private double m2;
+	private double min;
+	private double max;
+	/** the sketch (if not in the exact mode) */
+	private QuantileSketch sketch;
+	/** all the values in the order they were added (in the exact mode) */
+	private double[] values;
+	/** sorted copy of the values (null if not up to date) */
+	private double[] sortedValues;
+
+	/**
+	 * Creates an accumulator with a quantile sketch of the default size
+	 */
+	public StreamingStats() {
+		this(false, QuantileSketch.DEF_K);
+	}
+
+	/**
+	 * Creates an accumulator
+	 * @param exact If true, all the values are stored and the quantiles
+	 * are exact
+	 * @param sketchSize Size parameter of the quantile sketch (see
+	 * {@link QuantileSketch#QuantileSketch(int)}); not used in the exact mode
+	 */
+	public StreamingStats(boolean exact, int sketchSize) {
+		this.exact = exact;
+		this.min = Double.POSITIVE_INFINITY;
+		this.max = Double.NEGATIVE_INFINITY;
+		if (exact) {
+			this.values = new double[16];
+		}
+		else {
+			this.sketch = new QuantileSketch(sketchSize);
+		}
+	}
+
+	/**
+	 * Adds a value
+	 * @param value The value
+	 */
+	public void add(double value) {
+		count++;
+		sum += value;
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+
+		if (exact) {
+			if (count > values.length) {
+				values = Arrays.copyOf(values, values.length * 2);
+			}
+			values[(int)count - 1] = value;
+			sortedValues = null;
+		}
+		else {
+			sketch.add(value);
+		}
+	}
+
+	/**
+	 * Adds the values of another accumulator to this one. The other
+	 * accumulator is not modified.
+	 * @param other The other accumulator
+	 */
+	public void merge(StreamingStats other) {
+		if (other.count == 0) {
+			return;
+		}
+		if (exact) {
+			if (!other.exact) {
+				throw new SimError("Can't merge a sketch to exact stats");
+			}
+			/* keeps the sum equal to the sum of the values in order */
+			for (int i = 0; i < other.count; i++) {
+				add(other.values[i]);
+			}
+			return;
+		}
+
+		long n = count + other.count;
+		double delta = other.mean - mean;
+		mean += delta * other.count / n;
+		m2 += other.m2 + delta * delta * count * other.count / n;
+		count = n;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+
+		if (other.exact) {
+			for (int i = 0; i < other.count; i++) {
+				sketch.add(other.values[i]);
+			}
+		}
+		else {
+			sketch.merge(other.sketch);
+		}
+	}
+
+	/**
+	 * Returns the number of values
+	 * @return The number of values
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns the sum of the values
+	 * @return The sum of the values
+	 */
+	public double getSum() {
+		return this.sum;
+	}
+
+	/**
+	 * Returns the average of the values
+	 * @return The average or NaN if there are no values
+	 */
+	public double getMean() {
+		return count == 0 ? Double.NaN : sum / count;
+	}
+
+	/**
+	 * Returns the (population) variance of the values
+	 * @return The variance or NaN if there are no values
+	 */
+	public double getVariance() {
+		return count == 0 ? Double.NaN : m2 / count;
+	}
+
+	/**
+	 * Returns the smallest value
+	 * @return The smallest value or NaN if there are no values
+	 */
+	public double getMin() {
+		return count == 0 ? Double.NaN : min;
+	}
+
+	/**
+	 * Returns the largest value
+	 * @return The largest value or NaN if there are no values
+	 */
+	public double getMax() {
+		return count == 0 ? Double.NaN : max;
+	}
+
+	/**
+	 * Returns the rank-th smallest value (approximately, if not in the
+	 * exact mode)
+	 * @param rank The rank (0 for the smallest value)
+	 * @return The value or NaN if there are no values
+	 */
+	public double getValueAtRank(long rank) {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (!exact) {
+			return sketch.getValueAtRank(rank);
+		}
+		if (sortedValues == null) {
+			sortedValues = Arrays.copyOf(values, (int)count);
+			Arrays.sort(sortedValues);
+		}
+		return sortedValues[(int)Math.min(rank, count - 1)];
+	}
+
+	/**
+	 * Returns the median of the values. For an even number of values, the
+	 * median is the average of the two middle values.
+	 * @return The median or NaN if there are no values
+	 */
+	public double getMedian() {
+		if (count == 0) {
+			return Double.NaN;
+		}
+		if (count % 2 == 0) {
+			return (getValueAtRank(count / 2 - 1) + getValueAtRank(count / 2))
+				/ 2;
+		}
+		return getValueAtRank(count / 2);
+	}
+
+	/**
+	 * Returns a quantile of the values
+	 * @param q The quantile (between 0 and 1)
+	 * @return The value or NaN if there are no values
+	 */
+	public double getQuantile(double q) {
+		long rank = (long)(q * count);
+		return getValueAtRank(Math.min(rank, count - 1));
+	}
+
+	/**
+	 * Returns true if all the values are stored and the quantiles are exact
+	 * @return True for exact accumulators
+	 */
+	public boolean isExact() {
+		return this.exact;
+	}
+}
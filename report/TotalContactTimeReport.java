@@ -7,7 +7,7 @@ package report;
 import java.util.List;
 
 import core.DTNHost;
-import core.UpdateListener;
+import core.ScheduledUpdateListener;
 
 /**
  * Report for total amount of contact times among hosts. Reports how long all
@@ -18,7 +18,7 @@ import core.UpdateListener;
  * warmup period are ignored.
  */
 public class TotalContactTimeReport extends ContactTimesReport implements
-		UpdateListener {
+		ScheduledUpdateListener {
 	
 	/** The header of every report file */
 	public static final String HEADER = "# time totalContactTime";
@@ -40,19 +40,19 @@ public class TotalContactTimeReport extends ContactTimesReport implements
 	@Override
 	public void hostsDisconnected(DTNHost host1, DTNHost host2) {
 		newEvent();
-		ConnectionInfo ci = removeConnection(host1, host2);
+		double time = removeConnection(host1, host2);
 		
-		if (ci == null) {
+		if (time < 0) {
 			return; // connection started during the warm up period
 		}
 		
-		oldContactTimes += ci.getConnectionTime();		
+		oldContactTimes += time;		
 	}
 
 	/**
 	 * Reports total contact time if more time than defined with setting
 	 * {@link ContactTimesReport#GRANULARITY} has passed. Method is called
-	 * on every update cycle.
+	 * on the update cycles at or after {@link #nextUpdateTime()}.
 	 */
 	public void updated(List<DTNHost> hosts) {
 		double simTime = getSimTime();
@@ -63,8 +63,9 @@ public class TotalContactTimeReport extends ContactTimesReport implements
 		
 		// count also the times for connections that are still up
 		double othersTime = 0;
-		for (ConnectionInfo oth : this.connections.values()) {
-			othersTime += oth.getConnectionTime();
+		for (int i = connections.nextSlot(0); i >= 0;
+				i = connections.nextSlot(i + 1)) {
+			othersTime += simTime - connections.valueAt(i);
 		}
 		
 		double totalTime = oldContactTimes + othersTime;
@@ -76,4 +77,12 @@ public class TotalContactTimeReport extends ContactTimesReport implements
 		write(format(simTime) + " " + format(totalTime));
 		lastReportedTime = totalTime;
 	}
+
+	/**
+	 * Returns the time when the total contact time should be reported next
+	 * @return The time of the next report
+	 */
+	public double nextUpdateTime() {
+		return Math.max(lastWrite + granularity, warmupTime);
+	}
 }
@@ -7,8 +7,9 @@ package report;
 import java.util.List;
 
 import core.ConnectionListener;
+import core.ConnectionListenerDispatch;
 import core.DTNHost;
-import core.UpdateListener;
+import core.ScheduledUpdateListener;
 
 /**
  * A report of the distribution of how many encounters (contacts) a node has had 
@@ -16,7 +17,7 @@ import core.UpdateListener;
  * @author Frans Ekman
  */
 public class TotalEncountersReport extends Report implements ConnectionListener,
-	UpdateListener {
+	ScheduledUpdateListener {
 
 	private int[] encounters;
 	
@@ -24,6 +25,11 @@ public class TotalEncountersReport extends Report implements ConnectionListener,
 		
 	}
 	
+	@Override
+	public int getConnectionEventInterests() {
+		return (1 << ConnectionListenerDispatch.HOSTS_CONNECTED);
+	}
+	
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
 		if (encounters == null) {
 			return;
@@ -40,6 +46,13 @@ public class TotalEncountersReport extends Report implements ConnectionListener,
 		}
 	}
 
+	/**
+	 * The report needs only the first update (to know the number of hosts)
+	 */
+	public double nextUpdateTime() {
+		return encounters == null ? 0 : Double.MAX_VALUE;
+	}
+
 	@Override
 	public void done() {
 
@@ -7,8 +7,9 @@ package report;
 import java.util.List;
 
 import core.ConnectionListener;
+import core.ConnectionListenerDispatch;
 import core.DTNHost;
-import core.UpdateListener;
+import core.ScheduledUpdateListener;
 
 /**
  * UniqueEncountersReport class creates a report of the distribution of how 
@@ -17,7 +18,7 @@ import core.UpdateListener;
  * @author Frans Ekman
  */
 public class UniqueEncountersReport extends Report implements 
-	ConnectionListener, UpdateListener {
+	ConnectionListener, ScheduledUpdateListener {
 
 	private int[][] nodeRelationships;
 	
@@ -25,6 +26,11 @@ public class UniqueEncountersReport extends Report implements
 		
 	}
 	
+	@Override
+	public int getConnectionEventInterests() {
+		return (1 << ConnectionListenerDispatch.HOSTS_CONNECTED);
+	}
+	
 	public void hostsConnected(DTNHost host1, DTNHost host2) {
 		if (nodeRelationships == null) {
 			return;
@@ -41,6 +47,13 @@ public class UniqueEncountersReport extends Report implements
 		}
 	}
 
+	/**
+	 * The report needs only the first update (to know the number of hosts)
+	 */
+	public double nextUpdateTime() {
+		return nodeRelationships == null ? 0 : Double.MAX_VALUE;
+	}
+
 	@Override
 	public void done() {
 		int[] distribution = new int[1000];
@@ -7,11 +7,14 @@ package routing;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 
 import core.NetworkInterface;
 import core.Connection;
 import core.DTNHost;
+import core.IntHashSet;
 import core.Message;
 import core.MessageListener;
 import core.Settings;
@@ -31,6 +34,17 @@ public abstract class ActiveRouter extends MessageRouter {
 	public static final String DELETE_DELIVERED_S = "deleteDelivered";
 	/** It controls whether delivered messages should be deleted from cache */
 	protected boolean deleteDelivered;
+	/** Peer message summaries -setting id ({@value}). Boolean valued.
+	 * If set to true, the router keeps track of the messages that the
+	 * peer of each connection is known to have and does not offer them to
+	 * the peer (see {@link #tryAllMessages(Connection, List)}).
+	 * Default=false. */
+	public static final String PEER_SUMMARIES_S = "peerSummaries";
+	/** It controls whether peer message summaries are used */
+	private boolean usePeerSummaries;
+	/** integer IDs of the messages that the peers are known to have
+	 * (by connection); null if the summaries are not used */
+	private HashMap<Connection, IntHashSet> peerSummaries;
 	
 	/** prefix of all response message IDs */
 	public static final String RESPONSE_PREFIX = "R_";
@@ -56,6 +70,8 @@ public abstract class ActiveRouter extends MessageRouter {
 		else {
 			this.deleteDelivered = false;
 		}
+		this.usePeerSummaries = s.contains(PEER_SUMMARIES_S) &&
+			s.getBoolean(PEER_SUMMARIES_S);
 	}
 	
 	/**
@@ -66,6 +82,7 @@ public abstract class ActiveRouter extends MessageRouter {
 		super(r);
 		
 		this.deleteDelivered = r.deleteDelivered;
+		this.usePeerSummaries = r.usePeerSummaries;
 	}
 	
 	@Override
@@ -74,6 +91,10 @@ public abstract class ActiveRouter extends MessageRouter {
 		
 		sendingConnections = new ArrayList<Connection>(1);
 		lastTtlCheck = 0;
+		if (usePeerSummaries) {
+			peerSummaries = new HashMap<Connection, IntHashSet>();
+			trackNeighborCaches();
+		}
 	}
 	
 	
@@ -190,11 +211,13 @@ public abstract class ActiveRouter extends MessageRouter {
 			addToSendingConnections(con);
 			return RCV_OK;
 		}
-		else if (deleteDelivered && (retVal == DENIED_OLD) &&
-			(m.getTo() == con.getOtherNode(getHost()))) {
-			/* final recipient has already received the msg -> delete it */
-			deleteMessage(m.getID(), MessageDropMode.REMOVED,
-							"message had already been delivered");
+		else if (retVal == DENIED_OLD) {
+			peerHasMessage(con, m);
+			if (deleteDelivered && (m.getTo() == con.getOtherNode(getHost()))) {
+				/* final recipient has already received the msg -> delete it */
+				deleteMessage(m.getID(), MessageDropMode.REMOVED,
+								"message had already been delivered");
+			}
 		}
 		
 		return retVal;
@@ -295,7 +318,12 @@ public abstract class ActiveRouter extends MessageRouter {
 	  */
 	protected Message tryAllMessages(Connection con, List<Message> messages) {
 		DTNHost destinationNode = con.getOtherNode(getHost());
+		IntHashSet peerMessages = getPeerSummary(con);
 		for (Message m : messages) {
+			if ((peerMessages != null) && peerMessages.contains(m.getIntId())) {
+				// The peer already has the message
+				continue;
+			}
 			if ((m.getSenderNode() == destinationNode) ||
 				!shouldDeliverMessageToHost(m, destinationNode)) {
 				// Avoid to send a message right back to the sender
@@ -313,6 +341,65 @@ public abstract class ActiveRouter extends MessageRouter {
 		
 		return null; // no message was accepted
 	}
+	
+	/**
+	 * Returns the summary of the messages that the peer of a connection is
+	 * known to have. A new summary is built from the messages of the peer
+	 * when the connection is first used. It is updated when the peer adds
+	 * or removes messages, e.g., when a transfer to it is done (see 
+	 * {@link #neighborCacheChanged(Connection, Message, boolean)}), and
+	 * when the peer rejects a message it already has.
+	 * @param con The connection
+	 * @return The integer IDs of the messages the peer is known to have, or
+	 * null if peer summaries are not used.
+	 */
+	protected IntHashSet getPeerSummary(Connection con) {
+		if (peerSummaries == null) {
+			return null;
+		}
+		
+		IntHashSet summary = peerSummaries.get(con);
+		if (summary == null) {
+			MessageRouter peerRouter = con.getOtherNode(getHost()).getRouter();
+			summary = new IntHashSet();
+			for (Message m : getMessageList()) {
+				if (peerRouter.hasMessage(m.getIntId()) ||
+					peerRouter.isDeliveredMessage(m)) {
+					summary.add(m.getIntId());
+				}
+			}
+			peerSummaries.put(con, summary);
+		}
+		
+		return summary;
+	}
+	
+	/**
+	 * Records that the peer of a connection has a message
+	 * @param con The connection
+	 * @param m The message
+	 */
+	private void peerHasMessage(Connection con, Message m) {
+		IntHashSet summary = getPeerSummary(con);
+		if (summary != null) {
+			summary.add(m.getIntId());
+		}
+	}
+	
+	@Override
+	protected void neighborCacheChanged(Connection con, Message m,
+			boolean added) {
+		if ((peerSummaries == null) || !peerSummaries.containsKey(con)) {
+			return; // the summary is built when it is needed
+		}
+		
+		if (added) {
+			peerSummaries.get(con).add(m.getIntId());
+		}
+		else {
+			peerSummaries.get(con).remove(m.getIntId());
+		}
+	}
 
 	/**
 	 * Tries to send all given messages to all given connections. Connections
@@ -468,6 +555,16 @@ public abstract class ActiveRouter extends MessageRouter {
 			}
 		}
 		
+		/* forget the summaries of the connections that have gone down */
+		if ((peerSummaries != null) && !peerSummaries.isEmpty()) {
+			for (Iterator<Connection> i = peerSummaries.keySet().iterator();
+					i.hasNext();) {
+				if (!i.next().isUp()) {
+					i.remove();
+				}
+			}
+		}
+		
 		/* time to do a TTL check and drop old messages? Only if not sending */
 		if ((SimClock.getTime() - lastTtlCheck >= TTL_CHECK_INTERVAL) &&
 			(sendingConnections.size() == 0)) {
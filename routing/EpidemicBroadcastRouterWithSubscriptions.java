@@ -6,7 +6,6 @@ package routing;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 import java.text.ParseException;
@@ -33,12 +32,10 @@ public class EpidemicBroadcastRouterWithSubscriptions
 
 	private final ADCMode pubSubDisseminationMode;
 	private final SubscriptionListManager nodeSubscriptions;
-	private HashMap<String, Boolean> sendMsgSemiPermeableFilter;
-	private HashMap<String, Boolean> receiveMsgSemiPermeableFilter;
+	/** semi-permeable filters of the sent and the received messages */
+	private final SemiPermeableFilter sendFilter;
+	private final SemiPermeableFilter receiveFilter;
 	
-	private final double sendProbability;
-	private final double receiveProbability;
-	
 	/**
 	 * Constructor. Creates a new message router based on
 	 * the settings in the given Settings object.
@@ -62,18 +59,20 @@ public class EpidemicBroadcastRouterWithSubscriptions
 		}
 		
 		this.pubSubDisseminationMode = ADCMode.values()[subpubDisMode];
+		double sendProbability;
+		double receiveProbability;
 		if (this.pubSubDisseminationMode == ADCMode.SEMI_PERMEABLE) {
-			this.sendProbability = s.contains(MESSAGE_DISSEMINATION_PROBABILITY_S) ? s.getDouble(MESSAGE_DISSEMINATION_PROBABILITY_S) : 0.5;
-			this.receiveProbability = s.contains(MESSAGE_ACCEPT_PROBABILITY_S) ? s.getDouble(MESSAGE_ACCEPT_PROBABILITY_S) : 0.5;
+			sendProbability = s.contains(MESSAGE_DISSEMINATION_PROBABILITY_S) ? s.getDouble(MESSAGE_DISSEMINATION_PROBABILITY_S) : 0.5;
+			receiveProbability = s.contains(MESSAGE_ACCEPT_PROBABILITY_S) ? s.getDouble(MESSAGE_ACCEPT_PROBABILITY_S) : 0.5;
 		}
 		else {
-			this.sendProbability = (this.pubSubDisseminationMode ==
+			sendProbability = (this.pubSubDisseminationMode ==
 									ADCMode.UNCONSTRAINED) ? 1.0 : 0.0;
-			this.receiveProbability = (this.pubSubDisseminationMode ==
+			receiveProbability = (this.pubSubDisseminationMode ==
 										ADCMode.UNCONSTRAINED) ? 1.0 : 0.0;
 		}
-		this.sendMsgSemiPermeableFilter = new HashMap<String, Boolean>();
-		this.receiveMsgSemiPermeableFilter = new HashMap<String, Boolean>();
+		this.sendFilter = new SemiPermeableFilter(sendProbability);
+		this.receiveFilter = new SemiPermeableFilter(receiveProbability);
 	}
 	
 	/**
@@ -85,11 +84,8 @@ public class EpidemicBroadcastRouterWithSubscriptions
 		
 		this.pubSubDisseminationMode = r.pubSubDisseminationMode;
 		this.nodeSubscriptions = r.nodeSubscriptions.replicate();
-		this.sendMsgSemiPermeableFilter = new HashMap<String, Boolean>();
-		this.receiveMsgSemiPermeableFilter = new HashMap<String, Boolean>();
-		
-		this.sendProbability = r.sendProbability;
-		this.receiveProbability = r.receiveProbability;
+		this.sendFilter = r.sendFilter.replicate();
+		this.receiveFilter = r.receiveFilter.replicate();
 	}
 
 	@Override
@@ -114,12 +110,7 @@ public class EpidemicBroadcastRouterWithSubscriptions
 			case UNCONSTRAINED:
 				return super.messageTransferred(msgID, con);
 			case SEMI_PERMEABLE:
-				if (!receiveMsgSemiPermeableFilter.containsKey(msgID)) {
-					receiveMsgSemiPermeableFilter.put(msgID, Boolean.valueOf(
-							nextRandomDouble() <= receiveProbability));
-				}
-				
-				if (receiveMsgSemiPermeableFilter.get(msgID).booleanValue()) {
+				if (receiveFilter.passes(con.getMessage().getIntId())) {
 					return super.messageTransferred(msgID, con);
 				}
 				message = "semi-permeable dissemination mode";
@@ -172,7 +163,7 @@ public class EpidemicBroadcastRouterWithSubscriptions
 		if ((pubSubDisseminationMode == ADCMode.SEMI_PERMEABLE) &&
 			updateNeighborsList()) {
 			// There are new neighbors: change send filter
-			sendMsgSemiPermeableFilter.clear();
+			sendFilter.clear();
 		}
 		
 		 /* Then, try to send the messages that can be delivered to their
@@ -221,7 +212,7 @@ public class EpidemicBroadcastRouterWithSubscriptions
 			return false;
 		}
 		
-		Integer messageSubID = (Integer) aMessage.getProperty(SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
+		int messageSubID = aMessage.getIntProperty(SUBSCRIPTION_ID_PROPERTY);
 		return getSubscriptionList().containsSubscriptionID(messageSubID);
 	}
 
@@ -295,12 +286,7 @@ public class EpidemicBroadcastRouterWithSubscriptions
 		case UNCONSTRAINED:
 			return true;
 		case SEMI_PERMEABLE:
-			if (!sendMsgSemiPermeableFilter.containsKey(m.getID())) {
-				sendMsgSemiPermeableFilter.put(m.getID(), Boolean.valueOf(
-											nextRandomDouble() <= sendProbability));
-			}
-			
-			return sendMsgSemiPermeableFilter.get(m.getID()).booleanValue();
+			return sendFilter.passes(m.getIntId());
 		}
 		
 		return false;
@@ -313,12 +299,7 @@ public class EpidemicBroadcastRouterWithSubscriptions
 		case UNCONSTRAINED:
 			return true;
 		case SEMI_PERMEABLE:
-			if (!receiveMsgSemiPermeableFilter.containsKey(m.getID())) {
-				receiveMsgSemiPermeableFilter.put(m.getID(), Boolean.valueOf(
-											nextRandomDouble() <= receiveProbability));
-			}
-			
-			return receiveMsgSemiPermeableFilter.get(m.getID()).booleanValue();
+			return receiveFilter.passes(m.getIntId());
 		}
 		
 		return false;
@@ -137,7 +137,7 @@ public class EpidemicRouterWithSubscriptions extends ActiveRouter
 	 */
 	@Override
 	public Message messageTransferred(String id, Connection con) {
-		Integer subID = (Integer) con.getMessage().getProperty(SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
+		Integer subID = con.getMessage().getIntProperty(SUBSCRIPTION_ID_PROPERTY);
 		if (!getSubscriptionList().getSubscriptionList().contains(subID)) {
 			if (RANDOM_GENERATOR.nextDouble() > receiveProbability) {
 				// remove message from receiving interface and refuse message
@@ -197,7 +197,7 @@ public class EpidemicRouterWithSubscriptions extends ActiveRouter
 
 	@Override
 	protected boolean isMessageDestination(Message aMessage) {
-		Integer messageSubID = (Integer) aMessage.getProperty(SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
+		int messageSubID = aMessage.getIntProperty(SUBSCRIPTION_ID_PROPERTY);
 		
 		return getSubscriptionList().containsSubscriptionID(messageSubID);
 	}
@@ -1,11 +1,11 @@
 package routing;
 
 import java.text.ParseException;
-import java.util.ArrayList;
 import java.util.List;
 
 import core.Connection;
 import core.DTNHost;
+import core.IntHashSet;
 import core.Message;
 import core.MessageListener;
 import core.NetworkInterface;
@@ -29,7 +29,8 @@ public class IceDimRouter extends BroadcastEnabledRouter implements PublisherSub
 	private final double pingInterval;
 	protected double lastPingSentTime[];
 	
-	protected ArrayList<String> receivedMsgIDs;
+	/** integer IDs of the messages created or received by this router */
+	protected IntHashSet receivedMsgIDs;
 	protected KnowledgeOfSurroundings koS;
 	
 	protected HelloMessageGen hmGenerator;
@@ -48,7 +49,7 @@ public class IceDimRouter extends BroadcastEnabledRouter implements PublisherSub
 		}
 		this.lastPingSentTime = null;	// It will be allocated in the init() method
 		
-		this.receivedMsgIDs = new ArrayList<String>();		
+		this.receivedMsgIDs = new IntHashSet();
 		this.koS = new KnowledgeOfSurroundings(this.getHost(), s);
 		
 		try {
@@ -74,7 +75,7 @@ public class IceDimRouter extends BroadcastEnabledRouter implements PublisherSub
 		this.pingInterval = r.pingInterval;
 		this.lastPingSentTime = null;	// It will be allocated in the init() method
 
-		this.receivedMsgIDs = new ArrayList<String>();
+		this.receivedMsgIDs = new IntHashSet();
 		this.nodeSubscriptions = r.nodeSubscriptions.replicate();
 		
 		this.koS = new KnowledgeOfSurroundings(r.getHost(), r.koS);
@@ -133,9 +134,9 @@ public class IceDimRouter extends BroadcastEnabledRouter implements PublisherSub
 		nextSearch:
 			for (Message pm : sortedMessageList) {
 				for (NeighborInfo neighborInfo : nearbyNodes) {
-					Integer subID = (Integer) pm.getProperty(SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
+					int subID = pm.getIntProperty(SUBSCRIPTION_ID_PROPERTY);
 					if (neighborInfo.getSubscriptionList().containsSubscriptionID(subID) &&
-						!neighborInfo.getReceivedMessagesList().contains(pm.getID())) {
+						!neighborInfo.hasReceivedMessage(pm.getIntId())) {
 						if (BROADCAST_OK != tryBroadcastOneMessage (pm, ni)) {
 							throw new SimError("Impossible transmit message " + pm +
 												" via Network Interface" + ni);
@@ -208,7 +209,7 @@ public class IceDimRouter extends BroadcastEnabledRouter implements PublisherSub
 
 	@Override
 	public boolean createNewMessage(Message m) {
-		receivedMsgIDs.add(m.getID());
+		receivedMsgIDs.add(m.getIntId());
 		return super.createNewMessage(m);
 	}
 	
@@ -232,19 +233,26 @@ public class IceDimRouter extends BroadcastEnabledRouter implements PublisherSub
 	@Override
 	public Message messageTransferred(String id, Connection con) {
 		Message m = super.messageTransferred(id, con);
-		
 		if (m instanceof IceDimHelloMessage) {
 			// Process DisService HELLO message
-			IceDimHelloMessage receivedHelloMessage = (IceDimHelloMessage) m;
-			koS.processHelloMessage(receivedHelloMessage);
-			deleteMessageWithoutRaisingEvents(id);
+			koS.processHelloMessage((IceDimHelloMessage) m);
 		}
 		else if (m != null) {
-			receivedMsgIDs.add(m.getID());
+			receivedMsgIDs.add(m.getIntId());
 		}
 		
 		return m;
 	}
+	
+	/**
+	 * Every HELLO message has a new identifier, so they are not cached or
+	 * recorded as received messages (and their identifiers are not
+	 * interned).
+	 */
+	@Override
+	protected boolean isCachedWhenReceived(Message m) {
+		return !(m instanceof IceDimHelloMessage);
+	}
 
 	/**
 	 * Returns a list of subscriptions this host has.
@@ -287,7 +295,7 @@ public class IceDimRouter extends BroadcastEnabledRouter implements PublisherSub
 	protected void removeExpiredMessagesFromCache() {
 		for (Message m : getMessageList()) {
 			if (m.getTtl() <= 0) {
-				if (!receivedMsgIDs.remove(m.getID())) {
+				if (!receivedMsgIDs.remove(m.getIntId())) {
 					throw new SimError("Impossible to find message " +
 										m.getID() + " among receivedMsgIDs");
 				}
@@ -321,14 +329,14 @@ public class IceDimRouter extends BroadcastEnabledRouter implements PublisherSub
 class HelloMessageGen {
 
 	private DTNHost node;
-	private ArrayList<String> receivedMsgIDs;
+	private IntHashSet receivedMsgIDs;
 	private SubscriptionListManager nodeSubscriptions;
 	
 	private int helloMsgIDCounter;
 	
 	static final int SourceAndIDSize = 8; // 8 bytes --> 2 * 32bit integers	
 	
-	public HelloMessageGen(ArrayList<String> receivedMsgIDs, SubscriptionListManager nodeSubscriptions) {
+	public HelloMessageGen(IntHashSet receivedMsgIDs, SubscriptionListManager nodeSubscriptions) {
 		this.node = null;
 		this.receivedMsgIDs = receivedMsgIDs;
 		this.nodeSubscriptions = nodeSubscriptions;
@@ -341,7 +349,7 @@ class HelloMessageGen {
 	}
 	
 	public IceDimHelloMessage buildHelloMsg() {
-		return new IceDimHelloMessage (node, getHelloMsgID(), getHelloMsgSize(), receivedMsgIDs,
+		return new IceDimHelloMessage (node, getHelloMsgID(), getHelloMsgSize(), receivedMsgIDs.toArray(),
 											nodeSubscriptions.getSubscriptionList());
 	}
 	
@@ -8,16 +8,16 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import routing.maxprop.MaxPropDijkstra;
 import routing.maxprop.MeetingProbabilitySet;
+import routing.maxprop.MessageAckSet;
 import core.Connection;
 import core.DTNHost;
 import core.Message;
+import core.MessageIdInterner;
 import core.Settings;
 import core.SimClock;
 import core.SimError;
@@ -50,14 +50,8 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 	private Map<Integer, MeetingProbabilitySet> allProbs;
 	/** the cost-to-node calculator */
 	private MaxPropDijkstra dijkstra;	
-	/** IDs of the messages that are known to have reached the final dst */
-	private Set<String> ackedMessageIds;
-	/** mapping of the current costs for all messages. This should be set to
-	 * null always when the costs should be updated (a host is met or a new
-	 * message is received) */
-	private Map<Integer, Double> costsForMessages;
-	/** From host of the last cost calculation */
-	private DTNHost lastCostFrom;
+	/** Messages that are known to have reached the final dst */
+	private MessageAckSet ackedMessages;
 		
 	/** Over how many samples the "average number of bytes transferred per
 	 * transfer opportunity" is taken */
@@ -121,7 +115,7 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 				MeetingProbabilitySet.INFINITE_SET_SIZE, this.alpha);
 		this.allProbs = new HashMap<Integer, MeetingProbabilitySet>();
 		this.dijkstra = new MaxPropDijkstra(this.allProbs);
-		this.ackedMessageIds = new HashSet<String>();
+		this.ackedMessages = new MessageAckSet();
 		this.avgSamples = new int[BYTES_TRANSFERRED_AVG_SAMPLES];
 		initMeetings();
 	}	
@@ -142,8 +136,6 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 	@Override
 	public void changedConnection(Connection con) {
 		if (con.isUp()) { // new connection
-			this.costsForMessages = null; // invalidate old cost estimates
-			
 			if (con.isInitiator(getHost())) {
 				/* initiator performs all the actions on behalf of the
 				 * other node too (so that the meeting probs are updated
@@ -163,22 +155,28 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 					otherRouter.updateParam();
 				}
 				
-				/* exchange ACKed message data */
-				this.ackedMessageIds.addAll(otherRouter.ackedMessageIds);
-				otherRouter.ackedMessageIds.addAll(this.ackedMessageIds);
+				/* exchange ACKed message data (only the ACKs that have
+				 * not been sent to the other host before) */
+				double time = SimClock.getTime();
+				this.ackedMessages.sendTo(otherRouter.ackedMessages,
+						otherHost.getAddress(), time);
+				otherRouter.ackedMessages.sendTo(this.ackedMessages,
+						getHost().getAddress(), time);
 				deleteAckedMessages();
 				otherRouter.deleteAckedMessages();
 				
 				/* update both meeting probabilities */
 				probs.updateMeetingProbFor(otherHost.getAddress());
 				otherRouter.probs.updateMeetingProbFor(getHost().getAddress());
+				this.dijkstra.probsChanged(getHost().getAddress());
+				otherRouter.dijkstra.probsChanged(otherHost.getAddress());
 				
 				/* exchange the transitive probabilities */
 				this.updateTransitiveProbs(otherRouter.allProbs);
 				otherRouter.updateTransitiveProbs(this.allProbs);
-				this.allProbs.put(otherHost.getAddress(),
+				this.setProbs(otherHost.getAddress(),
 						otherRouter.probs.replicate());
-				otherRouter.allProbs.put(getHost().getAddress(),
+				otherRouter.setProbs(getHost().getAddress(),
 						this.probs.replicate());
 			}
 		}
@@ -199,11 +197,22 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 			MeetingProbabilitySet myMps = this.allProbs.get(e.getKey()); 
 			if (myMps == null || 
 				e.getValue().getLastUpdateTime() > myMps.getLastUpdateTime() ) {
-				this.allProbs.put(e.getKey(), e.getValue().replicate());
+				this.setProbs(e.getKey(), e.getValue().replicate());
 			}
 		}
 	}
 	
+	/**
+	 * Sets the meeting probability set of a host and tells the cost
+	 * calculator about the change
+	 * @param address Address of the host
+	 * @param set The new probability set of the host
+	 */
+	private void setProbs(int address, MeetingProbabilitySet set) {
+		this.allProbs.put(address, set);
+		this.dijkstra.probsChanged(address);
+	}
+	
 	/**
 	 * Updates the MaxPROP estimators
 	 * @param host
@@ -317,11 +326,20 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 	}
 
 	/**
-	 * Deletes the messages from cache that are known to be ACKed
+	 * Deletes the messages from cache that are known to be ACKed. Only the
+	 * new ACKs (and ACKed messages received after the last check) are
+	 * checked.
 	 */
 	private void deleteAckedMessages() {
-		for (String id : ackedMessageIds) {
-			if (hasMessage(id) && !isSendingMessage(id)) {
+		for (int intId : ackedMessages.pollUnchecked()) {
+			if (!hasMessage(intId)) {
+				continue;
+			}
+			String id = MessageIdInterner.getId(intId);
+			if (isSendingMessage(id)) {
+				ackedMessages.recheck(intId); // try again on next contact
+			}
+			else {
 				deleteMessage(id, MessageDropMode.REMOVED, "message acknowledged");
 			}
 		}
@@ -329,11 +347,15 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 	
 	@Override
 	public Message messageTransferred(String id, Connection con) {
-		costsForMessages = null; // new message -> invalidate costs
 		Message m = super.messageTransferred(id, con);
+		int intId = MessageIdInterner.intern(id);
 		/* was this node the final recipient of the message? */
 		if (isDeliveredMessage(m)) {
-			ackedMessageIds.add(id);
+			ackedMessages.add(intId, m.getExpiryTime());
+		}
+		else if (ackedMessages.contains(intId)) {
+			/* got a copy of an ACKed message; delete it on next contact */
+			ackedMessages.recheck(intId);
 		}
 		return m;
 	}
@@ -352,7 +374,7 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 		/* was the message delivered to the final recipient? */
 		if (m.getTo() == con.getOtherNode(getHost())) {
 			// Add to ACKed messages and then delete from cache
-			ackedMessageIds.add(m.getID());
+			ackedMessages.add(m.getIntId(), m.getExpiryTime());
 			deleteMessage(m.getID(), MessageDropMode.REMOVED,
 							"message delivered to final recipient");
 		}
@@ -432,38 +454,21 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 	/**
 	 * Returns the message delivery cost between two hosts from this host's
 	 * point of view. If there is no path between "from" and "to" host, 
-	 * Double.MAX_VALUE is returned. Paths are calculated only to hosts
-	 * that this host has messages to.
+	 * Double.MAX_VALUE is returned.
 	 * @param from The host where a message is coming from
 	 * @param to The host where a message would be destined to
 	 * @return The cost of the cheapest path to the destination or 
 	 * Double.MAX_VALUE if such a path doesn't exist
 	 */
 	public double getCost(DTNHost from, DTNHost to) {
-		/* check if the cached values are OK */
-		if (costsForMessages == null || lastCostFrom != from) {
-			/* cached costs are invalid -> calculate new costs */
-			allProbs.put(getHost().getAddress(), probs);
-			int fromIndex = from.getAddress();
-			
-			/* calculate paths only to nodes we have messages to 
-			 * (optimization) */
-			Set<Integer> toSet = new HashSet<Integer>();
-			for (Message m : getMessageList()) {
-				toSet.add(m.getTo().getAddress());
-			}
-						
-			this.costsForMessages = dijkstra.getCosts(fromIndex, toSet);
-			this.lastCostFrom = from; // store source host for caching checks
+		int myAddress = getHost().getAddress();
+		if (allProbs.get(myAddress) != probs) {
+			setProbs(myAddress, probs);
 		}
 		
-		if (costsForMessages.containsKey(to.getAddress())) {
-			return costsForMessages.get(to.getAddress());
-		}
-		else {
-			/* there's no known path to the given host */
-			return Double.MAX_VALUE;
-		}
+		/* the calculator continues the previous search from the same host
+		 * only as far as needed, so new messages don't cause recalculation */
+		return dijkstra.getCost(from.getAddress(), to.getAddress());
 	}
 	
 	/**
@@ -491,7 +496,7 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 			for (Message m : msgList) {
 				/* skip messages that the other host has or that have
 				 * passed the other host */
-				if (othRouter.hasMessage(m.getID()) || m.getHops().contains(other)) {
+				if (othRouter.hasMessage(m.getID()) || m.isOnPath(other)) {
 					continue;
 				}
 				messages.add(new Tuple<Message, Connection>(m,con));
@@ -693,7 +698,7 @@ public class MaxPropRouterWithEstimation extends ActiveRouter {
 	@Override
 	public RoutingInfo getRoutingInfo() {
 		RoutingInfo top = super.getRoutingInfo();
-		RoutingInfo ri = new RoutingInfo(probs.getAllProbs().size() + 
+		RoutingInfo ri = new RoutingInfo(probs.size() + 
 				" meeting probabilities");
 		
 		/* show meeting probabilities for this host */
@@ -17,11 +17,16 @@ import core.Application;
 import core.Connection;
 import core.DTNHost;
 import core.DTNSim;
+import core.IntHashMap;
+import core.IntHashSet;
 import core.InterferenceModel;
 import core.Message;
 import core.MessageListener;
+import core.MessageListenerDispatch;
 import core.MessageCacheManager;
+import core.MessageIdInterner;
 import core.NetworkInterface;
+import core.Profiler;
 import core.SeedGeneratorHelper;
 import core.Settings;
 import core.SimClock;
@@ -67,6 +72,8 @@ public abstract class MessageRouter {
 	protected static MersenneTwisterRNG RANDOM_GENERATOR = null;
 	/** Random number generator's seed value */
 	protected static long RANDOM_GENERATOR_SEED = 13;
+	/** Number of routers that keep track of their neighbors' caches */
+	private static int nrofNeighborCacheTrackers = 0;
 
 
 	/** TTL for all messages */
@@ -77,12 +84,16 @@ public abstract class MessageRouter {
 	private MessageCacheManager messageCacheManager;
 	/** List of listeners for logging purposes */
 	protected List<MessageListener> mListeners;
+	/** Dispatcher of the events to the interested listeners */
+	private MessageListenerDispatch mDispatch;
 	/** The messages this router has received as the final recipient */
-	private HashMap<String, Message> deliveredMessages;
+	private IntHashMap<Message> deliveredMessages;
 	/** All the messages this router has received in the past */
-	private HashMap<String, Message> receivedMessages;
+	private IntHashSet receivedMessages;
 	/** Host where this router belongs to */
 	private DTNHost host;
+	/** Is this router informed about the cache changes of its neighbors */
+	private boolean tracksNeighborCaches;
 
 	/** applications attached to the host */
 	private HashMap<String, Collection<Application>> applications = null;
@@ -107,6 +118,7 @@ public abstract class MessageRouter {
 	
 	static public void reset() {
 		RANDOM_GENERATOR = null;
+		nrofNeighborCacheTrackers = 0;
 	}
 	
 	/**
@@ -152,9 +164,10 @@ public abstract class MessageRouter {
 	 */
 	public void init(DTNHost host, List<MessageListener> mListeners) {
 		this.neighborsList = new HashSet<DTNHost>();
-		this.deliveredMessages = new HashMap<String, Message>();
-		this.receivedMessages = new HashMap<String, Message>();
+		this.deliveredMessages = new IntHashMap<Message>();
+		this.receivedMessages = new IntHashSet();
 		this.mListeners = mListeners;
+		this.mDispatch = new MessageListenerDispatch(mListeners);
 		this.host = host;
 	}
 	
@@ -448,9 +461,7 @@ public abstract class MessageRouter {
 			m.setTtl(msgTTL);
 			addToMessages(m);
 			
-			for (MessageListener ml : mListeners) {
-				ml.newMessage(m);
-			}
+			mDispatch.newMessage(m);
 			
 			return true;
 		}
@@ -471,6 +482,8 @@ public abstract class MessageRouter {
 		}
 		
 		messageCacheManager.addMessageToQueue(m);
+		cacheChanged(m, true);
+		notifyNeighborsAboutCacheChange(m, true);
 	}
 
 	/**
@@ -499,10 +512,21 @@ public abstract class MessageRouter {
 	 * @return True if the router has message with
 	 * the specified id, false if not
 	 */
-	final protected boolean hasMessage(String msgID) {
+	final public boolean hasMessage(String msgID) {
 		return messageCacheManager.hasMessage(msgID);
 	}
 
+	/**
+	 * Checks if this router has any cached message with a specific
+	 * integer id.
+	 * @param msgIntId Integer identifier of the message
+	 * @return True if the router has message with
+	 * the specified id, false if not
+	 */
+	final protected boolean hasMessage(int msgIntId) {
+		return messageCacheManager.hasMessage(msgIntId);
+	}
+
 	/**
 	 * Checks if this router has received a {@link Message}
 	 * with the specified identifier in the past.
@@ -511,7 +535,18 @@ public abstract class MessageRouter {
 	 * with this id, {@code false} otherwise.
 	 */
 	final protected boolean hasReceivedMessage(String msgID) {
-		return receivedMessages.containsKey(msgID);
+		return receivedMessages.contains(MessageIdInterner.getIntId(msgID));
+	}
+
+	/**
+	 * Checks if this router has received a {@link Message}
+	 * with the specified integer identifier in the past.
+	 * @param msgIntId Integer identifier of the message.
+	 * @return {@code true} if the router has message
+	 * with this id, {@code false} otherwise.
+	 */
+	final protected boolean hasReceivedMessage(int msgIntId) {
+		return receivedMessages.contains(msgIntId);
 	}
 
 	/**
@@ -541,7 +576,7 @@ public abstract class MessageRouter {
 	 * this host as the final recipient.
 	 */
 	final protected boolean isDeliveredMessage(Message m) {
-		return deliveredMessages.containsKey(m.getID());
+		return deliveredMessages.containsKey(m.getIntId());
 	}
 
 	/**
@@ -579,7 +614,34 @@ public abstract class MessageRouter {
 	 * @return The removed message or null if message for the ID wasn't found
 	 */
 	private Message removeFromMessages(String msgID) {
-		return messageCacheManager.removeMessage(msgID);
+		Message removed = messageCacheManager.removeMessage(msgID);
+		if (removed != null) {
+			cacheChanged(removed, false);
+			notifyNeighborsAboutCacheChange(removed, false);
+		}
+		
+		return removed;
+	}
+
+	/**
+	 * Informs the routers of the connected hosts that a message was added
+	 * to or removed from the cache of this router.
+	 * @param m The message
+	 * @param added True if the message was added, false if it was removed
+	 */
+	private void notifyNeighborsAboutCacheChange(Message m, boolean added) {
+		if (nrofNeighborCacheTrackers == 0) {
+			return; // nobody is interested
+		}
+		
+		for (NetworkInterface ni : getNetworkInterfaces()) {
+			for (Connection con : ni.getConnections()) {
+				MessageRouter peer = con.getOtherNode(getHost()).getRouter();
+				if (peer.tracksNeighborCaches) {
+					peer.neighborCacheChanged(con, m, added);
+				}
+			}
+		}
 	}
 
 	/**
@@ -602,9 +664,7 @@ public abstract class MessageRouter {
 			return;
 		}
 		
-		for (MessageListener ml : mListeners) {
-			ml.transmissionPerformed(m, getHost());
-		}
+		mDispatch.transmissionPerformed(m, getHost());
 	}
 
 	/**
@@ -617,10 +677,8 @@ public abstract class MessageRouter {
 	protected final void notifyListenersAboutMessageTransferred(Message aMessage, Connection con,
 																boolean isFirstDelivery,
 																boolean isFinalTarget) {
-		for (MessageListener ml : mListeners) {
-			ml.messageTransferred(aMessage, con.getSenderNode(), getHost(),
-									isFirstDelivery, isFinalTarget);
-		}
+		mDispatch.messageTransferred(aMessage, con.getSenderNode(), getHost(),
+										isFirstDelivery, isFinalTarget);
 	}
 
 	/**
@@ -637,9 +695,7 @@ public abstract class MessageRouter {
 			return;
 		}
 		
-		for (MessageListener ml : mListeners) {
-			ml.messageDeleted(removedMessage, getHost(), dropMode, cause);
-		}
+		mDispatch.messageDeleted(removedMessage, getHost(), dropMode, cause);
 	}
 
 	/**
@@ -766,6 +822,41 @@ public abstract class MessageRouter {
 	 */
 	public abstract void changedConnection(Connection con);
 
+	/**
+	 * Called when a message was added to the cache of this router or
+	 * removed from it. This version doesn't do anything but subclasses that
+	 * keep indexes of the cached messages may want to override this.
+	 * @param m The message
+	 * @param added True if the message was added, false if it was removed
+	 */
+	protected void cacheChanged(Message m, boolean added) { }
+
+	/**
+	 * Requests the neighbors of this router to inform it about their cache
+	 * changes (see {@link #neighborCacheChanged(Connection, Message,
+	 * boolean)}). Routers that keep track of the neighbors' messages must
+	 * call this when they are initialized.
+	 */
+	protected void trackNeighborCaches() {
+		if (!tracksNeighborCaches) {
+			tracksNeighborCaches = true;
+			nrofNeighborCacheTrackers++;
+		}
+	}
+
+	/**
+	 * Informs the router that the host at the other end of a connection
+	 * added a message to its cache or removed one from it. Only called for
+	 * routers that have requested it with {@link #trackNeighborCaches()}.
+	 * This version doesn't do anything but subclasses that keep track of
+	 * the neighbors' messages may want to override this.
+	 * @param con The connection to the neighbor
+	 * @param m The message
+	 * @param added True if the message was added, false if it was removed
+	 */
+	protected void neighborCacheChanged(Connection con, Message m,
+			boolean added) { }
+
 	/**
 	 * This method should be called (on the receiving host) when a
 	 * {@link Message} transfer was aborted.
@@ -797,10 +888,8 @@ public abstract class MessageRouter {
 	
 		Message abortedMessage = receivingInterface.abortMessageReception(con);
 		if (abortedMessage != null) {
-			for (MessageListener ml : this.mListeners) {
-				ml.messageTransferAborted(abortedMessage, con.getSenderNode(),
-											getHost(), motivation);
-			}
+			mDispatch.messageTransferAborted(abortedMessage, con.getSenderNode(),
+												getHost(), motivation);
 		}
 		else {
 			throw new SimError("No incoming message for id " + msgID + " to abort in " + getHost());
@@ -818,10 +907,8 @@ public abstract class MessageRouter {
 			con.isTransferOngoing()) {
 			Message interferedMessage = con.getReceiverInterface().
 											forceInterference(msgID, con);
-			for (MessageListener ml : mListeners) {
-				ml.messageTransmissionInterfered(interferedMessage,
-												con.getSenderNode(), getHost());
-			}
+			mDispatch.messageTransmissionInterfered(interferedMessage,
+													con.getSenderNode(), getHost());
 		}
 	}
 	
@@ -847,9 +934,7 @@ public abstract class MessageRouter {
 								"CSMA/CA should avoid such situations");
 		}
 		
-		for (MessageListener ml : mListeners) {
-			ml.messageTransferStarted(newMessage, con.getSenderNode(), getHost());
-		}
+		mDispatch.messageTransferStarted(newMessage, con.getSenderNode(), getHost());
 		if (receptionValue == InterferenceModel.RECEPTION_INTERFERENCE) {
 			// The new reception failed, triggering an interference
 			return DENIED_INTERFERENCE;
@@ -876,9 +961,21 @@ public abstract class MessageRouter {
 			// Message interfered or reception out-of-synch --> nothing to do
 			return null;
 		}
+		Profiler.count(Profiler.TRANSFERS);
 		incoming.setReceiveTime(SimClock.getTime());
 		incoming.addNodeOnPath(getHost());
 		
+		if (!isCachedWhenReceived(incoming)) {
+			/* Only room is made for the message; it is not given to the
+			 * applications, cached or recorded as received */
+			if (!makeRoomForMessage(incoming.getSize(), incoming.getPriority())) {
+				notifyListenersAboutMessageDelete(incoming, MessageDropMode.DROPPED,
+						"Impossible to free enough space from cache");
+			}
+			notifyListenersAboutMessageTransferred(incoming, con, true, false);
+			return incoming;
+		}
+		
 		// Pass the message to the application (if any) and get outgoing message
 		// TODO: Fix the logic of application-related issues to 
 		Message outgoing = incoming;
@@ -893,7 +990,7 @@ public abstract class MessageRouter {
 		// If the application re-targets the message (changes 'to')
 		// then the message is not considered as 'delivered' to this host.
 		isFinalTarget = isMessageDestination(aMessage);
-		isFirstDelivery = !hasReceivedMessage(aMessage.getID());
+		isFirstDelivery = !hasReceivedMessage(aMessage.getIntId());
 	
 		/* Messages are stored in cache regardless they are addressed
 		 * to this node or not, unless any application wants to drop it. */
@@ -906,16 +1003,29 @@ public abstract class MessageRouter {
 						"Impossible to free enough space from cache");
 			}
 			addToMessages(aMessage);
-			receivedMessages.put(msgID, aMessage);
+			receivedMessages.add(incoming.getIntId());
 			if (isFinalTarget) {
 				// This node is the message destination
-				deliveredMessages.put(msgID, aMessage);
+				deliveredMessages.put(incoming.getIntId(), aMessage);
 			}
 		}
 		
 		notifyListenersAboutMessageTransferred(aMessage, con, isFirstDelivery, isFinalTarget);
 		return aMessage;
 	}
+	
+	/**
+	 * Returns true if a received message is cached and recorded as
+	 * received by {@link #messageTransferred(String, Connection)}. Routers
+	 * can return false for control messages that are only processed by
+	 * the router (e.g., messages whose identifiers are never repeated).
+	 * The default implementation returns always true.
+	 * @param m The received message
+	 * @return True if the message is cached, false if not
+	 */
+	protected boolean isCachedWhenReceived(Message m) {
+		return true;
+	}
 
 	/** 
 	 * Removes messages from cache (oldest and lowest priority first)
@@ -960,6 +1070,7 @@ public abstract class MessageRouter {
 	
 		// commit deletes by notifying event listeners about the deletes
 		for (Message m : deletedMessages) {
+			Profiler.count(Profiler.EVICTIONS);
 			// delete message from cache as "removed" (false)
 			notifyListenersAboutMessageDelete(m, MessageDropMode.DROPPED,
 												"Cache size exceeded");
@@ -1014,10 +1125,8 @@ public abstract class MessageRouter {
 									"returned a message even if an interference was detected");
 			}
 			
-			for (MessageListener ml : mListeners) {
-				ml.messageTransmissionInterfered(con.getMessage(), con.getSenderNode(),
-													con.getReceiverNode());
-			}
+			mDispatch.messageTransmissionInterfered(con.getMessage(),
+					con.getSenderNode(), con.getReceiverNode());
 			return null;
 		}
 		else if (receiveResult == InterferenceModel.RECEPTION_OUT_OF_SYNCH) {
@@ -18,6 +18,7 @@ import core.Settings;
 import core.SimClock;
 import core.SimError;
 import core.Tuple;
+import routing.prophet.DeliveryPredictabilities;
 
 /**
  * Implementation of PRoPHET router as described in 
@@ -59,25 +60,30 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	 */
 	public static final String BETA_S = "beta";
 
+	/**
+	 * Changed entries only -setting id ({@value}). Boolean valued.
+	 * See {@link ProphetRouter#TRANSITIVE_CHANGED_ONLY_S}.
+	 */
+	public static final String TRANSITIVE_CHANGED_ONLY_S = 
+		ProphetRouter.TRANSITIVE_CHANGED_ONLY_S;
+
 	/** values of parameter settings */
 	private double beta;
 	private double gamma;
 	private double pinit;
+	private boolean transitiveChangedOnly;
 
 	/** value of time scale variable */
 	private int timescale;
 	private double ptavg;
 
 	/** delivery predictabilities */
-	private Map<DTNHost, Double> preds;
+	private DeliveryPredictabilities preds;
 
 	/** last meeting time with a node */
 	private Map<DTNHost, Double> meetings;
 	private int nrofSamples;
 	private double meanIET;
-
-	/** last delivery predictability update (sim)time */
-	private double lastAgeUpdate;
 
 
 	/**
@@ -99,6 +105,9 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 		} else {
 			beta = DEFAULT_BETA;
 		}
+		transitiveChangedOnly = prophetSettings.contains(
+				TRANSITIVE_CHANGED_ONLY_S) && 
+				prophetSettings.getBoolean(TRANSITIVE_CHANGED_ONLY_S);
 		gamma = GAMMA;
 		pinit = P_INIT;
 
@@ -115,15 +124,16 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 		this.timescale = r.timescale;
 		this.ptavg = r.ptavg;
 		this.beta = r.beta;
+		this.transitiveChangedOnly = r.transitiveChangedOnly;
 		initPreds();
 		initMeetings();
 	}
 
 	/**
-	 * Initializes predictability hash
+	 * Initializes predictability set
 	 */
 	private void initPreds() {
-		this.preds = new HashMap<DTNHost, Double>();
+		this.preds = new DeliveryPredictabilities(gamma, 1);
 	}
 
 	/**
@@ -312,6 +322,7 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 		}
 		gamma = Math.exp(-b);
 		pinit = 1-zeta;
+		preds.setGamma(gamma);
 	}
 
 	/**
@@ -320,9 +331,7 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	 * @param host The host we just met
 	 */
 	private void updateDeliveryPredFor(DTNHost host) {
-		double oldValue = getPredFor(host);
-		double newValue = oldValue + (1 - oldValue) * pinit;
-		preds.put(host, newValue);
+		preds.updateDeliveryPredFor(host, pinit);
 	}
 
 	/**
@@ -332,13 +341,7 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	 * @return the current P value
 	 */
 	public double getPredFor(DTNHost host) {
-		ageDeliveryPreds(); // make sure preds are updated before getting
-		if (preds.containsKey(host)) {
-			return preds.get(host);
-		}
-		else {
-			return 0;
-		}
+		return preds.getPredFor(host); // aged on the fly
 	}
 
 	/**
@@ -346,55 +349,16 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	 * <CODE>P(a,c) = P(a,c)_old + (1 - P(a,c)_old) * P(a,b) * P(b,c) * BETA
 	 * </CODE>
 	 * @param host The B host who we just met
+	 * @see #TRANSITIVE_CHANGED_ONLY_S
 	 */
 	private void updateTransitivePreds(DTNHost host) {
 		MessageRouter otherRouter = host.getRouter();
 		assert otherRouter instanceof ProphetRouterWithEstimation : "PRoPHET only works " + 
 		" with other routers of same type";
 
-		double pForHost = getPredFor(host); // P(a,b)
-		Map<DTNHost, Double> othersPreds = 
-			((ProphetRouterWithEstimation)otherRouter).getDeliveryPreds();
-
-		for (Map.Entry<DTNHost, Double> e : othersPreds.entrySet()) {
-			if (e.getKey() == getHost()) {
-				continue; // don't add yourself
-			}
-
-			double pOld = getPredFor(e.getKey()); // P(a,c)_old
-			double pNew = pOld + ( 1 - pOld) * pForHost * e.getValue() * beta;
-			preds.put(e.getKey(), pNew);
-		}
-	}
-
-	/**
-	 * Ages all entries in the delivery predictions.
-	 * <CODE>P(a,b) = P(a,b)_old * (GAMMA ^ k)</CODE>, where k is number of
-	 * time units that have elapsed since the last time the metric was aged.
-	 * @see #SECONDS_IN_UNIT_S
-	 */
-	private void ageDeliveryPreds() {
-		double timeDiff = (SimClock.getTime() - this.lastAgeUpdate);
-
-		if (timeDiff == 0) {
-			return;
-		}
-
-		double mult = Math.pow(gamma, timeDiff);
-		for (Map.Entry<DTNHost, Double> e : preds.entrySet()) {
-			e.setValue(e.getValue()*mult);
-		}
-
-		this.lastAgeUpdate = SimClock.getTime();
-	}
-
-	/**
-	 * Returns a map of this router's delivery predictions
-	 * @return a map of this router's delivery predictions
-	 */
-	private Map<DTNHost, Double> getDeliveryPreds() {
-		ageDeliveryPreds(); // make sure the aging is done
-		return this.preds;
+		preds.updateTransitivePreds(
+				((ProphetRouterWithEstimation)otherRouter).preds, getHost(), 
+				host, beta, transitiveChangedOnly);
 	}
 
 	@Override
@@ -418,7 +382,7 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	 * @return The return value of {@link #tryMessagesForConnected(List)}
 	 */
 	private Tuple<Message, Connection> tryOtherMessages() {
-		List<Tuple<Message, Connection>> messages = new ArrayList<Tuple<Message, Connection>>();
+		List<PredTuple> messages = new ArrayList<PredTuple>();
 		List<Message> msgList = getMessageList();
 
 		/* for all connected hosts collect all messages that have a higher
@@ -438,9 +402,10 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 				if (othRouter.hasMessage(m.getID())) {
 					continue; // skip messages that the other one has
 				}
-				if (othRouter.getPredFor(m.getTo()) > getPredFor(m.getTo())) {
+				double othPred = othRouter.getPredFor(m.getTo());
+				if (othPred > getPredFor(m.getTo())) {
 					// the other node has higher probability of delivery
-					messages.add(new Tuple<Message, Connection>(m,con));
+					messages.add(new PredTuple(m, con, othPred));
 				}
 			}			
 		}
@@ -451,7 +416,21 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 
 		// sort the message-connection tuples
 		Collections.sort(messages, new TupleComparator());
-		return tryMessagesForConnection(messages);	// try to send messages
+		return tryMessagesForConnection(
+				new ArrayList<Tuple<Message, Connection>>(messages));
+	}
+
+	/**
+	 * Message-Connection-Tuple with the delivery probability of the message
+	 * by the host on the other side of the connection
+	 */
+	private static class PredTuple extends Tuple<Message, Connection> {
+		private double pred;
+
+		public PredTuple(Message m, Connection con, double pred) {
+			super(m, con);
+			this.pred = pred;
+		}
 	}
 
 	/**
@@ -459,19 +438,13 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 	 * their delivery probability by the host on the other side of the 
 	 * connection (GRTRMax)
 	 */
-	private class TupleComparator implements Comparator 
-	<Tuple<Message, Connection>> {
+	private class TupleComparator implements Comparator<PredTuple> {
 
-		public int compare(Tuple<Message, Connection> tuple1,
-				Tuple<Message, Connection> tuple2) {
+		public int compare(PredTuple tuple1, PredTuple tuple2) {
 			// delivery probability of tuple1's message with tuple1's connection
-			double p1 = ((ProphetRouterWithEstimation)tuple1.getValue().
-					getOtherNode(getHost()).getRouter()).getPredFor(
-							tuple1.getKey().getTo());
+			double p1 = tuple1.pred;
 			// -"- tuple2...
-			double p2 = ((ProphetRouterWithEstimation)tuple2.getValue().
-					getOtherNode(getHost()).getRouter()).getPredFor(
-							tuple2.getKey().getTo());
+			double p2 = tuple2.pred;
 
 			// bigger probability should come first
 			if (p2-p1 == 0) {
@@ -489,12 +462,11 @@ public class ProphetRouterWithEstimation extends ActiveRouter {
 
 	@Override
 	public RoutingInfo getRoutingInfo() {
-		ageDeliveryPreds();
 		RoutingInfo top = super.getRoutingInfo();
 		RoutingInfo ri = new RoutingInfo(preds.size() + 
 		" delivery prediction(s)");
 
-		for (Map.Entry<DTNHost, Double> e : preds.entrySet()) {
+		for (Map.Entry<DTNHost, Double> e : preds.getAllPreds().entrySet()) {
 			DTNHost host = e.getKey();
 			Double value = e.getValue();
 
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing;
+
+import core.IntHashSet;
+
+/**
+ * Semi-permeable dissemination filter of the publish/subscribe routers.
+ * The decision whether a message passes the filter is drawn (with the
+ * router random number generator) the first time the message is filtered
+ * and remembered after that. Routers use separate filters for sending and
+ * receiving.
+ */
+public class SemiPermeableFilter {
+	/** probability of passing the filter */
+	private final double probability;
+	/** integer IDs of the messages with a decision */
+	private IntHashSet decided;
+	/** integer IDs of the messages that passed the filter */
+	private IntHashSet passed;
+
+	/**
+	 * Creates a filter without decisions
+	 * @param probability Probability of passing the filter
+	 */
+	public SemiPermeableFilter(double probability) {
+		this.probability = probability;
+		this.decided = new IntHashSet();
+		this.passed = new IntHashSet();
+	}
+
+	/**
+	 * Returns a new filter with the same probability and no decisions
+	 * @return The new filter
+	 */
+	public SemiPermeableFilter replicate() {
+		return new SemiPermeableFilter(probability);
+	}
+
+	/**
+	 * Returns the filter decision for a message
+	 * @param msgIntId Integer ID of the message
+	 * @return True if the message passes the filter
+	 */
+	public boolean passes(int msgIntId) {
+		if (decided.add(msgIntId) &&
+				(MessageRouter.nextRandomDouble() <= probability)) {
+			passed.add(msgIntId);
+		}
+
+		return passed.contains(msgIntId);
+	}
+
+	/**
+	 * Forgets all the decisions
+	 */
+	public void clear() {
+		decided.clear();
+		passed.clear();
+	}
+}
@@ -4,11 +4,12 @@
  */
 package routing;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import routing.sprayandwait.CopiesLeftIndex;
 import core.Connection;
 import core.Message;
+import core.MessagePropertyKey;
 import core.Settings;
 import core.SimError;
 
@@ -27,9 +28,15 @@ public class SprayAndWaitRouter extends ActiveRouter {
 	public static final String SPRAYANDWAIT_NS = "SprayAndWaitRouter";
 	/** Message property key */
 	public static final String MSG_COUNT_PROPERTY = SPRAYANDWAIT_NS + ".copies";
+	/** Typed key of the {@link #MSG_COUNT_PROPERTY} property */
+	public static final MessagePropertyKey MSG_COUNT_KEY = 
+		MessagePropertyKey.register(MSG_COUNT_PROPERTY, 
+				MessagePropertyKey.Type.INT);
 	
 	protected int initialNrofCopies;
 	protected boolean isBinary;
+	/** the cached messages with copies left to distribute */
+	private CopiesLeftIndex copiesLeft;
 
 	public SprayAndWaitRouter(Settings s) {
 		super(s);
@@ -37,6 +44,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		Settings snwSettings = new Settings(SPRAYANDWAIT_NS);
 		initialNrofCopies = snwSettings.getInt(NROF_COPIES);
 		isBinary = snwSettings.getBoolean(BINARY_MODE);
+		copiesLeft = new CopiesLeftIndex();
 	}
 	
 	/**
@@ -48,6 +56,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		
 		this.initialNrofCopies = r.initialNrofCopies;
 		this.isBinary = r.isBinary;
+		this.copiesLeft = new CopiesLeftIndex();
 	}
 	
 	@Override
@@ -60,9 +69,8 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		Message msg = super.messageTransferred(id, con);
 		// Check if message is null (interference, or out-of-synch) 
 		if (msg != null) {
-			Integer nrofCopies = (Integer)msg.getProperty(MSG_COUNT_PROPERTY);
-			
-			assert nrofCopies != null : "Not a SnW message: " + msg;
+			assert msg.hasProperty(MSG_COUNT_KEY) : "Not a SnW message: " + msg;
+			int nrofCopies = msg.getIntProperty(MSG_COUNT_KEY);
 			
 			if (isBinary) {
 				/* in binary S'n'W the receiving node gets ceil(n/2) copies */
@@ -73,7 +81,10 @@ public class SprayAndWaitRouter extends ActiveRouter {
 				nrofCopies = 1;
 			}
 			
-			msg.updateProperty(MSG_COUNT_PROPERTY, nrofCopies);
+			msg.setIntProperty(MSG_COUNT_KEY, nrofCopies);
+			if (getMessage(id) == msg) {
+				copiesLeft.update(msg, nrofCopies);
+			}
 		}
 		
 		return msg;
@@ -81,7 +92,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 	
 	@Override 
 	public boolean createNewMessage(Message m) {
-		m.addProperty(MSG_COUNT_PROPERTY, new Integer(initialNrofCopies));
+		m.addIntProperty(MSG_COUNT_KEY, initialNrofCopies);
 		
 		return super.createNewMessage(m);
 	}
@@ -110,23 +121,27 @@ public class SprayAndWaitRouter extends ActiveRouter {
 	/**
 	 * Creates and returns a list of messages this router is currently
 	 * carrying and still has copies left to distribute (nrof copies > 1).
+	 * The messages are in the order they were received.
 	 * @return A list of messages that have copies left
 	 */
 	protected List<Message> getMessagesWithCopiesLeft() {
-		List<Message> list = new ArrayList<Message>();
-
-		for (Message m : getMessageList()) {
-			Integer nrofCopies = (Integer)m.getProperty(MSG_COUNT_PROPERTY);
-			if (nrofCopies == null) {
-				throw new SimError("SnW message " + m + " didn't have the nrofcopies property!");
-			}
-			
-			if (nrofCopies > 1) {
-				list.add(m);
-			}
+		return copiesLeft.getMessages();
+	}
+	
+	/**
+	 * Keeps the index of the messages with copies left up to date
+	 */
+	@Override
+	protected void cacheChanged(Message m, boolean added) {
+		if (!added) {
+			copiesLeft.remove(m);
+			return;
 		}
 		
-		return list;
+		if (!m.hasProperty(MSG_COUNT_KEY)) {
+			throw new SimError("SnW message " + m + " didn't have the nrofcopies property!");
+		}
+		copiesLeft.update(m, m.getIntProperty(MSG_COUNT_KEY));
 	}
 	
 	/**
@@ -138,7 +153,7 @@ public class SprayAndWaitRouter extends ActiveRouter {
 	 */
 	@Override
 	protected void transferDone(Connection con) {
-		Integer nrofCopies;
+		int nrofCopies;
 		String msgId = con.getMessage().getID();
 		/* get this router's copy of the message */
 		Message msg = getMessage(msgId);
@@ -148,14 +163,15 @@ public class SprayAndWaitRouter extends ActiveRouter {
 		}
 		
 		/* reduce the number of copies left */
-		nrofCopies = (Integer) msg.getProperty(MSG_COUNT_PROPERTY);
+		nrofCopies = msg.getIntProperty(MSG_COUNT_KEY);
 		if (isBinary) { 
 			nrofCopies /= 2;
 		}
 		else {
 			nrofCopies--;
 		}
-		msg.updateProperty(MSG_COUNT_PROPERTY, nrofCopies);
+		msg.setIntProperty(MSG_COUNT_KEY, nrofCopies);
+		copiesLeft.update(msg, nrofCopies);
 	}
 	
 	@Override
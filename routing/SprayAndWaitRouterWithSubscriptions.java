@@ -7,13 +7,14 @@ package routing;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 
+import routing.sprayandwait.CopiesLeftIndex;
 import core.Connection;
 import core.DTNHost;
 import core.Message;
+import core.MessagePropertyKey;
 import core.NetworkInterface;
 import core.Settings;
 import core.SimError;
@@ -41,18 +42,22 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 	public static final String SPRAYANDWAIT_NS = "SprayAndWaitRouterWithSubscriptions";
 	/** Message property key */
 	public static final String MSG_COUNT_PROPERTY = SPRAYANDWAIT_NS + ".copies";
+	/** Typed key of the {@link #MSG_COUNT_PROPERTY} property */
+	public static final MessagePropertyKey MSG_COUNT_KEY = 
+		MessagePropertyKey.register(MSG_COUNT_PROPERTY, 
+				MessagePropertyKey.Type.INT);
 	
 	protected int initialNrofCopies;
 	protected boolean isBinary;
+	/** the cached messages with copies left to distribute */
+	private CopiesLeftIndex copiesLeft;
 	
 	private SubscriptionListManager nodeSubscriptions;
 	private final ADCMode adcMode;
-	private HashMap<String, Boolean> sendMsgSemiPermeableFilter;
-	private HashMap<String, Boolean> receiveMsgSemiPermeableFilter;
+	/** semi-permeable filters of the sent and the received messages */
+	private final SemiPermeableFilter sendFilter;
+	private final SemiPermeableFilter receiveFilter;
 
-	private final double sendProbability;
-	private final double receiveProbability;
-
 	public SprayAndWaitRouterWithSubscriptions(Settings s) {
 		super(s);
 		
@@ -65,6 +70,7 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 		Settings snwSettings = new Settings(SPRAYANDWAIT_NS);
 		this.initialNrofCopies = snwSettings.getInt(NROF_COPIES_S);
 		this.isBinary = snwSettings.getBoolean(BINARY_MODE_S);
+		this.copiesLeft = new CopiesLeftIndex();
 		
 		int subpubDisMode = s.contains(PublisherSubscriber.ADC_MODE_S) ?
 							s.getInt(PublisherSubscriber.ADC_MODE_S) : ADCMode.UNCONSTRAINED.ordinal();
@@ -74,16 +80,18 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 		}
 		this.adcMode = ADCMode.values()[subpubDisMode];
 		
+		double sendProbability;
+		double receiveProbability;
 		if (this.adcMode == ADCMode.SEMI_PERMEABLE) {
-			this.sendProbability = s.contains(MESSAGE_DISSEMINATION_PROBABILITY_S) ? s.getDouble(MESSAGE_DISSEMINATION_PROBABILITY_S) : 0.5;
-			this.receiveProbability = s.contains(MESSAGE_ACCEPT_PROBABILITY_S) ? s.getDouble(MESSAGE_ACCEPT_PROBABILITY_S) : 0.5;
+			sendProbability = s.contains(MESSAGE_DISSEMINATION_PROBABILITY_S) ? s.getDouble(MESSAGE_DISSEMINATION_PROBABILITY_S) : 0.5;
+			receiveProbability = s.contains(MESSAGE_ACCEPT_PROBABILITY_S) ? s.getDouble(MESSAGE_ACCEPT_PROBABILITY_S) : 0.5;
 		}
 		else {
-			this.sendProbability = (this.adcMode == ADCMode.UNCONSTRAINED) ? 1.0 : 0.0;
-			this.receiveProbability = (this.adcMode == ADCMode.UNCONSTRAINED) ? 1.0 : 0.0;
+			sendProbability = (this.adcMode == ADCMode.UNCONSTRAINED) ? 1.0 : 0.0;
+			receiveProbability = (this.adcMode == ADCMode.UNCONSTRAINED) ? 1.0 : 0.0;
 		}
-		this.sendMsgSemiPermeableFilter = new HashMap<String, Boolean>();
-		this.receiveMsgSemiPermeableFilter = new HashMap<String, Boolean>();
+		this.sendFilter = new SemiPermeableFilter(sendProbability);
+		this.receiveFilter = new SemiPermeableFilter(receiveProbability);
 	}
 	
 	/**
@@ -95,14 +103,12 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 		
 		this.initialNrofCopies = r.initialNrofCopies;
 		this.isBinary = r.isBinary;
+		this.copiesLeft = new CopiesLeftIndex();
 		
 		this.adcMode = r.adcMode;
 		this.nodeSubscriptions = r.nodeSubscriptions.replicate();
-		this.sendMsgSemiPermeableFilter = new HashMap<String, Boolean>();
-		this.receiveMsgSemiPermeableFilter = new HashMap<String, Boolean>();
-		
-		this.sendProbability = r.sendProbability;
-		this.receiveProbability = r.receiveProbability;
+		this.sendFilter = r.sendFilter.replicate();
+		this.receiveFilter = r.receiveFilter.replicate();
 	}
 	
 	@Override
@@ -112,7 +118,7 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 
 	@Override 
 	public boolean createNewMessage(Message m) {
-		m.addProperty(MSG_COUNT_PROPERTY, new Integer(initialNrofCopies));
+		m.addIntProperty(MSG_COUNT_KEY, initialNrofCopies);
 		
 		return super.createNewMessage(m);
 	}
@@ -129,7 +135,7 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 			return acceptMessage(msgID, con);
 		}
 		
-		Integer nrofCopies = (Integer) con.getMessage().getProperty(MSG_COUNT_PROPERTY);
+		int nrofCopies = con.getMessage().getIntProperty(MSG_COUNT_KEY);
 		if (!isMessageDestination(con.getMessage())) {
 			String message = null;
 			switch (adcMode) {
@@ -144,12 +150,7 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 					return acceptMessage(msgID, con);
 				}
 
-				if (!receiveMsgSemiPermeableFilter.containsKey(msgID)) {
-					receiveMsgSemiPermeableFilter.put(msgID, Boolean.valueOf(
-							nextRandomDouble() <= receiveProbability));
-				}
-				
-				if (receiveMsgSemiPermeableFilter.get(msgID)) {
+				if (receiveFilter.passes(con.getMessage().getIntId())) {
 					return acceptMessage(msgID, con);
 				}
 				message = "semi-permeable dissemination mode";
@@ -203,7 +204,7 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 				continue;
 			}
 			
-			Integer nrofCopies = (Integer) msg.getProperty(MSG_COUNT_PROPERTY);
+			int nrofCopies = msg.getIntProperty(MSG_COUNT_KEY);
 			if (nrofCopies > 1) {
 				/* reduce the amount of copies left */
 				if (isBinary) {
@@ -212,7 +213,8 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 				else {
 					nrofCopies--;
 				}
-				msg.updateProperty(MSG_COUNT_PROPERTY, nrofCopies);
+				msg.setIntProperty(MSG_COUNT_KEY, nrofCopies);
+				copiesLeft.update(msg, nrofCopies);
 			}
 		}
 	}
@@ -224,7 +226,7 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 		/* First, check if there are any new neighbors. */
 		if ((adcMode == ADCMode.SEMI_PERMEABLE) && updateNeighborsList()) {
 			// There are new neighbors: change send filter
-			sendMsgSemiPermeableFilter.clear();
+			sendFilter.clear();
 		}
 		
 		/* Then, try messages that could be delivered to their final recipient */
@@ -269,23 +271,27 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 	/**
 	 * Creates and returns a list of messages this router is currently
 	 * carrying and still has copies left to distribute (nrofCopies > 1).
+	 * The messages are in the order they were received.
 	 * @return A list of messages that have copies left
 	 */
 	protected List<Message> getMessagesWithCopiesLeft() {
-		List<Message> list = new ArrayList<Message>();
-
-		for (Message m : getMessageList()) {
-			Integer nrofCopies = (Integer)m.getProperty(MSG_COUNT_PROPERTY);
-			if (nrofCopies == null) {
-				throw new SimError("SnW message " + m + " didn't have the nrofcopies property!");
-			}
-			
-			if (nrofCopies > 1) {
-				list.add(m);
-			}
+		return copiesLeft.getMessages();
+	}
+	
+	/**
+	 * Keeps the index of the messages with copies left up to date
+	 */
+	@Override
+	protected void cacheChanged(Message m, boolean added) {
+		if (!added) {
+			copiesLeft.remove(m);
+			return;
 		}
 		
-		return list;
+		if (!m.hasProperty(MSG_COUNT_KEY)) {
+			throw new SimError("SnW message " + m + " didn't have the nrofcopies property!");
+		}
+		copiesLeft.update(m, m.getIntProperty(MSG_COUNT_KEY));
 	}
 	
 	@Override
@@ -294,7 +300,7 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 			return false;
 		}
 		
-		Integer messageSubID = (Integer) aMessage.getProperty(SUBSCRIPTION_MESSAGE_PROPERTY_KEY);
+		int messageSubID = aMessage.getIntProperty(SUBSCRIPTION_ID_PROPERTY);
 		return getSubscriptionList().containsSubscriptionID(messageSubID);
 	}
 
@@ -368,8 +374,8 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 		Message msg = super.messageTransferred(msgID, con);
 		// Check if message is null (interference, or out-of-synch) 
 		if (msg != null) {
-			Integer nrofCopies = (Integer) msg.getProperty(MSG_COUNT_PROPERTY);
-			assert nrofCopies != null : "Not a SnW message: " + msg;
+			assert msg.hasProperty(MSG_COUNT_KEY) : "Not a SnW message: " + msg;
+			int nrofCopies = msg.getIntProperty(MSG_COUNT_KEY);
 			
 			if (isBinary) {
 				/* in binary S'n'W the receiving node gets ceil(n/2) copies */
@@ -380,7 +386,10 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 				nrofCopies = 1;
 			}
 			
-			msg.updateProperty(MSG_COUNT_PROPERTY, nrofCopies);
+			msg.setIntProperty(MSG_COUNT_KEY, nrofCopies);
+			if (getMessage(msgID) == msg) {
+				copiesLeft.update(msg, nrofCopies);
+			}
 		}
 		
 		return msg;
@@ -393,12 +402,7 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 		case UNCONSTRAINED:
 			return true;
 		case SEMI_PERMEABLE:
-			if (!sendMsgSemiPermeableFilter.containsKey(m.getID())) {
-				sendMsgSemiPermeableFilter.put(m.getID(), Boolean.valueOf(
-											nextRandomDouble() <= sendProbability));
-			}
-			
-			return sendMsgSemiPermeableFilter.get(m.getID()).booleanValue();
+			return sendFilter.passes(m.getIntId());
 		}
 		
 		return false;
@@ -411,12 +415,7 @@ public class SprayAndWaitRouterWithSubscriptions extends BroadcastEnabledRouter
 		case UNCONSTRAINED:
 			return true;
 		case SEMI_PERMEABLE:
-			if (!receiveMsgSemiPermeableFilter.containsKey(m.getID())) {
-				receiveMsgSemiPermeableFilter.put(m.getID(), Boolean.valueOf(
-											nextRandomDouble() <= receiveProbability));
-			}
-			
-			return receiveMsgSemiPermeableFilter.get(m.getID()).booleanValue();
+			return receiveFilter.passes(m.getIntId());
 		}
 		
 		return false;
@@ -4,36 +4,48 @@
  */
 package routing.maxprop;
 
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
 import java.util.Set;
 
 /**
  * Dijkstra's shortest path implementation for MaxProp Router module.
+ * <P>
+ * Searches are incremental: the search from a source node is only continued
+ * as far as needed for the requested destination, and its state is kept
+ * for the following requests. When a meeting probability set changes
+ * (see {@link #probsChanged(int)}), only the nodes whose shortest paths
+ * went through the changed node are searched again. Search state is kept
+ * for the {@value #MAX_CACHED_SOURCES} most recently used source nodes.
+ * </P><P>
+ * Nodes are indexed by their addresses and all the search state is kept in
+ * primitive arrays that are reused between searches.
+ * </P>
  */
 public class MaxPropDijkstra {
 	/** Value for infinite distance  */
-	private static final Double INFINITY = Double.MAX_VALUE;
-	/** Initial size of the priority queue */
-	private static final int PQ_INIT_SIZE = 11;
-
-	/** Map of node distances from the source node */
-	private DistanceMap distancesFromStart;
-	/** Set of already visited nodes (where the shortest path is known) */
-	private Set<Integer> visited;
-	/** Priority queue of unvisited nodes discovered so far */
-	private Queue<Integer> unvisited;
-	/** Map of previous nodes on the shortest path(s) -- only used for
-	 * debugging purposes */
-	private Map<Integer, Integer> prevNodes;
+	private static final double INFINITY = Double.MAX_VALUE;
+	/** Maximum number of source nodes whose search state is kept */
+	public static final int MAX_CACHED_SOURCES = 8;
+	/** Initial size of the node arrays */
+	private static final int INIT_SIZE = 16;
+
+	/** node states */
+	private static final byte UNREACHED = 0;
+	private static final byte QUEUED = 1;
+	private static final byte SCANNED = 2;
+	/** node marks for repairs */
+	private static final byte AFFECTED = 1;
+	private static final byte CLEAN = 2;
+
 	/** Mapping of to other nodes' (whom this node has met) probability sets */
 	private Map<Integer, MeetingProbabilitySet> probs;
-	
+	/** Searches from different source nodes, most recently used first */
+	private List<Search> searches;
+
 	/**
 	 * Constructor.
 	 * @param probs A reference to the mapping of the known hosts meeting
@@ -41,184 +53,406 @@ public class MaxPropDijkstra {
 	 */
 	public MaxPropDijkstra(Map<Integer, MeetingProbabilitySet> probs) {
 		this.probs = probs;
+		this.searches = new ArrayList<Search>(MAX_CACHED_SOURCES);
 	}
 
 	/**
-	 * Initializes a new search with the first hop router node
-	 * @param firstHop The first hop router node
-	 */
-	private void initWith(Integer firstHop) {
-		this.unvisited = new PriorityQueue<Integer>(PQ_INIT_SIZE, 
-				new DistanceComparator());
-		this.visited = new HashSet<Integer>();
-		this.prevNodes = new HashMap<Integer, Integer>();
-		this.distancesFromStart = new DistanceMap();
-		
-		// set distance to source 0 and initialize unvisited queue
-		this.distancesFromStart.put(firstHop, 0);
-		this.unvisited.add(firstHop);
-	}
-	
-	/**
-	 * Calculates total costs to the given set of target nodes. The cost to 
+	 * Calculates total costs to the given set of target nodes. The cost to
 	 * a node is the sum of complements of probabilities that all the links
-	 * come up as the next contact of the nodes. 
+	 * come up as the next contact of the nodes.
 	 * @param from The index (address) of the start node
 	 * @param to The address set of destination nodes
-	 * @return A map of (destination node, cost) tuples
+	 * @return A map of (destination node, cost) tuples. Nodes that can't be
+	 * reached are not included.
 	 */
 	public Map<Integer, Double> getCosts(Integer from, Set<Integer> to) {
 		Map<Integer, Double> distMap = new HashMap<Integer, Double>();
-		int nrofNodesToFind = to.size();
-		
-		initWith(from);
-		Integer node = null;
-		
-		// always take the node with shortest distance
-		while ((node = unvisited.poll()) != null) {
-			if (to.contains(node)) {
-				// found one of the requested nodes
-				distMap.put(node, distancesFromStart.get(node));
-				nrofNodesToFind--;
-				if (nrofNodesToFind == 0) {
-					break; // all requested nodes found
-				}
-			} 
-			
-			visited.add(node); // mark the node as visited
-			relax(node);       // add/update neighbor nodes' distances
+		Search search = getSearch(from);
+
+		for (Integer node : to) {
+			double cost = search.getCost(node);
+			if (cost != INFINITY) {
+				distMap.put(node, cost);
+			}
 		}
-			
+
 		return distMap;
 	}
-	
+
 	/**
-	 * Relaxes the neighbors of a node (updates the shortest distances).
-	 * @param node The node whose neighbors are relaxed
+	 * Returns the total cost from a node to another.
+	 * @param from The index (address) of the start node
+	 * @param to The index (address) of the destination node
+	 * @return The cost or Double.MAX_VALUE if there is no known path
 	 */
-	private void relax(Integer node) {
-		double nodeDist = distancesFromStart.get(node);
-		Collection<Integer> neighbors;
-		
-		if (!this.probs.containsKey(node)) {
-			return; // node's neighbors are not known
-		}
-		
-		neighbors =	this.probs.get(node).getAllProbs().keySet();
-		
-		for (Integer n : neighbors) {
-			if (visited.contains(n)) {
-				continue; // skip visited nodes
-			}
-						
-			// n node's distance from path's source node
-			double nDist = nodeDist + getDistance(node, n);
-			
-			if (distancesFromStart.get(n) > nDist) { 
-				// stored distance > found dist -> update
-				prevNodes.put(n, node); // for debugging
-				setDistance(n, nDist);
-			}
-		}
+	public double getCost(int from, int to) {
+		return getSearch(from).getCost(to);
 	}
-	
+
 	/**
-	 * Sets the distance from source node to a node
-	 * @param n The node whose distance is set
-	 * @param distance The distance of the node from the source node
+	 * Tells that the probability set of a node has changed (or the node got
+	 * a set). Must be called every time a set is modified or replaced in the
+	 * probability set mapping.
+	 * @param node The index of the node whose set changed
 	 */
-	private void setDistance(Integer n, double distance) {
-		unvisited.remove(n); // remove node from old place in the queue
-		distancesFromStart.put(n, distance); // update distance
-		unvisited.add(n); // insert node to the new place in the queue
+	public void probsChanged(int node) {
+		for (int i=0, n=searches.size(); i<n; i++) {
+			searches.get(i).changed(node);
+		}
 	}
-	
+
 	/**
-	 * Returns the "distance" between two nodes, i.e., the complement of the 
-	 * probability that the next node "from" meets is "to". Works only if there
-	 * exist a probability value for "from" meeting "to". 
-	 * @param from The first node
-	 * @param to The second node
-	 * @return The distance between the two nodes
+	 * Returns the search for a source node. Creates a new search (or
+	 * reuses the least recently used one) if there is no search for the node.
+	 * @param source The source node
+	 * @return The search
 	 */
-	private double getDistance(Integer from, Integer to) {
-		assert probs.containsKey(from) : "Node " + from + " has not met " + to +
-			" (it has met nodes " + probs.keySet() + ")";
-		return ( 1 - probs.get(from).getProbFor(to) );
+	private Search getSearch(int source) {
+		Search search;
+		for (int i=0, n=searches.size(); i<n; i++) {
+			search = searches.get(i);
+			if (search.source == source) {
+				if (i > 0) { // move to the front
+					searches.remove(i);
+					searches.add(0, search);
+				}
+				return search;
+			}
+		}
+
+		if (searches.size() < MAX_CACHED_SOURCES) {
+			search = new Search();
+		}
+		else {
+			search = searches.remove(searches.size() - 1);
+		}
+		search.initWith(source);
+		searches.add(0, search);
+		return search;
 	}
-	
+
 	/**
-	 * Comparator that compares two nodes by their distance from
-	 * the source node.
+	 * State of the shortest path search from one source node. Labels of the
+	 * scanned nodes are final as long as none of the queued nodes has a
+	 * smaller label (which can only happen after a repair).
 	 */
-	private class DistanceComparator implements 
-		Comparator<Integer> {
-		
+	private class Search {
+		private int source;
+		/** distances from the source node */
+		private double[] dist;
+		/** previous nodes on the shortest paths */
+		private int[] parent;
+		private byte[] state;
+		/** nodes with a label, in no particular order */
+		private int[] reached;
+		private int nrofReached;
+		/** binary heap of the queued nodes, ordered by distance */
+		private int[] heap;
+		/** positions of the nodes in the heap */
+		private int[] heapPos;
+		private int heapSize;
+		/** labeled nodes whose probability sets have changed */
+		private int[] pending;
+		private int nrofPending;
+		private boolean[] changed;
+		/** marks for the nodes during repairs */
+		private byte[] mark;
+		/** temporary storage for repairs */
+		private int[] work;
+
+		public Search() {
+			this.dist = new double[INIT_SIZE];
+			Arrays.fill(dist, INFINITY);
+			this.parent = new int[INIT_SIZE];
+			Arrays.fill(parent, -1);
+			this.state = new byte[INIT_SIZE];
+			this.reached = new int[INIT_SIZE];
+			this.heap = new int[INIT_SIZE];
+			this.heapPos = new int[INIT_SIZE];
+			this.pending = new int[INIT_SIZE];
+			this.changed = new boolean[INIT_SIZE];
+			this.mark = new byte[INIT_SIZE];
+			this.work = new int[INIT_SIZE];
+		}
+
 		/**
-		 * Compares two map nodes by their distance from the source node
-		 * @return -1, 0 or 1 if node1's distance is smaller, equal to, or
-		 * bigger than node2's distance
+		 * Clears the previous search and starts a new one
+		 * @param source The source node of the search
 		 */
-		public int compare(Integer node1, Integer node2) {
-			double dist1 = distancesFromStart.get(node1);
-			double dist2 = distancesFromStart.get(node2);
-			
-			if (dist1 > dist2) {
-				return 1;
+		public void initWith(int source) {
+			for (int i=0; i<nrofReached; i++) {
+				int n = reached[i];
+				dist[n] = INFINITY;
+				parent[n] = -1;
+				state[n] = UNREACHED;
 			}
-			else if (dist1 < dist2) {
-				return -1;
+			for (int i=0; i<nrofPending; i++) {
+				changed[pending[i]] = false;
 			}
-			else {
-				return node1.compareTo(node2);
+			nrofReached = 0;
+			heapSize = 0;
+			nrofPending = 0;
+
+			this.source = source;
+			ensureCapacity(source);
+			label(source, 0, -1);
+		}
+
+		/**
+		 * Makes sure that the arrays can hold the given node index
+		 */
+		private void ensureCapacity(int node) {
+			int size = dist.length;
+			if (node < size) {
+				return;
+			}
+			while (size <= node) {
+				size *= 2;
 			}
+			int oldSize = dist.length;
+			dist = Arrays.copyOf(dist, size);
+			Arrays.fill(dist, oldSize, size, INFINITY);
+			parent = Arrays.copyOf(parent, size);
+			Arrays.fill(parent, oldSize, size, -1);
+			state = Arrays.copyOf(state, size);
+			reached = Arrays.copyOf(reached, size);
+			heap = Arrays.copyOf(heap, size);
+			heapPos = Arrays.copyOf(heapPos, size);
+			pending = Arrays.copyOf(pending, size);
+			changed = Arrays.copyOf(changed, size);
+			mark = Arrays.copyOf(mark, size);
+			work = Arrays.copyOf(work, size);
 		}
-	}
-	
-	/**
-	 * Simple Map implementation for storing distances. 
-	 */
-	private class DistanceMap {
-		private HashMap<Integer, Double> map;
-		
+
 		/**
-		 * Constructor. Creates an empty distance map
+		 * Returns the cost to a node, continuing the search as far as needed
+		 * @param to The node
+		 * @return The cost or {@link MaxPropDijkstra#INFINITY} if there is
+		 * no path to the node
 		 */
-		public DistanceMap() {
-			this.map = new HashMap<Integer, Double>(); 
+		public double getCost(int to) {
+			repair();
+			if (to < 0) {
+				return INFINITY;
+			}
+			ensureCapacity(to);
+
+			while (heapSize > 0) {
+				if (state[to] == SCANNED && dist[heap[0]] >= dist[to]) {
+					return dist[to];
+				}
+				int node = poll();
+				state[node] = SCANNED;
+				relax(node, false);
+			}
+
+			return state[to] == SCANNED ? dist[to] : INFINITY;
 		}
-		
+
 		/**
-		 * Returns the distance to a node. If no distance value
-		 * is found, returns {@link MaxPropDijkstra#INFINITY} as the value.
-		 * @param node The node whose distance is requested
-		 * @return The distance to that node
+		 * Relaxes the neighbors of a node (updates the shortest distances).
+		 * @param node The node whose neighbors are relaxed
+		 * @param onlyMarked If true, only neighbors that are marked for
+		 * repair are relaxed
 		 */
-		public double get(Integer node) {
-			Double value = map.get(node);
-			if (value != null) {
-				return value;
+		private void relax(int node, boolean onlyMarked) {
+			MeetingProbabilitySet neighbors = probs.get(node);
+			if (neighbors == null) {
+				return; // node's neighbors are not known
+			}
+			double nodeDist = dist[node];
+
+			for (int n = neighbors.nextSlot(0); n >= 0;
+					n = neighbors.nextSlot(n+1)) {
+				ensureCapacity(n);
+				if (onlyMarked && mark[n] != AFFECTED) {
+					continue;
+				}
+				/* n node's distance from path's source node; the weights
+				 * must not be negative or the search would not end */
+				double nDist = nodeDist +
+					Math.max(0, 1 - neighbors.getProbAt(n));
+				if (nDist < dist[n]) {
+					label(n, nDist, node);
+				}
+			}
+		}
+
+		/**
+		 * Sets a new (smaller) distance for a node and queues the node
+		 */
+		private void label(int n, double distance, int prev) {
+			if (state[n] == UNREACHED && dist[n] == INFINITY) {
+				reached[nrofReached++] = n;
+			}
+			dist[n] = distance;
+			parent[n] = prev;
+			if (state[n] == QUEUED) {
+				siftUp(heapPos[n]);
 			}
 			else {
-				return INFINITY;
+				state[n] = QUEUED;
+				heap[heapSize] = n;
+				heapPos[n] = heapSize++;
+				siftUp(heapSize - 1);
+			}
+		}
+
+		/**
+		 * Records a change in a node's probability set. Also queued nodes
+		 * are recorded since they can have children from an earlier scan.
+		 */
+		public void changed(int node) {
+			if (node < 0 || node >= state.length || state[node] == UNREACHED ||
+					changed[node]) {
+				return; // node's neighbors have not been used yet
 			}
+			changed[node] = true;
+			pending[nrofPending++] = node;
 		}
-		
+
 		/**
-		 * Puts a new distance value for a map node
-		 * @param node The node
-		 * @param distance Distance to that node
+		 * Repairs the search after probability set changes. The nodes in the
+		 * shortest path subtrees of the changed nodes lose their labels and
+		 * get new ones from the rest of the scanned nodes, and the new
+		 * probabilities of the changed nodes are relaxed. Nodes outside the
+		 * subtrees keep their labels.
 		 */
-		public void  put(Integer node, double distance) {
-			map.put(node, distance);
+		private void repair() {
+			if (nrofPending == 0) {
+				return;
+			}
+
+			/* mark the nodes whose shortest path goes through a changed node;
+			 * the parents are resolved before their children */
+			mark[source] = CLEAN;
+			for (int i=0; i<nrofReached; i++) {
+				int n = reached[i];
+				int depth = 0;
+				while (mark[n] == 0) {
+					work[depth++] = n;
+					n = parent[n];
+				}
+				while (depth > 0) {
+					n = work[--depth];
+					int p = parent[n];
+					mark[n] = changed[p] || mark[p] == AFFECTED ? AFFECTED : CLEAN;
+				}
+			}
+
+			/* remove the labels of the affected nodes */
+			int nrofAffected = 0;
+			int nrofClean = 0;
+			for (int i=0; i<nrofReached; i++) {
+				int n = reached[i];
+				if (mark[n] == AFFECTED) {
+					if (state[n] == QUEUED) {
+						removeFromHeap(n);
+					}
+					dist[n] = INFINITY;
+					parent[n] = -1;
+					state[n] = UNREACHED;
+					work[nrofAffected++] = n;
+				}
+				else {
+					reached[nrofClean++] = n;
+				}
+			}
+			nrofReached = nrofClean;
+
+			/* new labels for the affected nodes from the unchanged nodes */
+			if (nrofAffected > 0) {
+				for (int i=0; i<nrofClean; i++) {
+					int n = reached[i];
+					if (state[n] == SCANNED && !changed[n]) {
+						relax(n, true);
+					}
+				}
+			}
+
+			/* and from the changed nodes' new probabilities (queued nodes
+			 * are relaxed when they are scanned again) */
+			for (int i=0; i<nrofPending; i++) {
+				int n = pending[i];
+				if (state[n] == SCANNED) {
+					relax(n, false);
+				}
+			}
+
+			for (int i=0; i<nrofAffected; i++) {
+				mark[work[i]] = 0;
+			}
+			for (int i=0; i<nrofReached; i++) {
+				mark[reached[i]] = 0;
+			}
+			mark[source] = 0;
+			for (int i=0; i<nrofPending; i++) {
+				changed[pending[i]] = false;
+			}
+			nrofPending = 0;
 		}
-		
+
 		/**
-		 * Returns a string representation of the map's contents
-		 * @return a string representation of the map's contents
+		 * Compares the heap order of two nodes
+		 * @return True if node1 should be before node2
 		 */
-		public String toString() {
-			return map.toString();
+		private boolean isBefore(int node1, int node2) {
+			return dist[node1] < dist[node2] ||
+				(dist[node1] == dist[node2] && node1 < node2);
+		}
+
+		private int poll() {
+			int node = heap[0];
+			removeFromHeap(node);
+			return node;
+		}
+
+		private void removeFromHeap(int node) {
+			int pos = heapPos[node];
+			int last = heap[--heapSize];
+			if (pos < heapSize) {
+				heap[pos] = last;
+				heapPos[last] = pos;
+				siftDown(pos);
+				siftUp(heapPos[last]);
+			}
+		}
+
+		private void siftUp(int pos) {
+			int node = heap[pos];
+			while (pos > 0) {
+				int parentPos = (pos - 1) >>> 1;
+				int p = heap[parentPos];
+				if (!isBefore(node, p)) {
+					break;
+				}
+				heap[pos] = p;
+				heapPos[p] = pos;
+				pos = parentPos;
+			}
+			heap[pos] = node;
+			heapPos[node] = pos;
+		}
+
+		private void siftDown(int pos) {
+			int node = heap[pos];
+			while (true) {
+				int child = 2 * pos + 1;
+				if (child >= heapSize) {
+					break;
+				}
+				if (child + 1 < heapSize && isBefore(heap[child + 1], heap[child])) {
+					child++;
+				}
+				if (!isBefore(heap[child], node)) {
+					break;
+				}
+				heap[pos] = heap[child];
+				heapPos[heap[pos]] = pos;
+				pos = child;
+			}
+			heap[pos] = node;
+			heapPos[node] = pos;
 		}
 	}
 }
\ No newline at end of file
@@ -1,173 +1,430 @@
-/* 
+/* 
  * Copyright 2010 Aalto University, ComNet
- * Released under GPLv3. See LICENSE.txt for details. 
- */
-package routing.maxprop;
-
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import core.SimClock;
-
-/**
- * Class for storing and manipulating the meeting probabilities for the MaxProp
- * router module.
- */
-public class MeetingProbabilitySet {
-	public static final int INFINITE_SET_SIZE = Integer.MAX_VALUE;
-	/** meeting probabilities (probability that the next node one meets is X) */
-	private Map<Integer, Double> probs;
-	/** the time when this MPS was last updated */
-	private double lastUpdateTime;
-	/** the alpha parameter */
-	private double alpha;
-    private int maxSetSize;
-	
-	/**
-	 * Constructor. Creates a probability set with empty node-probability
-	 * mapping.
-	 * @param maxSetSize Maximum size of the probability set; when the set is
-	 *        full, smallest values are dropped when new are added
-	 */
-	public MeetingProbabilitySet(int maxSetSize, double alpha) {
-		this.alpha = alpha;
-		this.probs = new HashMap<Integer, Double>();
-        if (maxSetSize == INFINITE_SET_SIZE || maxSetSize < 1) {
-        	this.probs = new HashMap<Integer, Double>();
-        	this.maxSetSize = INFINITE_SET_SIZE;
-        } else {
-        	this.probs = new HashMap<Integer, Double>(maxSetSize);
-            this.maxSetSize = maxSetSize;
-        }
-		this.lastUpdateTime = 0;
-	}
-	
-	/**
-	 * Constructor. Creates a probability set with empty node-probability
-	 * mapping and infinite set size
-	 */
-	public MeetingProbabilitySet() {
-		this(INFINITE_SET_SIZE, 1);
-	}
-	
-	/**
-	 * Constructor. Creates a probability set with equal probability for
-	 * all the given node indexes.
-	 */
-	public MeetingProbabilitySet(double alpha, 
-				List<Integer> initiallyKnownNodes) {
-		this(INFINITE_SET_SIZE, alpha);
-		double prob = 1.0/initiallyKnownNodes.size();
-		for (Integer i : initiallyKnownNodes) {
-			this.probs.put(i, prob);
-		}
-	}
-	
-	/**
-	 * Updates meeting probability for the given node index.
-	 * <PRE> P(b) = P(b)_old + alpha
-	 * Normalize{P}</PRE> 
-	 * I.e., The probability of the given node index is increased by one and
-	 * then all the probabilities are normalized so that their sum equals to 1.
-	 * @param index The node index to update the probability for
-	 */
-	public void updateMeetingProbFor(Integer index) {
-        Map.Entry<Integer, Double> smallestEntry = null;
-        double smallestValue = Double.MAX_VALUE;
-
-		this.lastUpdateTime = SimClock.getTime();
-		
-		if (probs.size() == 0) { // first entry
-			probs.put(index, 1.0);
-			return;
-		}
-		
-		double newValue = getProbFor(index) + alpha;
-		probs.put(index, newValue);
-
-		/* now the sum of all entries is 1+alpha;
-		 * normalize to one by dividing all the entries by 1+alpha */ 
-		for (Map.Entry<Integer, Double> entry : probs.entrySet()) {
-			entry.setValue(entry.getValue() / (1+alpha));
-            if (entry.getValue() < smallestValue) {
-                smallestEntry = entry;
-                smallestValue = entry.getValue();
-            }
-
-		}
-
-        if (probs.size() >= maxSetSize) {
-            core.Debug.p("Probsize: " + probs.size() + " dropping " + 
-                    probs.remove(smallestEntry.getKey()));
-        }
-	}
-	
-	public void updateMeetingProbFor(Integer index, double iet)	{
-		probs.put(index, iet);
-	}
-	
-	/**
-	 * Returns the current delivery probability value for the given node index 
-	 * @param index The index of the node to look the P for
-	 * @return the current delivery probability value
-	 */
-	public double getProbFor(Integer index) {
-		if (probs.containsKey(index)) {
-			return probs.get(index);
-		}
-		else {
-			/* the node with the given index has not been met */
-			return 0.0;
-		}
-	}
-	
-	/**
-	 * Returns a reference to the probability map of this probability set
-	 * @return a reference to the probability map of this probability set
-	 */
-	public Map<Integer, Double> getAllProbs() {
-		return this.probs;
-	}
-	
-	/**
-	 * Returns the time when this probability set was last updated
-	 * @return the time when this probability set was last updated
-	 */
-	public double getLastUpdateTime() {
-		return this.lastUpdateTime;
-	}
-	
-	/**
-	 * Enables changing the alpha parameter dynamically
-	 */
-	public void setAlpha(double alpha) {
-		this.alpha = alpha;
-	}
-	
-	/**
-	 * Returns a deep copy of the probability set
-	 * @return a deep copy of the probability set
-	 */
-	public MeetingProbabilitySet replicate() {
-		MeetingProbabilitySet replica = new MeetingProbabilitySet(
-				this.maxSetSize, alpha);
-		
-		// do a deep copy
-		for (Map.Entry<Integer, Double> e : probs.entrySet()) {
-			replica.probs.put(e.getKey(), e.getValue().doubleValue());
-		}
-		
-		replica.lastUpdateTime = this.lastUpdateTime;
-		return replica;
-	}
-	
-	/**
-	 * Returns a String presentation of the probabilities
-	 * @return a String presentation of the probabilities
-	 */
-    @Override
-	public String toString() {
-		return "probs: " +	this.probs.toString();
-	}
-}
\ No newline at end of file
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package routing.maxprop;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.SimClock;
+
+/**
+ * Class for storing and manipulating the meeting probabilities for the MaxProp
+ * router module.
+ * <P>
+ * The probabilities are stored in a persistent array mapped trie of
+ * primitive doubles indexed by the node index (32 entries per trie node),
+ * and normalization is done lazily: the actual probability of a node is
+ * its stored value multiplied by a scale factor of the set, so normalizing
+ * all the entries only changes the factor.
+ * </P><P>
+ * Replicas created with {@link #replicate()} share all the trie nodes with
+ * the original set. Modifying a set copies only the trie nodes on the path
+ * to the modified entry that are shared with other sets (nodes that only
+ * the set itself uses are modified in place), so an update costs
+ * O(log<sub>32</sub> n) no matter how many replicas exist.
+ * </P>
+ */
+public class MeetingProbabilitySet {
+	public static final int INFINITE_SET_SIZE = Integer.MAX_VALUE;
+	/** Scale factor limit below which the factor is folded into the values
+	 * (to keep the values from overflowing) */
+	private static final double MIN_SCALE = 1e-100;
+	/** Bits of the node index per trie level */
+	private static final int BITS = 5;
+	/** Number of children or values per trie node */
+	private static final int WIDTH = 1 << BITS;
+	private static final int MASK = WIDTH - 1;
+
+	/** root of the trie of meeting probabilities (probability that the
+	 * next node one meets is X) divided by the scale factor; null if no
+	 * values have been stored */
+	private Node root;
+	/** index bit shift of the root level (0 if the root is a leaf) */
+	private int shift;
+	/** number of values in the trie */
+	private int size;
+	/** token of the trie nodes this set may modify in place */
+	private Object token;
+	/** the factor that the stored values are multiplied with */
+	private double scale;
+	/** the time when this MPS was last updated */
+	private double lastUpdateTime;
+	/** the alpha parameter */
+	private double alpha;
+    private int maxSetSize;
+
+	/**
+	 * Constructor. Creates a probability set with empty node-probability
+	 * mapping.
+	 * @param maxSetSize Maximum size of the probability set; when the set is
+	 *        full, smallest values are dropped when new are added
+	 */
+	public MeetingProbabilitySet(int maxSetSize, double alpha) {
+		this.alpha = alpha;
+        if (maxSetSize == INFINITE_SET_SIZE || maxSetSize < 1) {
+        	this.maxSetSize = INFINITE_SET_SIZE;
+        } else {
+            this.maxSetSize = maxSetSize;
+        }
+        this.token = new Object();
+        this.scale = 1;
+		this.lastUpdateTime = 0;
+	}
+
+	/**
+	 * Constructor. Creates a probability set with empty node-probability
+	 * mapping and infinite set size
+	 */
+	public MeetingProbabilitySet() {
+		this(INFINITE_SET_SIZE, 1);
+	}
+
+	/**
+	 * Constructor. Creates a probability set with equal probability for
+	 * all the given node indexes.
+	 */
+	public MeetingProbabilitySet(double alpha,
+				List<Integer> initiallyKnownNodes) {
+		this(INFINITE_SET_SIZE, alpha);
+		double prob = 1.0/initiallyKnownNodes.size();
+		for (Integer i : initiallyKnownNodes) {
+			store(i, prob);
+		}
+	}
+
+	/**
+	 * Updates meeting probability for the given node index.
+	 * <PRE> P(b) = P(b)_old + alpha
+	 * Normalize{P}</PRE>
+	 * I.e., The probability of the given node index is increased by one and
+	 * then all the probabilities are normalized so that their sum equals to 1.
+	 * If the set is full after the update, the smallest probability
+	 * (of the smallest node index, if there are many) is dropped.
+	 * @param index The node index to update the probability for
+	 */
+	public void updateMeetingProbFor(int index) {
+		this.lastUpdateTime = SimClock.getTime();
+
+		if (size == 0) { // first entry
+			this.scale = 1;
+			store(index, 1.0);
+			return;
+		}
+
+		double old = stored(index);
+		store(index, (Double.isNaN(old) ? 0 : old) + alpha / scale);
+
+		/* now the sum of all entries is 1+alpha;
+		 * normalize to one by dividing all the entries by 1+alpha */
+		this.scale /= (1+alpha);
+		if (this.scale < MIN_SCALE) {
+			root = multiply(root, shift, this.scale);
+			this.scale = 1;
+		}
+
+        if (size >= maxSetSize) {
+        	int smallest = smallestNode();
+        	double value = stored(smallest) * scale;
+        	store(smallest, Double.NaN);
+            core.Debug.p("Probsize: " + (size + 1) + " dropping " +
+            		value);
+        }
+	}
+
+	public void updateMeetingProbFor(int index, double iet)	{
+		store(index, iet / scale);
+	}
+
+	/**
+	 * Returns the current delivery probability value for the given node index
+	 * @param index The index of the node to look the P for
+	 * @return the current delivery probability value
+	 */
+	public double getProbFor(int index) {
+		double value = stored(index);
+		if (Double.isNaN(value)) {
+			/* the node with the given index has not been met */
+			return 0.0;
+		}
+		return toProb(value);
+	}
+
+	/**
+	 * Returns the probability of a stored value. The lazy scaling can round
+	 * the largest values slightly above one, so the result is clamped.
+	 */
+	private double toProb(double value) {
+		return Math.min(1.0, value * scale);
+	}
+
+	/**
+	 * Returns the number of nodes that have a probability value in this set
+	 * @return the number of nodes in this set
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the first slot at or after the given slot that holds a value.
+	 * The slots are the node indexes, in increasing order. Iterating over
+	 * all the values:
+	 * <PRE>for (int s = set.nextSlot(0); s >= 0; s = set.nextSlot(s+1))</PRE>
+	 * @param slot The slot to start from
+	 * @return The slot or -1 if there are no more values
+	 */
+	public int nextSlot(int slot) {
+		if (root == null) {
+			return -1;
+		}
+		return nextIndex(root, shift, 0, Math.max(slot, 0));
+	}
+
+	/**
+	 * Returns the probability value of a slot
+	 * @param slot The slot (see {@link #nextSlot(int)})
+	 * @return The probability
+	 */
+	public double getProbAt(int slot) {
+		return toProb(stored(slot));
+	}
+
+	/**
+	 * Returns a copy of the probabilities of this probability set as a map.
+	 * Use {@link #nextSlot(int)} for iterating over the values without
+	 * creating new objects.
+	 * @return a mapping of node indexes to their probabilities
+	 */
+	public Map<Integer, Double> getAllProbs() {
+		Map<Integer, Double> map = new HashMap<Integer, Double>(size * 2);
+		for (int s = nextSlot(0); s >= 0; s = nextSlot(s+1)) {
+			map.put(s, getProbAt(s));
+		}
+		return map;
+	}
+
+	/**
+	 * Returns the time when this probability set was last updated
+	 * @return the time when this probability set was last updated
+	 */
+	public double getLastUpdateTime() {
+		return this.lastUpdateTime;
+	}
+
+	/**
+	 * Enables changing the alpha parameter dynamically
+	 */
+	public void setAlpha(double alpha) {
+		this.alpha = alpha;
+	}
+
+	/**
+	 * Returns a copy of the probability set. The copy shares all the trie
+	 * nodes with this set; the nodes are copied only when (and where) either
+	 * one of the sets is modified.
+	 * @return a copy of the probability set
+	 */
+	public MeetingProbabilitySet replicate() {
+		MeetingProbabilitySet replica = new MeetingProbabilitySet(this);
+		this.token = new Object(); // the current nodes are shared now
+		return replica;
+	}
+
+	/**
+	 * Copy constructor for {@link #replicate()}
+	 */
+	private MeetingProbabilitySet(MeetingProbabilitySet mps) {
+		this.root = mps.root;
+		this.shift = mps.shift;
+		this.size = mps.size;
+		this.token = new Object();
+		this.scale = mps.scale;
+		this.lastUpdateTime = mps.lastUpdateTime;
+		this.alpha = mps.alpha;
+		this.maxSetSize = mps.maxSetSize;
+	}
+
+	/**
+	 * Returns a String presentation of the probabilities
+	 * @return a String presentation of the probabilities
+	 */
+    @Override
+	public String toString() {
+		return "probs: " +	getAllProbs().toString();
+	}
+
+	/**
+	 * Returns the stored value of a node index
+	 * @return The value or NaN if the index has no value
+	 */
+	private double stored(int index) {
+		if (root == null || index < 0 || (index >>> shift) >>> BITS != 0) {
+			return Double.NaN;
+		}
+		Node n = root;
+		for (int s = shift; s > 0; s -= BITS) {
+			n = n.children[(index >>> s) & MASK];
+			if (n == null) {
+				return Double.NaN;
+			}
+		}
+		return n.values[index & MASK];
+	}
+
+	/**
+	 * Stores a value for a node index, copying the shared nodes on the path
+	 * @param index The node index (must not be negative)
+	 * @param value The value or NaN to remove the value
+	 */
+	private void store(int index, double value) {
+		assert index >= 0 : "Negative node index " + index;
+		if (root == null) {
+			root = new Node(token, true);
+			shift = 0;
+		}
+		while ((index >>> shift) >>> BITS != 0) { // add a level on top
+			Node r = new Node(token, false);
+			r.children[0] = root;
+			root = r;
+			shift += BITS;
+		}
+
+		root = editable(root);
+		Node n = root;
+		for (int s = shift; s > 0; s -= BITS) {
+			int i = (index >>> s) & MASK;
+			Node child = n.children[i];
+			child = child == null ? new Node(token, s == BITS) :
+				editable(child);
+			n.children[i] = child;
+			n = child;
+		}
+
+		double old = n.values[index & MASK];
+		n.values[index & MASK] = value;
+		if (Double.isNaN(old) && !Double.isNaN(value)) {
+			size++;
+		}
+		else if (!Double.isNaN(old) && Double.isNaN(value)) {
+			size--;
+		}
+	}
+
+	/**
+	 * Returns a node this set may modify: the node itself if this set
+	 * created it after its last replication, otherwise a copy
+	 */
+	private Node editable(Node n) {
+		return n.token == token ? n : new Node(token, n);
+	}
+
+	/**
+	 * Multiplies all the values of a subtree with a factor
+	 * @return The (possibly copied) root of the subtree
+	 */
+	private Node multiply(Node n, int s, double factor) {
+		if (n == null) {
+			return null;
+		}
+		n = editable(n);
+		for (int i=0; i<WIDTH; i++) {
+			if (s == 0) {
+				n.values[i] *= factor; // NaN stays NaN
+			}
+			else {
+				n.children[i] = multiply(n.children[i], s - BITS, factor);
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the smallest node index with a value at or after an index in
+	 * a subtree
+	 * @param n Root of the subtree
+	 * @param s Index bit shift of the subtree's level
+	 * @param base The first index of the subtree
+	 * @param from The index to start from
+	 * @return The node index or -1 if there are no more values
+	 */
+	private static int nextIndex(Node n, int s, long base, int from) {
+		long first = from <= base ? 0 : (from - base) >>> s;
+		for (long i = first; i < WIDTH; i++) {
+			long childBase = base + (i << s);
+			if (s == 0) {
+				if (!Double.isNaN(n.values[(int)i])) {
+					return (int)childBase;
+				}
+			}
+			else if (n.children[(int)i] != null) {
+				int next = nextIndex(n.children[(int)i], s - BITS, childBase,
+						from);
+				if (next >= 0) {
+					return next;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the node index with the smallest value (smallest index on
+	 * ties)
+	 */
+	private int smallestNode() {
+		int smallest = -1;
+		double smallestValue = 0;
+		for (int i = nextSlot(0); i >= 0; i = nextSlot(i+1)) {
+			double value = stored(i);
+			if (smallest < 0 || value < smallestValue) {
+				smallest = i;
+				smallestValue = value;
+			}
+		}
+		return smallest;
+	}
+
+	/**
+	 * Node of the trie: either an inner node with child nodes or a leaf
+	 * with values (NaN for the indexes without a value)
+	 */
+	private static class Node {
+		/** token of the set that may modify the node in place */
+		private final Object token;
+		private final Node[] children;
+		private final double[] values;
+
+		/**
+		 * Creates an empty node
+		 * @param token Token of the set that creates the node
+		 * @param leaf True for a leaf, false for an inner node
+		 */
+		public Node(Object token, boolean leaf) {
+			this.token = token;
+			if (leaf) {
+				this.children = null;
+				this.values = new double[WIDTH];
+				Arrays.fill(this.values, Double.NaN);
+			}
+			else {
+				this.children = new Node[WIDTH];
+				this.values = null;
+			}
+		}
+
+		/**
+		 * Creates a copy of a node for another set
+		 * @param token Token of the set that gets the copy
+		 * @param n The node to copy
+		 */
+		public Node(Object token, Node n) {
+			this.token = token;
+			this.children = n.children == null ? null : n.children.clone();
+			this.values = n.values == null ? null : n.values.clone();
+		}
+	}
+}
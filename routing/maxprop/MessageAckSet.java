@@ -0,0 +1,222 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.maxprop;
+
+import java.util.Arrays;
+
+import core.MessageIdInterner;
+
+/**
+ * Set of acknowledged (delivered) messages for the MaxProp router module.
+ * Messages are identified by their interned integer ids (see
+ * {@link MessageIdInterner}) and the set is stored as a paged bitmap where
+ * only the pages with acked ids are allocated.
+ * <P>
+ * The acks are also kept in a log in the order they were learned. Every
+ * set remembers how far of its log it has sent to each peer, so a contact
+ * only exchanges the acks that are new to the peer. Acks are forgotten
+ * after the TTL of their message has expired, because then no copies of
+ * the message can be left that should be deleted.
+ * </P>
+ */
+public class MessageAckSet {
+	/** Number of bits in one bitmap page (as a power of two) */
+	private static final int PAGE_SHIFT = 12;
+	private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+	private static final int INIT_SIZE = 16;
+
+	/** bitmap pages; null for pages without acks */
+	private long[][] pages;
+	/** number of acks in each page */
+	private int[] pageCounts;
+	private int size;
+
+	/** acked ids and their expiry times in the order they were added */
+	private int[] logIds;
+	private double[] logExpiries;
+	/** index of the first and after the last valid log entry */
+	private int logHead;
+	private int logTail;
+	/** log position of the log array's first element */
+	private int logOffset;
+	/** log positions up to which the acks have been sent to each peer */
+	private int[] sentTo;
+
+	/** ids that should be checked by the router */
+	private int[] unchecked;
+	private int nrofUnchecked;
+
+	/**
+	 * Creates an empty ack set
+	 */
+	public MessageAckSet() {
+		this.pages = new long[1][];
+		this.pageCounts = new int[1];
+		this.logIds = new int[INIT_SIZE];
+		this.logExpiries = new double[INIT_SIZE];
+		this.sentTo = new int[0];
+		this.unchecked = new int[INIT_SIZE];
+	}
+
+	/**
+	 * Returns true if the message with the given id has been acked
+	 * @param id The integer id of the message
+	 * @return True if the message has been acked
+	 */
+	public boolean contains(int id) {
+		int page = id >>> PAGE_SHIFT;
+		if (page >= pages.length || pages[page] == null) {
+			return false;
+		}
+		return (pages[page][(id & PAGE_MASK) >>> 6] & (1L << id)) != 0;
+	}
+
+	/**
+	 * Adds an ack for a message. New acks are also marked for checking
+	 * (see {@link #pollUnchecked()}).
+	 * @param id The integer id of the message
+	 * @param expiryTime The time after which the ack is not needed anymore
+	 * @return True if the ack was new, false if it was already in the set
+	 */
+	public boolean add(int id, double expiryTime) {
+		if (contains(id)) {
+			return false;
+		}
+		setBit(id, true);
+
+		if (logTail == logIds.length) {
+			if (logHead > logIds.length / 2) { // move the entries to the start
+				int n = logTail - logHead;
+				System.arraycopy(logIds, logHead, logIds, 0, n);
+				System.arraycopy(logExpiries, logHead, logExpiries, 0, n);
+				logOffset += logHead;
+				logHead = 0;
+				logTail = n;
+			}
+			else {
+				logIds = Arrays.copyOf(logIds, logIds.length * 2);
+				logExpiries = Arrays.copyOf(logExpiries, logExpiries.length * 2);
+			}
+		}
+		logIds[logTail] = id;
+		logExpiries[logTail++] = expiryTime;
+
+		recheck(id);
+		return true;
+	}
+
+	private void setBit(int id, boolean value) {
+		int page = id >>> PAGE_SHIFT;
+		if (page >= pages.length) {
+			int n = pages.length;
+			while (n <= page) {
+				n *= 2;
+			}
+			pages = Arrays.copyOf(pages, n);
+			pageCounts = Arrays.copyOf(pageCounts, n);
+		}
+		if (pages[page] == null) {
+			pages[page] = new long[1 << (PAGE_SHIFT - 6)];
+		}
+
+		int word = (id & PAGE_MASK) >>> 6;
+		if (value) {
+			pages[page][word] |= 1L << id;
+			pageCounts[page]++;
+			size++;
+		}
+		else {
+			pages[page][word] &= ~(1L << id);
+			size--;
+			if (--pageCounts[page] == 0) {
+				pages[page] = null; // release empty pages
+			}
+		}
+	}
+
+	/**
+	 * Removes the acks whose expiry time has passed. Acks are removed in
+	 * the order they were added, so an ack that expires later than the
+	 * following ones keeps them in the set until it expires too.
+	 * @param time The current time
+	 */
+	public void expire(double time) {
+		while (logHead < logTail && logExpiries[logHead] <= time) {
+			setBit(logIds[logHead++], false);
+		}
+	}
+
+	/**
+	 * Sends the acks that have not been sent to the peer yet to the
+	 * peer's ack set. Expired acks are not sent.
+	 * @param receiver The ack set of the peer
+	 * @param peer The address of the peer
+	 * @param time The current time
+	 * @return Number of acks that were new to the receiver
+	 */
+	public int sendTo(MessageAckSet receiver, int peer, double time) {
+		expire(time);
+		if (peer >= sentTo.length) {
+			sentTo = Arrays.copyOf(sentTo, Math.max(peer + 1,
+					sentTo.length * 2));
+		}
+
+		int newAcks = 0;
+		int start = Math.max(sentTo[peer] - logOffset, logHead);
+		for (int i=start; i<logTail; i++) {
+			if (logExpiries[i] > time &&
+					receiver.add(logIds[i], logExpiries[i])) {
+				newAcks++;
+			}
+		}
+		sentTo[peer] = logOffset + logTail;
+		return newAcks;
+	}
+
+	/**
+	 * Marks an acked id for checking, e.g., when a copy of an already acked
+	 * message is received
+	 * @param id The integer id of the message
+	 */
+	public void recheck(int id) {
+		if (nrofUnchecked == unchecked.length) {
+			unchecked = Arrays.copyOf(unchecked, unchecked.length * 2);
+		}
+		unchecked[nrofUnchecked++] = id;
+	}
+
+	/**
+	 * Returns the ids that have been marked for checking since the last
+	 * call and clears the marks
+	 * @return The ids of the acked messages to check
+	 */
+	public int[] pollUnchecked() {
+		int[] ids = Arrays.copyOf(unchecked, nrofUnchecked);
+		nrofUnchecked = 0;
+		return ids;
+	}
+
+	/**
+	 * Returns the number of acks in the set
+	 * @return The number of acks in the set
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns a String presentation of the set
+	 * @return The acked message identifiers
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("acks: [");
+		for (int i=logHead; i<logTail; i++) {
+			sb.append(i > logHead ? ", " : "");
+			sb.append(MessageIdInterner.getId(logIds[i]));
+		}
+		return sb.append("]").toString();
+	}
+}
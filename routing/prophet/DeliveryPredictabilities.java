@@ -0,0 +1,276 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.prophet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import core.DTNHost;
+import core.SimClock;
+
+/**
+ * Delivery predictabilities of the PRoPHET router modules.
+ * <P>
+ * The predictabilities are stored in a dense array indexed by the host
+ * addresses. Aging is done lazily: the actual predictability of a host is
+ * its stored value multiplied by a decay factor of the whole set, so aging
+ * all the entries only updates the factor.
+ * </P><P>
+ * The entries are also kept in a list ordered by the time of their last
+ * change, so a transitive update can be restricted to the entries that
+ * have changed since the previous update from the same peer (see
+ * {@link #updateTransitivePreds(DeliveryPredictabilities, DTNHost, DTNHost,
+ * double, boolean)}).
+ * </P>
+ */
+public class DeliveryPredictabilities {
+	/** Decay factor limit below which the factor is folded into the values
+	 * (to keep the values from overflowing) */
+	private static final double MIN_DECAY = 1e-100;
+	/** Value of the list links for "no entry" */
+	private static final int NONE = -1;
+	private static final int INIT_SIZE = 16;
+
+	/** predictabilities by host address divided by the decay factor */
+	private double[] values;
+	/** hosts of the entries by address; null for hosts without an entry */
+	private DTNHost[] hosts;
+	private int size;
+
+	/** the aging constant */
+	private double gamma;
+	/** number of seconds in the time unit of aging */
+	private double secondsInTimeUnit;
+	/** the factor that the stored values are multiplied with */
+	private double decay;
+	/** last time the decay factor was updated */
+	private double lastAgeUpdate;
+
+	/** list of the entries, least recently changed first */
+	private int[] prev;
+	private int[] next;
+	private int head;
+	private int tail;
+	/** change counter of the set and the counter values of the entries'
+	 * last changes */
+	private long version;
+	private long[] changed;
+	/** versions of the peers' sets at their last transitive update by peer
+	 * address */
+	private long[] seenVersions;
+
+	/**
+	 * Creates an empty predictability set.
+	 * @param gamma The aging constant
+	 * @param secondsInTimeUnit Number of seconds in the time unit of aging
+	 */
+	public DeliveryPredictabilities(double gamma, double secondsInTimeUnit) {
+		this.gamma = gamma;
+		this.secondsInTimeUnit = secondsInTimeUnit;
+		this.decay = 1;
+		this.lastAgeUpdate = SimClock.getTime();
+
+		this.values = new double[INIT_SIZE];
+		this.hosts = new DTNHost[INIT_SIZE];
+		this.prev = new int[INIT_SIZE];
+		this.next = new int[INIT_SIZE];
+		this.changed = new long[INIT_SIZE];
+		this.seenVersions = new long[0];
+		this.head = NONE;
+		this.tail = NONE;
+	}
+
+	/**
+	 * Returns the current predictability for a host
+	 * @param host The host
+	 * @return The predictability or 0 if there is no entry for the host
+	 */
+	public double getPredFor(DTNHost host) {
+		ageDeliveryPreds();
+		int address = host.getAddress();
+		if (address < hosts.length && hosts[address] != null) {
+			return values[address] * decay;
+		}
+		else {
+			return 0;
+		}
+	}
+
+	/**
+	 * Updates the predictability of a host that was just met.
+	 * <CODE>P(a,b) = P(a,b)_old + (1 - P(a,b)_old) * P_INIT</CODE>
+	 * @param host The host that was met
+	 * @param pInit The initialization constant
+	 */
+	public void updateDeliveryPredFor(DTNHost host, double pInit) {
+		double oldValue = getPredFor(host);
+		setPredFor(host, oldValue + (1 - oldValue) * pInit);
+	}
+
+	/**
+	 * Updates transitive (A->B->C) predictabilities from the set of a peer.
+	 * <CODE>P(a,c) = P(a,c)_old + (1 - P(a,c)_old) * P(a,b) * P(b,c) * BETA
+	 * </CODE>
+	 * @param peerPreds The predictabilities of the peer (B)
+	 * @param self The host of this set (A), whose entry is not updated
+	 * @param peer The peer host (B)
+	 * @param beta The transitivity scaling constant
+	 * @param changedOnly If true, only the peer's entries that have changed
+	 * since the previous transitive update from the same peer are used.
+	 * Otherwise all the entries are used.
+	 */
+	public void updateTransitivePreds(DeliveryPredictabilities peerPreds,
+			DTNHost self, DTNHost peer, double beta, boolean changedOnly) {
+		double pForHost = getPredFor(peer); // P(a,b)
+		peerPreds.ageDeliveryPreds();
+
+		int peerAddress = peer.getAddress();
+		if (peerAddress >= seenVersions.length) {
+			seenVersions = Arrays.copyOf(seenVersions,
+					Math.max(peerAddress + 1, seenVersions.length * 2));
+		}
+
+		if (changedOnly) {
+			/* entries are in the order of change -> go backwards from the
+			 * most recent change until the first already seen change */
+			long seen = seenVersions[peerAddress];
+			for (int i = peerPreds.tail; i != NONE &&
+					peerPreds.changed[i] > seen; i = peerPreds.prev[i]) {
+				updateTransitivePred(peerPreds, i, self, pForHost, beta);
+			}
+		}
+		else {
+			for (int i = peerPreds.head; i != NONE; i = peerPreds.next[i]) {
+				updateTransitivePred(peerPreds, i, self, pForHost, beta);
+			}
+		}
+		seenVersions[peerAddress] = peerPreds.version;
+	}
+
+	private void updateTransitivePred(DeliveryPredictabilities peerPreds,
+			int address, DTNHost self, double pForHost, double beta) {
+		DTNHost host = peerPreds.hosts[address];
+		if (host == self) {
+			return; // don't add yourself
+		}
+		double pOld = getPredFor(host); // P(a,c)_old
+		double pNew = pOld + (1 - pOld) * pForHost *
+			peerPreds.values[address] * peerPreds.decay * beta;
+		setPredFor(host, pNew);
+	}
+
+	/**
+	 * Sets the current predictability of a host and moves its entry to the
+	 * end of the change list
+	 */
+	private void setPredFor(DTNHost host, double value) {
+		int address = host.getAddress();
+		if (address >= hosts.length) {
+			int n = Math.max(address + 1, hosts.length * 2);
+			values = Arrays.copyOf(values, n);
+			hosts = Arrays.copyOf(hosts, n);
+			prev = Arrays.copyOf(prev, n);
+			next = Arrays.copyOf(next, n);
+			changed = Arrays.copyOf(changed, n);
+		}
+
+		if (hosts[address] == null) {
+			hosts[address] = host;
+			size++;
+		}
+		else {
+			unlink(address);
+		}
+		link(address);
+
+		values[address] = value / decay;
+		changed[address] = ++version;
+	}
+
+	private void unlink(int address) {
+		if (prev[address] != NONE) {
+			next[prev[address]] = next[address];
+		}
+		else {
+			head = next[address];
+		}
+		if (next[address] != NONE) {
+			prev[next[address]] = prev[address];
+		}
+		else {
+			tail = prev[address];
+		}
+	}
+
+	private void link(int address) {
+		prev[address] = tail;
+		next[address] = NONE;
+		if (tail != NONE) {
+			next[tail] = address;
+		}
+		else {
+			head = address;
+		}
+		tail = address;
+	}
+
+	/**
+	 * Ages all the entries.
+	 * <CODE>P(a,b) = P(a,b)_old * (GAMMA ^ k)</CODE>, where k is number of
+	 * time units that have elapsed since the last time the metric was aged.
+	 * Only the decay factor is updated unless it gets so small that it
+	 * must be folded into the values.
+	 */
+	public void ageDeliveryPreds() {
+		double timeDiff = (SimClock.getTime() - this.lastAgeUpdate) /
+			secondsInTimeUnit;
+
+		if (timeDiff == 0) {
+			return;
+		}
+
+		this.decay *= Math.pow(gamma, timeDiff);
+		if (this.decay < MIN_DECAY) {
+			for (int i = head; i != NONE; i = next[i]) {
+				values[i] *= decay;
+			}
+			this.decay = 1;
+		}
+
+		this.lastAgeUpdate = SimClock.getTime();
+	}
+
+	/**
+	 * Changes the aging constant. The entries are aged with the old constant
+	 * up to the current time first.
+	 * @param gamma The new aging constant
+	 */
+	public void setGamma(double gamma) {
+		ageDeliveryPreds();
+		this.gamma = gamma;
+	}
+
+	/**
+	 * Returns the number of hosts that have a predictability entry
+	 * @return The number of entries
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns a copy of the current predictabilities as a map
+	 * @return a mapping of hosts to their predictabilities
+	 */
+	public Map<DTNHost, Double> getAllPreds() {
+		ageDeliveryPreds();
+		Map<DTNHost, Double> map = new HashMap<DTNHost, Double>(size * 2);
+		for (int i = head; i != NONE; i = next[i]) {
+			map.put(hosts[i], values[i] * decay);
+		}
+		return map;
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.schedule;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Departures of one node of a {@link ScheduleOracle}. The entries are kept
+ * sorted by their departure time and the departure and arrival times and
+ * the destinations are copied to primitive arrays, so the first departure
+ * after a given time is found with a binary search. Entries added (or
+ * delayed) after the last query are sorted in on the next query.
+ */
+class NodeSchedule implements Serializable {
+	private static final long serialVersionUID = 42L;
+	private static final int INIT_SIZE = 4;
+
+	/** the node whose departures these are */
+	final int node;
+	/** index of the node in the oracle */
+	final int index;
+
+	/** the entries, sorted by departure time if {@link #sorted} */
+	ScheduleEntry[] entries;
+	/** departure times of the sorted entries */
+	double[] departures;
+	/** arrival times of the sorted entries */
+	double[] arrivals;
+	/** oracle indexes of the destinations of the sorted entries */
+	int[] toIndexes;
+	int size;
+	private boolean sorted;
+
+	/**
+	 * Creates a schedule without any departures
+	 * @param node The node
+	 * @param index Index of the node in the oracle
+	 */
+	NodeSchedule(int node, int index) {
+		this.node = node;
+		this.index = index;
+		this.entries = new ScheduleEntry[INIT_SIZE];
+		this.sorted = true;
+	}
+
+	/**
+	 * Adds a departure to the schedule
+	 * @param se The entry
+	 */
+	void add(ScheduleEntry se) {
+		if (size == entries.length) {
+			entries = Arrays.copyOf(entries, size * 2);
+		}
+		entries[size++] = se;
+		se.schedule = this;
+		sorted = false;
+	}
+
+	/**
+	 * Marks the schedule unsorted after the time of an entry has changed
+	 */
+	void invalidate() {
+		sorted = false;
+	}
+
+	/**
+	 * Sorts the entries and rebuilds the time arrays if needed
+	 */
+	void ensureSorted() {
+		if (sorted) {
+			return;
+		}
+		/* stable sort; entries with equal times stay in insertion order */
+		Arrays.sort(entries, 0, size, new DepartureComparator());
+		if (departures == null || departures.length < entries.length) {
+			departures = new double[entries.length];
+			arrivals = new double[entries.length];
+			toIndexes = new int[entries.length];
+		}
+		for (int i=0; i<size; i++) {
+			departures[i] = entries[i].getTime();
+			arrivals[i] = entries[i].getDestinationTime();
+			toIndexes[i] = entries[i].toIndex;
+		}
+		sorted = true;
+	}
+
+	/**
+	 * Returns the index of the first departure at or after the given time
+	 * @param time The time
+	 * @return Index of the first such entry or {@link #size} if there are
+	 * no departures after the time
+	 */
+	int firstDeparture(double time) {
+		ensureSorted();
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (departures[mid] < time) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Comparator that orders entries by their departure time
+	 */
+	private static class DepartureComparator
+			implements Comparator<ScheduleEntry> {
+		public int compare(ScheduleEntry se1, ScheduleEntry se2) {
+			return Double.compare(se1.getTime(), se2.getTime());
+		}
+	}
+}
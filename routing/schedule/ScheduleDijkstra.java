@@ -1,38 +1,39 @@
 /* 
- * Copyright 2010 Aalto University, ComNet
+ * Copyright 2010 Aalto University, ComNet
  * Released under GPLv3. See LICENSE.txt for details. 
  */
 
 package routing.schedule;
 
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
 
 /**
- * Dijkstra's shortest path implementation for schedule data
+ * Dijkstra's shortest path implementation for schedule data. Finds the
+ * earliest arrival (time-dependent shortest) paths. The nodes are handled
+ * by their oracle indexes and the search state is kept in arrays that are
+ * reused between the searches.
  */
 /* TODO: combine this with movement.map.DijkstraPathFinder? */
 public class ScheduleDijkstra {
 	/** Value for infinite distance  */
-	private static final Double INFINITY = Double.MAX_VALUE;
-	/** Initial size of the priority queue */
-	private static final int PQ_INIT_SIZE = 11;
+	private static final double INFINITY = Double.MAX_VALUE;
 
-	/** Map of the times when one could be at certain node */
-	private TimeMap times;
-	/** Set of already visited nodes (where the shortest path is known) */
-	private Set<Integer> visited;
-	/** Priority queue of unvisited nodes discovered so far */
-	private Queue<Integer> unvisited;
-	/** Map of previous schedule on the shortest path(s) */
-	private Map<Integer, ScheduleEntry> prevHops;
+	/** Times when one could be at certain node */
+	private double[] times;
+	/** Previous schedule on the shortest path(s) */
+	private ScheduleEntry[] prevHops;
+	/** Search where the values of the node were set */
+	private int[] searchIds;
+	/** Search where the node was visited (the shortest path is known) */
+	private int[] visitedIds;
+	/** Id of the current search */
+	private int searchId;
+	/** Binary heap of unvisited nodes discovered so far */
+	private int[] heap;
+	/** Positions of the nodes in the heap */
+	private int[] heapPos;
+	private int heapSize;
 	/** Oracle that know all schedules */
 	private ScheduleOracle oracle;
 	
@@ -43,22 +44,35 @@ public class ScheduleDijkstra {
 	 */
 	public ScheduleDijkstra(ScheduleOracle oracle) {
 		this.oracle = oracle;
+		this.times = new double[0];
+		this.prevHops = new ScheduleEntry[0];
+		this.searchIds = new int[0];
+		this.visitedIds = new int[0];
+		this.heap = new int[0];
+		this.heapPos = new int[0];
 	}
 
 	/**
 	 * Initializes a new search with a source node
-	 * @param node The path's source node
+	 * @param node Index of the path's source node
 	 * @param time The time when the path starts
 	 */
-	private void initWith(Integer node, double time) {	
-		this.unvisited = new PriorityQueue<Integer>(PQ_INIT_SIZE, 
-				new DurationComparator());
-		this.visited = new HashSet<Integer>();
-		this.prevHops = new HashMap<Integer, ScheduleEntry>();
-		this.times = new TimeMap();
+	private void initWith(int node, double time) {
+		int nrofNodes = oracle.getNrofNodes();
+		if (times.length < nrofNodes) { /* new nodes in the oracle */
+			int size = Math.max(nrofNodes, times.length * 2);
+			times = new double[size];
+			prevHops = new ScheduleEntry[size];
+			searchIds = new int[size];
+			visitedIds = new int[size];
+			heap = new int[size];
+			heapPos = new int[size];
+			searchId = 0;
+		}
 		
-		this.times.put(node, time);
-		this.unvisited.add(node);
+		searchId++;
+		heapSize = 0;
+		setTime(node, time, null);
 	}
 	
 	/**
@@ -78,23 +92,13 @@ public class ScheduleDijkstra {
 			return path;
 		}
 		
-		initWith(from, time);
-		Integer node = null;
-		
-		while ((node = unvisited.poll()) != null) {
-			if (node.equals(to)) {
-				break; 
-			}
-			
-			visited.add(node); 
-			relax(node); 
-		}		
+		int target = search(from, to, time);
 
-		if (node != null) { // found a path
-			ScheduleEntry prev = prevHops.get(to); 
+		if (target != -1) { // found a path
+			ScheduleEntry prev = prevHops[target];
 			while (prev.getFrom() != from) { 
 				path.add(0, prev);
-				prev = prevHops.get(prev.getFrom());
+				prev = prevHops[oracle.indexOf(prev.getFrom())];
 			}
 			
 			path.add(0, prev);
@@ -103,109 +107,161 @@ public class ScheduleDijkstra {
 		return path;
 	}
 	
+	/**
+	 * Returns the earliest time one can be at the destination
+	 * @param from The source of the path
+	 * @param to The destination of the path
+	 * @param time The time when the path starts
+	 * @return The arrival time or {@link Double#MAX_VALUE} if the
+	 * destination can't be reached
+	 */
+	public double getEarliestArrival(int from, int to, double time) {
+		if (from == to) {
+			return time;
+		}
+		
+		int target = search(from, to, time);
+		return target == -1 ? INFINITY : times[target];
+	}
+	
+	/**
+	 * Runs a search until the destination's earliest arrival is known
+	 * @return Index of the destination or -1 if it can't be reached
+	 */
+	private int search(int from, int to, double time) {
+		int source = oracle.indexOf(from);
+		int target = oracle.indexOf(to);
+		if (source == -1 || target == -1) {
+			return -1;
+		}
+		
+		initWith(source, time);
+		
+		while (heapSize > 0) {
+			int node = poll();
+			if (node == target) {
+				return target; 
+			}
+			
+			visitedIds[node] = searchId; 
+			relax(node, target); 
+		}
+		
+		return -1;
+	}
+	
 	/**
 	 * Relaxes the neighbors of a node (updates the shortest distances).
-	 * @param node The node whose neighbors are relaxed
+	 * @param node Index of the node whose neighbors are relaxed
+	 * @param target Index of the destination of the search
 	 */
-	private void relax(Integer node) {
-		double timeNow = times.get(node);
-		int to;
-		double timeTo;
+	private void relax(int node, int target) {
+		NodeSchedule s = oracle.getSchedule(node);
 		
-		for (ScheduleEntry se : oracle.getConnected(node, timeNow)) {
-			to = se.getTo();
-			if (visited.contains(to)) {
-				continue; // skip visited nodes
+		for (int i = s.firstDeparture(times[node]); i < s.size; i++) {
+			if (s.departures[i] >= getTime(target)) {
+				/* later departures can't arrive before the target's time */
+				break;
 			}
 			
-			timeTo = se.getTime() +  se.getDuration();
+			int to = s.toIndexes[i];
+			if (visitedIds[to] == searchId) {
+				continue; // skip visited nodes
+			}
 			
-			if (timeTo < times.get(to)) {
-				prevHops.put(to, se);
-				setTime(to, timeTo);
+			if (s.arrivals[i] < getTime(to)) {
+				setTime(to, s.arrivals[i], s.entries[i]);
 			}
 		}
 	}
 	
 	/**
-	 * Sets the time when at a node
-	 * @param n The node whose time is set
-	 * @param time The time when at given node
+	 * Returns the currently known smallest time one has a path for to the
+	 * given node. If no time value is found, returns 
+	 * {@link ScheduleDijkstra#INFINITY} as the value.
+	 * @param node Index of the node whose time is requested
+	 * @return The time when one could be at that node
 	 */
-	private void setTime(Integer n, double time) {
-		unvisited.remove(n);
-		times.put(n, time); 
-		unvisited.add(n);
+	private double getTime(int node) {
+		return searchIds[node] == searchId ? times[node] : INFINITY;
 	}
 	
 	/**
-	 * Comparator that compares two nodes by their journey duration
+	 * Sets the time when at a node and queues (or re-queues) the node
+	 * @param n Index of the node whose time is set
+	 * @param time The time when at given node
+	 * @param prev The schedule that takes one to the node
 	 */
-	private class DurationComparator implements Comparator<Integer> {
+	private void setTime(int n, double time, ScheduleEntry prev) {
+		boolean queued = searchIds[n] == searchId;
+		searchIds[n] = searchId;
+		times[n] = time;
+		prevHops[n] = prev;
 		
-		/**
-		 * Compares two nodes by their time to get there 
-		 * @return -1, 0 or 1 if node1's time is smaller, equal to, or
-		 * bigger than node2's
-		 */
-		public int compare(Integer node1, Integer node2) {
-			double time1 = times.get(node1);
-			double time2 = times.get(node2);
-			
-			if (time1 > time2) {
-				return 1;
-			}
-			else if (time1 < time2) {
-				return -1;
-			}
-			else {
-				return 0;
-			}
+		if (queued) { /* times only decrease */
+			siftUp(heapPos[n]);
+		}
+		else {
+			heap[heapSize] = n;
+			heapPos[n] = heapSize++;
+			siftUp(heapSize - 1);
 		}
 	}
 	
-	private class TimeMap {
-		private HashMap<Integer, Double> map;
-		
-		/**
-		 * Constructor. Creates an empty map
-		 */
-		public TimeMap() {
-			this.map = new HashMap<Integer, Double>(); 
+	/**
+	 * Compares the heap order of two nodes
+	 * @return True if node1 should be before node2
+	 */
+	private boolean isBefore(int node1, int node2) {
+		return times[node1] < times[node2] ||
+			(times[node1] == times[node2] && node1 < node2);
+	}
+	
+	private int poll() {
+		int node = heap[0];
+		int last = heap[--heapSize];
+		if (heapSize > 0) {
+			heap[0] = last;
+			heapPos[last] = 0;
+			siftDown(0);
 		}
-		
-		/**
-		 * Returns the currently known smallest time one has a path for to the
-		 * given node. If no time value is found, returns 
-		 * {@link ScheduleDijkstra#INFINITY} as the value.
-		 * @param node The node whose time is requested
-		 * @return The time when one could be at that node
-		 */
-		public double get(Integer node) {
-			Double value = map.get(node);
-			if (value != null) {
-				return value;
-			}
-			else {
-				return INFINITY;
+		return node;
+	}
+	
+	private void siftUp(int pos) {
+		int node = heap[pos];
+		while (pos > 0) {
+			int parentPos = (pos - 1) >>> 1;
+			int p = heap[parentPos];
+			if (!isBefore(node, p)) {
+				break;
 			}
+			heap[pos] = p;
+			heapPos[p] = pos;
+			pos = parentPos;
 		}
-		
-		/**
-		 * Puts a new time value for a node
-		 * @param node The node
-		 * @param time Time at that node
-		 */
-		public void put(Integer node, double time) {
-			map.put(node, time);
-		}
-		
-		/**
-		 * Returns a string representation of the map's contents
-		 * @return a string representation of the map's contents
-		 */
-		public String toString() {
-			return map.toString();
+		heap[pos] = node;
+		heapPos[node] = pos;
+	}
+	
+	private void siftDown(int pos) {
+		int node = heap[pos];
+		while (true) {
+			int child = 2 * pos + 1;
+			if (child >= heapSize) {
+				break;
+			}
+			if (child + 1 < heapSize && isBefore(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!isBefore(heap[child], node)) {
+				break;
+			}
+			heap[pos] = heap[child];
+			heapPos[heap[pos]] = pos;
+			pos = child;
 		}
+		heap[pos] = node;
+		heapPos[node] = pos;
 	}
-}
\ No newline at end of file
+}
@@ -16,6 +16,10 @@ public class ScheduleEntry implements Serializable {
 	private double delta;
 	private double duration;
 	private int usageCount;
+	/** schedule of the source node (if the entry is in an oracle) */
+	NodeSchedule schedule;
+	/** oracle index of the destination node */
+	int toIndex;
 	
 	/**
 	 * Constructor of new schedule entry
@@ -89,6 +93,9 @@ public class ScheduleEntry implements Serializable {
 	 */
 	public void setDelta(double delta) {
 		this.delta = delta;
+		if (schedule != null) {
+			schedule.invalidate();
+		}
 	}
 
 	/**
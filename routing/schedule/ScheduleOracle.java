@@ -1,5 +1,5 @@
 /* 
- * Copyright 2010 Aalto University, ComNet
+ * Copyright 2010 Aalto University, ComNet
  * Released under GPLv3. See LICENSE.txt for details. 
  */
 package routing.schedule;
@@ -10,13 +10,41 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Oracle that knows the schedules of all nodes. The departures of every
+ * node are kept sorted by time (see {@link NodeSchedule}), so the
+ * departures after a given time are found in logarithmic time. Every node
+ * that is the source or destination of an entry gets a dense index that
+ * the path finders can use for array based bookkeeping.
+ */
 public class ScheduleOracle implements Serializable{
 	private static final long serialVersionUID = 42L;
 	
-	Map<Integer, List<ScheduleEntry>> schedules;
+	/** schedules by node */
+	Map<Integer, NodeSchedule> schedules;
+	/** schedules by node index */
+	List<NodeSchedule> nodes;
 	
 	public ScheduleOracle() {
-		this.schedules = new HashMap<Integer, List<ScheduleEntry>>();
+		this.schedules = new HashMap<Integer, NodeSchedule>();
+		this.nodes = new ArrayList<NodeSchedule>();
+	}
+	
+	/**
+	 * Returns the schedule of a node, creating it if needed
+	 * @param node The node
+	 * @return The node's schedule
+	 */
+	private NodeSchedule getOrCreate(int node) {
+		NodeSchedule s = schedules.get(node);
+		
+		if (s == null) { /* first entry for the node */
+			s = new NodeSchedule(node, nodes.size());
+			schedules.put(node, s);
+			nodes.add(s);
+		}
+		
+		return s;
 	}
 	
 	/**
@@ -29,14 +57,11 @@ public class ScheduleOracle implements Serializable{
 	 */
 	public void addEntry(double start, int from, int via, int to, 
 			double duration) {
-		List<ScheduleEntry> list = schedules.get(from);
+		NodeSchedule fromSchedule = getOrCreate(from);
+		ScheduleEntry se = new ScheduleEntry(start, from, via, to, duration);
 		
-		if (list == null) { /* first entry for the from */
-			list = new ArrayList<ScheduleEntry>();
-			schedules.put(from, list);
-		}
-
-		list.add(new ScheduleEntry(start, from, via, to, duration));
+		se.toIndex = getOrCreate(to).index;
+		fromSchedule.add(se);
 	}
 
 	/**
@@ -55,37 +80,82 @@ public class ScheduleOracle implements Serializable{
 	 * from the given node
 	 * @param from The source node
 	 * @param time Time to start
-	 * @return List of reachable nodes 
+	 * @return List of reachable nodes, sorted by the departure time
 	 */
 	public List<ScheduleEntry> getConnected(int from, double time) {
 		List<ScheduleEntry> connected = new ArrayList<ScheduleEntry>();
-		List<ScheduleEntry> all = schedules.get(from);
+		NodeSchedule s = schedules.get(from);
 
-		if (all == null) {
+		if (s == null) {
 			return connected;
 		}
 		
-		for (ScheduleEntry s : all) {
-			if (s.getTime() >= time) {
-				connected.add(s);
-			}
+		for (int i = s.firstDeparture(time); i < s.size; i++) {
+			connected.add(s.entries[i]);
 		}
 		
 		return connected;
 	}
 	
+	/**
+	 * Returns the first departure from the given node at or after the
+	 * given time
+	 * @param from The source node
+	 * @param time Time to start
+	 * @return The earliest departure or null if there are no departures
+	 * after the time
+	 */
+	public ScheduleEntry getNextDeparture(int from, double time) {
+		NodeSchedule s = schedules.get(from);
+
+		if (s == null) {
+			return null;
+		}
+		
+		int i = s.firstDeparture(time);
+		return i < s.size ? s.entries[i] : null;
+	}
+	
 	/**
 	 * Returns all schedule entries
 	 * @return all schedule entries
 	 */
 	public List<ScheduleEntry> getEntries() {
 		List<ScheduleEntry> entries = new ArrayList<ScheduleEntry>();
-		for (List<ScheduleEntry> list : schedules.values()) {
-			for (ScheduleEntry se : list) {
-				entries.add(se);
+		for (NodeSchedule s : nodes) {
+			s.ensureSorted();
+			for (int i = 0; i < s.size; i++) {
+				entries.add(s.entries[i]);
 			}
 		}
 		
 		return entries;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Returns the index of a node
+	 * @param node The node
+	 * @return The node's index or -1 if the oracle doesn't know the node
+	 */
+	int indexOf(int node) {
+		NodeSchedule s = schedules.get(node);
+		return s == null ? -1 : s.index;
+	}
+	
+	/**
+	 * Returns the schedule of the node with the given index
+	 * @param index The node's index
+	 * @return The schedule
+	 */
+	NodeSchedule getSchedule(int index) {
+		return nodes.get(index);
+	}
+	
+	/**
+	 * Returns the number of nodes the oracle knows
+	 * @return The number of nodes
+	 */
+	int getNrofNodes() {
+		return nodes.size();
+	}
+}
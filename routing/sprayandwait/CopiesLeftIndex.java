@@ -0,0 +1,148 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.sprayandwait;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import core.IntHashMap;
+import core.Message;
+
+/**
+ * Index of the cached messages that a Spray and Wait router still has
+ * copies of to distribute (number of copies > 1). The routers update the
+ * index when messages are added to or removed from the cache and when the
+ * number of copies of a message changes, so the messages with copies left
+ * don't have to be searched from the whole cache.
+ * <P>
+ * The messages are kept in the order they were added to the index, i.e.,
+ * in the order they were received or created. The forwarding order of
+ * the router is applied to the returned lists.
+ * </P>
+ */
+public class CopiesLeftIndex {
+	/** entries by the integer IDs of their messages */
+	private IntHashMap<Entry> entries;
+	/** first and last entry of the list */
+	private Entry head;
+	private Entry tail;
+
+	/**
+	 * Creates an empty index
+	 */
+	public CopiesLeftIndex() {
+		this.entries = new IntHashMap<Entry>();
+	}
+
+	/**
+	 * Adds a message to the end of the index, or removes it from the index,
+	 * depending on its number of copies left
+	 * @param m The message
+	 * @param nrofCopies Number of copies of the message left
+	 */
+	public void update(Message m, int nrofCopies) {
+		if (nrofCopies > 1) {
+			add(m);
+		}
+		else {
+			remove(m);
+		}
+	}
+
+	/**
+	 * Adds a message to the end of the index. If another instance of the
+	 * message (i.e., a message with the same ID) is in the index, it is
+	 * replaced.
+	 * @param m The message
+	 */
+	public void add(Message m) {
+		Entry e = entries.get(m.getIntId());
+		if (e != null) {
+			if (e.message == m) {
+				return;
+			}
+			unlink(e);
+		}
+
+		e = new Entry(m);
+		e.prev = tail;
+		if (tail != null) {
+			tail.next = e;
+		}
+		else {
+			head = e;
+		}
+		tail = e;
+		entries.put(m.getIntId(), e);
+	}
+
+	/**
+	 * Removes a message from the index. Nothing is done if the index
+	 * doesn't contain the message.
+	 * @param m The message
+	 */
+	public void remove(Message m) {
+		Entry e = entries.get(m.getIntId());
+		if (e != null && e.message == m) {
+			unlink(e);
+			entries.remove(m.getIntId());
+		}
+	}
+
+	private void unlink(Entry e) {
+		if (e.prev != null) {
+			e.prev.next = e.next;
+		}
+		else {
+			head = e.next;
+		}
+		if (e.next != null) {
+			e.next.prev = e.prev;
+		}
+		else {
+			tail = e.prev;
+		}
+	}
+
+	/**
+	 * Returns true if the index contains the message
+	 * @param m The message
+	 * @return True if the index contains the message
+	 */
+	public boolean contains(Message m) {
+		Entry e = entries.get(m.getIntId());
+		return e != null && e.message == m;
+	}
+
+	/**
+	 * Returns the number of messages in the index
+	 * @return The number of messages in the index
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the messages of the index in a new list
+	 * @return The messages in the order they were added to the index
+	 */
+	public List<Message> getMessages() {
+		List<Message> list = new ArrayList<Message>(entries.size());
+		for (Entry e = head; e != null; e = e.next) {
+			list.add(e.message);
+		}
+		return list;
+	}
+
+	private static class Entry {
+		private final Message message;
+		private Entry prev;
+		private Entry next;
+
+		private Entry(Message message) {
+			this.message = message;
+		}
+	}
+}
@@ -0,0 +1,5 @@
+@echo off
+rem Runs the end-to-end scaling benchmark suite (see scaling.sh).
+javac -cp .;lib/*;lib/uncommons-maths-1.2.3/uncommons-maths-1.2.3.jar;lib/batik/* benchmark/ScalingBenchmark.java
+if errorlevel 1 exit /b 1
+java -cp .;lib/*;lib/uncommons-maths-1.2.3/uncommons-maths-1.2.3.jar;lib/batik/* benchmark.ScalingBenchmark %*
@@ -0,0 +1,9 @@
+#! /bin/sh
+# Runs the end-to-end scaling benchmark suite (benchmark/scaling/suite.txt)
+# and compares the results with benchmark/scaling/baseline.txt. The
+# simulator must have been compiled first (compile.bat). Arguments are
+# passed to benchmark.ScalingBenchmark, e.g.: ./scaling.sh rwp-epidemic-500
+# or ./scaling.sh -update to record a new baseline on this machine.
+CP=".:lib/*:lib/uncommons-maths-1.2.3/uncommons-maths-1.2.3.jar:lib/batik/*"
+javac -cp "$CP" benchmark/ScalingBenchmark.java || exit 1
+java -cp "$CP" benchmark.ScalingBenchmark "$@"
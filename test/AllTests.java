@@ -36,16 +36,35 @@ public class AllTests {
 		suite.addTestSuite(AdjacencyGraphvizReportTest.class);
 		suite.addTestSuite(MessageGraphvizReportTest.class);
 		suite.addTestSuite(ExternalEventsQueueTest.class);
+		suite.addTestSuite(StandardEventsReaderTest.class);
 		suite.addTestSuite(ContactTimesReportTest.class);
 		suite.addTestSuite(TotalContactTimeReportTest.class);
 		suite.addTestSuite(EpidemicRouterTest.class);
 		suite.addTestSuite(ProphetRouterTest.class);
 		suite.addTestSuite(SettingsTest.class);
 		suite.addTestSuite(DijkstraPathFinderTest.class);
+		suite.addTestSuite(ScheduleDijkstraTest.class);
 		suite.addTestSuite(PointsOfInterestTest.class);
 		suite.addTestSuite(ActivenessHandlerTest.class);
 		suite.addTestSuite(MaxPropDijkstraTest.class);
 		suite.addTestSuite(MaxPropRouterTest.class);
+		suite.addTestSuite(MeetingProbabilitySetTest.class);
+		suite.addTestSuite(MessageAckSetTest.class);
+		suite.addTestSuite(IntHashMapTest.class);
+		suite.addTestSuite(CopiesLeftIndexTest.class);
+		suite.addTestSuite(DoubleFormatterTest.class);
+		suite.addTestSuite(AsyncReportWriterTest.class);
+		suite.addTestSuite(StreamingStatsTest.class);
+		suite.addTestSuite(CounterArrayTest.class);
+		suite.addTestSuite(BinaryEventLogTest.class);
+		suite.addTestSuite(ListenerDispatchTest.class);
+		suite.addTestSuite(HostPairMapTest.class);
+		suite.addTestSuite(UpdateListenerScheduleTest.class);
+		suite.addTestSuite(ProfilerTest.class);
+		suite.addTestSuite(BackgroundLoaderTest.class);
+		suite.addTestSuite(MaxPropDijkstraIncrementalTest.class);
+		suite.addTestSuite(DeliveryPredictabilitiesTest.class);
+		suite.addTestSuite(PeerSummaryTest.class);
 		suite.addTestSuite(ScheduledUpdatesQueueTest.class);
 		suite.addTestSuite(MessageTest.class);
 		suite.addTestSuite(ModuleCommunicationBusTest.class);
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+
+import junit.framework.TestCase;
+import report.AsyncReportWriter;
+
+/**
+ * Tests for the background thread report writer.
+ */
+public class AsyncReportWriterTest extends TestCase {
+
+	public void testOutput() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintWriter out = new PrintWriter(new AsyncReportWriter(bytes, "test"));
+		StringBuilder expected = new StringBuilder();
+
+		/* enough lines for several batches */
+		for (int i = 0; i < 50000; i++) {
+			String line = "line " + i;
+			out.println(line);
+			expected.append(line).append(System.lineSeparator());
+		}
+		out.close();
+
+		assertFalse(out.checkError());
+		assertEquals(expected.toString(), bytes.toString());
+	}
+
+	public void testError() {
+		OutputStream failing = new OutputStream() {
+			public void write(int b) throws IOException {
+				throw new IOException("test");
+			}
+		};
+		PrintWriter out = new PrintWriter(new AsyncReportWriter(failing,
+				"test"));
+		for (int i = 0; i < 50000; i++) {
+			out.println("line " + i);
+		}
+		out.close();
+		assertTrue(out.checkError());
+	}
+}
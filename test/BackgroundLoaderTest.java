@@ -0,0 +1,69 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.BackgroundLoader;
+import junit.framework.TestCase;
+import core.SimError;
+
+/**
+ * Tests for loading chunks on a background thread.
+ */
+public class BackgroundLoaderTest extends TestCase {
+
+	/** Loader of numbered chunks that fails after the given chunks */
+	private static class FailingLoader extends BackgroundLoader<Integer> {
+		private int nrofChunks;
+		private int loaded;
+		private boolean fail;
+
+		public FailingLoader(int capacity, int nrofChunks, boolean fail) {
+			super(capacity);
+			this.nrofChunks = nrofChunks;
+			this.fail = fail;
+		}
+
+		@Override
+		protected Integer load() {
+			if (loaded == nrofChunks) {
+				if (fail) {
+					throw new SimError("broken input");
+				}
+				return null;
+			}
+			return loaded++;
+		}
+
+		@Override
+		protected void closeInput() {}
+	}
+
+	public void testChunksInOrder() {
+		FailingLoader loader = new FailingLoader(1, 5, false);
+		loader.start("test");
+		for (int i=0; i<5; i++) {
+			assertEquals(i, loader.next().intValue());
+		}
+		assertNull(loader.next());
+		assertNull(loader.next());
+		loader.close();
+	}
+
+	public void testErrorAfterLoadedChunks() throws InterruptedException {
+		FailingLoader loader = new FailingLoader(2, 5, true);
+		loader.start("test");
+		Thread.sleep(50); // let the loader fill the queue and fail
+		for (int i=0; i<5; i++) {
+			assertEquals(i, loader.next().intValue());
+		}
+		try {
+			loader.next();
+			fail("The error of the loader was not rethrown");
+		} catch (SimError e) {
+			assertEquals("broken input", e.getMessage());
+		}
+		loader.close();
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.BinaryEventLogReader;
+import input.BinaryEventLogWriter;
+import input.ExternalEvent;
+import input.ExternalEventsQueue;
+import input.MessageDeleteEvent;
+import input.MessageRelayEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the binary event log writer and reader.
+ */
+public class BinaryEventLogTest extends TestCase {
+	/** the lines EventLogReport would write for the events */
+	private static final String[] LINES = {
+		"0.0 REG p0",
+		"0.0 REG p1",
+		"1.5 CONN p0 p1 up",
+		"2.0 C p0 M1",
+		"2.0 S p0 p1 M1",
+		"2.6 DE p0 p1 M1 D",
+		"2.6 TR p0 M1",
+		"3.0 C p1 M2",
+		"3.1 S p1 p0 M2",
+		"3.2 A p1 p0 M2 connection lost",
+		"3.2 I p1 p0 M2",
+		"4.0 DE p1 p0 M2 RA",
+		"5.0 DR p1 M2 buffer full",
+		"5.0 R p0 M1",
+		"6.0 EX p0 M2 connection lost",
+		"6.5 CONN p0 p1 down",
+	};
+
+	private File logFile;
+
+	private File writeLog(boolean compress) throws IOException {
+		File f = File.createTempFile("eventlogtest",
+				BinaryEventLogWriter.LOG_EXT);
+		f.deleteOnExit();
+		String[] names = {"p0", "p1"};
+		String[] ids = {"M1", "M2"};
+		BinaryEventLogWriter w = new BinaryEventLogWriter(f, compress,
+				3); // small blocks to test block boundaries
+
+		w.write(0.0, BinaryEventLogWriter.TYPE_REGISTER, 0, names[0],
+				BinaryEventLogWriter.NO_HOST, null, null, null);
+		w.write(0.0, BinaryEventLogWriter.TYPE_REGISTER, 1, names[1],
+				BinaryEventLogWriter.NO_HOST, null, null, null);
+		w.write(1.5, BinaryEventLogWriter.TYPE_CONNECTION_UP, 0, names[0],
+				1, names[1], null, null);
+		w.writeCreate(2.0, 0, names[0], 1, names[1], ids[0], 100, 10, 2);
+		w.write(2.0, BinaryEventLogWriter.TYPE_SEND, 0, names[0], 1, names[1],
+				ids[0], null);
+		w.write(2.6, BinaryEventLogWriter.TYPE_DELIVERED, 0, names[0], 1,
+				names[1], ids[0], null);
+		w.write(2.6, BinaryEventLogWriter.TYPE_TRANSMISSION, 0, names[0],
+				BinaryEventLogWriter.NO_HOST, null, ids[0], null);
+		w.writeCreate(3.0, 1, names[1], BinaryEventLogWriter.NO_HOST, null,
+				ids[1], 200, 0, 0);
+		w.write(3.1, BinaryEventLogWriter.TYPE_SEND, 1, names[1], 0, names[0],
+				ids[1], null);
+		w.write(3.2, BinaryEventLogWriter.TYPE_ABORT, 1, names[1], 0,
+				names[0], ids[1], "connection lost");
+		w.write(3.2, BinaryEventLogWriter.TYPE_INTERFERED, 1, names[1], 0,
+				names[0], ids[1], null);
+		w.write(4.0, BinaryEventLogWriter.TYPE_RELAYED_AGAIN, 1, names[1], 0,
+				names[0], ids[1], null);
+		w.write(5.0, BinaryEventLogWriter.TYPE_DROP, 1, names[1],
+				BinaryEventLogWriter.NO_HOST, null, ids[1], "buffer full");
+		w.write(5.0, BinaryEventLogWriter.TYPE_REMOVE, 0, names[0],
+				BinaryEventLogWriter.NO_HOST, null, ids[0], null);
+		w.write(6.0, BinaryEventLogWriter.TYPE_EXPIRATION, 0, names[0],
+				BinaryEventLogWriter.NO_HOST, null, ids[1],
+				"connection lost");
+		w.write(6.5, BinaryEventLogWriter.TYPE_CONNECTION_DOWN, 0, names[0],
+				1, names[1], null, null);
+		w.close();
+		return f;
+	}
+
+	public void testText() throws IOException {
+		for (boolean compress : new boolean[] {false, true}) {
+			logFile = writeLog(compress);
+			StringWriter out = new StringWriter();
+			assertEquals(LINES.length,
+					BinaryEventLogReader.convertToText(logFile, out));
+			String[] lines = out.toString().split("\n");
+			assertEquals(LINES.length, lines.length);
+			for (int i=0; i<LINES.length; i++) {
+				assertEquals(LINES[i], lines[i]);
+			}
+		}
+	}
+
+	public void testEvents() throws IOException {
+		logFile = writeLog(true);
+		assertTrue(BinaryEventLogReader.isEventLogFile(logFile));
+
+		BinaryEventLogReader r = new BinaryEventLogReader(logFile);
+		List<ExternalEvent> events = r.readEvents(100);
+		r.close();
+
+		/* registrations and the transmission are skipped */
+		String[] expected = {
+			"CONN up @1.5 0<->1",
+			"MSG @2.0 M1 [0->1] size:100 CREATE",
+			"MSG @2.0 M1 [0->1] SENDING",
+			"MSG @2.6 M1 [0->1] TRANSFERRED",
+			"MSG @3.0 M2 [1->-1] size:200 CREATE", // no destination
+			"MSG @3.1 M2 [1->0] SENDING",
+			"MSG @3.2 M2 [1->0] ABORTED",
+			null, // interfered
+			"MSG @4.0 M2 [1->0] TRANSFERRED",
+			"MSG @5.0 M2 [1] DELETE",
+			"MSG @5.0 M1 [0] DELETE",
+			"MSG @6.0 M2 [0] DELETE",
+			"CONN down @6.5 0<->1"};
+		assertEquals(expected.length, events.size());
+		for (int i=0; i<expected.length; i++) {
+			if (expected[i] != null) {
+				assertEquals(expected[i], events.get(i).toString());
+			}
+		}
+		assertTrue(events.get(7) instanceof MessageRelayEvent);
+		assertTrue(events.get(9) instanceof MessageDeleteEvent);
+
+		ExternalEventsQueue eeq = new ExternalEventsQueue(
+				logFile.getAbsolutePath(), 2);
+		for (ExternalEvent ee : events) {
+			assertEquals(ee.getTime(), eeq.nextEventsTime());
+			assertEquals(ee.getClass(), eeq.nextEvent().getClass());
+		}
+		assertEquals(Double.MAX_VALUE, eeq.nextEventsTime());
+	}
+}
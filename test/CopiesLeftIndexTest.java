@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import routing.sprayandwait.CopiesLeftIndex;
+import core.Message;
+
+/**
+ * Tests for the Spray and Wait index of messages with copies left.
+ */
+public class CopiesLeftIndexTest extends TestCase {
+	private CopiesLeftIndex index;
+	private Message m1;
+	private Message m2;
+	private Message m3;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		index = new CopiesLeftIndex();
+		m1 = new Message(null, null, "M1", 1);
+		m2 = new Message(null, null, "M2", 1);
+		m3 = new Message(null, null, "M3", 1);
+	}
+
+	public void testOrder() {
+		index.update(m2, 4);
+		index.update(m1, 2);
+		index.update(m3, 8);
+		index.update(m2, 2); // no change in the order
+
+		List<Message> list = index.getMessages();
+		assertEquals(3, list.size());
+		assertSame(m2, list.get(0));
+		assertSame(m1, list.get(1));
+		assertSame(m3, list.get(2));
+	}
+
+	public void testUpdateAndRemove() {
+		index.update(m1, 4);
+		index.update(m2, 1);
+		assertTrue(index.contains(m1));
+		assertFalse(index.contains(m2));
+
+		index.update(m1, 1);
+		assertFalse(index.contains(m1));
+		assertEquals(0, index.size());
+
+		index.update(m1, 2);
+		index.update(m2, 2);
+		index.remove(m1);
+		index.remove(m3); // not in the index
+		assertEquals(1, index.size());
+		assertSame(m2, index.getMessages().get(0));
+	}
+
+	public void testReplicates() {
+		Message m1Copy = m1.replicate();
+		index.update(m1, 2);
+		index.update(m2, 2);
+
+		// removing another instance of the message doesn't remove it
+		index.remove(m1Copy);
+		assertTrue(index.contains(m1));
+
+		// adding another instance replaces the old one at the end
+		index.update(m1Copy, 2);
+		assertFalse(index.contains(m1));
+		assertTrue(index.contains(m1Copy));
+		List<Message> list = index.getMessages();
+		assertEquals(2, list.size());
+		assertSame(m2, list.get(0));
+		assertSame(m1Copy, list.get(1));
+	}
+}
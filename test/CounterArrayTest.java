@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import report.CounterArray;
+
+/**
+ * Tests for the growable counter array of the reports.
+ */
+public class CounterArrayTest extends TestCase {
+
+	public void testCounting() {
+		CounterArray c = new CounterArray(4);
+		assertEquals(0, c.get(0));
+		assertEquals(0, c.get(100));
+
+		c.increment(1);
+		c.increment(1);
+		c.add(3, 5);
+		assertEquals(0, c.get(0));
+		assertEquals(2, c.get(1));
+		assertEquals(5, c.get(3));
+	}
+
+	public void testGrowing() {
+		CounterArray c = new CounterArray(1);
+		for (int i = 0; i < 1000; i++) {
+			c.add(i, i);
+		}
+		c.increment(5000);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i, c.get(i));
+		}
+		assertEquals(0, c.get(4999));
+		assertEquals(1, c.get(5000));
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import routing.PassiveRouter;
+import routing.ProphetRouter;
+import routing.prophet.DeliveryPredictabilities;
+import core.Coord;
+import core.DTNHost;
+import core.MessageListener;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+import core.SimClock;
+
+/**
+ * Tests for the delivery predictabilities of the PRoPHET routers. The
+ * hosts have no network interfaces; only their addresses are used.
+ */
+public class DeliveryPredictabilitiesTest extends TestCase {
+	private static final int SECONDS_IN_TIME_UNIT = 60;
+	/* amount of deviation from expected values that is OK */
+	private static final double DELTA = 0.000001;
+	private SimClock clock;
+	private DTNHost h3, h4, h5, h6;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		clock = SimClock.getInstance();
+		h3 = createHost();
+		h4 = createHost();
+		h5 = createHost();
+		h6 = createHost();
+	}
+
+	private DTNHost createHost() {
+		return new DTNHost(new ArrayList<MessageListener>(), null, "h",
+				new ArrayList<NetworkInterface>(),
+				new ModuleCommunicationBus(),
+				new StationaryMovement(new Coord(0,0)),
+				new PassiveRouter(new TestSettings()));
+	}
+
+	public void testTransitivePreds() {
+		DeliveryPredictabilities p3 = new DeliveryPredictabilities(
+				ProphetRouter.GAMMA, SECONDS_IN_TIME_UNIT);
+		DeliveryPredictabilities p5 = new DeliveryPredictabilities(
+				ProphetRouter.GAMMA, SECONDS_IN_TIME_UNIT);
+		double beta = ProphetRouter.DEFAULT_BETA;
+		double pInit = ProphetRouter.P_INIT;
+
+		p3.updateDeliveryPredFor(h5, pInit);
+		p5.updateDeliveryPredFor(h4, pInit);
+		p5.updateDeliveryPredFor(h3, pInit);
+
+		p3.updateTransitivePreds(p5, h3, h5, beta, true);
+		double p34 = pInit * pInit * beta;
+		assertEquals(p34, p3.getPredFor(h4), DELTA);
+		assertEquals(0.0, p3.getPredFor(h3)); // no entry for self
+		assertEquals(2, p3.size());
+
+		// nothing has changed in h5's predictabilities
+		p3.updateTransitivePreds(p5, h3, h5, beta, true);
+		assertEquals(p34, p3.getPredFor(h4), DELTA);
+
+		// only the changed entry is used
+		p5.updateDeliveryPredFor(h6, pInit);
+		p3.updateTransitivePreds(p5, h3, h5, beta, true);
+		assertEquals(p34, p3.getPredFor(h4), DELTA);
+		assertEquals(pInit * pInit * beta, p3.getPredFor(h6), DELTA);
+
+		// all entries are used
+		p3.updateTransitivePreds(p5, h3, h5, beta, false);
+		p34 = p34 + (1 - p34) * pInit * pInit * beta;
+		assertEquals(p34, p3.getPredFor(h4), DELTA);
+
+		clock.advance(SECONDS_IN_TIME_UNIT * 3);
+		assertEquals(p34 * Math.pow(ProphetRouter.GAMMA, 3),
+				p3.getPredFor(h4), DELTA);
+	}
+
+	public void testLazyAging() {
+		DeliveryPredictabilities p = new DeliveryPredictabilities(
+				ProphetRouter.GAMMA, SECONDS_IN_TIME_UNIT);
+		p.updateDeliveryPredFor(h4, ProphetRouter.P_INIT);
+		clock.advance(SECONDS_IN_TIME_UNIT * 2);
+		p.updateDeliveryPredFor(h5, ProphetRouter.P_INIT);
+
+		double aged = ProphetRouter.P_INIT * Math.pow(ProphetRouter.GAMMA, 2);
+		assertEquals(aged, p.getPredFor(h4), DELTA);
+		assertEquals(ProphetRouter.P_INIT, p.getPredFor(h5), DELTA);
+		assertEquals(aged, p.getAllPreds().get(h4), DELTA);
+
+		/* a new meeting updates the aged value */
+		p.updateDeliveryPredFor(h4, ProphetRouter.P_INIT);
+		assertEquals(aged + (1 - aged) * ProphetRouter.P_INIT,
+				p.getPredFor(h4), DELTA);
+	}
+}
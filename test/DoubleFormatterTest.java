@@ -0,0 +1,45 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import report.DoubleFormatter;
+
+/**
+ * Tests that the fast double formatter gives the same results as
+ * String.format.
+ */
+public class DoubleFormatterTest extends TestCase {
+
+	private void check(double value, int precision) {
+		assertEquals(String.format("%." + precision + "f", value),
+				DoubleFormatter.format(value, precision));
+	}
+
+	public void testSpecialValues() {
+		double[] values = {0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, 1e20, -1e-9, 0.5, 1.5, 2.5, -0.5,
+				0.125, 1.0005, 0.00005, 123456789.123456789};
+		for (double value : values) {
+			for (int precision = 0; precision < 8; precision++) {
+				check(value, precision);
+			}
+		}
+	}
+
+	public void testRandomValues() {
+		Random rng = new Random(1);
+		for (int i = 0; i < 100000; i++) {
+			int precision = rng.nextInt(7);
+			check(rng.nextDouble() * 10000, precision);
+			check(-rng.nextDouble(), precision);
+			/* decimal values near the rounding ties */
+			check((rng.nextInt(100000) * 10 + 5) /
+					Math.pow(10, precision + 1), precision);
+		}
+	}
+}
@@ -5,6 +5,8 @@
 package test;
 
 import input.BinaryEventsReader;
+import input.CompactEventsReader;
+import input.CompactEventsWriter;
 import input.ExternalEvent;
 import input.ExternalEventsQueue;
 import input.ExternalEventsReader;
@@ -13,9 +15,11 @@ import input.StandardEventsReader;
 
 import java.io.File;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.util.List;
 
 import junit.framework.TestCase;
+import core.SimError;
 
 public class ExternalEventsQueueTest extends TestCase {
 	private final String[] stdinput = {
@@ -66,6 +70,23 @@ public class ExternalEventsQueueTest extends TestCase {
 	}
 
 	
+	public void testPrefetchingEEQ() {
+		for (int preload = 1; preload <= 11; preload += 3) {
+			eeq = new ExternalEventsQueue(tempFile.getAbsolutePath(), preload,
+					true);
+			checkEeq(eeq, Math.min(preload, msgTimes.length));
+			assertEquals(Double.MAX_VALUE, eeq.nextEventsTime());
+			eeq.close();
+		}
+		
+		// closing before all events are read must stop the loader
+		eeq = new ExternalEventsQueue(tempFile.getAbsolutePath(), 2, true);
+		eeq.nextEvent();
+		eeq.close();
+		assertEquals(Double.MAX_VALUE, eeq.nextEventsTime());
+		assertEquals(0, eeq.eventsLeftInBuffer());
+	}
+	
 	public void testBinaryEEQ() throws Exception{
 		int preload = 7;
 		File tmpBinFile = File.createTempFile("TempBinTest", 
@@ -82,6 +103,67 @@ public class ExternalEventsQueueTest extends TestCase {
 	}
 	
 	
+	public void testCompactEEQ() throws Exception {
+		ExternalEventsReader r = new StandardEventsReader(tempFile);
+		List<ExternalEvent> events = r.readEvents(100);
+		r.close();
+
+		for (boolean compress : new boolean[] {false, true}) {
+			File tmpFile = File.createTempFile("TempCompactTest",
+					CompactEventsWriter.COMPACT_EXT);
+			CompactEventsWriter w = new CompactEventsWriter(tmpFile, compress,
+					3); // small blocks to test block boundaries
+			w.writeAll(events);
+			w.close();
+
+			assertTrue(CompactEventsReader.isCompactEeFile(tmpFile));
+			assertFalse(CompactEventsReader.isCompactEeFile(tempFile));
+
+			int preload = 4;
+			eeq = new ExternalEventsQueue(tmpFile.getAbsolutePath(), preload);
+			checkEeq(eeq, preload);
+
+			CompactEventsReader cr = new CompactEventsReader(tmpFile);
+			List<ExternalEvent> read = cr.readEvents(100);
+			assertEquals(events.size(), read.size());
+			for (int i=0; i<events.size(); i++) {
+				assertEquals(events.get(i).getClass(), read.get(i).getClass());
+				assertEquals(events.get(i).toString(), read.get(i).toString());
+			}
+			assertEquals(0, cr.readEvents(100).size());
+			
+			assertTrue(tmpFile.delete());
+		}
+	}
+	
+	public void testTruncatedCompactFile() throws Exception {
+		ExternalEventsReader r = new StandardEventsReader(tempFile);
+		List<ExternalEvent> events = r.readEvents(100);
+		r.close();
+
+		File tmpFile = File.createTempFile("TempCompactTest",
+				CompactEventsWriter.COMPACT_EXT);
+		CompactEventsWriter w = new CompactEventsWriter(tmpFile, false, 3);
+		w.writeAll(events);
+		w.close();
+
+		/* the first block header is cut after the event count */
+		RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+		raf.setLength(CompactEventsWriter.HEADER_SIZE + 8);
+		raf.close();
+
+		CompactEventsReader cr = new CompactEventsReader(tmpFile);
+		try {
+			cr.readEvents(100);
+			fail("Truncated file was read");
+		} catch (SimError e) {
+			assertTrue(e.getMessage().startsWith(
+					"Invalid compact external events file"));
+		}
+		cr.close();
+		assertTrue(tmpFile.delete());
+	}
+	
 	private void checkEeq(ExternalEventsQueue eeq, int preloadVal) {
 		ExternalEvent ee;
 		assertEquals(msgTimes[0],eeq.nextEventsTime());
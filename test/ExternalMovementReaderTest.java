@@ -4,6 +4,8 @@
  */
 package test;
 
+import input.BinaryMovementReader;
+import input.BinaryMovementWriter;
 import input.ExternalMovementReader;
 
 import java.io.File;
@@ -16,6 +18,7 @@ import core.Tuple;
 
 public class ExternalMovementReaderTest extends TestCase {
 	private ExternalMovementReader r;
+	private File tmpFile;
 	private static final String INPUT = 
 		"0 0 0 0 0 0\n"+
 		"10 1 10 10\n"+ 
@@ -39,7 +42,7 @@ public class ExternalMovementReaderTest extends TestCase {
 	protected void setUp() throws Exception {
 		super.setUp();
 		
-		File tmpFile = File.createTempFile("EMRTest","tmp");
+		tmpFile = File.createTempFile("EMRTest","tmp");
 		tmpFile.deleteOnExit();
 		
 		PrintWriter pw = new PrintWriter(tmpFile);
@@ -62,6 +65,40 @@ public class ExternalMovementReaderTest extends TestCase {
 		assertEquals(0, list.size());
 	}
 
+	public void testPrefetchingReader() {
+		r.setPrefetch(1);
+		testReader();
+		r.close();
+	}
+
+	public void testBinaryReader() throws Exception {
+		File binFile = File.createTempFile("EMRTest", ".bin");
+		binFile.deleteOnExit();
+		assertEquals(times.length, BinaryMovementWriter.convert(
+				tmpFile.getAbsolutePath(), binFile.getAbsolutePath()));
+		
+		assertTrue(BinaryMovementReader.isBinaryMovementFile(
+				binFile.getAbsolutePath()));
+		assertFalse(BinaryMovementReader.isBinaryMovementFile(
+				tmpFile.getAbsolutePath()));
+		
+		BinaryMovementReader br = new BinaryMovementReader(
+				binFile.getAbsolutePath());
+		assertEquals(ids.length, br.getNrofIds());
+		for (int i=0; i<times.length; i++) {
+			assertTrue(br.nextInstance());
+			assertEquals(times[i], br.getLastTimeStamp());
+			assertEquals(ids.length, br.getNrofLocations());
+			for (int j=0; j<ids.length; j++) {
+				assertEquals(ids[j], br.getId(br.getNodeIndexes()[j]));
+				assertEquals(coords[i][j], new Coord(br.getXs()[j], 
+						br.getYs()[j]));
+			}
+		}
+		assertFalse(br.nextInstance());
+		br.close();
+	}
+	
 	private void checkTuples(List<Tuple<String, Coord>> list, String[] ids,
 			Coord[] coords) {
 		
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import report.Histogram;
+import report.HostPairMap;
+
+/**
+ * Tests for the host pair map and the histogram of the contact reports.
+ */
+public class HostPairMapTest extends TestCase {
+
+	public void testKeys() {
+		long key = HostPairMap.orderedPairKey(3, 70000);
+		assertEquals(3, HostPairMap.firstAddress(key));
+		assertEquals(70000, HostPairMap.secondAddress(key));
+		assertTrue(key != HostPairMap.orderedPairKey(70000, 3));
+	}
+
+	public void testPutGetRemove() {
+		HostPairMap map = new HostPairMap();
+		long k1 = HostPairMap.orderedPairKey(1, 2);
+		long k2 = HostPairMap.orderedPairKey(2, 1);
+		assertTrue(Double.isNaN(map.get(k1)));
+
+		map.put(k1, 1.5);
+		map.put(k2, 2.5);
+		assertEquals(2, map.size());
+		assertEquals(1.5, map.get(k1));
+		assertEquals(2.5, map.remove(k2));
+		assertTrue(Double.isNaN(map.remove(k2)));
+		assertFalse(map.containsKey(k2));
+		assertEquals(1, map.size());
+
+		assertEquals(2.5, map.add(k1, 1));
+		assertEquals(1.0, map.add(k2, 1));
+	}
+
+	public void testAgainstHashMap() {
+		HostPairMap map = new HostPairMap();
+		Map<Long, Double> expected = new HashMap<Long, Double>();
+		Random rng = new Random(1);
+		for (int i = 0; i < 20000; i++) {
+			long key = HostPairMap.orderedPairKey(rng.nextInt(50),
+					rng.nextInt(50));
+			if (rng.nextBoolean()) {
+				map.put(key, i);
+				expected.put(key, (double)i);
+			}
+			else {
+				Double old = expected.remove(key);
+				double removed = map.remove(key);
+				if (old == null) {
+					assertTrue(Double.isNaN(removed));
+				}
+				else {
+					assertEquals(old.doubleValue(), removed);
+				}
+			}
+		}
+
+		assertEquals(expected.size(), map.size());
+		int count = 0;
+		for (int i = map.nextSlot(0); i >= 0; i = map.nextSlot(i + 1)) {
+			assertEquals(expected.get(map.keyAt(i)).doubleValue(),
+					map.valueAt(i));
+			count++;
+		}
+		assertEquals(expected.size(), count);
+	}
+
+	public void testHistogram() {
+		Histogram h = new Histogram(0.5);
+		assertEquals(0, h.getNrofBins());
+		h.add(0.2);
+		h.add(0.4);
+		h.add(3.1);
+		assertEquals(7, h.getNrofBins());
+		assertEquals(2, h.getCount(0));
+		assertEquals(0, h.getCount(1));
+		assertEquals(1, h.getCount(6));
+		assertEquals(0, h.getCount(7));
+		assertEquals(3.0, h.getBinStart(6));
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import core.IntHashMap;
+import core.IntHashSet;
+
+/**
+ * Tests for the int keyed map and set.
+ */
+public class IntHashMapTest extends TestCase {
+	private IntHashMap<String> map;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		map = new IntHashMap<String>();
+	}
+
+	public void testPutGetRemove() {
+		assertNull(map.put(1, "a"));
+		assertNull(map.put(100000, "b"));
+		assertEquals("a", map.put(1, "c"));
+
+		assertEquals(2, map.size());
+		assertEquals("c", map.get(1));
+		assertEquals("b", map.get(100000));
+		assertNull(map.get(2));
+		assertNull(map.get(-1));
+		assertTrue(map.containsKey(100000));
+		assertFalse(map.containsKey(0));
+
+		assertEquals("c", map.remove(1));
+		assertNull(map.remove(1));
+		assertFalse(map.containsKey(1));
+		assertEquals(1, map.size());
+	}
+
+	public void testAgainstHashMap() {
+		HashMap<Integer, String> reference = new HashMap<Integer, String>();
+		Random rng = new Random(1);
+
+		for (int i = 0; i < 20000; i++) {
+			int key = rng.nextInt(500);
+			if (rng.nextInt(3) == 0) {
+				assertEquals(reference.remove(key), map.remove(key));
+			}
+			else {
+				assertEquals(reference.put(key, "v" + i), map.put(key, "v" + i));
+			}
+			assertEquals(reference.size(), map.size());
+		}
+
+		for (int key = 0; key < 500; key++) {
+			assertEquals(reference.get(key), map.get(key));
+		}
+		List<String> values = new ArrayList<String>(map.values());
+		List<String> expected = new ArrayList<String>(reference.values());
+		Collections.sort(values);
+		Collections.sort(expected);
+		assertEquals(expected, values);
+	}
+
+	public void testValuesIterator() {
+		map.put(1, "a");
+		map.put(2, "b");
+		Iterator<String> i = map.values().iterator();
+		i.next();
+		map.remove(2);
+		try {
+			i.next();
+			fail("Modification during iteration was not detected");
+		} catch (java.util.ConcurrentModificationException e) {
+			// expected
+		}
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertFalse(map.values().iterator().hasNext());
+	}
+
+	public void testSet() {
+		IntHashSet set = new IntHashSet();
+		for (int i = 0; i < 1000; i += 3) {
+			assertTrue(set.add(i));
+		}
+		assertFalse(set.add(0));
+		assertEquals(334, set.size());
+		assertTrue(set.contains(999));
+		assertFalse(set.contains(1));
+
+		for (int i = 0; i < 1000; i += 6) {
+			assertTrue(set.remove(i));
+		}
+		assertFalse(set.remove(0));
+		for (int i = 0; i < 1000; i += 3) {
+			assertEquals(i % 6 != 0, set.contains(i));
+		}
+
+		int[] values = set.toArray();
+		assertEquals(set.size(), values.length);
+		for (int v : values) {
+			assertEquals(3, v % 6);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import report.ContactTimesReport;
+import report.MessageDelayReport;
+import report.Report;
+import routing.MessageRouter.MessageDropMode;
+import core.ConnectionListener;
+import core.ConnectionListenerDispatch;
+import core.DTNHost;
+import core.ListenerInterests;
+import core.Message;
+import core.MessageListener;
+import core.MessageListenerDispatch;
+
+/**
+ * Tests for the listener interests and the per event type dispatch of
+ * message and connection events.
+ */
+public class ListenerDispatchTest extends TestCase {
+
+	/** Listener that only counts new messages and deletes */
+	public static class CreateDeleteListener implements MessageListener,
+			ListenerInterests {
+		protected int nrofCreated = 0;
+		protected int nrofDeleted = 0;
+
+		public int getMessageEventInterests() {
+			return (1 << MessageListenerDispatch.NEW_MESSAGE) |
+				(1 << MessageListenerDispatch.DELETED);
+		}
+		public int getConnectionEventInterests() {
+			return 0;
+		}
+		public void registerNode(DTNHost node) {}
+		public void newMessage(Message m) {
+			nrofCreated++;
+		}
+		public void transmissionPerformed(Message m, DTNHost source) {}
+		public void messageTransferStarted(Message m, DTNHost from,
+				DTNHost to) {}
+		public void messageTransferred(Message m, DTNHost from, DTNHost to,
+				boolean firstDelivery, boolean finalTarget) {}
+		public void messageTransferAborted(Message m, DTNHost from,
+				DTNHost to, String cause) {
+			return;
+		}
+		public void messageTransmissionInterfered(Message m, DTNHost from,
+				DTNHost to) {}
+		public void messageDeleted(Message m, DTNHost where,
+				MessageDropMode dropMode, String cause) {
+			nrofDeleted++;
+		}
+	}
+
+	/** Listener that inherits the empty callbacks and counts transfers */
+	public static class TransferListener extends CreateDeleteListener {
+		private int nrofTransferred = 0;
+
+		@Override
+		public int getMessageEventInterests() {
+			return super.getMessageEventInterests() |
+				(1 << MessageListenerDispatch.TRANSFERRED);
+		}
+		@Override
+		public void messageTransferred(Message m, DTNHost from, DTNHost to,
+				boolean firstDelivery, boolean finalTarget) {
+			nrofTransferred++;
+		}
+	}
+
+	/** Listener that only counts connections */
+	public static class ConnectListener implements ConnectionListener,
+			ListenerInterests {
+		private int nrofConnected = 0;
+
+		public int getMessageEventInterests() {
+			return 0;
+		}
+		public int getConnectionEventInterests() {
+			return 1 << ConnectionListenerDispatch.HOSTS_CONNECTED;
+		}
+		public void hostsConnected(DTNHost host1, DTNHost host2) {
+			nrofConnected++;
+		}
+		public void hostsDisconnected(DTNHost host1, DTNHost host2) {}
+	}
+
+	public void testReportInterests() throws IOException {
+		File outFile = File.createTempFile("ldtest", ".tmp");
+		outFile.deleteOnExit();
+		TestSettings ts = new TestSettings();
+		ts.putSetting("MessageDelayReport." + Report.OUTPUT_SETTING,
+				outFile.getAbsolutePath());
+		ts.putSetting("ContactTimesReport." + Report.OUTPUT_SETTING,
+				outFile.getAbsolutePath());
+
+		MessageDelayReport mdr = new MessageDelayReport();
+		assertEquals((1 << MessageListenerDispatch.NEW_MESSAGE) |
+				(1 << MessageListenerDispatch.TRANSFERRED),
+				mdr.getMessageEventInterests());
+		assertEquals(ListenerInterests.ALL_EVENTS,
+				new ContactTimesReport().getConnectionEventInterests());
+
+		List<MessageListener> listeners = new ArrayList<MessageListener>();
+		listeners.add(mdr);
+		MessageListenerDispatch d = new MessageListenerDispatch(listeners);
+		assertTrue(d.hasListeners(MessageListenerDispatch.TRANSFERRED));
+		assertFalse(d.hasListeners(MessageListenerDispatch.REGISTER_NODE));
+		assertFalse(d.hasListeners(MessageListenerDispatch.DELETED));
+	}
+
+	public void testUndeclaredInterests() {
+		List<MessageListener> listeners = new ArrayList<MessageListener>();
+		listeners.add(new MessageChecker());
+		MessageListenerDispatch d = new MessageListenerDispatch(listeners);
+		for (int i=0; i<MessageListenerDispatch.NROF_EVENT_TYPES; i++) {
+			assertEquals(1, d.getListeners(i).length);
+		}
+	}
+
+	public void testMessageDispatch() {
+		List<MessageListener> listeners = new ArrayList<MessageListener>();
+		MessageListenerDispatch d = new MessageListenerDispatch(listeners);
+		for (int i=0; i<MessageListenerDispatch.NROF_EVENT_TYPES; i++) {
+			assertFalse(d.hasListeners(i));
+		}
+
+		CreateDeleteListener cdl = new CreateDeleteListener();
+		listeners.add(cdl);
+		assertTrue(d.hasListeners(MessageListenerDispatch.NEW_MESSAGE));
+		assertTrue(d.hasListeners(MessageListenerDispatch.DELETED));
+		assertFalse(d.hasListeners(MessageListenerDispatch.REGISTER_NODE));
+		assertFalse(d.hasListeners(MessageListenerDispatch.TRANSFERRED));
+		assertFalse(d.hasListeners(MessageListenerDispatch.TRANSFER_ABORTED));
+
+		/* listener added after the dispatcher was used */
+		TransferListener tl = new TransferListener();
+		listeners.add(tl);
+		assertEquals(1, d.getListeners(
+				MessageListenerDispatch.TRANSFERRED).length);
+		assertEquals(2, d.getListeners(
+				MessageListenerDispatch.NEW_MESSAGE).length);
+
+		d.newMessage(null);
+		d.messageTransferred(null, null, null, true, true);
+		d.messageDeleted(null, null, MessageDropMode.DROPPED, null);
+		assertEquals(1, cdl.nrofCreated);
+		assertEquals(1, cdl.nrofDeleted);
+		assertEquals(1, tl.nrofCreated);
+		assertEquals(1, tl.nrofTransferred);
+	}
+
+	public void testConnectionDispatch() {
+		List<ConnectionListener> listeners =
+			new ArrayList<ConnectionListener>();
+		ConnectListener cl = new ConnectListener();
+		listeners.add(cl);
+		ConnectionListenerDispatch d = new ConnectionListenerDispatch(
+				listeners);
+
+		assertTrue(d.hasListeners(ConnectionListenerDispatch.HOSTS_CONNECTED));
+		assertFalse(d.hasListeners(
+				ConnectionListenerDispatch.HOSTS_DISCONNECTED));
+		d.hostsConnected(null, null);
+		d.hostsDisconnected(null, null);
+		assertEquals(1, cl.nrofConnected);
+
+		assertFalse(new ConnectionListenerDispatch(null).hasListeners(
+				ConnectionListenerDispatch.HOSTS_CONNECTED));
+	}
+}
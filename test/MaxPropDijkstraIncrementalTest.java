@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import routing.maxprop.MaxPropDijkstra;
+import routing.maxprop.MeetingProbabilitySet;
+
+/**
+ * Tests for the incremental cost calculation of MaxProp. The sets are
+ * created directly for node indexes, without hosts, and the costs of the
+ * incremental searches are compared with the costs of fresh searches.
+ */
+public class MaxPropDijkstraIncrementalTest extends TestCase {
+	private static final int NROF_NODES = 8;
+	/* amount of deviation from expected values that is OK */
+	private static final double DELTA = 0.0000001;
+	private Map<Integer, MeetingProbabilitySet> mapping;
+	private MaxPropDijkstra mpd;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		mapping = new HashMap<Integer, MeetingProbabilitySet>();
+		mpd = new MaxPropDijkstra(mapping);
+	}
+
+	private void createSets(double alpha) {
+		for (int i=0; i<NROF_NODES; i++) {
+			mapping.put(i, new MeetingProbabilitySet(
+					MeetingProbabilitySet.INFINITE_SET_SIZE, alpha));
+		}
+	}
+
+	/** Nodes a and b meet: both update their sets */
+	private void meet(int a, int b) {
+		mapping.get(a).updateMeetingProbFor(b);
+		mpd.probsChanged(a);
+		mapping.get(b).updateMeetingProbFor(a);
+		mpd.probsChanged(b);
+	}
+
+	public void testCostsAfterChanges() {
+		createSets(1.0);
+		MeetingProbabilitySet mps0 = mapping.get(0);
+		MeetingProbabilitySet mps1 = mapping.get(1);
+
+		mps0.updateMeetingProbFor(1);
+		mps1.updateMeetingProbFor(2);
+		mps1.updateMeetingProbFor(3);
+		assertEquals(0.0, mpd.getCost(0, 1));
+		assertEquals(0.5, mpd.getCost(0, 3));
+		assertEquals(Double.MAX_VALUE, mpd.getCost(0, 4));
+
+		mps0.updateMeetingProbFor(2); // h0 meets h2: h0 -> h1 gets costlier
+		mpd.probsChanged(0);
+		assertEquals(0.5, mpd.getCost(0, 1));
+		assertEquals(0.5, mpd.getCost(0, 2));
+		assertEquals(1.0, mpd.getCost(0, 3));
+
+		mps1.updateMeetingProbFor(3);
+		mpd.probsChanged(1);
+		assertEquals(0.75, mpd.getCost(0, 3));
+		assertEquals(0.5, mpd.getCost(0, 2)); // direct path is still better
+
+		mapping.get(3).updateMeetingProbFor(4);
+		mpd.probsChanged(3);
+		assertEquals(0.75, mpd.getCost(0, 4));
+		assertEquals(0.25, mpd.getCost(1, 3)); // another source
+	}
+
+	public void testUnreachableWithLargeAlpha() {
+		createSets(1.5);
+		for (int i=0; i<7; i++) {
+			meet(0, 1);
+		}
+		assertEquals(Double.MAX_VALUE, mpd.getCost(0, 5));
+		assertEquals(0.0, mpd.getCost(0, 1), DELTA);
+	}
+
+	public void testAgainstFreshSearches() {
+		Random rng = new Random(1);
+		int nrofQueries = 0;
+		for (int round=0; round<300; round++) {
+			mapping.clear();
+			mpd = new MaxPropDijkstra(mapping);
+			createSets(round % 2 == 0 ? 1.0 : 0.1 + rng.nextDouble() * 2);
+
+			for (int i=0; i<60; i++) {
+				int a = rng.nextInt(NROF_NODES);
+				int b = rng.nextInt(NROF_NODES - 1);
+				meet(a, b >= a ? b + 1 : b);
+
+				for (int q=0; q<5; q++) {
+					int from = rng.nextInt(NROF_NODES);
+					int to = rng.nextInt(NROF_NODES);
+					double fresh = new MaxPropDijkstra(mapping).getCost(from,
+							to);
+					assertEquals("round " + round + " meeting " + i +
+							": " + from + " -> " + to, fresh,
+							mpd.getCost(from, to), DELTA);
+					nrofQueries++;
+				}
+			}
+		}
+		assertEquals(300 * 60 * 5, nrofQueries);
+	}
+}
@@ -0,0 +1,145 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import routing.maxprop.MeetingProbabilitySet;
+
+/**
+ * Tests for MaxProp's meeting probability set.
+ */
+public class MeetingProbabilitySetTest extends TestCase {
+	/* amount of deviation from expected values that is OK */ 
+	private final double DELTA = 0.0000001;
+
+	public void testReplicaIsIndependent() {
+		MeetingProbabilitySet mps = new MeetingProbabilitySet();
+		mps.updateMeetingProbFor(1);
+		mps.updateMeetingProbFor(2);
+
+		MeetingProbabilitySet replica = mps.replicate();
+		MeetingProbabilitySet replica2 = replica.replicate();
+		mps.updateMeetingProbFor(3);
+		assertEquals(0.25, mps.getProbFor(1));
+		assertEquals(0.5, mps.getProbFor(3));
+		assertEquals(0.5, replica.getProbFor(1));
+		assertEquals(0.0, replica.getProbFor(3));
+
+		replica.updateMeetingProbFor(1);
+		assertEquals(0.75, replica.getProbFor(1));
+		assertEquals(0.5, replica2.getProbFor(1));
+		assertEquals(0.25, mps.getProbFor(1));
+		assertEquals(2, replica2.size());
+		assertEquals(3, mps.size());
+	}
+
+	public void testSetSizeLimit() {
+		MeetingProbabilitySet mps = new MeetingProbabilitySet(4, 1.0);
+		mps.updateMeetingProbFor(1);
+		mps.updateMeetingProbFor(2);
+		mps.updateMeetingProbFor(3);
+		assertEquals(3, mps.size());
+
+		/* set is full -> the smallest probability (host 1) is dropped */
+		mps.updateMeetingProbFor(4);
+		assertEquals(3, mps.size());
+		assertEquals(0.0, mps.getProbFor(1));
+		assertEquals(0.125, mps.getProbFor(2));
+		assertEquals(0.25, mps.getProbFor(3));
+		assertEquals(0.5, mps.getProbFor(4));
+	}
+
+	public void testManyUpdates() {
+		MeetingProbabilitySet mps = new MeetingProbabilitySet(
+				MeetingProbabilitySet.INFINITE_SET_SIZE, 0.5);
+		Random rng = new Random(42);
+		for (int i=0; i<100000; i++) {
+			mps.updateMeetingProbFor(rng.nextInt(500));
+			if (i % 100 == 0) {
+				mps.replicate();
+			}
+		}
+
+		double total = 0;
+		int count = 0;
+		for (int s = mps.nextSlot(0); s >= 0; s = mps.nextSlot(s+1)) {
+			assertEquals(mps.getProbFor(s), mps.getProbAt(s));
+			total += mps.getProbAt(s);
+			count++;
+		}
+		assertEquals(500, count);
+		assertEquals(500, mps.getAllProbs().size());
+		assertEquals(1.0, total, DELTA);
+	}
+
+	public void testProbabilitiesAtMostOne() {
+		for (double alpha : new double[] {0.1, 0.3, 0.7, 1.5, 3}) {
+			MeetingProbabilitySet mps = new MeetingProbabilitySet(
+					MeetingProbabilitySet.INFINITE_SET_SIZE, alpha);
+			for (int i=0; i<1000; i++) {
+				mps.updateMeetingProbFor(7);
+				assertTrue(mps.getProbFor(7) <= 1.0);
+				assertTrue(mps.getProbAt(mps.nextSlot(0)) <= 1.0);
+			}
+			assertEquals(1.0, mps.getProbFor(7), DELTA);
+		}
+	}
+
+	public void testReplicasAgainstMaps() {
+		Random rng = new Random(3);
+		double alpha = 0.8;
+		List<MeetingProbabilitySet> sets =
+			new ArrayList<MeetingProbabilitySet>();
+		List<Map<Integer, Double>> expected =
+			new ArrayList<Map<Integer, Double>>();
+		sets.add(new MeetingProbabilitySet(
+				MeetingProbabilitySet.INFINITE_SET_SIZE, alpha));
+		expected.add(new HashMap<Integer, Double>());
+
+		for (int i=0; i<20000; i++) {
+			int which = rng.nextInt(sets.size());
+			MeetingProbabilitySet mps = sets.get(which);
+			Map<Integer, Double> map = expected.get(which);
+			if (rng.nextInt(10) == 0 && sets.size() < 30) {
+				sets.add(mps.replicate());
+				expected.add(new HashMap<Integer, Double>(map));
+				continue;
+			}
+
+			/* nodes of a large network so that the trie has many levels */
+			int node = rng.nextInt(40) * 997;
+			mps.updateMeetingProbFor(node);
+			if (map.isEmpty()) {
+				map.put(node, 1.0);
+			}
+			else {
+				Double old = map.get(node);
+				map.put(node, (old == null ? 0 : old) + alpha);
+				for (Map.Entry<Integer, Double> e : map.entrySet()) {
+					e.setValue(e.getValue() / (1 + alpha));
+				}
+			}
+		}
+
+		for (int i=0; i<sets.size(); i++) {
+			MeetingProbabilitySet mps = sets.get(i);
+			Map<Integer, Double> map = expected.get(i);
+			assertEquals(map.size(), mps.size());
+			int previous = -1;
+			for (int s = mps.nextSlot(0); s >= 0; s = mps.nextSlot(s+1)) {
+				assertTrue(s > previous);
+				previous = s;
+				assertEquals(map.get(s), mps.getProbAt(s),
+						DELTA);
+			}
+		}
+	}
+}
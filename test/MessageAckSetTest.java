@@ -0,0 +1,88 @@
+/* 
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details. 
+ */
+package test;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import routing.maxprop.MessageAckSet;
+
+/**
+ * Tests for MaxProp's set of acknowledged messages.
+ */
+public class MessageAckSetTest extends TestCase {
+	private static final double NEVER = Double.MAX_VALUE;
+	
+	private MessageAckSet a;
+	private MessageAckSet b;
+	
+	protected void setUp() throws Exception {
+		super.setUp();
+		a = new MessageAckSet();
+		b = new MessageAckSet();
+	}
+	
+	public void testAdd() {
+		assertTrue(a.add(1, NEVER));
+		assertTrue(a.add(100000, NEVER));
+		assertFalse(a.add(1, NEVER));
+		
+		assertTrue(a.contains(1));
+		assertTrue(a.contains(100000));
+		assertFalse(a.contains(2));
+		assertFalse(a.contains(65));
+		assertFalse(a.contains(5000000));
+		assertEquals(2, a.size());
+		
+		int[] ids = a.pollUnchecked();
+		Arrays.sort(ids);
+		assertEquals(2, ids.length);
+		assertEquals(1, ids[0]);
+		assertEquals(100000, ids[1]);
+		assertEquals(0, a.pollUnchecked().length);
+	}
+	
+	public void testIncrementalExchange() {
+		a.add(1, NEVER);
+		a.add(2, NEVER);
+		assertEquals(2, a.sendTo(b, 1, 0));
+		assertEquals(0, a.sendTo(b, 1, 0));
+		assertTrue(b.contains(1));
+		assertTrue(b.contains(2));
+		
+		a.add(3, NEVER);
+		assertEquals(1, a.sendTo(b, 1, 0));
+		assertEquals(0, b.sendTo(a, 0, 0)); // a knows all of b's acks
+		assertEquals(3, b.pollUnchecked().length);
+		
+		MessageAckSet c = new MessageAckSet();
+		c.add(4, NEVER);
+		assertEquals(1, c.sendTo(b, 1, 0));
+		assertEquals(1, b.sendTo(a, 0, 0));
+		assertTrue(a.contains(4));
+		assertEquals(3, a.sendTo(c, 2, 0));
+		assertEquals(4, c.size());
+	}
+	
+	public void testExpiry() {
+		a.add(5, 100);
+		a.add(6, 200);
+		a.add(7, 150);
+		
+		a.expire(120);
+		assertFalse(a.contains(5));
+		assertTrue(a.contains(6));
+		assertEquals(2, a.size());
+		
+		/* expired ACKs are not sent */
+		assertEquals(1, a.sendTo(b, 1, 170));
+		assertTrue(b.contains(6));
+		assertFalse(b.contains(7));
+		
+		a.expire(200);
+		assertEquals(0, a.size());
+		assertTrue(a.add(5, 300));
+	}
+}
@@ -4,14 +4,25 @@
  */
 package test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import core.Coord;
 import core.DTNHost;
 import core.Message;
+import core.MessageIdInterner;
+import core.MessageListener;
+import core.MessagePropertyKey;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
 import core.SimClock;
+import core.SimError;
+import routing.PassiveRouter;
 
 public class MessageTest extends TestCase {
 
@@ -59,6 +70,106 @@ public class MessageTest extends TestCase {
 		assertEquals(value1, msg.getProperty("foo"));
 		assertEquals(value2, msg.getProperty("bar"));
 	}
+	
+	@Test
+	public void testReplicatePath() {
+		DTNHost h1 = createHost();
+		DTNHost h2 = createHost();
+		DTNHost h3 = createHost();
+		
+		Message m = new Message(h1, h2, "P", 100);
+		m.addNodeOnPath(h2);
+		Message replica1 = m.replicate();
+		Message replica2 = m.replicate();
+		replica1.addNodeOnPath(h3);
+		
+		assertEquals(1, m.getHopCount());
+		assertEquals(2, replica1.getHopCount());
+		assertEquals(1, replica2.getHopCount());
+		assertEquals(h2, replica1.getSenderNode());
+		assertEquals(h1, replica2.getSenderNode());
+		assertTrue(replica1.isOnPath(h3));
+		assertFalse(m.isOnPath(h3));
+		
+		List<DTNHost> hops = replica1.getHops();
+		assertEquals(3, hops.size());
+		assertEquals(h1, hops.get(0));
+		assertEquals(h2, hops.get(1));
+		assertEquals(h3, hops.get(2));
+		
+		assertEquals("P", replica1.getID());
+		assertEquals(m.getCreationTime(), replica1.getCreationTime());
+		assertFalse(m.getUniqueId() == replica1.getUniqueId());
+	}
+	
+	@Test
+	public void testLazyIntId() {
+		MessageIdInterner.reset();
+		Message m = new Message(from, to, "L", 100);
+		Message replica = m.replicate();
+		assertEquals(MessageIdInterner.NO_ID, MessageIdInterner.getIntId("L"));
+		
+		int intId = replica.getIntId();
+		assertEquals(intId, MessageIdInterner.getIntId("L"));
+		assertEquals(intId, m.getIntId());
+		assertEquals(1, MessageIdInterner.size()); // "M" was not interned
+	}
+	
+	private DTNHost createHost() {
+		ModuleCommunicationBus comBus = new ModuleCommunicationBus();
+		return new DTNHost(new ArrayList<MessageListener>(), null, "h",
+				new ArrayList<NetworkInterface>(), comBus,
+				new StationaryMovement(new Coord(0,0)),
+				new PassiveRouter(new TestSettings()));
+	}
+	
+	@Test
+	public void testTypedProperties() {
+		MessagePropertyKey count = MessagePropertyKey.register("test.count",
+				MessagePropertyKey.Type.INT);
+		MessagePropertyKey weight = MessagePropertyKey.register(
+				"test.weight", MessagePropertyKey.Type.DOUBLE);
+		assertSame(count, MessagePropertyKey.register("test.count", 
+				MessagePropertyKey.Type.INT));
+		
+		assertFalse(msg.hasProperty(count));
+		msg.setIntProperty(count, 5);
+		msg.setDoubleProperty(weight, 0.5);
+		assertEquals(5, msg.getIntProperty(count));
+		assertEquals(0.5, msg.getDoubleProperty(weight));
+		
+		/* generic interface uses the same values */
+		assertEquals(Integer.valueOf(5), msg.getProperty("test.count"));
+		msg.updateProperty("test.count", 6);
+		assertEquals(6, msg.getIntProperty(count));
+		try {
+			msg.addProperty("test.count", 7);
+			fail("Adding an existing property should fail");
+		} catch (SimError e) {
+			// expected
+		}
+		try {
+			msg.addIntProperty(count, 7);
+			fail("Adding an existing property should fail");
+		} catch (SimError e) {
+			// expected
+		}
+		assertEquals(6, msg.getIntProperty(count));
+		
+		/* replicates have their own values */
+		Message replica = msg.replicate();
+		replica.setIntProperty(count, 3);
+		assertEquals(6, msg.getIntProperty(count));
+		assertEquals(3, replica.getIntProperty(count));
+		assertEquals(0.5, replica.getDoubleProperty(weight));
+		
+		try {
+			msg.getLongProperty(count);
+			fail("Reading a property with a wrong type should fail");
+		} catch (SimError e) {
+			// expected
+		}
+	}
 
 
 }
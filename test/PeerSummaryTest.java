@@ -0,0 +1,201 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import interferenceModels.NoInterferenceModel;
+import junit.framework.TestCase;
+import routing.ActiveRouter;
+import routing.EpidemicRouter;
+import routing.MessageRouter;
+import routing.MessageRouter.MessageDropMode;
+import core.Connection;
+import core.Coord;
+import core.DTNHost;
+import core.IntHashSet;
+import core.Message;
+import core.MessageListener;
+import core.ModuleCommunicationBus;
+import core.NetworkInterface;
+import core.SimClock;
+
+/**
+ * Tests for the summaries of the peers' messages of {@link ActiveRouter}.
+ */
+public class PeerSummaryTest extends TestCase {
+	private static final int TRANSMIT_SPEED = 10;
+
+	private DTNHost h1;
+	private DTNHost h2;
+	private DTNHost h3;
+	private Connection con;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		MessageRouter.reset();
+		NetworkInterface.reset();
+		DTNHost.reset();
+
+		TestSettings ts = new TestSettings();
+		ts.putSetting(ActiveRouter.PEER_SUMMARIES_S, "true");
+		SummaryRouter summaryProto = new SummaryRouter(ts);
+		ts.putSetting(ActiveRouter.PEER_SUMMARIES_S, "false");
+		SummaryRouter plainProto = new SummaryRouter(ts);
+
+		h1 = createHost(summaryProto);
+		h2 = createHost(plainProto);
+		h3 = createHost(plainProto);
+		h1.forceConnection(h2, null, true);
+		h2.forceConnection(h3, null, true);
+		con = h1.getConnections().get(0);
+	}
+
+	private DTNHost createHost(MessageRouter routerProto) {
+		List<NetworkInterface> interfaces = new ArrayList<NetworkInterface>();
+		interfaces.add(new SummaryTestInterface());
+		return new DTNHost(new ArrayList<MessageListener>(), null, "h",
+				interfaces, new ModuleCommunicationBus(),
+				new StationaryMovement(new Coord(0,0)), routerProto);
+	}
+
+	private SummaryRouter router(DTNHost host) {
+		return (SummaryRouter)host.getRouter();
+	}
+
+	public void testBuildAndUpdate() {
+		Message m1 = new Message(h1, h3, "M1", 1);
+		Message m2 = new Message(h1, h3, "M2", 1);
+		h1.createNewMessage(m1);
+		h1.createNewMessage(m2);
+		h2.createNewMessage(new Message(h2, h3, "M1", 1));
+
+		/* built from the messages of h1 that h2 has */
+		IntHashSet summary = router(h1).summary(con);
+		assertTrue(summary.contains(m1.getIntId()));
+		assertFalse(summary.contains(m2.getIntId()));
+
+		/* updated when h2's cache changes */
+		h2.createNewMessage(new Message(h2, h3, "M2", 1));
+		assertTrue(summary.contains(m2.getIntId()));
+		h2.deleteMessage("M1", MessageDropMode.DROPPED, "test");
+		assertFalse(summary.contains(m1.getIntId()));
+		assertEquals(1, summary.size());
+	}
+
+	public void testDeniedOldIsRecorded() {
+		h2.createNewMessage(new Message(h2, h3, "M1", 1));
+		IntHashSet summary = router(h1).summary(con);
+		assertEquals(0, summary.size()); // h1 had no messages
+
+		/* h1 gets the message only after the summary was built */
+		Message m1 = new Message(h1, h3, "M1", 1);
+		h1.createNewMessage(m1);
+		assertFalse(summary.contains(m1.getIntId()));
+
+		assertEquals(MessageRouter.DENIED_OLD, router(h1).transfer(m1, con));
+		assertTrue(summary.contains(m1.getIntId()));
+
+		/* the message is not offered again */
+		List<Message> messages = new ArrayList<Message>();
+		messages.add(m1);
+		assertNull(router(h1).tryAll(con, messages));
+		assertEquals(1, router(h1).nrofTransfers);
+	}
+
+	public void testOnlyTrackingRoutersAreInformed() {
+		h1.createNewMessage(new Message(h1, h3, "M1", 1));
+		h2.createNewMessage(new Message(h2, h3, "M2", 1));
+		h3.createNewMessage(new Message(h3, h1, "M3", 1));
+
+		assertEquals(1, router(h1).nrofNeighborChanges);
+		assertEquals(0, router(h2).nrofNeighborChanges);
+		assertEquals(0, router(h3).nrofNeighborChanges);
+		assertNull(router(h2).summary(con));
+	}
+
+	/**
+	 * Epidemic router that exposes the summaries and counts the neighbor
+	 * cache change calls.
+	 */
+	private static class SummaryRouter extends EpidemicRouter {
+		private int nrofNeighborChanges;
+		private int nrofTransfers;
+
+		public SummaryRouter(TestSettings s) {
+			super(s);
+		}
+
+		protected SummaryRouter(SummaryRouter r) {
+			super(r);
+		}
+
+		public IntHashSet summary(Connection c) {
+			return getPeerSummary(c);
+		}
+
+		public int transfer(Message m, Connection c) {
+			return startTransfer(m, c);
+		}
+
+		public Message tryAll(Connection c, List<Message> messages) {
+			return tryAllMessages(c, messages);
+		}
+
+		@Override
+		protected int startTransfer(Message m, Connection c) {
+			nrofTransfers++;
+			return super.startTransfer(m, c);
+		}
+
+		@Override
+		protected void neighborCacheChanged(Connection c, Message m,
+				boolean added) {
+			nrofNeighborChanges++;
+			super.neighborCacheChanged(c, m, added);
+		}
+
+		@Override
+		public SummaryRouter replicate() {
+			return new SummaryRouter(this);
+		}
+	}
+
+	/**
+	 * Test interface with an interference model. Refuses to send messages
+	 * that the receiver already has (connections don't pass refusals).
+	 */
+	private static class SummaryTestInterface extends TestInterface {
+		public SummaryTestInterface() {
+			super(1, TRANSMIT_SPEED);
+			setInterferenceModel(new NoInterferenceModel());
+		}
+
+		public SummaryTestInterface(SummaryTestInterface ti) {
+			super(ti);
+		}
+
+		@Override
+		public NetworkInterface replicate() {
+			return new SummaryTestInterface(this);
+		}
+
+		@Override
+		public int sendUnicastMessageViaConnection(Message m, Connection c) {
+			if (!isReadyToBeginTransfer()) {
+				return UNICAST_DENIED;
+			}
+
+			if (c.getOtherNode(getHost()).getRouter().hasMessage(m.getID())) {
+				return MessageRouter.DENIED_OLD;
+			}
+			c.startTransfer(getHost(), m);
+			return UNICAST_OK;
+		}
+	}
+}
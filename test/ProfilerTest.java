@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.MessageListener;
+import core.MessageListenerDispatch;
+import core.Profiler;
+import core.SimClock;
+
+/**
+ * Tests for the counters and snapshots of the profiler and for the
+ * listener dispatch while the profiler is enabled.
+ */
+public class ProfilerTest extends TestCase {
+	private TestSettings ts;
+	private File snapshotFile;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		ts = new TestSettings();
+		snapshotFile = File.createTempFile("profiler", ".csv");
+		snapshotFile.deleteOnExit();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		Profiler.reset();
+		snapshotFile.delete();
+		super.tearDown();
+	}
+
+	private void enable() {
+		ts.putSetting(Profiler.PROFILER_NS + "." + Profiler.ENABLED_S,
+				"true");
+		ts.putSetting(Profiler.PROFILER_NS + "." + Profiler.SNAPSHOT_FILE_S,
+				snapshotFile.getAbsolutePath());
+		ts.putSetting(Profiler.PROFILER_NS + "." +
+				Profiler.SNAPSHOT_INTERVAL_S, "10");
+		Profiler.init();
+	}
+
+	public void testDisabledByDefault() {
+		Profiler.init();
+		assertFalse(Profiler.isEnabled());
+		Profiler.count(Profiler.TRANSFERS);
+		assertEquals(0, Profiler.getCount(Profiler.TRANSFERS));
+	}
+
+	public void testCountersAndSnapshots() throws IOException {
+		enable();
+		assertTrue(Profiler.isEnabled());
+		Profiler.count(Profiler.TRANSFERS);
+		Profiler.count(Profiler.TRANSFERS);
+		Profiler.count(Profiler.EVICTIONS);
+		assertEquals(2, Profiler.getCount(Profiler.TRANSFERS));
+		assertEquals(0, Profiler.getCount(Profiler.CONNECTIONS));
+
+		Profiler.phaseDone(Profiler.MOVEMENT, System.nanoTime() - 1000);
+		assertTrue(Profiler.getPhaseTime(Profiler.MOVEMENT) >= 1000);
+
+		Profiler.updateDone(5);
+		Profiler.updateDone(10);
+		Profiler.updateDone(25);
+		Profiler.updateDone(28);
+		SimClock.getInstance().setTime(30);
+		Profiler.done();
+		assertFalse(Profiler.isEnabled());
+
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(
+				new FileReader(snapshotFile));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lines.add(line);
+		}
+		reader.close();
+
+		assertEquals(4, lines.size());
+		assertTrue(lines.get(0).startsWith("sim_time,wall_s,movement_ms"));
+		assertTrue(lines.get(1).startsWith("10.0,"));
+		assertTrue(lines.get(2).startsWith("25.0,"));
+		assertTrue(lines.get(3).startsWith("30.0,"));
+		assertTrue(lines.get(3).endsWith(",0,2,1"));
+	}
+
+	public void testDispatchWhileProfiled() {
+		ListenerDispatchTest.CreateDeleteListener l =
+			new ListenerDispatchTest.CreateDeleteListener();
+		List<MessageListener> listeners = new ArrayList<MessageListener>();
+		listeners.add(l);
+		MessageListenerDispatch md = new MessageListenerDispatch(listeners);
+
+		md.newMessage(null);
+		assertSame(l, md.getListeners(MessageListenerDispatch.NEW_MESSAGE)[0]);
+
+		enable();
+		md.newMessage(null);
+		assertNotSame(l,
+				md.getListeners(MessageListenerDispatch.NEW_MESSAGE)[0]);
+		assertFalse(md.hasListeners(MessageListenerDispatch.REGISTER_NODE));
+
+		Profiler.done();
+		md.newMessage(null);
+		assertSame(l, md.getListeners(MessageListenerDispatch.NEW_MESSAGE)[0]);
+		assertEquals(3, l.nrofCreated);
+	}
+}
@@ -4,7 +4,9 @@
  */
 package test;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import routing.schedule.ScheduleDijkstra;
 import routing.schedule.ScheduleOracle;
@@ -95,5 +97,64 @@ public class ScheduleDijkstraTest extends TestCase {
 		/* starts directly at 3, early enough for multihop */
 		comparePaths(new int[]{3,12,13,14,20}, d.getShortestPath(3, 20, 40));		
 	}
+	
+	public void testNextDeparture() {
+		assertNull(oracle.getNextDeparture(2, 0));
+		assertEquals(10.0, oracle.getNextDeparture(1, 0).getTime());
+		assertEquals(20.0, oracle.getNextDeparture(1, 10.5).getTime());
+		assertEquals(3, oracle.getNextDeparture(1, 20).getTo());
+		assertNull(oracle.getNextDeparture(1, 30.5));
+		
+		oracle.addEntry(15, 1, 6, 10); /* added after a query */
+		assertEquals(6, oracle.getNextDeparture(1, 10.5).getTo());
+		assertEquals(4, oracle.getConnected(1, 12).size());
+		
+		/* delayed entry moves to its new place */
+		oracle.getNextDeparture(1, 0).setDelta(25);
+		assertEquals(6, oracle.getNextDeparture(1, 0).getTo());
+		assertEquals(2, oracle.getNextDeparture(1, 31).getTo());
+	}
+	
+	public void testEarliestArrival() {
+		assertEquals(Double.MAX_VALUE, d.getEarliestArrival(1, 10, 0));
+		assertEquals(5.0, d.getEarliestArrival(10, 10, 5));
+		
+		/* compare with a brute force fixed point on a random schedule */
+		Random rng = new Random(1);
+		int nrofNodes = 20;
+		oracle = new ScheduleOracle();
+		d = new ScheduleDijkstra(oracle);
+		for (int i = 0; i < 300; i++) {
+			oracle.addEntry(rng.nextInt(1000), rng.nextInt(nrofNodes),
+					rng.nextInt(nrofNodes), 1 + rng.nextInt(100));
+		}
+		
+		for (int from = 0; from < nrofNodes; from++) {
+			double start = rng.nextInt(500);
+			double[] times = new double[nrofNodes];
+			Arrays.fill(times, Double.MAX_VALUE);
+			times[from] = start;
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				for (ScheduleEntry se : oracle.getEntries()) {
+					if (se.getTime() >= times[se.getFrom()] &&
+							se.getDestinationTime() < times[se.getTo()]) {
+						times[se.getTo()] = se.getDestinationTime();
+						changed = true;
+					}
+				}
+			}
+			
+			for (int to = 0; to < nrofNodes; to++) {
+				assertEquals(times[to], d.getEarliestArrival(from, to, start));
+				List<ScheduleEntry> path = d.getShortestPath(from, to, start);
+				if (to != from && times[to] != Double.MAX_VALUE) {
+					assertEquals(times[to],
+							path.get(path.size() - 1).getDestinationTime());
+				}
+			}
+		}
+	}
 
 }
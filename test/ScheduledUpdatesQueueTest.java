@@ -5,6 +5,10 @@
 package test;
 
 import input.ScheduledUpdatesQueue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
 import junit.framework.TestCase;
 import core.SimClock;
 
@@ -93,6 +97,26 @@ public class ScheduledUpdatesQueueTest extends TestCase {
 		assertEquals(MAX, suq.nextEvent().getTime());
 	}
 	
+	public void testManyRandomUpdates() {
+		Random rng = new Random(1);
+		TreeSet<Double> expected = new TreeSet<Double>();
+		
+		for (int i=0; i<5000; i++) {
+			double time = Math.floor(rng.nextDouble() * 1000) / 2;
+			expected.add(time);
+			suq.addUpdate(time);
+			if (i % 7 == 0) { // interleave some removals
+				assertEquals(expected.pollFirst(), suq.nextEvent().getTime());
+			}
+		}
+		
+		for (Double time : expected) {
+			assertEquals(time, suq.nextEventsTime());
+			assertEquals(time, suq.nextEvent().getTime());
+		}
+		assertEquals(MAX, suq.nextEvent().getTime());
+	}
+	
 	public void testDuplicateValues() {
 		suq.addUpdate(4.0);
 		suq.addUpdate(5.0);
@@ -107,4 +131,20 @@ public class ScheduledUpdatesQueueTest extends TestCase {
 		assertEquals(5.0, suq.nextEvent().getTime());
 		assertEquals(8.0, suq.nextEvent().getTime());
 	}
+	
+	public void testDuplicatesAreNotStored() {
+		for (int i=0; i<1000; i++) {
+			suq.addUpdate(i % 10);
+			suq.addUpdate(5.0);
+		}
+		assertEquals(10, suq.size());
+		assertEquals("updates @ 0.0, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, " +
+				"8.0, 9.0", suq.toString());
+		
+		assertEquals(0.0, suq.nextEvent().getTime());
+		suq.addUpdate(0.0); // can be added again after it was taken
+		assertEquals(10, suq.size());
+		assertEquals(0.0, suq.nextEvent().getTime());
+		assertEquals(1.0, suq.nextEvent().getTime());
+	}
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.ConnectionEvent;
+import input.ExternalEvent;
+import input.MessageCreateEvent;
+import input.MessageDeleteEvent;
+import input.MessageRelayEvent;
+import input.StandardEventsReader;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.SimError;
+
+public class StandardEventsReaderTest extends TestCase {
+	private File tempFile;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		tempFile = File.createTempFile("serTest", ".tmp");
+	}
+
+	protected void tearDown() throws Exception {
+		super.tearDown();
+		tempFile.delete();
+	}
+
+	private StandardEventsReader createReader(String... lines)
+			throws Exception {
+		PrintWriter out = new PrintWriter(tempFile);
+		for (String s : lines) {
+			out.print(s + "\r\n");
+		}
+		out.close();
+		return new StandardEventsReader(tempFile);
+	}
+
+	public void testReadEvents() throws Exception {
+		StandardEventsReader r = createReader(
+				"# comment",
+				"0.1	CONN	p1	p2	up",
+				"   ",
+				"12.5 CONN 3 c4 DOWN if1",
+				"100	C	M1	n10	n20	1024	64",
+				"101.25	S	M1	10	20",
+				"1e3	DE	M1	10	20",
+				"1000.5	A	M1	10	20",
+				"1001	DR	M1	x7",
+				"1002	R	*	7",
+				"1003	REG	-	7",
+				"-5	C	M2	1	2	100");
+		List<ExternalEvent> events = r.readEvents(100);
+		r.close();
+
+		assertEquals(9, events.size());
+		assertTrue(events.get(0) instanceof ConnectionEvent);
+		assertEquals(0.1, events.get(0).getTime());
+		assertEquals("CONN up @0.1 1<->2", events.get(0).toString());
+		assertEquals("CONN down @12.5 3<->4", events.get(1).toString());
+		assertTrue(events.get(2) instanceof MessageCreateEvent);
+		assertEquals("MSG @100.0 M1 [10->20] size:1024 CREATE",
+				events.get(2).toString());
+		assertTrue(events.get(3) instanceof MessageRelayEvent);
+		assertEquals(101.25, events.get(3).getTime());
+		assertEquals(1000.0, events.get(4).getTime());
+		assertEquals(1000.5, events.get(5).getTime());
+		assertTrue(events.get(6) instanceof MessageDeleteEvent);
+		assertEquals("MSG @1001.0 M1 [7] DELETE", events.get(6).toString());
+		assertEquals("MSG @1002.0 * [7] DELETE", events.get(7).toString());
+		assertEquals(-5.0, events.get(8).getTime());
+	}
+
+	public void testPreciseTimes() throws Exception {
+		String[] times = {"1533.405", "0.1", "106202.613", "3.14159265358979",
+				"123456789.123456789", "0.30000000000000004"};
+		String[] lines = new String[times.length];
+		for (int i=0; i<times.length; i++) {
+			lines[i] = times[i] + " C M" + i + " 1 2 10";
+		}
+		StandardEventsReader r = createReader(lines);
+		List<ExternalEvent> events = r.readEvents(times.length);
+		r.close();
+
+		for (int i=0; i<times.length; i++) {
+			assertEquals(Double.parseDouble(times[i]),
+					events.get(i).getTime(), 0.0);
+		}
+	}
+
+	public void testBatches() throws Exception {
+		StandardEventsReader r = createReader("1 C M1 1 2 10",
+				"2 C M2 1 2 10", "3 C M3 1 2 10");
+		assertEquals(2, r.readEvents(2).size());
+		assertEquals(1, r.readEvents(2).size());
+		assertEquals(0, r.readEvents(2).size());
+		r.close();
+	}
+
+	public void testInvalidHostId() throws Exception {
+		String[] invalid = {"p", "1p", "p1p2", "p1.0"};
+		for (String id : invalid) {
+			StandardEventsReader r = createReader("1 C M1 " + id + " 2 10");
+			try {
+				r.readEvents(1);
+				fail("Host id '" + id + "' should not be accepted");
+			} catch (SimError e) {
+				// expected
+			}
+			r.close();
+		}
+	}
+
+	public void testInvalidLines() throws Exception {
+		String[] invalid = {"1 C M1 1 2", "x C M1 1 2 10", "1 FOO M1 1 2",
+				"1 CONN 1 2 sideways"};
+		for (String line : invalid) {
+			StandardEventsReader r = createReader(line);
+			try {
+				r.readEvents(1);
+				fail("Line '" + line + "' should not be accepted");
+			} catch (SimError e) {
+				// expected
+			}
+			r.close();
+		}
+	}
+}
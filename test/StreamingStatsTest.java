@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import report.QuantileSketch;
+import report.StreamingStats;
+
+/**
+ * Tests for the streaming statistics and the quantile sketch.
+ */
+public class StreamingStatsTest extends TestCase {
+	private static final double DELTA = 1e-9;
+
+	public void testEmpty() {
+		StreamingStats s = new StreamingStats();
+		assertEquals(0, s.getCount());
+		assertTrue(Double.isNaN(s.getMean()));
+		assertTrue(Double.isNaN(s.getVariance()));
+		assertTrue(Double.isNaN(s.getMedian()));
+		assertTrue(Double.isNaN(new QuantileSketch().getQuantile(0.5)));
+	}
+
+	public void testExact() {
+		StreamingStats s = new StreamingStats(true, 0);
+		double[] values = {5, 1, 4, 2, 3, 6};
+		for (double v : values) {
+			s.add(v);
+		}
+		assertEquals(6, s.getCount());
+		assertEquals(21.0, s.getSum(), DELTA);
+		assertEquals(3.5, s.getMean(), DELTA);
+		assertEquals(35.0 / 12, s.getVariance(), DELTA);
+		assertEquals(1.0, s.getMin(), DELTA);
+		assertEquals(6.0, s.getMax(), DELTA);
+		assertEquals(3.5, s.getMedian(), DELTA); // average of 3 and 4
+		assertEquals(4.0, s.getValueAtRank(3), DELTA);
+
+		s.add(0);
+		assertEquals(3.0, s.getMedian(), DELTA);
+	}
+
+	public void testMerge() {
+		Random rng = new Random(1);
+		StreamingStats all = new StreamingStats(true, 0);
+		StreamingStats part1 = new StreamingStats();
+		StreamingStats part2 = new StreamingStats();
+		for (int i = 0; i < 1000; i++) {
+			double v = rng.nextGaussian() * 10 + 100;
+			all.add(v);
+			(i % 3 == 0 ? part1 : part2).add(v);
+		}
+
+		StreamingStats merged = new StreamingStats();
+		merged.merge(part1);
+		merged.merge(part2);
+		assertEquals(all.getCount(), merged.getCount());
+		assertEquals(all.getMean(), merged.getMean(), DELTA);
+		assertEquals(all.getVariance(), merged.getVariance(), 1e-6);
+		assertEquals(all.getMin(), merged.getMin(), DELTA);
+		assertEquals(all.getMax(), merged.getMax(), DELTA);
+	}
+
+	public void testSketchAccuracy() {
+		Random rng = new Random(1);
+		int n = 100000;
+		double[] values = new double[n];
+		QuantileSketch sketch = new QuantileSketch();
+		QuantileSketch part1 = new QuantileSketch();
+		QuantileSketch part2 = new QuantileSketch();
+		for (int i = 0; i < n; i++) {
+			values[i] = rng.nextDouble() * 1000;
+			sketch.add(values[i]);
+			(i % 2 == 0 ? part1 : part2).add(values[i]);
+		}
+		part1.merge(part2);
+		Arrays.sort(values);
+		assertEquals(n, sketch.getCount());
+		assertEquals(n, part1.getCount());
+
+		/* allow twice the nominal rank error of the default sketch */
+		int maxError = (int)(n * 2 * 1.7 / QuantileSketch.DEF_K);
+		for (double q = 0.05; q < 1; q += 0.05) {
+			checkRank(values, sketch.getQuantile(q), (int)(q * n), maxError);
+			checkRank(values, part1.getQuantile(q), (int)(q * n), maxError);
+		}
+	}
+
+	private void checkRank(double[] sorted, double value, int rank,
+			int maxError) {
+		int realRank = Arrays.binarySearch(sorted, value);
+		assertTrue("Value " + value + " is not from the input", realRank >= 0);
+		assertTrue("Rank error " + (realRank - rank),
+				Math.abs(realRank - rank) <= maxError);
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.DTNHost;
+import core.ScheduledUpdateListener;
+import core.UpdateListener;
+import core.UpdateListenerSchedule;
+
+/**
+ * Tests for informing plain and scheduled update listeners about updates.
+ */
+public class UpdateListenerScheduleTest extends TestCase {
+	private static final List<DTNHost> NO_HOSTS = new ArrayList<DTNHost>();
+
+	/** Listener that records the order of the calls */
+	private static class RecordingListener implements UpdateListener {
+		protected String name;
+		protected List<String> calls;
+
+		public RecordingListener(String name, List<String> calls) {
+			this.name = name;
+			this.calls = calls;
+		}
+
+		public void updated(List<DTNHost> hosts) {
+			calls.add(name);
+		}
+	}
+
+	/** Listener that wants an update once every period */
+	private static class PeriodicListener extends RecordingListener
+			implements ScheduledUpdateListener {
+		private double period;
+		private double next;
+
+		public PeriodicListener(String name, List<String> calls,
+				double period) {
+			super(name, calls);
+			this.period = period;
+			this.next = period;
+		}
+
+		public double nextUpdateTime() {
+			return next;
+		}
+
+		@Override
+		public void updated(List<DTNHost> hosts) {
+			super.updated(hosts);
+			next += period;
+		}
+	}
+
+	public void testSchedule() {
+		List<String> calls = new ArrayList<String>();
+		List<UpdateListener> listeners = new ArrayList<UpdateListener>();
+		UpdateListenerSchedule schedule = new UpdateListenerSchedule(listeners);
+		assertEquals(Double.MAX_VALUE, schedule.getNextScheduledTime());
+
+		listeners.add(new PeriodicListener("p2", calls, 2));
+		listeners.add(new RecordingListener("every", calls));
+		listeners.add(new PeriodicListener("p3", calls, 3));
+		assertEquals(2.0, schedule.getNextScheduledTime());
+
+		for (int time = 1; time <= 6; time++) {
+			schedule.updated(NO_HOSTS, time);
+		}
+
+		String[] expected = {"every", // 1
+				"p2", "every", // 2
+				"every", "p3", // 3
+				"p2", "every", // 4
+				"every", // 5
+				"p2", "every", "p3"}; // 6
+		assertEquals(expected.length, calls.size());
+		for (int i=0; i<expected.length; i++) {
+			assertEquals(expected[i], calls.get(i));
+		}
+		assertEquals(8.0, schedule.getNextScheduledTime());
+	}
+
+	public void testListenerAddedLater() {
+		List<String> calls = new ArrayList<String>();
+		List<UpdateListener> listeners = new ArrayList<UpdateListener>();
+		UpdateListenerSchedule schedule = new UpdateListenerSchedule(listeners);
+		schedule.updated(NO_HOSTS, 1);
+		assertEquals(0, calls.size());
+
+		listeners.add(new PeriodicListener("p", calls, 10));
+		schedule.updated(NO_HOSTS, 5);
+		assertEquals(0, calls.size());
+		schedule.updated(NO_HOSTS, 10.5);
+		assertEquals(1, calls.size());
+		assertEquals(20.0, schedule.getNextScheduledTime());
+	}
+}
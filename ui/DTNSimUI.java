@@ -4,6 +4,9 @@
  */
 package ui;
 
+import input.EventQueue;
+import input.ExternalEventsQueue;
+
 import java.util.Vector;
 
 import report.Report;
@@ -12,6 +15,7 @@ import core.ConnectionListener;
 import core.DTNHost;
 import core.MessageListener;
 import core.MovementListener;
+import core.Profiler;
 import core.Settings;
 import core.SettingsError;
 import core.SimClock;
@@ -110,6 +114,7 @@ public abstract class DTNSimUI {
 
 			world = scen.getWorld();
 			world.warmupMovementModel(warmupTime);
+			Profiler.init();
 		}
 		catch (SettingsError se) {
 			System.err.println("Can't start: error in configuration file(s)");
@@ -127,9 +132,15 @@ public abstract class DTNSimUI {
 	 * Runs maintenance jobs that are needed before exiting.
 	 */
 	public void done() {
+		Profiler.done();
 		for (Report r : reports) {
 			r.done();
 		}
+		for (EventQueue eq : scen.getExternalEvents()) {
+			if (eq instanceof ExternalEventsQueue) {
+				((ExternalEventsQueue)eq).close();
+			}
+		}
 	}
 	
 	/**